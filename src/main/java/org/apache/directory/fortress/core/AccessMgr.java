@@ -415,4 +415,58 @@ public interface AccessMgr extends Manageable
      */
     User getUser( Session session )
         throws SecurityException;
+
+    /**
+     * Create an RBAC session, as {@link #createSession(User, boolean)}, and keep it in the process wide
+     * {@link org.apache.directory.fortress.core.util.cache.SessionStore}.  The returned token may be passed to
+     * {@link #getSession(String)}, {@link #checkAccess(String, Permission)} and {@link #deleteSession(String)} in place of
+     * the Session.  The stored session expires after it has been idle for the user's timeout.
+     *
+     * @param user      Contains {@link User#userId}, {@link User#password} (optional if {@code isTrusted} is 'true'),
+     * optional {@link User#roles}, optional {@link User#adminRoles}
+     * @param isTrusted if true password is not required.
+     * @return opaque token that identifies the stored session.
+     * @throws SecurityException in the event of data validation failure, security policy violation or DAO error.
+     */
+    String createSessionToken( User user, boolean isTrusted )
+        throws SecurityException;
+
+
+    /**
+     * Return the RBAC session stored for a token.  Changes made to the returned session, e.g. by
+     * {@link #addActiveRole(Session, UserRole)}, are seen by subsequent calls that use the same token.
+     *
+     * @param token returned by {@link #createSessionToken(User, boolean)}.
+     * @return Session stored for the token.
+     * @throws SecurityException will be thrown with {@link GlobalErrIds#USER_SESS_TOKEN_INVALID} if the token is not
+     * found or its session has expired.
+     */
+    Session getSession( String token )
+        throws SecurityException;
+
+
+    /**
+     * Perform user RBAC authorization, as {@link #checkAccess(Session, Permission)}, against the session stored for a
+     * token.
+     *
+     * @param token returned by {@link #createSessionToken(User, boolean)}.
+     * @param perm  must contain the object, {@link Permission#objName}, and operation, {@link Permission#opName}, of
+     * permission User is trying to access.
+     * @return True if user has access, false otherwise.
+     * @throws SecurityException
+     *          in the event of invalid token, data validation failure, security policy violation or DAO error.
+     */
+    boolean checkAccess( String token, Permission perm )
+        throws SecurityException;
+
+
+    /**
+     * Remove the session stored for a token.  Subsequent use of the token will fail.
+     *
+     * @param token returned by {@link #createSessionToken(User, boolean)}.
+     * @throws SecurityException will be thrown with {@link GlobalErrIds#USER_SESS_TOKEN_INVALID} if the token is not
+     * found.
+     */
+    void deleteSession( String token )
+        throws SecurityException;
 }
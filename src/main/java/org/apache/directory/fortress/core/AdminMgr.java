@@ -20,6 +20,9 @@
 package org.apache.directory.fortress.core;
 
 
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.directory.fortress.core.model.PermObj;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.PermissionAttribute;
@@ -29,6 +32,7 @@ import org.apache.directory.fortress.core.model.RoleConstraint;
 import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.model.Warning;
 
 
 /**
@@ -450,6 +454,59 @@ public interface AdminMgr extends Manageable
     void assignUser( UserRole uRole )
         throws SecurityException;
 
+
+    /**
+     * This command assigns a role to each of a collection of users.  It has the same effect as calling
+     * {@link #assignUser(UserRole)} once per user, but the users are read once, the SSD constraints of the whole batch
+     * are validated together, and the changes to the user and role entries are sent to the directory together.
+     * <p>
+     * Each assignment succeeds or fails on its own.  One that fails, i.e. because the user doesn't exist, is already
+     * assigned or would violate an SSD constraint, is reported as a {@link Warning} of type {@link Warning.Type#USER}
+     * with {@link Warning#getName()} set to the userId, and doesn't prevent the others.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>{@link Role#name} - contains the name for already existing Role to be assigned</li>
+     *   <li>userIds - contains the userIds of existing Users</li>
+     * </ul>
+     *
+     * @param role    must contain {@link Role#name}.
+     * @param userIds contains the userIds targeted for assignment.
+     * @return List of {@link Warning}, one per assignment that failed.  Empty if all succeeded.
+     * @throws SecurityException in the event of validation error of the input, or a system error reading the users.
+     */
+    List<Warning> assignUsers( Role role, Collection<String> userIds )
+        throws SecurityException;
+
+
+    /**
+     * This command assigns a collection of roles to a user.  It has the same effect as calling
+     * {@link #assignUser(UserRole)} once per role, but the user is read once, the SSD constraints of the whole batch
+     * are validated together, and the changes to the user and role entries are sent to the directory together.
+     * <p>
+     * Each assignment succeeds or fails on its own.  One that fails, i.e. because the role doesn't exist, is already
+     * assigned or would violate an SSD constraint, is reported as a {@link Warning} of type {@link Warning.Type#ROLE}
+     * with {@link Warning#getName()} set to the role name, and doesn't prevent the others.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>{@link User#userId} - contains the userId for existing User</li>
+     *   <li>{@link UserRole#name} - of each UserRole contains the name for already existing Role to be assigned</li>
+     * </ul>
+     * <h4>optional parameters</h4>
+     * <ul>
+     *   <li>the temporal constraints of each UserRole, as described by {@link #assignUser(UserRole)}</li>
+     * </ul>
+     *
+     * @param user   must contain {@link User#userId}.
+     * @param uRoles contains the role names and optional {@code Constraints} targeted for assignment.  Their userId
+     *               is set to the user's.
+     * @return List of {@link Warning}, one per assignment that failed.  Empty if all succeeded.
+     * @throws SecurityException in the event of validation error of the input, or a system error reading the user.
+     */
+    List<Warning> assignRoles( User user, Collection<UserRole> uRoles )
+        throws SecurityException;
+
     /**
      * This method adds a roleConstraint (ftRC) to the user ldap entry. (ftRC=ROLE_NAME$type$CONSTRAINT_TYPE$CONSTRAINT_PASETNAME$CONSTRAINT_VALUE)
      * <h4>required parameters</h4>
@@ -0,0 +1,41 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core;
+
+
+/**
+ * Receives the records of an audit export, see {@link AuditMgr#exportBinds}, one at a time and in order of their
+ * reqStart, so that an export of any size may be processed without holding it in memory.
+ * {@link org.apache.directory.fortress.core.util.NdjsonAuditWriter} writes them to a file.
+ *
+ * @param <T> type of audit record, {@link org.apache.directory.fortress.core.model.AuthZ},
+ *            {@link org.apache.directory.fortress.core.model.Bind} or {@link org.apache.directory.fortress.core.model.Mod}.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface AuditConsumer<T>
+{
+    /**
+     * Receive the next record of an export.
+     *
+     * @param record contains the audit record.
+     * @throws SecurityException to end the export, it is rethrown to the caller of the export.
+     */
+    void accept( T record ) throws SecurityException;
+}
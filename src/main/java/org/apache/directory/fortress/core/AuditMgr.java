@@ -20,6 +20,7 @@
 package org.apache.directory.fortress.core;
 
 
+import org.apache.directory.fortress.core.model.AuditStats;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Mod;
 import org.apache.directory.fortress.core.model.UserAudit;
@@ -253,4 +254,130 @@ public interface AuditMgr extends Manageable
      */
     List<AuthZ> searchInvalidUsers( UserAudit uAudit )
         throws SecurityException;
+
+
+    /**
+     * This method exports the authorization events selected as by {@link #getUserAuthZs(UserAudit)} between
+     * {@link UserAudit#beginDate} and {@link UserAudit#endDate}, without the size limit of the search.  The window is
+     * read in parallel slices and the events passed to the consumer as they arrive, in order of the time they were
+     * logged, so the whole result is never held in memory.  Use
+     * {@link org.apache.directory.fortress.core.util.NdjsonAuditWriter} to write the events to a file.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>{@link UserAudit#beginDate} - contains the date in which to begin export</li>
+     * </ul>
+     * <h4>optional parameters</h4>
+     * <ul>
+     *   <li>{@link UserAudit#userId} - contains the target userId</li>
+     *   <li>{@link UserAudit#endDate} - contains the date in which to end export, defaults to now</li>
+     *   <li>{@link UserAudit#failedOnly} - if set to 'true', export only failed authorization events</li>
+     * </ul>
+     *
+     * @param uAudit   This entity is instantiated and populated before invocation.
+     * @param consumer receives each AuthZ object, on the caller's thread.
+     * @return the number of events exported.
+     * @throws SecurityException if a runtime system error occurs, or thrown by the consumer.
+     */
+    long exportAuthZs( UserAudit uAudit, AuditConsumer<? super AuthZ> consumer )
+        throws SecurityException;
+
+
+    /**
+     * This method exports the authentication events selected as by {@link #searchBinds(UserAudit)} between
+     * {@link UserAudit#beginDate} and {@link UserAudit#endDate}, as {@link #exportAuthZs(UserAudit, AuditConsumer)}
+     * does.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>{@link UserAudit#beginDate} - contains the date in which to begin export</li>
+     * </ul>
+     * <h4>optional parameters</h4>
+     * <ul>
+     *   <li>{@link UserAudit#userId} - contains the target userId</li>
+     *   <li>{@link UserAudit#endDate} - contains the date in which to end export, defaults to now</li>
+     *   <li>{@link UserAudit#failedOnly} - if set to 'true', export only failed authentication events</li>
+     * </ul>
+     *
+     * @param uAudit   This entity is instantiated and populated before invocation.
+     * @param consumer receives each Bind object, on the caller's thread.
+     * @return the number of events exported.
+     * @throws SecurityException if a runtime system error occurs, or thrown by the consumer.
+     */
+    long exportBinds( UserAudit uAudit, AuditConsumer<? super Bind> consumer )
+        throws SecurityException;
+
+
+    /**
+     * This method exports the admin operation events selected as by {@link #searchAdminMods(UserAudit)} between
+     * {@link UserAudit#beginDate} and {@link UserAudit#endDate}, as {@link #exportAuthZs(UserAudit, AuditConsumer)}
+     * does.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>{@link UserAudit#beginDate} - contains the date in which to begin export</li>
+     * </ul>
+     * <h4>optional parameters</h4>
+     * <ul>
+     *   <li>{@link UserAudit#dn} - contains the LDAP distinguished name for the updated object</li>
+     *   <li>{@link UserAudit#objName} - contains the object (authorization resource) name corresponding to the event</li>
+     *   <li>{@link UserAudit#userId} - limits the export to changes made by this user</li>
+     *   <li>{@link UserAudit#endDate} - contains the date in which to end export, defaults to now</li>
+     * </ul>
+     *
+     * @param uAudit   This entity is instantiated and populated before invocation.
+     * @param consumer receives each Mod object, on the caller's thread.
+     * @return the number of events exported.
+     * @throws SecurityException if a runtime system error occurs, or thrown by the consumer.
+     */
+    long exportAdminMods( UserAudit uAudit, AuditConsumer<? super Mod> consumer )
+        throws SecurityException;
+
+
+    /**
+     * This method returns the number of successful and failed authorization events for a permission, a user, or all of
+     * them, without searching the audit log.  The counts are kept in memory and brought up to date every
+     * {@code audit.aggregate.interval.millis} (default 10000) from the log records logged since the last update.  Only
+     * the events of the last {@code audit.aggregate.buckets} x {@code audit.aggregate.bucket.seconds} (default one hour)
+     * are counted.  The first call reads the log records of that window.
+     * <h3></h3>
+     * <h4>optional parameters</h4>
+     * <ul>
+     *   <li>
+     *     {@link UserAudit#objName}, {@link UserAudit#opName} and {@link UserAudit#objId} - count the events of this
+     *     permission
+     *   </li>
+     *   <li>{@link UserAudit#userId} - if objName isn't set, count the events of this user</li>
+     *   <li>{@link UserAudit#admin} - if 'true', the permission is an administrative one</li>
+     *   <li>{@link UserAudit#beginDate} - contains the date in which to begin counting</li>
+     * </ul>
+     * If neither objName nor userId is set the events of all are counted, and also returned by result code in
+     * {@link AuditStats#getResults()}.
+     *
+     * @param uAudit This entity is instantiated and populated before invocation.
+     * @return the counts of successful and failed authorization events.
+     * @throws SecurityException if a runtime system error occurs.
+     */
+    AuditStats getAuthZStats( UserAudit uAudit )
+        throws SecurityException;
+
+
+    /**
+     * This method returns the number of successful and failed authentication events for a user, or all of them,
+     * counted as by {@link #getAuthZStats(UserAudit)}.
+     * <h3></h3>
+     * <h4>optional parameters</h4>
+     * <ul>
+     *   <li>{@link UserAudit#userId} - count the events of this user</li>
+     *   <li>{@link UserAudit#beginDate} - contains the date in which to begin counting</li>
+     * </ul>
+     * If userId isn't set the events of all users are counted, and also returned by result code in
+     * {@link AuditStats#getResults()}.
+     *
+     * @param uAudit This entity is instantiated and populated before invocation.
+     * @return the counts of successful and failed authentication events.
+     * @throws SecurityException if a runtime system error occurs.
+     */
+    AuditStats getBindStats( UserAudit uAudit )
+        throws SecurityException;
 }
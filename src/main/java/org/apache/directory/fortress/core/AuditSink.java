@@ -0,0 +1,59 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core;
+
+
+/**
+ * Records the authorization and authentication events of fortress in place of the slapd access log.  The sink is
+ * chosen by the {@code audit.sink} property: {@code accesslog}, the default, leaves the events to the OpenLDAP
+ * accesslog overlay, {@code journal} records them in a local append-only journal which also serves the
+ * {@link AuditMgr} authorization and bind queries, and any other value is the name of a class implementing this
+ * interface with a public no argument constructor.  The events are not recorded when {@code disable.audit} is true.
+ * <p>
+ * The result codes are those the access log would hold in reqResult, e.g. 6 (compareTrue) for a granted
+ * authorization, 5 (compareFalse) for a denied one, 0 (success) for a successful bind and 49 (invalidCredentials)
+ * for a failed one, 32 (noSuchObject) when the permission or user does not exist.
+ * <p>
+ * Implementations must be thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface AuditSink
+{
+    /**
+     * Record the outcome of a permission check.
+     *
+     * @param userDn distinguished name of the user the check was made for.
+     * @param permDn distinguished name of the permission operation checked.
+     * @param result ldap result code of the check.
+     * @throws SecurityException if the event could not be recorded, the check fails with it.
+     */
+    void addAuthZ( String userDn, String permDn, int result ) throws SecurityException;
+
+
+    /**
+     * Record the outcome of an authentication.
+     *
+     * @param userDn distinguished name of the user that authenticated.
+     * @param result ldap result code of the bind.
+     * @throws SecurityException if the event could not be recorded, the authentication fails with it.
+     */
+    void addBind( String userDn, int result ) throws SecurityException;
+}
@@ -207,4 +207,31 @@ public interface DelAccessMgr extends Manageable
      */
     List<Permission> sessionPermissions( Session session )
         throws SecurityException;
+
+    /**
+     * Return the session stored for a token created by {@link AccessMgr#createSessionToken(User, boolean)}.
+     *
+     * @param token returned by {@link AccessMgr#createSessionToken(User, boolean)}.
+     * @return Session stored for the token.
+     * @throws SecurityException will be thrown with
+     * {@link org.apache.directory.fortress.core.GlobalErrIds#USER_SESS_TOKEN_INVALID} if the token is not found or its
+     * session has expired.
+     */
+    Session getSession( String token )
+        throws SecurityException;
+
+
+    /**
+     * Perform administrative authorization, as {@link #checkAccess(Session, Permission)}, against the session stored
+     * for a token.
+     *
+     * @param token returned by {@link AccessMgr#createSessionToken(User, boolean)}.
+     * @param perm  object contains obj attribute which is a String and contains the name of the object user is trying to
+     * access; perm object contains operation attribute which is also a String and contains the operation name for the object.
+     * @return True of user has access, false otherwise.
+     * @throws SecurityException
+     *          is thrown if token is invalid or runtime error occurs with system.
+     */
+    boolean checkAccess( String token, Permission perm )
+        throws SecurityException;
 }
@@ -186,6 +186,16 @@ public final class GlobalErrIds
      */
     public static final int FT_CONFIG_JSSE_TRUSTSTORE_NULL = 136;
 
+    /**
+     * The ldap operation did not complete before the caller's deadline.
+     */
+    public static final int FT_LDAP_DEADLINE_EXCEEDED = 137;
+
+    /**
+     * The ldap operation was not attempted because the circuit breaker is open after repeated directory failures.
+     */
+    public static final int FT_LDAP_CIRCUIT_OPEN = 138;
+
     /**
      * 1000's - User Entity Rule and LDAP Errors
      */
@@ -381,6 +391,21 @@ public final class GlobalErrIds
      */
     public static final int USER_BIND_FAILED = 1037;
 
+    /**
+     * The User attribute projection was not supplied but is required.
+     */
+    public static final int USER_PROJECTION_NULL = 1038;
+
+    /**
+     * The session token supplied was not found in the session store or the session has expired.
+     */
+    public static final int USER_SESS_TOKEN_INVALID = 1039;
+
+    /**
+     * The User attribute group excluded from the original read could not be loaded from ldap.
+     */
+    public static final int USER_PROJECTION_LOAD_FAILED = 1040;
+
     /**
      * 2000's User-Role assignments
      */
@@ -1177,6 +1202,27 @@ public final class GlobalErrIds
      */
     public static final int AUDT_AUTHN_INVALID_FAILED = 7005;
 
+    /**
+     * The Audit export requires the begin date of the time window to export.
+     */
+    public static final int AUDT_EXPORT_BEGIN_NULL = 7006;
+
+    /**
+     * The Audit export failed to deliver its records, i.e. the export file could not be written, or was interrupted.
+     */
+    public static final int AUDT_EXPORT_FAILED = 7007;
+
+    /**
+     * The Audit sink failed to record an authorization or authentication event, i.e. the audit journal could not be
+     * written.
+     */
+    public static final int AUDT_SINK_FAILED = 7008;
+
+    /**
+     * The Audit sink is neither the access log nor the audit journal, its events cannot be searched or exported.
+     */
+    public static final int AUDT_SINK_NOT_SEARCHABLE = 7009;
+
 
     /**
      * 8000's Organizational Unit Rule and System errors
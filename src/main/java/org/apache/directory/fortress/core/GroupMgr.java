@@ -95,7 +95,9 @@ public interface GroupMgr extends Manageable
 
 
     /**
-     * Read an existing group node.  The name is required.
+     * Read an existing group node.  The name is required.  The members are not retrieved with the group, they are
+     * loaded on first access of {@link Group#getMembers()}.  Use {@link Group#getMembers(int, int)} to read them a page
+     * at a time or {@link #isMember(Group, String)} to test for a single member.
      *
      * @param group contains {@link Group} with name field set with an existing group name.
      * @return {@link Group} containing entity found.
@@ -105,7 +107,8 @@ public interface GroupMgr extends Manageable
 
 
     /**
-     * Search using a full or partial group node.  The name is required.
+     * Search using a full or partial group node.  The name is required.  As with {@link #read(Group)}, the members are
+     * loaded on first access.
      *
      * @param group contains {@link Group}.
      * @return List of type {@link Group} containing entities found.
@@ -162,4 +165,16 @@ public interface GroupMgr extends Manageable
      * @throws org.apache.directory.fortress.core.SecurityException in the event entry already present or other system error.
      */
     Group deassign( Group group, String member ) throws SecurityException;
+
+
+    /**
+     * Test whether a user or role is a member of an existing group node, without reading the group's members.  The
+     * group name and member are required.
+     *
+     * @param group contains {@link Group}, its type determines whether the member is a user or role.
+     * @param member is the relative distinguished name (rdn) of an existing user or role in ldap.
+     * @return true if the user or role is a member of the group.
+     * @throws org.apache.directory.fortress.core.SecurityException in the event group or member not found or other system error.
+     */
+    boolean isMember( Group group, String member ) throws SecurityException;
 }
\ No newline at end of file
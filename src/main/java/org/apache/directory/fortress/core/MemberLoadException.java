@@ -0,0 +1,49 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core;
+
+
+/**
+ * This exception extends {@link BaseRuntimeException} and is thrown by the accessors of a
+ * {@link org.apache.directory.fortress.core.model.Role} or {@link org.apache.directory.fortress.core.model.Group}
+ * whose occupants, respectively members, were excluded from the read and could not be loaded on first access.  The
+ * accessors can't throw checked exceptions, and returning the list empty would be indistinguishable from an entity that
+ * has none.  The list stays deferred, so a later access retries the load.  See the {@link GlobalErrIds} javadoc for
+ * list of error ids.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class MemberLoadException extends BaseRuntimeException
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+
+
+    /**
+     * Create exception with error id, message and related exception.
+     * @param errorId contains the error id which is defined here {@link GlobalErrIds}.
+     * @param newMsgText contains text related to the exception.
+     * @param newException contains related exception.
+     */
+    public MemberLoadException( int errorId, String newMsgText, Exception newException )
+    {
+        super( errorId, newMsgText, newException );
+    }
+}
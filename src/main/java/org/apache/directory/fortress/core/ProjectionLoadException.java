@@ -0,0 +1,47 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core;
+
+
+/**
+ * This exception extends {@link BaseRuntimeException} and is thrown by the accessors of a
+ * {@link org.apache.directory.fortress.core.model.User} read with a projection when an attribute group excluded from
+ * the read could not be loaded on first access.  The accessors can't throw checked exceptions, and returning the group
+ * empty would be indistinguishable from a user that has none.  The group stays deferred, so a later access retries the
+ * load.  It carries {@link GlobalErrIds#USER_PROJECTION_LOAD_FAILED}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class ProjectionLoadException extends BaseRuntimeException
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+
+
+    /**
+     * Create exception with message and related exception.
+     * @param newMsgText contains text related to the exception.
+     * @param newException contains related exception.
+     */
+    public ProjectionLoadException( String newMsgText, Exception newException )
+    {
+        super( GlobalErrIds.USER_PROJECTION_LOAD_FAILED, newMsgText, newException );
+    }
+}
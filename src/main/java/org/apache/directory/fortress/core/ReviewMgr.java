@@ -31,6 +31,7 @@ import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.model.RoleConstraint;
 import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserProjection;
 import org.apache.directory.fortress.core.model.UserRole;
 
 
@@ -262,6 +263,27 @@ public interface ReviewMgr extends Manageable
         throws SecurityException;
 
 
+    /**
+     * Method returns matching User entity that is contained within the people container in the directory.  Only the
+     * attribute groups contained in the projection are retrieved from the directory, the remaining groups are loaded
+     * on first access of their getters.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>{@link User#userId} - contains the userId associated with the User object targeted for read.</li>
+     *   <li>projection - contains the {@link UserProjection} groups to retrieve.</li>
+     * </ul>
+     *
+     * @param user entity contains a value {@link User#userId} that matches record in the directory.  userId is globally
+     * unique in people container.
+     * @param projection contains the attribute groups to retrieve.
+     * @return entity containing matching user data.
+     * @throws SecurityException if record not found or system error occurs.
+     */
+    User readUser( User user, Set<UserProjection> projection )
+        throws SecurityException;
+
+
     /**
      * Return a list of type User of all users in the people container that match all or part of the {@link User#userId} 
      * field passed in User entity.
@@ -279,6 +301,26 @@ public interface ReviewMgr extends Manageable
         throws SecurityException;
 
 
+    /**
+     * Return a list of type User of all users in the people container that match all or part of the {@link User#userId}
+     * field passed in User entity.  Only the attribute groups contained in the projection are retrieved from the
+     * directory, the remaining groups are loaded on first access of their getters.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>{@link User#userId} - contains all or some leading chars that match userId(s) stored in the directory.</li>
+     *   <li>projection - contains the {@link UserProjection} groups to retrieve.</li>
+     * </ul>
+     *
+     * @param user contains all or some leading chars that match userIds stored in the directory.
+     * @param projection contains the attribute groups to retrieve.
+     * @return List of type User.
+     * @throws SecurityException In the event of system error.
+     */
+    List<User> findUsers( User user, Set<UserProjection> projection )
+        throws SecurityException;
+
+
     /**
      * Return a list of type User of all users in the people container that match the name field passed in OrgUnit entity.
      * <h3></h3>
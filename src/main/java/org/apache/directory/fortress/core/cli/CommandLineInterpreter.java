@@ -36,6 +36,7 @@ import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.directory.fortress.core.*;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.impl.WarmUp;
 import org.apache.directory.fortress.core.model.Group;
 import org.apache.directory.fortress.core.GroupMgr;
 import org.apache.directory.fortress.core.GroupMgrFactory;
@@ -149,6 +150,7 @@ public class CommandLineInterpreter
     private static final String AUTHENTICATE = "authenticate";
     private static final String ASSIGNED_ROLES = "assignedroles";
     private static final String CHECK_ACCESS = "checkaccess";
+    private static final String WARM_UP = "warmup";
 
 
     /**
@@ -894,6 +896,16 @@ public class CommandLineInterpreter
                 boolean result = accessMgr.checkAccess( session, inPerm );
                 printRow( "CA", "PERM", "" + result );
             }
+            else if ( commands.contains( WARM_UP ) )
+            {
+                command = WARM_UP;
+                LOG.info( command );
+                for ( WarmUp.Phase phase : WarmUp.run() )
+                {
+                    String error = phase.isSuccess() ? "" : " failed " + phase.getError();
+                    printRow( "WU", phase.getName(), phase.getMillis() + " ms" + error );
+                }
+            }
             else
             {
                 LOG.warn( "unknown system operation detected" );
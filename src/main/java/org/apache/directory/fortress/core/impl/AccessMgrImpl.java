@@ -23,6 +23,7 @@ package org.apache.directory.fortress.core.impl;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.directory.fortress.core.AccessMgr;
@@ -30,6 +31,7 @@ import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.*;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.cache.SessionStore;
 
 
 /**
@@ -204,7 +206,10 @@ public class AccessMgrImpl extends Manageable implements AccessMgr, Serializable
         VUtil.getInstance().validateConstraints( session, VUtil.ConstraintType.USER, false );
         VUtil.getInstance().validateConstraints( session, VUtil.ConstraintType.ROLE, false );
         setEntitySession(CLS_NM, methodName, session);
-        return RoleUtil.getInstance().getInheritedRoles( session.getRoles(), this.contextId );
+        // copy the memoized set, callers are free to modify the one returned:
+        Set<String> iRoles = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        iRoles.addAll( RoleUtil.getInstance().getInheritedRoles( session, this.contextId ) );
+        return iRoles;
     }
 
 
@@ -334,4 +339,64 @@ public class AccessMgrImpl extends Manageable implements AccessMgr, Serializable
 
         return session.getUser();
     }
-}
\ No newline at end of file
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String createSessionToken( User user, boolean isTrusted )
+        throws SecurityException
+    {
+        Session session = createSession( user, isTrusted );
+        return SessionStore.getInstance().put( this.contextId, session );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Session getSession( String token )
+        throws SecurityException
+    {
+        String methodName = "getSession";
+        VUtil.getInstance().assertNotNullOrEmpty( token, GlobalErrIds.USER_SESS_TOKEN_INVALID,
+            getFullMethodName( CLS_NM, methodName ) );
+        Session session = SessionStore.getInstance().get( this.contextId, token );
+        if ( session == null )
+        {
+            String info = getFullMethodName( CLS_NM, methodName ) + " session token not found or expired";
+            throw new SecurityException( GlobalErrIds.USER_SESS_TOKEN_INVALID, info );
+        }
+        return session;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean checkAccess( String token, Permission perm )
+        throws SecurityException
+    {
+        return checkAccess( getSession( token ), perm );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteSession( String token )
+        throws SecurityException
+    {
+        String methodName = "deleteSession";
+        VUtil.getInstance().assertNotNullOrEmpty( token, GlobalErrIds.USER_SESS_TOKEN_INVALID,
+            getFullMethodName( CLS_NM, methodName ) );
+        if ( !SessionStore.getInstance().remove( this.contextId, token ) )
+        {
+            String info = getFullMethodName( CLS_NM, methodName ) + " session token not found";
+            throw new SecurityException( GlobalErrIds.USER_SESS_TOKEN_INVALID, info );
+        }
+    }
+}
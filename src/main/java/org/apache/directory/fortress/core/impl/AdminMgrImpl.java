@@ -21,11 +21,18 @@ package org.apache.directory.fortress.core.impl;
 
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
@@ -44,6 +51,7 @@ import org.apache.directory.fortress.core.model.RoleConstraint;
 import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.model.Warning;
 import org.apache.directory.fortress.core.util.VUtil;
 
 import org.slf4j.Logger;
@@ -347,6 +355,195 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
         roleP.assign( role, dn );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Warning> assignUsers( Role role, Collection<String> userIds ) throws SecurityException
+    {
+        String methodName = "assignUsers";
+        assertContext( CLS_NM, methodName, role, GlobalErrIds.ROLE_NULL );
+        VUtil.assertNotNull( userIds, GlobalErrIds.USER_NULL, CLS_NM + "." + methodName );
+        List<UserRole> uRoles = new ArrayList<>( userIds.size() );
+        for ( String userId : userIds )
+        {
+            uRoles.add( new UserRole( userId, role.getName() ) );
+        }
+        return assign( methodName, uRoles, Warning.Type.USER );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Warning> assignRoles( User user, Collection<UserRole> uRoles ) throws SecurityException
+    {
+        String methodName = "assignRoles";
+        assertContext( CLS_NM, methodName, user, GlobalErrIds.USER_NULL );
+        VUtil.assertNotNull( uRoles, GlobalErrIds.URLE_NULL, CLS_NM + "." + methodName );
+        List<UserRole> items = new ArrayList<>( uRoles.size() );
+        for ( UserRole uRole : uRoles )
+        {
+            VUtil.assertNotNull( uRole, GlobalErrIds.URLE_NULL, CLS_NM + "." + methodName );
+            uRole.setUserId( user.getUserId() );
+            items.add( uRole );
+        }
+        return assign( methodName, items, Warning.Type.ROLE );
+    }
+
+    /**
+     * Perform the checks of {@link #assignUser(UserRole)} on each item of a batch, reading each user and role once,
+     * then send the assignments that passed to the user entries and after that to the role entries.
+     *
+     * @param methodName of the caller.
+     * @param uRoles     contains the assignments.
+     * @param type       of the warnings, which are named by userId if {@link Warning.Type#USER}, else role name.
+     * @return List of {@link Warning}, one per assignment that failed.
+     * @throws SecurityException in the event of a system error reading the users.
+     */
+    private List<Warning> assign( String methodName, List<UserRole> uRoles, Warning.Type type )
+        throws SecurityException
+    {
+        List<Warning> warnings = new ArrayList<>();
+        Set<String> userIds = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        for ( UserRole uRole : uRoles )
+        {
+            if ( StringUtils.isNotEmpty( uRole.getUserId() ) )
+            {
+                userIds.add( uRole.getUserId() );
+            }
+        }
+
+        // read the users, and the roles they are authorized for, once for the whole batch:
+        Map<String, User> users = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+        Map<String, Set<String>> authorizedRoles = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+        if ( !userIds.isEmpty() )
+        {
+            for ( User user : userP.getUsers( userIds, contextId ) )
+            {
+                users.put( user.getUserId(), user );
+                authorizedRoles.put( user.getUserId(), RoleUtil.getInstance().getInheritedRoles( user.getRoles(),
+                    contextId ) );
+            }
+        }
+
+        // contains the Role read, or the SecurityException reading it, by name:
+        Map<String, Object> validRoles = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+        List<UserRole> assigned = new ArrayList<>();
+        List<Role> roles = new ArrayList<>();
+        List<String> userDns = new ArrayList<>();
+        for ( UserRole uRole : uRoles )
+        {
+            try
+            {
+                uRole.setContextId( contextId );
+                setEntitySession( CLS_NM, methodName, uRole );
+                VUtil.assertNotNullOrEmpty( uRole.getName(), GlobalErrIds.ROLE_NM_NULL, CLS_NM + "." + methodName );
+                User user = StringUtils.isEmpty( uRole.getUserId() ) ? null : users.get( uRole.getUserId() );
+                if ( user == null )
+                {
+                    String error = methodName + " userId [" + uRole.getUserId() + "] not found";
+                    throw new FinderException( GlobalErrIds.USER_NOT_FOUND, error );
+                }
+                Role role = new Role( uRole.getName() );
+                role.setContextId( contextId );
+                AdminUtil.canAssign( uRole.getAdminSession(), user, role, contextId );
+                Set<String> authorized = authorizedRoles.get( user.getUserId() );
+                SDUtil.getInstance().validateSSD( role, authorized, contextId );
+
+                // if the input role entity attribute doesn't have temporal constraints set, copy from the role declaration:
+                ConstraintUtil.validateOrCopy( readRole( role, validRoles ), uRole );
+
+                // the remaining items of the batch are checked with this assignment in place:
+                authorized.add( role.getName() );
+                Set<String> parents = RoleUtil.getInstance().getAscendants( role.getName(), contextId );
+                if ( CollectionUtils.isNotEmpty( parents ) )
+                {
+                    authorized.addAll( parents );
+                }
+                setAdminData( CLS_NM, methodName, role );
+                assigned.add( uRole );
+                roles.add( role );
+                userDns.add( user.getDn() );
+            }
+            catch ( SecurityException e )
+            {
+                warnings.add( newWarning( uRole, e, type ) );
+            }
+        }
+
+        if ( assigned.isEmpty() )
+        {
+            return warnings;
+        }
+
+        // Assign the Role data to the Users:
+        List<SecurityException> outcomes = userP.assign( assigned );
+        List<UserRole> occupied = new ArrayList<>();
+        List<Role> occupiedRoles = new ArrayList<>();
+        List<String> occupants = new ArrayList<>();
+        for ( int i = 0; i < assigned.size(); i++ )
+        {
+            if ( outcomes.get( i ) != null )
+            {
+                warnings.add( newWarning( assigned.get( i ), outcomes.get( i ), type ) );
+            }
+            else
+            {
+                occupied.add( assigned.get( i ) );
+                occupiedRoles.add( roles.get( i ) );
+                occupants.add( userDns.get( i ) );
+            }
+        }
+
+        // Add the user dns to the "roleOccupant" attribute of the roles:
+        if ( !occupied.isEmpty() )
+        {
+            outcomes = roleP.assign( occupiedRoles, occupants );
+            for ( int i = 0; i < occupied.size(); i++ )
+            {
+                if ( outcomes.get( i ) != null )
+                {
+                    warnings.add( newWarning( occupied.get( i ), outcomes.get( i ), type ) );
+                }
+            }
+        }
+
+        return warnings;
+    }
+
+    /**
+     * Read a role once per batch.
+     */
+    private static Role readRole( Role role, Map<String, Object> validRoles ) throws SecurityException
+    {
+        Object validRole = validRoles.get( role.getName() );
+        if ( validRole == null )
+        {
+            try
+            {
+                validRole = roleP.read( role );
+            }
+            catch ( SecurityException e )
+            {
+                validRole = e;
+            }
+            validRoles.put( role.getName(), validRole );
+        }
+
+        if ( validRole instanceof SecurityException )
+        {
+            throw ( SecurityException ) validRole;
+        }
+        return ( Role ) validRole;
+    }
+
+    private static Warning newWarning( UserRole uRole, SecurityException e, Warning.Type type )
+    {
+        String name = type == Warning.Type.USER ? uRole.getUserId() : uRole.getName();
+        return new Warning( e.getErrorId(), e.getMessage(), type, name );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -777,6 +974,7 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
         assertContext( CLS_NM, methodName, ssdSet, GlobalErrIds.SSD_NULL );
         assertContext( CLS_NM, methodName, role, GlobalErrIds.ROLE_NULL );
         setEntitySession( CLS_NM, methodName, ssdSet );
+        ssdSet.setType( SDSet.SDType.STATIC );
         SDSet entity = sdP.read( ssdSet );
         entity.setContextId( this.contextId );
         entity.addMember( role.getName() );
@@ -798,6 +996,7 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
         assertContext( CLS_NM, methodName, ssdSet, GlobalErrIds.SSD_NULL );
         assertContext( CLS_NM, methodName, role, GlobalErrIds.ROLE_NULL );
         setEntitySession( CLS_NM, methodName, ssdSet );
+        ssdSet.setType( SDSet.SDType.STATIC );
         SDSet entity = sdP.read( ssdSet );
         entity.setContextId( this.contextId );
         entity.delMember( role.getName() );
@@ -920,6 +1119,7 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
         assertContext( CLS_NM, methodName, dsdSet, GlobalErrIds.DSD_NULL );
         assertContext( CLS_NM, methodName, role, GlobalErrIds.ROLE_NULL );
         setEntitySession( CLS_NM, methodName, dsdSet );
+        dsdSet.setType( SDSet.SDType.DYNAMIC );
         SDSet entity = sdP.read( dsdSet );
         entity.setContextId( this.contextId );
         entity.addMember( role.getName() );
@@ -941,6 +1141,7 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
         assertContext( CLS_NM, methodName, dsdSet, GlobalErrIds.DSD_NULL );
         assertContext( CLS_NM, methodName, role, GlobalErrIds.ROLE_NULL );
         setEntitySession( CLS_NM, methodName, dsdSet );
+        dsdSet.setType( SDSet.SDType.DYNAMIC );
         SDSet entity = sdP.read( dsdSet );
         entity.setContextId( this.contextId );
         entity.delMember( role.getName() );
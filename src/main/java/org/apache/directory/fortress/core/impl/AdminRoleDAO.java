@@ -47,7 +47,6 @@ import org.apache.directory.fortress.core.ldap.LdapDataProvider;
 import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.model.ConstraintUtil;
 import org.apache.directory.fortress.core.model.FortEntity;
-import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.ObjectFactory;
 import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.ldap.client.api.LdapConnection;
@@ -596,70 +595,60 @@ final class AdminRoleDAO extends LdapDataProvider implements PropertyProvider<Ad
 
 
     /**
-      *
-      * @param contextId
-      * @return
-      * @throws FinderException
-      */
-    List<Graphable> getAllDescendants( String contextId )
+     * Read the roles that have parents, or every role modified since the given time, a page at a time, and pass each
+     * to the visitor as it is read.
+     *
+     * @param contextId     maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param modifiedSince generalized time, null reads the roles that have parents.
+     * @param visitor       receives the name, parents and modifyTimestamp of each role.
+     * @throws FinderException in the event of ldap search error.
+     */
+    void getDescendants( String contextId, String modifiedSince, HierLoader.Visitor visitor )
         throws FinderException
     {
         String[] DESC_ATRS =
-            { ROLE_NM, GlobalIds.PARENT_NODES };
-        List<Graphable> descendants = new ArrayList<>();
+            { ROLE_NM, GlobalIds.PARENT_NODES, SchemaConstants.MODIFY_TIMESTAMP_AT };
         LdapConnection ld = null;
         String roleRoot = getRootDn( contextId, GlobalIds.ADMIN_ROLE_ROOT );
         String filter = null;
 
         try
         {
-            filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")("
-                + GlobalIds.PARENT_NODES + "=*))";
+            filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")(" + ( modifiedSince == null
+                ? GlobalIds.PARENT_NODES + "=*" : SchemaConstants.MODIFY_TIMESTAMP_AT + ">=" + modifiedSince ) + "))";
             ld = getAdminConnection();
-            SearchCursor searchResults = search( ld, roleRoot,
-                SearchScope.ONELEVEL, filter, DESC_ATRS, false, GlobalIds.BATCH_SIZE );
-            long sequence = 0;
+            byte[] cookie = null;
 
-            while ( searchResults.next() )
+            do
             {
-                descendants.add( unloadDescendants( searchResults.getEntry(), sequence++ ) );
+                SearchCursor searchResults = searchPage( ld, roleRoot, SearchScope.ONELEVEL, filter, DESC_ATRS,
+                    cookie );
+
+                while ( searchResults.next() )
+                {
+                    Entry entry = searchResults.getEntry();
+                    visitor.visit( getAttribute( entry, ROLE_NM ), getAttributeSet( entry, GlobalIds.PARENT_NODES ),
+                        getAttribute( entry, SchemaConstants.MODIFY_TIMESTAMP_AT ) );
+                }
+
+                cookie = getCookie( searchResults );
             }
+            while ( cookie != null );
         }
         catch ( LdapException e )
         {
-            String error = "getAllDescendants filter [" + filter + "] caught LdapException=" + e.getMessage();
+            String error = "getDescendants filter [" + filter + "] caught LdapException=" + e.getMessage();
             throw new FinderException( GlobalErrIds.ARLE_SEARCH_FAILED, error, e );
         }
         catch ( CursorException e )
         {
-            String error = "getAllDescendants filter [" + filter + "] caught CursorException=" + e.getMessage();
+            String error = "getDescendants filter [" + filter + "] caught CursorException=" + e.getMessage();
             throw new FinderException( GlobalErrIds.ARLE_SEARCH_FAILED, error, e );
         }
         finally
         {
             closeAdminConnection( ld );
         }
-
-        return descendants;
-    }
-
-
-    /**
-    *
-    * @param le
-    * @param sequence
-    * @return
-     * @throws LdapInvalidAttributeValueException 
-    * @throws LdapException
-    */
-    private Graphable unloadDescendants( Entry le, long sequence )
-        throws LdapInvalidAttributeValueException
-    {
-        Role entity = new ObjectFactory().createRole();
-        entity.setSequenceId( sequence );
-        entity.setName( getAttribute( le, ROLE_NM ) );
-        entity.setParents( getAttributeSet( le, GlobalIds.PARENT_NODES ) );
-        return entity;
     }
 
 
@@ -32,7 +32,6 @@ import org.apache.directory.fortress.core.RemoveException;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.util.ConstraintValidator;
-import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.UserAdminRole;
 import org.apache.directory.fortress.core.util.VUtil;
@@ -108,16 +107,19 @@ final class AdminRoleP
 
 
     /**
-     * Return all AdminRoles that have a parent assignment.  This used for hierarchical processing.
+     * Read all AdminRoles that have a parent assignment, or all AdminRoles modified since the given time.  This used for
+     * hierarchical processing.
      *
-     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
-     * @return List of type AdminRole containing {@link AdminRole#name} and {@link AdminRole#parents} populated.
+     * @param contextId     maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param modifiedSince generalized time, null reads the AdminRoles that have a parent assignment.
+     * @param visitor       receives the {@link AdminRole#name} and {@link AdminRole#parents} of each AdminRole as it
+     *                      is read.
      * @throws SecurityException in the event of DAO search error.
      */
-    List<Graphable> getAllDescendants( String contextId )
+    void getDescendants( String contextId, String modifiedSince, HierLoader.Visitor visitor )
         throws SecurityException
     {
-        return rDao.getAllDescendants( contextId );
+        rDao.getDescendants( contextId, modifiedSince, visitor );
     }
 
 
@@ -20,9 +20,13 @@
 package org.apache.directory.fortress.core.impl;
 
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
@@ -30,12 +34,14 @@ import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
 import org.apache.directory.fortress.core.model.AdminRole;
-import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.Hier;
+import org.apache.directory.fortress.core.model.InheritedRoles;
 import org.apache.directory.fortress.core.model.Relationship;
+import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.UserAdminRole;
-import org.apache.directory.fortress.core.util.cache.Cache;
+import org.apache.directory.fortress.core.util.cache.CacheLoader;
 import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.directory.fortress.core.util.cache.LoadingCache;
 import org.jgrapht.graph.SimpleDirectedGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,7 +50,7 @@ import org.slf4j.LoggerFactory;
 /**
  * This utility wraps {@link org.apache.directory.fortress.core.impl.HierUtil} methods to provide hierarchical functionality for the {@link org.apache.directory.fortress.core.model.AdminRole} data set.
  * The child to parent relationships are stored within a data cache, {@link #adminRoleCache}, contained within this class.  The parent-child edges are contained in LDAP,
- * in {@code ftParents} attribute.  The ldap data is retrieved {@link org.apache.directory.fortress.core.impl.AdminRoleP#getAllDescendants(String)} and loaded into {@code org.jgrapht.graph.SimpleDirectedGraph}.
+ * in {@code ftParents} attribute.  The ldap data is retrieved {@link org.apache.directory.fortress.core.impl.AdminRoleP#getDescendants(String, String, HierLoader.Visitor)} and loaded into {@code org.jgrapht.graph.SimpleDirectedGraph}.
  * The graph...
  * <ol>
  * <li>is stored as singleton in this class with vertices of {@code String}, and edges, as {@link org.apache.directory.fortress.core.model.Relationship}s</li>
@@ -63,8 +69,18 @@ import org.slf4j.LoggerFactory;
  */
 final class AdminRoleUtil
 {
-    private static final Cache adminRoleCache;
+    private static final LoadingCache<SimpleDirectedGraph<String, Relationship>> adminRoleCache;
     private static final AdminRoleP adminRoleP = new AdminRoleP();
+    private static final HierLoader hierLoader = new HierLoader( "ADMIN ROLE", new HierLoader.Source()
+    {
+        @Override
+        public void read( String contextId, String modifiedSince, HierLoader.Visitor visitor ) throws SecurityException
+        {
+            adminRoleP.getDescendants( contextId, modifiedSince, visitor );
+        }
+    } );
+    // incremented per tenant on each hierarchy update, invalidates the inherited roles memoized on sessions:
+    private static final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
     private static final String CLS_NM = AdminRoleUtil.class.getName();
     private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
 
@@ -75,7 +91,7 @@ final class AdminRoleUtil
     static
     {
         CacheMgr cacheMgr = CacheMgr.getInstance();
-        adminRoleCache = cacheMgr.getCache( "fortress.admin.roles" );
+        adminRoleCache = cacheMgr.getLoadingCache( "fortress.admin.roles" );
     }
 
     /**
@@ -176,6 +192,39 @@ final class AdminRoleUtil
      * @return contains Set of all authorized adminRoles for a given User.
      */
     public static Set<String> getInheritedRoles( List<UserAdminRole> uRoles, String contextId )
+    {
+        return getInheritedRoles( uRoles, getGraph( contextId ) );
+    }
+
+
+    /**
+     * Return Set of {@link org.apache.directory.fortress.core.model.AdminRole#name}s, activated and inherited, for a
+     * {@link org.apache.directory.fortress.core.model.Session}.  The set is memoized on the Session and only recomputed
+     * after adminRoles are activated or dropped or the adminRole hierarchy changes.
+     *
+     * @param session contains the list of AdminRoles activated within a {@link org.apache.directory.fortress.core.model.User}'s session.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return contains unmodifiable Set of all authorized adminRoles for the session.
+     */
+    static Set<String> getInheritedRoles( Session session, String contextId )
+    {
+        // read the version first so that an update made while computing leaves the result stale:
+        long version = getVersion( contextId );
+        SimpleDirectedGraph<String, Relationship> graph = getGraph( contextId );
+        List<UserAdminRole> uRoles = session.getAdminRoles();
+        InheritedRoles memo = session.getInheritedAdminRolesCB();
+        if ( memo != null && memo.isCurrent( uRoles, contextId, graph, version ) )
+        {
+            return memo.getRoles();
+        }
+        Set<String> iRoles = Collections.unmodifiableSet( getInheritedRoles( uRoles, graph ) );
+        session.setInheritedAdminRolesCB( new InheritedRoles( uRoles, contextId, graph, version, iRoles ) );
+        return iRoles;
+    }
+
+
+    private static Set<String> getInheritedRoles( List<UserAdminRole> uRoles,
+        SimpleDirectedGraph<String, Relationship> graph )
     {
         // create Set with case insensitive comparator:
         Set<String> iRoles = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
@@ -186,7 +235,7 @@ final class AdminRoleUtil
             {
                 String rleName = uRole.getName();
                 iRoles.add( rleName );
-                Set<String> parents = HierUtil.getAscendants( rleName, getGraph( contextId ) );
+                Set<String> parents = HierUtil.getAscendants( rleName, graph );
 
                 if ( CollectionUtils.isNotEmpty( parents ) )
                 {
@@ -233,40 +282,77 @@ final class AdminRoleUtil
      */
     static void updateHier( String contextId, Relationship relationship, Hier.Op op ) throws SecurityException
     {
-        HierUtil.updateHier( getGraph( contextId ), relationship, op );
+        SimpleDirectedGraph<String, Relationship> graph = getGraph( contextId );
+        HierUtil.updateHier( graph, relationship, op );
+        // store it back so a background refresh that started before this change is discarded:
+        adminRoleCache.put( getKey( contextId ), graph );
+        getVersionCounter( contextId ).incrementAndGet();
     }
 
 
     /**
-     * Read this ldap record,{@code cn=Hierarchies, ou=OS-P} into this entity, {@link Hier}, before loading into this collection class,{@code org.jgrapht.graph.SimpleDirectedGraph}
-     * using 3rd party lib, <a href="http://www.jgrapht.org/">JGraphT</a>.
-     *
      * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
-     * @return handle to simple digraph containing adminRole hierarchies.
+     * @return number of updates made to this tenant's hierarchy by this process.
      */
-    private static synchronized SimpleDirectedGraph<String, Relationship> loadGraph( String contextId )
+    private static long getVersion( String contextId )
     {
-        Hier inHier = new Hier( Hier.Type.ROLE );
-        inHier.setContextId( contextId );
-        LOG.info( "loadGraph initializing ADMIN ROLE context [{}]", inHier.getContextId() );
-        List<Graphable> descendants = null;
+        AtomicLong counter = versions.get( getKey( contextId ) );
+        return counter == null ? 0 : counter.get();
+    }
 
-        try
-        {
-            descendants = adminRoleP.getAllDescendants( inHier.getContextId() );
-        }
-        catch ( SecurityException se )
+
+    private static AtomicLong getVersionCounter( String contextId )
+    {
+        String key = getKey( contextId );
+        AtomicLong counter = versions.get( key );
+        if ( counter == null )
         {
-            LOG.info( "loadGraph caught SecurityException={}", se );
+            AtomicLong created = new AtomicLong();
+            AtomicLong existing = versions.putIfAbsent( key, created );
+            counter = existing != null ? existing : created;
         }
+        return counter;
+    }
 
-        Hier hier = HierUtil.loadHier( contextId, descendants );
-        SimpleDirectedGraph<String, Relationship> graph;
 
-        graph = HierUtil.buildGraph( hier );
-        adminRoleCache.put( getKey( contextId ), graph );
+    /**
+     * Read the parents of the adminRoles from ldap, a page at a time, into this collection class,{@code org.jgrapht.graph.SimpleDirectedGraph}
+     * using 3rd party lib, <a href="http://www.jgrapht.org/">JGraphT</a>.  See {@link HierLoader} for how a refresh may
+     * read only the adminRoles changed since the previous load.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return handle to simple digraph containing adminRole hierarchies.
+     */
+    private static SimpleDirectedGraph<String, Relationship> loadGraph( String contextId )
+    {
+        return hierLoader.load( getKey( contextId ), contextId );
+    }
+
+
+    /**
+     * Return a copy of this tenant's adminRole hierarchy for a policy snapshot, loading it from ldap if necessary.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return copy of the hierarchy, or null if it was primed and hasn't been reloaded since.
+     */
+    static Hier getSnapshot( String contextId )
+    {
+        SimpleDirectedGraph<String, Relationship> graph = adminRoleCache.getLoaded( getKey( contextId ),
+            getLoader( contextId ) );
+        return graph != null ? HierUtil.toHier( contextId, graph ) : null;
+    }
 
-        return graph;
+
+    /**
+     * Store a adminRole hierarchy read from a policy snapshot if this tenant's hasn't been loaded yet.  It is reloaded
+     * from ldap in the background the first time it is read.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param hier      contains the hierarchy's relationships.
+     */
+    static void prime( String contextId, Hier hier )
+    {
+        adminRoleCache.prime( getKey( contextId ), HierUtil.buildGraph( hier ) );
     }
 
 
@@ -279,20 +365,21 @@ final class AdminRoleUtil
      */
     private static SimpleDirectedGraph<String, Relationship> getGraph( String contextId )
     {
-        String key = getKey( contextId );        
-        LOG.debug("Getting graph for key " + contextId);
-         
-        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) adminRoleCache
-                 .get( key );
-             
-        if(graph == null){
-            LOG.debug("Graph was null, creating... " + contextId);
-            return loadGraph( contextId );
-        }
-        else{
-            LOG.debug("Graph found in cache, returning...");
-            return graph;
-        }
+        LOG.debug( "Getting graph for key " + contextId );
+        return adminRoleCache.get( getKey( contextId ), getLoader( contextId ) );
+    }
+
+
+    private static CacheLoader<SimpleDirectedGraph<String, Relationship>> getLoader( final String contextId )
+    {
+        return new CacheLoader<SimpleDirectedGraph<String, Relationship>>()
+        {
+            @Override
+            public SimpleDirectedGraph<String, Relationship> load()
+            {
+                return loadGraph( contextId );
+            }
+        };
     }
 
 
@@ -0,0 +1,665 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AuditStats;
+import org.apache.directory.fortress.core.model.Props;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.time.TUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Counts the authorization and authentication events in the slapd access log, per user, per permission and per
+ * result code, so that {@link org.apache.directory.fortress.core.AuditMgr#getAuthZStats} and
+ * {@link org.apache.directory.fortress.core.AuditMgr#getBindStats} are answered from memory rather than by searching
+ * the log.
+ * <p>
+ * The first query reads the log records of the window, later records are read every
+ * {@code audit.aggregate.interval.millis} (default 10000) by a background thread, starting from the latest reqStart
+ * seen less {@code audit.aggregate.overlap.seconds} (default 5) to pick up operations that were logged after later
+ * ones began.  Records already counted are skipped.  Counts are kept in {@code audit.aggregate.buckets} (default 60)
+ * buckets of {@code audit.aggregate.bucket.seconds} (default 60) each by reqStart, the oldest dropped as time moves
+ * on, so the window defaults to the last hour.  The buckets of all the users, or permissions, share one int array.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class AuditAggregator
+{
+    private static final String CLS_NM = AuditAggregator.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private static final String INTERVAL_MILLIS = "audit.aggregate.interval.millis";
+    private static final String OVERLAP_SECONDS = "audit.aggregate.overlap.seconds";
+    private static final String BUCKET_SECONDS = "audit.aggregate.bucket.seconds";
+    private static final String BUCKETS = "audit.aggregate.buckets";
+    // ldap result codes of successful operations:
+    private static final int SUCCESS = 0;
+    private static final int COMPARE_TRUE = 6;
+
+    private static volatile AuditAggregator sINSTANCE = null;
+
+    /**
+     * Reads the authorization and authentication records of the log.
+     */
+    interface Source
+    {
+        /**
+         * @param since   generalized time, every record whose reqStart is the same or later is read.
+         * @param visitor receives each record as it is read.
+         * @throws SecurityException in the event of DAO search error.
+         */
+        void read( String since, Visitor visitor ) throws SecurityException;
+    }
+
+    /**
+     * Receives the records of the log as they are read.
+     */
+    interface Visitor
+    {
+        /**
+         * @param reqStart generalized time the compare began.
+         * @param userDn   reqAuthzID, the user the compare was made for.
+         * @param permDn   reqDN, the permission compared.
+         * @param result   reqResult.
+         */
+        void visitAuthZ( String reqStart, String userDn, String permDn, int result );
+
+
+        /**
+         * @param reqStart generalized time the bind began.
+         * @param userDn   reqDN, the user bound as.
+         * @param result   reqResult.
+         */
+        void visitBind( String reqStart, String userDn, int result );
+    }
+
+    private final Source source;
+    private final long intervalMillis;
+    private final long overlapMillis;
+    private final long bucketMillis;
+    private final int buckets;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Counters authZUsers;
+    private final Counters authZPerms;
+    private final Counters authZResults;
+    private final Counters bindUsers;
+    private final Counters bindResults;
+    // reqStart of the records read since the latest reqStart seen less the overlap, and their time:
+    private final Map<String, Long> recent = new HashMap<>();
+    private final RecordVisitor visitor = new RecordVisitor();
+    private volatile long latest = -1;
+    private volatile boolean isStarted;
+    private ScheduledExecutorService scheduler;
+
+
+    static AuditAggregator getInstance()
+    {
+        if ( sINSTANCE == null )
+        {
+            synchronized ( AuditAggregator.class )
+            {
+                if ( sINSTANCE == null )
+                {
+                    sINSTANCE = new AuditAggregator( getSource() );
+                }
+            }
+        }
+        return sINSTANCE;
+    }
+
+
+    /**
+     * @return the audit journal if it is the sink, else the access log.
+     */
+    private static Source getSource()
+    {
+        try
+        {
+            AuditJournal journal = AuditSinks.getJournal();
+            if ( journal != null )
+            {
+                return journal;
+            }
+        }
+        catch ( SecurityException se )
+        {
+            LOG.warn( "getSource caught SecurityException={}", se );
+        }
+        return new AuditDAO();
+    }
+
+
+    private AuditAggregator( Source source )
+    {
+        this( source, Config.getInstance().getInt( INTERVAL_MILLIS, 10000 ), TimeUnit.SECONDS.toMillis(
+            Config.getInstance().getInt( OVERLAP_SECONDS, 5 ) ), TimeUnit.SECONDS.toMillis( Config.getInstance()
+            .getInt( BUCKET_SECONDS, 60 ) ), Config.getInstance().getInt( BUCKETS, 60 ) );
+    }
+
+
+    /**
+     * @param source         reads the records of the log.
+     * @param intervalMillis time between reads of the log, zero or less to read it only on the first query.
+     * @param overlapMillis  subtracted from the latest reqStart seen to give the time records are read from.
+     * @param bucketMillis   length of time each count covers.
+     * @param buckets        number of counts kept for each user, permission and result.
+     */
+    AuditAggregator( Source source, long intervalMillis, long overlapMillis, long bucketMillis, int buckets )
+    {
+        this.source = source;
+        this.intervalMillis = intervalMillis;
+        this.overlapMillis = overlapMillis;
+        this.bucketMillis = Math.max( 1, bucketMillis );
+        this.buckets = Math.max( 1, buckets );
+        authZUsers = new Counters( this.buckets );
+        authZPerms = new Counters( this.buckets );
+        authZResults = new Counters( this.buckets );
+        bindUsers = new Counters( this.buckets );
+        bindResults = new Counters( this.buckets );
+    }
+
+
+    /**
+     * Return the authorization events of a permission, or if null of a user, or if both are null of all of them.
+     *
+     * @param userDn    of the user.
+     * @param permDn    of the permission.
+     * @param beginDate earliest time of the events counted, null for the start of the window.
+     * @return the counts.
+     */
+    AuditStats getAuthZStats( String userDn, String permDn, Date beginDate )
+    {
+        start();
+        if ( permDn != null )
+        {
+            return getStats( authZPerms, permDn, beginDate );
+        }
+        else if ( userDn != null )
+        {
+            return getStats( authZUsers, userDn, beginDate );
+        }
+        return getStats( authZResults, null, beginDate );
+    }
+
+
+    /**
+     * Return the authentication events of a user, or if null of all of them.
+     *
+     * @param userDn    of the user.
+     * @param beginDate earliest time of the events counted, null for the start of the window.
+     * @return the counts.
+     */
+    AuditStats getBindStats( String userDn, Date beginDate )
+    {
+        start();
+        if ( userDn != null )
+        {
+            return getStats( bindUsers, userDn, beginDate );
+        }
+        return getStats( bindResults, null, beginDate );
+    }
+
+
+    /**
+     * @return number of users, permissions and result codes held across the counters.
+     */
+    int getKeyCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return authZUsers.size() + authZPerms.size() + authZResults.size() + bindUsers.size() + bindResults.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Read the records logged since the last read.
+     *
+     * @throws SecurityException in the event of DAO search error.
+     */
+    void poll() throws SecurityException
+    {
+        synchronized ( visitor )
+        {
+            long since = latest < 0 ? System.currentTimeMillis() - bucketMillis * buckets : latest - overlapMillis;
+            visitor.count = 0;
+            source.read( TUtil.encodeGeneralizedTime( new Date( since ) ), visitor );
+
+            long cutoff = latest - overlapMillis;
+            for ( Iterator<Long> i = recent.values().iterator(); i.hasNext(); )
+            {
+                if ( i.next() < cutoff )
+                {
+                    i.remove();
+                }
+            }
+            LOG.debug( "poll counted [{}] records since [{}]", visitor.count, since );
+        }
+    }
+
+
+    /**
+     * Stop reading the log.
+     */
+    synchronized void stop()
+    {
+        if ( scheduler != null )
+        {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        isStarted = false;
+    }
+
+
+    /**
+     * Read the window on the first query, then schedule reads of later records.
+     */
+    private void start()
+    {
+        if ( isStarted )
+        {
+            return;
+        }
+        synchronized ( this )
+        {
+            if ( isStarted )
+            {
+                return;
+            }
+            try
+            {
+                poll();
+            }
+            catch ( SecurityException se )
+            {
+                LOG.warn( "start caught SecurityException={}", se );
+            }
+            if ( intervalMillis > 0 )
+            {
+                scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread( Runnable runnable )
+                    {
+                        Thread thread = new Thread( runnable, "fortress-audit-aggregator" );
+                        thread.setDaemon( true );
+                        return thread;
+                    }
+                } );
+                scheduler.scheduleWithFixedDelay( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            poll();
+                        }
+                        catch ( SecurityException | RuntimeException e )
+                        {
+                            // keep the counts, the next read tries again:
+                            LOG.warn( "poll caught Exception={}", e );
+                        }
+                    }
+                }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS );
+            }
+            isStarted = true;
+        }
+    }
+
+
+    private AuditStats getStats( Counters counters, String key, Date beginDate )
+    {
+        long now = Math.max( System.currentTimeMillis(), latest );
+        long to = now / bucketMillis;
+        long from = to - buckets + 1;
+        if ( beginDate != null )
+        {
+            from = Math.max( from, beginDate.getTime() / bucketMillis );
+        }
+
+        AuditStats stats = new AuditStats();
+        lock.readLock().lock();
+        try
+        {
+            if ( key != null )
+            {
+                stats.setName( key );
+                long[] counts = counters.get( key.toLowerCase(), from, to );
+                stats.setSuccessCount( counts[0] );
+                stats.setFailureCount( counts[1] );
+            }
+            else
+            {
+                // the per result counters hold every event, each result is either a success or a failure:
+                Props results = new Props();
+                for ( Map.Entry<String, long[]> entry : counters.getAll( from, to ).entrySet() )
+                {
+                    long[] counts = entry.getValue();
+                    stats.setSuccessCount( stats.getSuccessCount() + counts[0] );
+                    stats.setFailureCount( stats.getFailureCount() + counts[1] );
+                    Props.Entry result = new Props.Entry();
+                    result.setKey( entry.getKey() );
+                    result.setValue( String.valueOf( counts[0] + counts[1] ) );
+                    results.getEntry().add( result );
+                }
+                stats.setResults( results );
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        stats.setBeginDate( new Date( from * bucketMillis ) );
+        stats.setEndDate( latest < 0 ? null : new Date( latest ) );
+        return stats;
+    }
+
+
+    /**
+     * Counts each record read that hasn't been counted before.
+     */
+    private final class RecordVisitor implements Visitor
+    {
+        private int count;
+
+
+        @Override
+        public void visitAuthZ( String reqStart, String userDn, String permDn, int result )
+        {
+            long time = getTime( reqStart );
+            if ( time < 0 )
+            {
+                return;
+            }
+            boolean isSuccess = result == COMPARE_TRUE;
+            long bucket = time / bucketMillis;
+            lock.writeLock().lock();
+            try
+            {
+                add( authZUsers, userDn, bucket, isSuccess );
+                add( authZPerms, permDn, bucket, isSuccess );
+                add( authZResults, String.valueOf( result ), bucket, isSuccess );
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+
+
+        @Override
+        public void visitBind( String reqStart, String userDn, int result )
+        {
+            long time = getTime( reqStart );
+            if ( time < 0 )
+            {
+                return;
+            }
+            boolean isSuccess = result == SUCCESS;
+            long bucket = time / bucketMillis;
+            lock.writeLock().lock();
+            try
+            {
+                add( bindUsers, userDn, bucket, isSuccess );
+                add( bindResults, String.valueOf( result ), bucket, isSuccess );
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+
+
+        private void add( Counters counters, String key, long bucket, boolean isSuccess )
+        {
+            if ( key != null )
+            {
+                counters.add( key.toLowerCase(), bucket, isSuccess );
+            }
+        }
+
+
+        /**
+         * @return the time of a record not yet counted, -1 if it has been or its time is invalid.
+         */
+        private long getTime( String reqStart )
+        {
+            if ( reqStart == null || recent.containsKey( reqStart ) )
+            {
+                return -1;
+            }
+            long time;
+            try
+            {
+                Date date = TUtil.decodeGeneralizedTime( reqStart );
+                if ( date == null )
+                {
+                    return -1;
+                }
+                time = date.getTime();
+            }
+            catch ( ParseException pe )
+            {
+                LOG.debug( "poll invalid reqStart [{}]", reqStart );
+                return -1;
+            }
+            recent.put( reqStart, time );
+            if ( time > latest )
+            {
+                latest = time;
+            }
+            count++;
+            return time;
+        }
+    }
+
+
+    /**
+     * Success and failure counts per bucket for each key.  The counts of key slot s, bucket position p are at
+     * {@code counts[(s * buckets + p) * 2]} and the next index.  A position is reused for a later bucket once the one
+     * it holds leaves the window.  Once per turn of the window, the slots of keys not counted within it are reclaimed,
+     * so that memory follows the keys active in the window rather than every key seen since startup.
+     * <p>
+     * This class is not thread safe.
+     */
+    private static final class Counters
+    {
+        private static final int MIN_SLOTS = 16;
+
+        private final int buckets;
+        // the bucket each position holds, i.e. time / bucketMillis:
+        private final long[] positions;
+        private final Map<String, Integer> slots = new HashMap<>();
+        private int[] counts;
+        // the latest bucket counted for each slot:
+        private long[] lastBuckets;
+        // the bucket of the latest reclaim:
+        private long reclaimedAt;
+
+
+        private Counters( int buckets )
+        {
+            this.buckets = buckets;
+            positions = new long[buckets];
+            Arrays.fill( positions, -1 );
+            counts = new int[MIN_SLOTS * buckets * 2];
+            lastBuckets = new long[MIN_SLOTS];
+        }
+
+
+        private void add( String key, long bucket, boolean isSuccess )
+        {
+            int position = ( int ) ( bucket % buckets );
+            if ( positions[position] != bucket )
+            {
+                if ( positions[position] > bucket )
+                {
+                    // older than the window:
+                    return;
+                }
+                if ( bucket - reclaimedAt >= buckets )
+                {
+                    reclaim( bucket - buckets + 1 );
+                    reclaimedAt = bucket;
+                }
+                for ( int slot = 0; slot < slots.size(); slot++ )
+                {
+                    int index = ( slot * buckets + position ) * 2;
+                    counts[index] = 0;
+                    counts[index + 1] = 0;
+                }
+                positions[position] = bucket;
+            }
+
+            Integer slot = slots.get( key );
+            if ( slot == null )
+            {
+                slot = slots.size();
+                if ( slot == lastBuckets.length )
+                {
+                    counts = Arrays.copyOf( counts, counts.length * 2 );
+                    lastBuckets = Arrays.copyOf( lastBuckets, lastBuckets.length * 2 );
+                }
+                slots.put( key, slot );
+            }
+            lastBuckets[slot] = Math.max( lastBuckets[slot], bucket );
+            counts[( slot * buckets + position ) * 2 + ( isSuccess ? 0 : 1 )]++;
+        }
+
+
+        /**
+         * @return number of keys held.
+         */
+        private int size()
+        {
+            return slots.size();
+        }
+
+
+        /**
+         * Drop the keys whose latest count has left the window, and move the slots of the others together.  The arrays
+         * shrink once a quarter or less of them is in use.
+         *
+         * @param oldest the earliest bucket still in the window.
+         */
+        private void reclaim( long oldest )
+        {
+            for ( Iterator<Integer> i = slots.values().iterator(); i.hasNext(); )
+            {
+                if ( lastBuckets[i.next()] < oldest )
+                {
+                    i.remove();
+                }
+            }
+            int capacity = lastBuckets.length;
+            while ( capacity > MIN_SLOTS && slots.size() * 4 <= capacity )
+            {
+                capacity /= 2;
+            }
+            int[] newCounts = new int[capacity * buckets * 2];
+            long[] newLastBuckets = new long[capacity];
+            int size = 0;
+            for ( Map.Entry<String, Integer> entry : slots.entrySet() )
+            {
+                int slot = entry.getValue();
+                System.arraycopy( counts, slot * buckets * 2, newCounts, size * buckets * 2, buckets * 2 );
+                newLastBuckets[size] = lastBuckets[slot];
+                entry.setValue( size++ );
+            }
+            counts = newCounts;
+            lastBuckets = newLastBuckets;
+        }
+
+
+        /**
+         * @return the success and failure counts of the buckets from and to inclusive, zero if the key is unknown.
+         */
+        private long[] get( String key, long from, long to )
+        {
+            long[] sums = new long[2];
+            Integer slot = slots.get( key );
+            if ( slot != null )
+            {
+                sum( slot, from, to, sums );
+            }
+            return sums;
+        }
+
+
+        /**
+         * @return the success and failure counts of each key over the buckets from and to inclusive, in key order.
+         */
+        private Map<String, long[]> getAll( long from, long to )
+        {
+            Map<String, long[]> all = new TreeMap<>();
+            for ( Map.Entry<String, Integer> entry : slots.entrySet() )
+            {
+                long[] sums = new long[2];
+                sum( entry.getValue(), from, to, sums );
+                if ( sums[0] + sums[1] > 0 )
+                {
+                    all.put( entry.getKey(), sums );
+                }
+            }
+            return all;
+        }
+
+
+        private void sum( int slot, long from, long to, long[] sums )
+        {
+            for ( int position = 0; position < buckets; position++ )
+            {
+                if ( positions[position] >= from && positions[position] <= to )
+                {
+                    int index = ( slot * buckets + position ) * 2;
+                    sums[0] += counts[index];
+                    sums[1] += counts[index + 1];
+                }
+            }
+        }
+    }
+}
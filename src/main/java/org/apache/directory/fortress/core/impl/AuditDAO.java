@@ -21,9 +21,9 @@ package org.apache.directory.fortress.core.impl;
 
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
-import org.apache.commons.lang.StringUtils;
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.ldap.model.cursor.CursorException;
 import org.apache.directory.api.ldap.model.cursor.SearchCursor;
@@ -31,18 +31,18 @@ import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
 import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.fortress.core.AuditConsumer;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Bind;
 import org.apache.directory.fortress.core.model.Mod;
 import org.apache.directory.fortress.core.model.ObjectFactory;
 import org.apache.directory.fortress.core.model.UserAudit;
-import org.apache.directory.fortress.core.util.AuditUtil;
 import org.apache.directory.fortress.core.util.Config;
-import org.apache.directory.fortress.core.util.time.TUtil;
 import org.apache.directory.ldap.client.api.LdapConnection;
 
 
@@ -115,13 +115,19 @@ import org.apache.directory.ldap.client.api.LdapConnection;
  * <li> ------------------------------------------
  * </ul>
  * <p>
+ * <h3>4. Searches</h3>
+ * Every criterion is in the filter, see {@link AuditFilters}, and each search returns at most
+ * {@code audit.search.limit} (default 1000) records.  Only the log attributes the audit entities need are requested,
+ * unless {@code enable.audit.operational.atrs} is true, which adds the operational attributes, e.g. entryUUID, to
+ * authorizations and binds.
+ * <p>
  * Note this class used descriptions pulled from man pages on slapd access log.
  * <p>
  * This class is thread safe.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
-final class AuditDAO extends LdapDataProvider
+final class AuditDAO extends LdapDataProvider implements AuditExport.Source, AuditAggregator.Source
 {
     private static final String CREATETIMESTAMP = "createTimestamp";
     private static final String CREATORSNAME = "creatorsName";
@@ -131,37 +137,39 @@ final class AuditDAO extends LdapDataProvider
     private static final String HASSUBORDINATES = "hasSubordinates";
     private static final String MODIFIERSNAME = "modifiersName";
     private static final String MODIFYTIMESTAMP = "modifyTimestamp";
-    private static final String OBJECTCLASS = "objectClass";
-    private static final String REQUAUTHZID = "reqAuthzID";
+    static final String OBJECTCLASS = "objectClass";
+    static final String REQUAUTHZID = "reqAuthzID";
     private static final String REQCONTROLS = "reqControls";
-    private static final String REQDN = "reqDN";
-    private static final String REQEND = "reqEnd";
+    static final String REQDN = "reqDN";
+    static final String REQEND = "reqEnd";
     private static final String REQMETHOD = "reqMethod";
-    private static final String REQRESULT = "reqResult";
+    static final String REQRESULT = "reqResult";
     private static final String REQSESSION = "reqSession";
-    private static final String REQSTART = "reqStart";
+    static final String REQSTART = "reqStart";
     private static final String REQTYPE = "reqType";
     private static final String REQVERSION = "reqVersion";
-    private static final String REQMOD = "reqMod";
+    static final String REQMOD = "reqMod";
     private static final String STRUCTURALOBJECTCLASS = "structuralObjectClass";
     private static final String SUBSCHEMAENTRY = "subschemaSubentry";
-    private static final String REQATTR = "reqAttr";
+    static final String REQATTR = "reqAttr";
     private static final String REQATTRSONLY = "reqAttrsOnly";
     private static final String REQDREFALIASES = "reqDerefAliases";
-    private static final String REQENTRIES = "reqEntries";
+    static final String REQENTRIES = "reqEntries";
     private static final String REQFILTER = "reqFilter";
     private static final String REQSCOPE = "reqScope";
     private static final String REQSIZELIMIT = "reqSizeLimit";
     private static final String REQTIMELIMIT = "reqTimeLimit";
     private static final String REQASSERTION = "reqAssertion";
-    private static final String ACCESS_BIND_CLASS_NM = "auditBind";
+    static final String ACCESS_BIND_CLASS_NM = "auditBind";
     //private static final String ACCESS_AUTHZ_CLASS_NM = "auditSearch";
-    private static final String ACCESS_AUTHZ_CLASS_NM = "auditCompare";
-    private static final String ACCESS_MOD_CLASS_NM = "auditModify";
-    private static final String ACCESS_ADD_CLASS_NM = "auditAdd";
+    static final String ACCESS_AUTHZ_CLASS_NM = "auditCompare";
+    static final String ACCESS_MOD_CLASS_NM = "auditModify";
+    static final String ACCESS_ADD_CLASS_NM = "auditAdd";
     private static final String AUDIT_ROOT = "audit.root";
+    private static final String SEARCH_LIMIT = "audit.search.limit";
+    private static final String OPERATIONAL_ATRS = "enable.audit.operational.atrs";
 
-    private static final String[] AUDIT_AUTHZ_ATRS =
+    private static final String[] AUDIT_OPERATIONAL_AUTHZ_ATRS =
         {
             CREATETIMESTAMP, CREATORSNAME, ENTRYCSN, ENTRYDN, ENTRYUUID, HASSUBORDINATES, MODIFIERSNAME,
             MODIFYTIMESTAMP, OBJECTCLASS, REQATTR, REQATTRSONLY, REQUAUTHZID, REQCONTROLS, REQDN, REQDREFALIASES,
@@ -169,18 +177,41 @@ final class AuditDAO extends LdapDataProvider
             REQTYPE, STRUCTURALOBJECTCLASS, SUBSCHEMAENTRY
     };
 
-    private static final String[] AUDIT_BIND_ATRS =
+    private static final String[] AUDIT_OPERATIONAL_BIND_ATRS =
         {
             CREATETIMESTAMP, CREATORSNAME, ENTRYCSN, ENTRYDN, ENTRYUUID, HASSUBORDINATES, MODIFIERSNAME,
             MODIFYTIMESTAMP, OBJECTCLASS, REQUAUTHZID, REQCONTROLS, REQDN, REQEND, REQMETHOD, REQRESULT,
             REQSESSION, REQSTART, REQTYPE, REQVERSION, STRUCTURALOBJECTCLASS, SUBSCHEMAENTRY
     };
 
+    // only the attributes the audit entities are read from:
+    private static final String[] AUDIT_LOG_AUTHZ_ATRS =
+        {
+            OBJECTCLASS, REQUAUTHZID, REQDN, REQEND, REQRESULT, REQSESSION, REQSTART, REQTYPE
+    };
+
+    private static final String[] AUDIT_LOG_BIND_ATRS =
+        {
+            OBJECTCLASS, REQUAUTHZID, REQDN, REQEND, REQMETHOD, REQRESULT, REQSESSION, REQSTART, REQTYPE, REQVERSION
+    };
+
     private static final String[] AUDIT_MOD_ATRS =
         {
             OBJECTCLASS, REQUAUTHZID, REQDN, REQEND, REQRESULT, REQSESSION, REQSTART, REQTYPE, REQMOD
     };
 
+    private static final String[] AUDIT_AGGREGATE_ATRS =
+        {
+            OBJECTCLASS, REQUAUTHZID, REQDN, REQRESULT, REQSTART
+    };
+
+    private static final boolean IS_OPERATIONAL_ATRS = Config.getInstance().getBoolean( OPERATIONAL_ATRS, false );
+    private static final String[] AUDIT_AUTHZ_ATRS = IS_OPERATIONAL_ATRS ? AUDIT_OPERATIONAL_AUTHZ_ATRS
+        : AUDIT_LOG_AUTHZ_ATRS;
+    private static final String[] AUDIT_BIND_ATRS = IS_OPERATIONAL_ATRS ? AUDIT_OPERATIONAL_BIND_ATRS
+        : AUDIT_LOG_BIND_ATRS;
+    static final int AUDIT_SEARCH_LIMIT = Config.getInstance().getInt( SEARCH_LIMIT, GlobalIds.BATCH_SIZE );
+
     public AuditDAO(){
         super();
     }
@@ -233,59 +264,16 @@ final class AuditDAO extends LdapDataProvider
 
         try
         {
-            // use wildcard for user if not passed in:
-            //reqDN: uid=foo,ou=People,dc=jts,dc=com
-            //(&
-            //  (objectclass=auditSearch)
-            //      (reqDN=uid=*,ou=People,dc=jts,dc=com)
-            //      (reqAuthzID=cn=Manager,dc=jts,dc=com)
-            //      (reqEntries=0)
-            // )
-
-            String filter = GlobalIds.FILTER_PREFIX + ACCESS_AUTHZ_CLASS_NM + ")(";
-            String userId;
-
-            if ( StringUtils.isNotEmpty( audit.getUserId() ) )
-            {
-                userId = audit.getUserId();
-                filter += REQDN + "=" + SchemaConstants.UID_AT + "=" + userId + "," + userRoot + ")(" +
-                    REQUAUTHZID + "=" + "cn=Manager," + Config.getInstance().getProperty( GlobalIds.SUFFIX ) + ")";
-            }
-            else
-            {
-                // pull back all failed authN attempts for all users:
-                filter += REQATTR + "=" + SchemaConstants.UID_AT + ")(" +
-                    REQUAUTHZID + "=" + "cn=Manager," + Config.getInstance().getProperty( GlobalIds.SUFFIX ) + ")";
-            }
-
-            if ( audit.isFailedOnly() )
-            {
-                filter += "(" + REQENTRIES + "=" + 0 + ")";
-            }
-
-            if ( audit.getBeginDate() != null )
-            {
-                String szTime = TUtil.encodeGeneralizedTime( audit.getBeginDate() );
-                filter += "(" + REQEND + ">=" + szTime + ")";
-            }
-
-            filter += ")";
-
+            String filter = AuditFilters.getInvalidAuthNsFilter( audit, userRoot, getManagerDn() );
             //log.warn("filter=" + filter);
             ld = getLogConnection();
             SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, GlobalIds.BATCH_SIZE );
+                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, AUDIT_SEARCH_LIMIT );
             long sequence = 0;
 
             while ( searchResults.next() )
             {
-                AuthZ authZ = getAuthzEntityFromLdapEntry( searchResults.getEntry(), sequence++ );
-                // todo: fix this workaround. This search will return failed role assign searches as well.  
-                // Work around is to remove the ou=People failed searches from user failed searches on authN.
-                if ( !AuditUtil.getAuthZId( authZ.getReqDN() ).equalsIgnoreCase( "People" ) )
-                {
-                    auditList.add( authZ );
-                }
+                auditList.add( getAuthzEntityFromLdapEntry( searchResults.getEntry(), sequence++ ) );
             }
         }
         catch ( LdapException e )
@@ -325,27 +313,11 @@ final class AuditDAO extends LdapDataProvider
         {
             String reqDn = PermDAO.getOpRdn( audit.getOpName(), audit.getObjId() ) + "," + GlobalIds.POBJ_NAME + "="
                 + audit.getObjName() + "," + permRoot;
-            String filter = GlobalIds.FILTER_PREFIX + ACCESS_AUTHZ_CLASS_NM + ")(" + REQDN + "=" +
-                reqDn + ")(" + REQUAUTHZID + "=" + SchemaConstants.UID_AT + "=" + audit.getUserId() + "," + userRoot
-                + ")";
-
-            if ( audit.isFailedOnly() )
-            {
-                filter += "(" + REQRESULT + "=" + GlobalIds.AUTHZ_COMPARE_FAILURE_FLAG + ")";
-            }
-
-            if ( audit.getBeginDate() != null )
-            {
-                String szTime = TUtil.encodeGeneralizedTime( audit.getBeginDate() );
-                filter += "(" + REQEND + ">=" + szTime + ")";
-            }
-
-            filter += ")";
-
+            String filter = AuditFilters.getAuthZsFilter( audit, reqDn, userRoot );
             //System.out.println("filter=" + filter);
             ld = getLogConnection();
             SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, GlobalIds.BATCH_SIZE );
+                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, AUDIT_SEARCH_LIMIT );
             long sequence = 0;
 
             while ( searchResults.next() )
@@ -404,38 +376,11 @@ final class AuditDAO extends LdapDataProvider
 
         try
         {
-            String filter = GlobalIds.FILTER_PREFIX + ACCESS_AUTHZ_CLASS_NM + ")(";
-
-            if ( audit.getUserId() != null && audit.getUserId().length() > 0 )
-            {
-                filter += REQUAUTHZID + "=" + SchemaConstants.UID_AT + "=" + audit.getUserId() + "," + userRoot + ")";
-            }
-            else
-            {
-                // have to limit the query to only authorization entries.
-                // TODO: determine why the cn=Manager user is showing up in this search:
-                filter += REQUAUTHZID + "=*)(!(" + REQUAUTHZID + "=cn=Manager," + Config.getInstance().getProperty( GlobalIds.SUFFIX )
-                    + "))";
-
-                // TODO: fix this so filter by only the Fortress AuthZ entries and not the others:
-                if ( audit.isFailedOnly() )
-                {
-                    filter += "(" + REQRESULT + "=" + GlobalIds.AUTHZ_COMPARE_FAILURE_FLAG + ")";
-                }
-            }
-
-            if ( audit.getBeginDate() != null )
-            {
-                String szTime = TUtil.encodeGeneralizedTime( audit.getBeginDate() );
-                filter += "(" + REQEND + ">=" + szTime + ")";
-            }
-
-            filter += ")";
-
+            String filter = AuditFilters.getAllAuthZsFilter( audit, userRoot, getManagerDn() );
             //log.warn("filter=" + filter);
             ld = getLogConnection();
             SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, GlobalIds.BATCH_SIZE );
+                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, AUDIT_SEARCH_LIMIT );
             long sequence = 0;
 
             while ( searchResults.next() )
@@ -477,48 +422,11 @@ final class AuditDAO extends LdapDataProvider
 
         try
         {
-            String filter;
-
-            if ( audit.getUserId() != null && audit.getUserId().length() > 0 )
-            {
-                filter = GlobalIds.FILTER_PREFIX + ACCESS_BIND_CLASS_NM + ")(" +
-                    REQDN + "=" + SchemaConstants.UID_AT + "=" + audit.getUserId() + "," + userRoot + ")";
-
-                if ( audit.isFailedOnly() )
-                {
-                    filter += "(" + REQRESULT + ">=" + 1 + ")";
-                }
-
-                if ( audit.getBeginDate() != null )
-                {
-                    String szTime = TUtil.encodeGeneralizedTime( audit.getBeginDate() );
-                    filter += "(" + REQEND + ">=" + szTime + ")";
-                }
-
-                filter += ")";
-            }
-            else
-            {
-                filter = GlobalIds.FILTER_PREFIX + ACCESS_BIND_CLASS_NM + ")";
-
-                if ( audit.isFailedOnly() )
-                {
-                    filter += "(" + REQRESULT + ">=" + 1 + ")";
-                }
-
-                if ( audit.getBeginDate() != null )
-                {
-                    String szTime = TUtil.encodeGeneralizedTime( audit.getBeginDate() );
-                    filter += "(" + REQEND + ">=" + szTime + ")";
-                }
-
-                filter += ")";
-            }
-
+            String filter = AuditFilters.getBindsFilter( audit, userRoot );
             //log.warn("filter=" + filter);
             ld = getLogConnection();
             SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_BIND_ATRS, false, GlobalIds.BATCH_SIZE );
+                SearchScope.ONELEVEL, filter, AUDIT_BIND_ATRS, false, AUDIT_SEARCH_LIMIT );
             long sequence = 0;
 
             while ( searchResults.next() )
@@ -561,20 +469,11 @@ final class AuditDAO extends LdapDataProvider
 
         try
         {
-            String filter = GlobalIds.FILTER_PREFIX + ACCESS_MOD_CLASS_NM + ")(" +
-                REQDN + "=" + SchemaConstants.UID_AT + "=" + audit.getUserId() + "," + userRoot + ")";
-
-            if ( audit.getBeginDate() != null )
-            {
-                String szTime = TUtil.encodeGeneralizedTime( audit.getBeginDate() );
-                filter += "(" + REQEND + ">=" + szTime + ")";
-            }
-
-            filter += ")";
+            String filter = AuditFilters.getUserModsFilter( audit, userRoot );
             //log.warn("filter=" + filter);
             ld = getLogConnection();
             SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_MOD_ATRS, false, GlobalIds.BATCH_SIZE );
+                SearchScope.ONELEVEL, filter, AUDIT_MOD_ATRS, false, AUDIT_SEARCH_LIMIT );
             long sequence = 0;
 
             while ( searchResults.next() )
@@ -614,80 +513,241 @@ final class AuditDAO extends LdapDataProvider
 
         try
         {
-            String filter = "(&(|(objectclass=" + ACCESS_MOD_CLASS_NM + ")";
-            filter += "(objectclass=" + ACCESS_ADD_CLASS_NM + "))";
+            String filter = AuditFilters.getAdminModsFilter( audit );
+            //log.warn("filter=" + filter);
+            ld = getLogConnection();
+            SearchCursor searchResults = search( ld, auditRoot,
+                SearchScope.ONELEVEL, filter, AUDIT_MOD_ATRS, false, AUDIT_SEARCH_LIMIT );
+            long sequence = 0;
 
-            if ( StringUtils.isNotEmpty( audit.getDn() ) )
+            while ( searchResults.next() )
             {
-                filter += "(" + REQDN + "=" + audit.getDn() + ")";
+                modList.add( getModEntityFromLdapEntry( searchResults.getEntry(), sequence++ ) );
             }
+        }
+        catch ( LdapException e )
+        {
+            String error = "searchAdminMods caught LdapException id=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.AUDT_MOD_ADMIN_SEARCH_FAILED, error, e );
+        }
+        catch ( CursorException e )
+        {
+            String error = "searchAdminMods caught CursorException id=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.AUDT_MOD_ADMIN_SEARCH_FAILED, error, e );
+        }
+        finally
+        {
+            closeLogConnection( ld );
+        }
 
-            if ( StringUtils.isNotEmpty( audit.getObjName() ) )
-            {
-                filter += "(|(" + REQMOD + "=" + GlobalIds.FT_MODIFIER_CODE + ":= " + audit.getObjName() + ".";
+        return modList;
+    }
 
-                if ( StringUtils.isNotEmpty( audit.getOpName() ) )
-                {
-                    filter += audit.getOpName();
-                }
 
-                filter += "*)";
-                filter += "(" + REQMOD + "=" + GlobalIds.FT_MODIFIER_CODE + ":+ " + audit.getObjName() + ".";
+    /**
+     * Read the records of an export slice a page at a time.  The criteria are those of {@link #getAllAuthZs},
+     * {@link #searchBinds} or {@link #searchAdminMods}, narrowed to the slice by reqStart.
+     *
+     * @param kind     of record to read.
+     * @param audit    contains the search criteria.
+     * @param from     inclusive lower bound of the records' reqStart.
+     * @param to       exclusive upper bound of the records' reqStart.
+     * @param consumer receives each record as it is read.
+     * @throws SecurityException in the event of ldap search error, or thrown by the consumer.
+     */
+    @Override
+    public void read( AuditExport.Kind kind, UserAudit audit, Date from, Date to, AuditConsumer<Object> consumer )
+        throws SecurityException
+    {
+        LdapConnection ld = null;
+        String auditRoot = Config.getInstance().getProperty( AUDIT_ROOT );
+        String filter;
+        String[] atrs;
 
-                if ( StringUtils.isNotEmpty( audit.getOpName() ) )
-                {
-                    filter += audit.getOpName();
-                }
+        switch ( kind )
+        {
+            case AUTHZ:
+                filter = AuditFilters.getAllAuthZsFilter( audit, getRootDn( audit.getContextId(), GlobalIds.USER_ROOT ),
+                    getManagerDn() );
+                atrs = AUDIT_AUTHZ_ATRS;
+                break;
+            case BIND:
+                filter = AuditFilters.getBindsFilter( audit, getRootDn( audit.getContextId(), GlobalIds.USER_ROOT ) );
+                atrs = AUDIT_BIND_ATRS;
+                break;
+            default:
+                filter = AuditFilters.getAdminModsFilter( audit );
+                atrs = AUDIT_MOD_ATRS;
+                break;
+        }
+        filter = AuditFilters.getSliceFilter( filter, from, to );
 
-                filter += "*))";
-            }
+        try
+        {
+            ld = getLogConnection();
+            byte[] cookie = null;
+            long sequence = 0;
 
-            if ( StringUtils.isNotEmpty( audit.getInternalUserId() ) )
+            do
             {
-                filter += "(|(" + REQMOD + "=" + GlobalIds.FT_MODIFIER + ":= " + audit.getInternalUserId() + ")";
-                filter += "(" + REQMOD + "=" + GlobalIds.FT_MODIFIER + ":+ " + audit.getInternalUserId() + "))";
-            }
+                SearchCursor searchResults = searchPage( ld, auditRoot, SearchScope.ONELEVEL, filter, atrs, cookie );
 
-            if ( audit.getBeginDate() != null )
-            {
-                String szTime = TUtil.encodeGeneralizedTime( audit.getBeginDate() );
-                filter += "(" + REQEND + ">=" + szTime + ")";
-            }
+                while ( searchResults.next() )
+                {
+                    Entry entry = searchResults.getEntry();
+                    switch ( kind )
+                    {
+                        case AUTHZ:
+                            consumer.accept( getAuthzEntityFromLdapEntry( entry, sequence++ ) );
+                            break;
+                        case BIND:
+                            consumer.accept( getBindEntityFromLdapEntry( entry, sequence++ ) );
+                            break;
+                        default:
+                            consumer.accept( getModEntityFromLdapEntry( entry, sequence++ ) );
+                            break;
+                    }
+                }
 
-            if ( audit.getEndDate() != null )
-            {
-                String szTime = TUtil.encodeGeneralizedTime( audit.getEndDate() );
-                filter += "(" + REQEND + "<=" + szTime + ")";
+                cookie = getCookie( searchResults );
             }
+            while ( cookie != null );
+        }
+        catch ( LdapException e )
+        {
+            String error = "read " + kind + " filter [" + filter + "] caught LdapException=" + e.getMessage();
+            throw new FinderException( kind.getErrorId(), error, e );
+        }
+        catch ( CursorException e )
+        {
+            String error = "read " + kind + " filter [" + filter + "] caught CursorException=" + e.getMessage();
+            throw new FinderException( kind.getErrorId(), error, e );
+        }
+        finally
+        {
+            closeLogConnection( ld );
+        }
+    }
 
-            filter += ")";
-            //log.warn("filter=" + filter);
+
+    /**
+     * Read the authorization and authentication records logged since a time a page at a time, with only the
+     * attributes the counts need.  The authorizations are those of {@link #getAllAuthZs}, all binds are read.
+     *
+     * @param since   generalized time, every record whose reqStart is the same or later is read.
+     * @param visitor receives each record as it is read.
+     * @throws FinderException in the event of ldap search error.
+     */
+    @Override
+    public void read( String since, AuditAggregator.Visitor visitor ) throws FinderException
+    {
+        LdapConnection ld = null;
+        String auditRoot = Config.getInstance().getProperty( AUDIT_ROOT );
+        String filter = AuditFilters.getAggregateFilter( since, getManagerDn() );
+
+        try
+        {
             ld = getLogConnection();
-            SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_MOD_ATRS, false, GlobalIds.BATCH_SIZE );
-            long sequence = 0;
+            byte[] cookie = null;
 
-            while ( searchResults.next() )
+            do
             {
-                modList.add( getModEntityFromLdapEntry( searchResults.getEntry(), sequence++ ) );
+                SearchCursor searchResults = searchPage( ld, auditRoot, SearchScope.ONELEVEL, filter,
+                    AUDIT_AGGREGATE_ATRS, cookie );
+
+                while ( searchResults.next() )
+                {
+                    Entry entry = searchResults.getEntry();
+                    int result = getResult( entry );
+                    if ( isObjectClass( entry, ACCESS_BIND_CLASS_NM ) )
+                    {
+                        visitor.visitBind( getAttribute( entry, REQSTART ), getAttribute( entry, REQDN ), result );
+                    }
+                    else
+                    {
+                        visitor.visitAuthZ( getAttribute( entry, REQSTART ), getAttribute( entry, REQUAUTHZID ),
+                            getAttribute( entry, REQDN ), result );
+                    }
+                }
+
+                cookie = getCookie( searchResults );
             }
+            while ( cookie != null );
         }
         catch ( LdapException e )
         {
-            String error = "searchAdminMods caught LdapException id=" + e.getMessage();
-            throw new FinderException( GlobalErrIds.AUDT_MOD_ADMIN_SEARCH_FAILED, error, e );
+            String error = "read filter [" + filter + "] caught LdapException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.AUDT_AUTHZ_SEARCH_FAILED, error, e );
         }
         catch ( CursorException e )
         {
-            String error = "searchAdminMods caught CursorException id=" + e.getMessage();
-            throw new FinderException( GlobalErrIds.AUDT_MOD_ADMIN_SEARCH_FAILED, error, e );
+            String error = "read filter [" + filter + "] caught CursorException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.AUDT_AUTHZ_SEARCH_FAILED, error, e );
         }
         finally
         {
             closeLogConnection( ld );
         }
+    }
 
-        return modList;
+
+    /**
+     * @return the dn of the root user, which fortress reads users as before their bind.
+     */
+    private String getManagerDn()
+    {
+        return "cn=Manager," + Config.getInstance().getProperty( GlobalIds.SUFFIX );
+    }
+
+
+    /**
+     * @return the dn a user's authorizations and binds are logged under.
+     */
+    String getUserDn( UserAudit audit )
+    {
+        return SchemaConstants.UID_AT + "=" + audit.getUserId() + "," + getRootDn( audit.getContextId(),
+            GlobalIds.USER_ROOT );
+    }
+
+
+    /**
+     * @return the dn a permission's authorizations are logged under, as {@link #searchAuthZs} searches for.
+     */
+    String getPermDn( UserAudit audit )
+    {
+        return PermDAO.getOpRdn( audit.getOpName(), audit.getObjId() ) + "," + GlobalIds.POBJ_NAME + "="
+            + audit.getObjName() + "," + getRootDn( audit.isAdmin(), audit.getContextId() );
+    }
+
+
+    private int getResult( Entry entry ) throws LdapInvalidAttributeValueException
+    {
+        String result = getAttribute( entry, REQRESULT );
+        try
+        {
+            return result != null ? Integer.parseInt( result ) : -1;
+        }
+        catch ( NumberFormatException e )
+        {
+            return -1;
+        }
+    }
+
+
+    private boolean isObjectClass( Entry entry, String objectClass )
+    {
+        List<String> objectClasses = getAttributes( entry, OBJECTCLASS );
+        if ( objectClasses != null )
+        {
+            for ( String value : objectClasses )
+            {
+                if ( objectClass.equalsIgnoreCase( value ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
 
@@ -0,0 +1,331 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.fortress.core.AuditConsumer;
+import org.apache.directory.fortress.core.FinderException;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Exports the audit records within the {@link UserAudit} begin and end dates without the size limit of the audit
+ * searches.  The window is split into slices of {@code audit.export.slice.millis} (default one hour) by reqStart, and
+ * up to {@code audit.export.threads} (default 4) slices are read at once, each with a paged search over its own log
+ * connection.  Records are passed to the consumer on the caller's thread, a slice at a time in order, so each slice
+ * buffers at most {@code audit.export.buffer} (default 1000) records ahead of the consumer.  Within a slice, records
+ * are passed in the order the server returns them, which for the accesslog is the order they were logged.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class AuditExport
+{
+    private static final String CLS_NM = AuditExport.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private static final String SLICE_MILLIS = "audit.export.slice.millis";
+    private static final String THREADS = "audit.export.threads";
+    private static final String BUFFER = "audit.export.buffer";
+    private static final long POLL_MILLIS = 100;
+    // marks the end of a slice:
+    private static final Object END = new Object();
+
+    /**
+     * The types of record that may be exported.
+     */
+    enum Kind
+    {
+        AUTHZ( GlobalErrIds.AUDT_AUTHZ_SEARCH_FAILED ),
+        BIND( GlobalErrIds.AUDT_BIND_SEARCH_FAILED ),
+        ADMIN_MOD( GlobalErrIds.AUDT_MOD_ADMIN_SEARCH_FAILED );
+
+        private final int errorId;
+
+
+        Kind( int errorId )
+        {
+            this.errorId = errorId;
+        }
+
+
+        /**
+         * @return the error id of a failed search for this type of record.
+         */
+        int getErrorId()
+        {
+            return errorId;
+        }
+    }
+
+    /**
+     * Reads the audit records of a slice.
+     */
+    interface Source
+    {
+        /**
+         * @param kind     of record to read.
+         * @param audit    contains the search criteria.
+         * @param from     inclusive lower bound of the records' reqStart.
+         * @param to       exclusive upper bound of the records' reqStart.
+         * @param consumer receives each record as it is read.
+         * @throws SecurityException in the event of DAO search error, or thrown by the consumer.
+         */
+        void read( Kind kind, UserAudit audit, Date from, Date to, AuditConsumer<Object> consumer )
+            throws SecurityException;
+    }
+
+    private final Source source;
+    private final long sliceMillis;
+    private final int threads;
+    private final int buffer;
+
+
+    /**
+     * @param source reads the audit records.
+     */
+    AuditExport( Source source )
+    {
+        this( source, Config.getInstance().getInt( SLICE_MILLIS, 3600000 ), Config.getInstance().getInt( THREADS, 4 ),
+            Config.getInstance().getInt( BUFFER, 1000 ) );
+    }
+
+
+    /**
+     * @param source      reads the audit records.
+     * @param sliceMillis length of each slice of the window.
+     * @param threads     maximum number of slices read at once.
+     * @param buffer      maximum number of records read ahead of the consumer by each slice.
+     */
+    AuditExport( Source source, long sliceMillis, int threads, int buffer )
+    {
+        this.source = source;
+        this.sliceMillis = Math.max( 1, sliceMillis );
+        this.threads = Math.max( 1, threads );
+        this.buffer = Math.max( 1, buffer );
+    }
+
+
+    /**
+     * Pass the records within the window to the consumer.
+     *
+     * @param kind     of record to export.
+     * @param audit    contains the search criteria, the begin date is required, the end date defaults to now.
+     * @param consumer receives the records.
+     * @param <T>      type of record, must match the kind.
+     * @return the number of records exported.
+     * @throws SecurityException in the event of DAO search error, or thrown by the consumer.
+     */
+    @SuppressWarnings("unchecked")
+    <T> long run( Kind kind, UserAudit audit, AuditConsumer<? super T> consumer ) throws SecurityException
+    {
+        long end = audit.getEndDate() != null ? audit.getEndDate().getTime() : System.currentTimeMillis();
+        List<Slice> slices = new ArrayList<>();
+        for ( long start = audit.getBeginDate().getTime(); start < end; start += sliceMillis )
+        {
+            slices.add( new Slice( kind, audit, new Date( start ), new Date( Math.min( start + sliceMillis, end ) ) ) );
+        }
+        if ( slices.isEmpty() )
+        {
+            return 0;
+        }
+
+        // slices start in the order submitted, so the one being consumed is always running:
+        ExecutorService executor = newExecutor( Math.min( threads, slices.size() ) );
+        long count = 0;
+        try
+        {
+            for ( Slice slice : slices )
+            {
+                executor.execute( slice );
+            }
+
+            for ( Slice slice : slices )
+            {
+                for ( Object record = slice.take(); record != END; record = slice.take() )
+                {
+                    consumer.accept( ( T ) record );
+                    count++;
+                }
+                slice.rethrow();
+            }
+        }
+        finally
+        {
+            for ( Slice slice : slices )
+            {
+                slice.cancel();
+            }
+            executor.shutdownNow();
+        }
+
+        LOG.debug( "run {} exported [{}] records in [{}] slices", kind, count, slices.size() );
+        return count;
+    }
+
+
+    private static ExecutorService newExecutor( int threads )
+    {
+        return new ThreadPoolExecutor( threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-audit-export-" + count.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+    }
+
+
+    /**
+     * Reads the records of a part of the window into a bounded queue.
+     */
+    private final class Slice implements Runnable, AuditConsumer<Object>
+    {
+        private final Kind kind;
+        private final UserAudit audit;
+        private final Date from;
+        private final Date to;
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>( buffer );
+        private volatile boolean isCancelled;
+        private volatile SecurityException error;
+
+
+        private Slice( Kind kind, UserAudit audit, Date from, Date to )
+        {
+            this.kind = kind;
+            this.audit = audit;
+            this.from = from;
+            this.to = to;
+        }
+
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                if ( !isCancelled )
+                {
+                    source.read( kind, audit, from, to, this );
+                }
+            }
+            catch ( SecurityException se )
+            {
+                error = se;
+            }
+            catch ( RuntimeException e )
+            {
+                error = new FinderException( kind.getErrorId(), "export slice from [" + from + "] caught "
+                    + "RuntimeException=" + e, e );
+            }
+            finally
+            {
+                put( END );
+            }
+        }
+
+
+        @Override
+        public void accept( Object record ) throws SecurityException
+        {
+            if ( !put( record ) )
+            {
+                throw new FinderException( GlobalErrIds.AUDT_EXPORT_FAILED, "export slice from [" + from
+                    + "] cancelled" );
+            }
+        }
+
+
+        /**
+         * @return false if the export was cancelled before the record could be queued.
+         */
+        private boolean put( Object record )
+        {
+            try
+            {
+                while ( !isCancelled )
+                {
+                    if ( queue.offer( record, POLL_MILLIS, TimeUnit.MILLISECONDS ) )
+                    {
+                        return true;
+                    }
+                }
+            }
+            catch ( InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+
+        private Object take() throws SecurityException
+        {
+            try
+            {
+                return queue.take();
+            }
+            catch ( InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+                throw new FinderException( GlobalErrIds.AUDT_EXPORT_FAILED, "export interrupted", ie );
+            }
+        }
+
+
+        private void rethrow() throws SecurityException
+        {
+            if ( error != null )
+            {
+                throw error;
+            }
+        }
+
+
+        private void cancel()
+        {
+            isCancelled = true;
+        }
+    }
+}
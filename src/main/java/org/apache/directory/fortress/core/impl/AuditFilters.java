@@ -0,0 +1,272 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.Date;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.util.time.TUtil;
+
+
+/**
+ * Builds the ldap filters of the {@link AuditDAO} searches.  Every criterion of the {@link UserAudit} is expressed in
+ * the filter, including the end date, so the server returns only the records the caller asked for and none are
+ * dropped after they have been read.  The roots are passed in so the filters may be built without a configuration.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class AuditFilters
+{
+    private AuditFilters()
+    {
+    }
+
+
+    /**
+     * Failed authentications, i.e. the user reads made as the root dn before a bind.  Without a userId, the reads
+     * of the people container itself, such as those of a role assignment, are left out.
+     *
+     * @param audit     contains the userId, failedOnly flag, begin and end dates.
+     * @param userRoot  dn of the people container.
+     * @param managerDn dn the reads are made as.
+     * @return the filter.
+     */
+    static String getInvalidAuthNsFilter( UserAudit audit, String userRoot, String managerDn )
+    {
+        StringBuilder filter = new StringBuilder( GlobalIds.FILTER_PREFIX ).append( AuditDAO.ACCESS_AUTHZ_CLASS_NM )
+            .append( ')' );
+
+        if ( StringUtils.isNotEmpty( audit.getUserId() ) )
+        {
+            appendUserDn( filter, AuditDAO.REQDN, audit.getUserId(), userRoot );
+        }
+        else
+        {
+            // pull back all failed authN attempts for all users:
+            filter.append( '(' ).append( AuditDAO.REQATTR ).append( '=' ).append( SchemaConstants.UID_AT ).append(
+                ")(!(" ).append( AuditDAO.REQDN ).append( '=' ).append( userRoot ).append( "))" );
+        }
+
+        filter.append( '(' ).append( AuditDAO.REQUAUTHZID ).append( '=' ).append( managerDn ).append( ')' );
+
+        if ( audit.isFailedOnly() )
+        {
+            filter.append( '(' ).append( AuditDAO.REQENTRIES ).append( "=0)" );
+        }
+
+        return appendDates( filter, audit ).append( ')' ).toString();
+    }
+
+
+    /**
+     * Authorizations of a user for a permission.
+     *
+     * @param audit    contains the userId, failedOnly flag, begin and end dates.
+     * @param permDn   dn of the permission operation.
+     * @param userRoot dn of the people container.
+     * @return the filter.
+     */
+    static String getAuthZsFilter( UserAudit audit, String permDn, String userRoot )
+    {
+        StringBuilder filter = new StringBuilder( GlobalIds.FILTER_PREFIX ).append( AuditDAO.ACCESS_AUTHZ_CLASS_NM )
+            .append( ")(" ).append( AuditDAO.REQDN ).append( '=' ).append( permDn ).append( ')' );
+        appendUserDn( filter, AuditDAO.REQUAUTHZID, audit.getUserId(), userRoot );
+        appendFailedAuthZ( filter, audit );
+        return appendDates( filter, audit ).append( ')' ).toString();
+    }
+
+
+    /**
+     * Authorizations of a user, or of all users but the root dn.
+     *
+     * @param audit     contains the userId, failedOnly flag, begin and end dates.
+     * @param userRoot  dn of the people container.
+     * @param managerDn dn of the root user.
+     * @return the filter.
+     */
+    static String getAllAuthZsFilter( UserAudit audit, String userRoot, String managerDn )
+    {
+        StringBuilder filter = new StringBuilder( GlobalIds.FILTER_PREFIX ).append( AuditDAO.ACCESS_AUTHZ_CLASS_NM )
+            .append( ')' );
+
+        if ( StringUtils.isNotEmpty( audit.getUserId() ) )
+        {
+            appendUserDn( filter, AuditDAO.REQUAUTHZID, audit.getUserId(), userRoot );
+        }
+        else
+        {
+            // have to limit the query to only authorization entries, leave out the compares made as the root dn:
+            filter.append( '(' ).append( AuditDAO.REQUAUTHZID ).append( "=*)(!(" ).append( AuditDAO.REQUAUTHZID )
+                .append( '=' ).append( managerDn ).append( "))" );
+        }
+
+        appendFailedAuthZ( filter, audit );
+        return appendDates( filter, audit ).append( ')' ).toString();
+    }
+
+
+    /**
+     * Binds of a user, or of all users.
+     *
+     * @param audit    contains the userId, failedOnly flag, begin and end dates.
+     * @param userRoot dn of the people container.
+     * @return the filter.
+     */
+    static String getBindsFilter( UserAudit audit, String userRoot )
+    {
+        StringBuilder filter = new StringBuilder( GlobalIds.FILTER_PREFIX ).append( AuditDAO.ACCESS_BIND_CLASS_NM )
+            .append( ')' );
+
+        if ( StringUtils.isNotEmpty( audit.getUserId() ) )
+        {
+            appendUserDn( filter, AuditDAO.REQDN, audit.getUserId(), userRoot );
+        }
+
+        if ( audit.isFailedOnly() )
+        {
+            filter.append( '(' ).append( AuditDAO.REQRESULT ).append( ">=1)" );
+        }
+
+        return appendDates( filter, audit ).append( ')' ).toString();
+    }
+
+
+    /**
+     * Modifications of a user's entry.
+     *
+     * @param audit    contains the userId, begin and end dates.
+     * @param userRoot dn of the people container.
+     * @return the filter.
+     */
+    static String getUserModsFilter( UserAudit audit, String userRoot )
+    {
+        StringBuilder filter = new StringBuilder( GlobalIds.FILTER_PREFIX ).append( AuditDAO.ACCESS_MOD_CLASS_NM )
+            .append( ')' );
+        appendUserDn( filter, AuditDAO.REQDN, audit.getUserId(), userRoot );
+        return appendDates( filter, audit ).append( ')' ).toString();
+    }
+
+
+    /**
+     * Adds and modifications made by the admin functions, by target dn, admin permission and admin user.
+     *
+     * @param audit contains the dn, objName, opName, internalUserId, begin and end dates.
+     * @return the filter.
+     */
+    static String getAdminModsFilter( UserAudit audit )
+    {
+        StringBuilder filter = new StringBuilder( "(&(|(objectclass=" ).append( AuditDAO.ACCESS_MOD_CLASS_NM )
+            .append( ")(objectclass=" ).append( AuditDAO.ACCESS_ADD_CLASS_NM ).append( "))" );
+
+        if ( StringUtils.isNotEmpty( audit.getDn() ) )
+        {
+            filter.append( '(' ).append( AuditDAO.REQDN ).append( '=' ).append( audit.getDn() ).append( ')' );
+        }
+
+        if ( StringUtils.isNotEmpty( audit.getObjName() ) )
+        {
+            String perm = audit.getObjName() + "." + StringUtils.defaultString( audit.getOpName() ) + "*)";
+            filter.append( "(|(" ).append( AuditDAO.REQMOD ).append( '=' ).append( GlobalIds.FT_MODIFIER_CODE )
+                .append( ":= " ).append( perm ).append( '(' ).append( AuditDAO.REQMOD ).append( '=' )
+                .append( GlobalIds.FT_MODIFIER_CODE ).append( ":+ " ).append( perm ).append( ')' );
+        }
+
+        if ( StringUtils.isNotEmpty( audit.getInternalUserId() ) )
+        {
+            filter.append( "(|(" ).append( AuditDAO.REQMOD ).append( '=' ).append( GlobalIds.FT_MODIFIER )
+                .append( ":= " ).append( audit.getInternalUserId() ).append( ")(" ).append( AuditDAO.REQMOD )
+                .append( '=' ).append( GlobalIds.FT_MODIFIER ).append( ":+ " ).append( audit.getInternalUserId() )
+                .append( "))" );
+        }
+
+        return appendDates( filter, audit ).append( ')' ).toString();
+    }
+
+
+    /**
+     * Authorizations of all users but the root dn, and all binds, logged since a time.
+     *
+     * @param since     generalized time, the earliest reqStart.
+     * @param managerDn dn of the root user.
+     * @return the filter.
+     */
+    static String getAggregateFilter( String since, String managerDn )
+    {
+        return "(&(|(&(" + AuditDAO.OBJECTCLASS + "=" + AuditDAO.ACCESS_AUTHZ_CLASS_NM + ")(!(" + AuditDAO.REQUAUTHZID
+            + "=" + managerDn + ")))(" + AuditDAO.OBJECTCLASS + "=" + AuditDAO.ACCESS_BIND_CLASS_NM + "))("
+            + AuditDAO.REQSTART + ">=" + since + "))";
+    }
+
+
+    /**
+     * Narrows a filter to the records whose reqStart is within a slice.
+     *
+     * @param filter to narrow.
+     * @param from   inclusive lower bound of the records' reqStart.
+     * @param to     exclusive upper bound of the records' reqStart.
+     * @return the filter.
+     */
+    static String getSliceFilter( String filter, Date from, Date to )
+    {
+        return "(&" + filter + "(" + AuditDAO.REQSTART + ">=" + TUtil.encodeGeneralizedTime( from ) + ")(!("
+            + AuditDAO.REQSTART + ">=" + TUtil.encodeGeneralizedTime( to ) + ")))";
+    }
+
+
+    private static void appendUserDn( StringBuilder filter, String attribute, String userId, String userRoot )
+    {
+        filter.append( '(' ).append( attribute ).append( '=' ).append( SchemaConstants.UID_AT ).append( '=' )
+            .append( userId ).append( ',' ).append( userRoot ).append( ')' );
+    }
+
+
+    private static void appendFailedAuthZ( StringBuilder filter, UserAudit audit )
+    {
+        if ( audit.isFailedOnly() )
+        {
+            filter.append( '(' ).append( AuditDAO.REQRESULT ).append( '=' )
+                .append( GlobalIds.AUTHZ_COMPARE_FAILURE_FLAG ).append( ')' );
+        }
+    }
+
+
+    private static StringBuilder appendDates( StringBuilder filter, UserAudit audit )
+    {
+        if ( audit.getBeginDate() != null )
+        {
+            filter.append( '(' ).append( AuditDAO.REQEND ).append( ">=" )
+                .append( TUtil.encodeGeneralizedTime( audit.getBeginDate() ) ).append( ')' );
+        }
+
+        if ( audit.getEndDate() != null )
+        {
+            filter.append( '(' ).append( AuditDAO.REQEND ).append( "<=" )
+                .append( TUtil.encodeGeneralizedTime( audit.getEndDate() ) ).append( ')' );
+        }
+
+        return filter;
+    }
+}
@@ -0,0 +1,1052 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AuditConsumer;
+import org.apache.directory.fortress.core.AuditSink;
+import org.apache.directory.fortress.core.FinderException;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.ObjectFactory;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.time.TUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code journal} {@link AuditSink}, an append-only journal of authorization and authentication events on local
+ * disk, for deployments without the OpenLDAP accesslog overlay or that need audit throughput independent of
+ * directory writes.
+ * <p>
+ * The journal is a directory, {@code audit.journal.dir} (default fortress-audit), of segment files of
+ * {@code audit.journal.segment.mb} (default 64) megabytes each, memory mapped and written in turn.  Each record
+ * carries a crc so a segment is read back up to its last complete record after a crash.  The current segment is
+ * forced to disk every {@code audit.journal.sync.millis} (default 1000), and when full, after which a new one is
+ * started.  Segments whose last record is older than {@code audit.journal.retention.hours} (default 168) are deleted,
+ * zero or less keeps them all.  The retention is bounded by disk rather than heap: the current segment takes some 4
+ * bytes of heap a record and 100 a user, each one before it only 4 bytes every 1024 records, some 40 kilobytes for
+ * each gigabyte of 100 byte records kept, its files taking the disk and page cache.
+ * <p>
+ * Each segment is indexed by time every 1024 records, in memory, and by user.  The user index of the current segment
+ * is kept in memory, once it is full it is written beside it, {@code 0000000000000000.index} for
+ * {@code 0000000000000000.journal}, and memory mapped in its place.  The indexes are rebuilt from the segments when
+ * the journal is opened, one segment at a time, those user indexes already written are mapped again.  Records are
+ * kept in order of time, those of the same millisecond are numbered in the microseconds of their reqStart so it is
+ * unique, as it is in the access log.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class AuditJournal implements AuditSink, AuditAggregator.Source, AuditExport.Source
+{
+    private static final String CLS_NM = AuditJournal.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private static final String DIR = "audit.journal.dir";
+    private static final String SEGMENT_MB = "audit.journal.segment.mb";
+    private static final String SYNC_MILLIS = "audit.journal.sync.millis";
+    private static final String RETENTION_HOURS = "audit.journal.retention.hours";
+    private static final String SUFFIX = ".journal";
+    private static final String INDEX_SUFFIX = ".index";
+    private static final byte AUTHZ = 1;
+    private static final byte BIND = 2;
+    // length and crc of the rest of a record:
+    private static final int HEADER = 8;
+    // time, sequence, type, result and the lengths of the user and target dns, followed by the dns:
+    private static final int FIXED = 19;
+    private static final int SEQUENCE = 8;
+    private static final int TYPE = 10;
+    private static final int RESULT = 11;
+    private static final int USER_LENGTH = 15;
+    private static final int TARGET_LENGTH = 17;
+    private static final int MAX_SEQUENCE = 999;
+    private static final int TIME_INDEX_STEP = 1024;
+    // record count and user count of a user index, followed by the position of the entry of each user by key:
+    private static final int INDEX_HEADER = 8;
+    private static final int NO_SUCH_OBJECT = 32;
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * Receives the records of a scan, in order of time.
+     */
+    private interface Reader
+    {
+        /**
+         * @return false to end the scan.
+         */
+        boolean read( String reqStart, byte type, int result, String userDn, String targetDn );
+    }
+
+    private final File dir;
+    private final int segmentBytes;
+    private final long retentionMillis;
+    private final List<Segment> segments = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+    private byte[] scratch = new byte[512];
+    private Segment current;
+    private long lastTime = Long.MIN_VALUE;
+    private int sequence;
+    private boolean isClosed;
+    private ScheduledExecutorService scheduler;
+
+
+    /**
+     * Open the journal configured by the fortress properties.
+     *
+     * @return the journal.
+     * @throws SecurityException if the journal directory cannot be read or written.
+     */
+    static AuditJournal open() throws SecurityException
+    {
+        Config config = Config.getInstance();
+        return new AuditJournal( new File( config.getProperty( DIR, "fortress-audit" ) ), config.getInt( SEGMENT_MB,
+            64 ) << 20, config.getInt( SYNC_MILLIS, 1000 ), TimeUnit.HOURS.toMillis( config.getInt( RETENTION_HOURS,
+            168 ) ) );
+    }
+
+
+    /**
+     * @param dir             directory of the segment files, created if it does not exist.
+     * @param segmentBytes    size of each segment file.
+     * @param syncMillis      time between forcing the current segment to disk, zero or less only when it is full.
+     * @param retentionMillis age of the last record of a segment before it is deleted, zero or less to keep them all.
+     * @throws SecurityException if the journal directory cannot be read or written.
+     */
+    AuditJournal( File dir, int segmentBytes, long syncMillis, long retentionMillis ) throws SecurityException
+    {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.retentionMillis = retentionMillis;
+        load();
+
+        if ( syncMillis > 0 )
+        {
+            scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-audit-journal" );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+            scheduler.scheduleWithFixedDelay( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        sync();
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        LOG.warn( "sync caught RuntimeException={}", e );
+                    }
+                }
+            }, syncMillis, syncMillis, TimeUnit.MILLISECONDS );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addAuthZ( String userDn, String permDn, int result ) throws SecurityException
+    {
+        append( AUTHZ, userDn, permDn, result );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addBind( String userDn, int result ) throws SecurityException
+    {
+        append( BIND, userDn, null, result );
+    }
+
+
+    /**
+     * Read the records added since a time, for the {@link AuditAggregator} counts.
+     *
+     * @param since   generalized time, every record whose reqStart is the same or later is read.
+     * @param visitor receives each record as it is read.
+     * @throws SecurityException if the time is not valid.
+     */
+    @Override
+    public void read( String since, final AuditAggregator.Visitor visitor ) throws SecurityException
+    {
+        long from;
+        try
+        {
+            from = TUtil.decodeGeneralizedTime( since ).getTime();
+        }
+        catch ( ParseException pe )
+        {
+            String error = "read invalid time [" + since + "] caught ParseException=" + pe.getMessage();
+            throw new FinderException( GlobalErrIds.AUDT_AUTHZ_SEARCH_FAILED, error, pe );
+        }
+
+        scan( from, Long.MAX_VALUE, null, new Reader()
+        {
+            @Override
+            public boolean read( String reqStart, byte type, int result, String userDn, String targetDn )
+            {
+                if ( type == AUTHZ )
+                {
+                    visitor.visitAuthZ( reqStart, userDn, targetDn, result );
+                }
+                else
+                {
+                    visitor.visitBind( reqStart, userDn, result );
+                }
+                return true;
+            }
+        } );
+    }
+
+
+    /**
+     * Read the records of an export slice, the authorizations or authentications of the user, or of all users, as
+     * {@link #searchAuthZs} and {@link #searchBinds} select them.  The admin modifications are not journaled, they are
+     * left to the access log.
+     *
+     * @param kind     of record to read, authorizations or authentications.
+     * @param audit    contains the userId and failedOnly flag.
+     * @param from     inclusive lower bound of the records' reqStart.
+     * @param to       exclusive upper bound of the records' reqStart.
+     * @param consumer receives each record as it is read.
+     * @throws SecurityException if the kind is admin modifications, or thrown by the consumer.
+     */
+    @Override
+    public void read( final AuditExport.Kind kind, UserAudit audit, Date from, Date to,
+        final AuditConsumer<Object> consumer ) throws SecurityException
+    {
+        if ( kind == AuditExport.Kind.ADMIN_MOD )
+        {
+            throw new FinderException( kind.getErrorId(), "read " + kind + " not held by the journal [" + dir + "]" );
+        }
+
+        final boolean isFailedOnly = audit.isFailedOnly();
+        String userDn = StringUtils.isNotEmpty( audit.getUserId() ) ? new AuditDAO().getUserDn( audit ) : null;
+        // the consumer's exception ends the scan, and is rethrown:
+        final SecurityException[] failure = new SecurityException[1];
+        scan( from.getTime(), to.getTime(), userDn, new Reader()
+        {
+            private long sequence;
+
+
+            @Override
+            public boolean read( String reqStart, byte type, int result, String userDn, String targetDn )
+            {
+                try
+                {
+                    if ( kind == AuditExport.Kind.AUTHZ && isAuthZ( type, result, isFailedOnly ) )
+                    {
+                        consumer.accept( newAuthZ( sequence++, reqStart, result, userDn, targetDn ) );
+                    }
+                    else if ( kind == AuditExport.Kind.BIND && isBind( type, result, isFailedOnly ) )
+                    {
+                        consumer.accept( newBind( sequence++, reqStart, result, userDn ) );
+                    }
+                    return true;
+                }
+                catch ( SecurityException se )
+                {
+                    failure[0] = se;
+                    return false;
+                }
+            }
+        } );
+
+        if ( failure[0] != null )
+        {
+            throw failure[0];
+        }
+    }
+
+
+    /**
+     * Return the authorizations of a user, or of all users, as the accesslog searches of {@link AuditDAO} do.
+     *
+     * @param userDn       of the user, null for all users.
+     * @param permDn       of the permission operation, null for all permissions.
+     * @param isFailedOnly if true, return only those denied.
+     * @param beginDate    earliest time of the authorizations, null for the first.
+     * @param endDate      latest time of the authorizations, null for the last.
+     * @param maxEntries   most authorizations returned.
+     * @return the authorizations in order of time.
+     */
+    List<AuthZ> searchAuthZs( String userDn, final String permDn, final boolean isFailedOnly, Date beginDate,
+        Date endDate, final int maxEntries )
+    {
+        final List<AuthZ> authZs = new ArrayList<>();
+        scan( getFrom( beginDate ), getTo( endDate ), userDn, new Reader()
+        {
+            @Override
+            public boolean read( String reqStart, byte type, int result, String userDn, String targetDn )
+            {
+                if ( isAuthZ( type, result, isFailedOnly )
+                    && ( permDn == null || permDn.equalsIgnoreCase( targetDn ) ) )
+                {
+                    authZs.add( newAuthZ( authZs.size(), reqStart, result, userDn, targetDn ) );
+                }
+                return authZs.size() < maxEntries;
+            }
+        } );
+        return authZs;
+    }
+
+
+    /**
+     * Return the authentications of a user, or of all users.
+     *
+     * @param userDn       of the user, null for all users.
+     * @param isFailedOnly if true, return only those that failed.
+     * @param beginDate    earliest time of the authentications, null for the first.
+     * @param endDate      latest time of the authentications, null for the last.
+     * @param maxEntries   most authentications returned.
+     * @return the authentications in order of time.
+     */
+    List<Bind> searchBinds( String userDn, final boolean isFailedOnly, Date beginDate, Date endDate,
+        final int maxEntries )
+    {
+        final List<Bind> binds = new ArrayList<>();
+        scan( getFrom( beginDate ), getTo( endDate ), userDn, new Reader()
+        {
+            @Override
+            public boolean read( String reqStart, byte type, int result, String userDn, String targetDn )
+            {
+                if ( isBind( type, result, isFailedOnly ) )
+                {
+                    binds.add( newBind( binds.size(), reqStart, result, userDn ) );
+                }
+                return binds.size() < maxEntries;
+            }
+        } );
+        return binds;
+    }
+
+
+    /**
+     * Return the authentications of a user, or of all users, that failed because the user does not exist.
+     *
+     * @param userDn     of the user, null for all users.
+     * @param beginDate  earliest time of the authentications, null for the first.
+     * @param endDate    latest time of the authentications, null for the last.
+     * @param maxEntries most authentications returned.
+     * @return the authentications in order of time, as the authorizations the accesslog holds for them.
+     */
+    List<AuthZ> searchInvalidAuthNs( String userDn, Date beginDate, Date endDate, final int maxEntries )
+    {
+        final List<AuthZ> authZs = new ArrayList<>();
+        scan( getFrom( beginDate ), getTo( endDate ), userDn, new Reader()
+        {
+            @Override
+            public boolean read( String reqStart, byte type, int result, String userDn, String targetDn )
+            {
+                if ( type == BIND && result == NO_SUCH_OBJECT )
+                {
+                    AuthZ authZ = new ObjectFactory().createAuthZ();
+                    authZ.setSequenceId( authZs.size() );
+                    authZ.setObjectClass( "auditBind" );
+                    authZ.setReqType( "bind" );
+                    authZ.setReqDN( userDn );
+                    authZ.setReqResult( String.valueOf( result ) );
+                    authZ.setReqStart( reqStart );
+                    authZ.setReqEnd( reqStart );
+                    authZs.add( authZ );
+                }
+                return authZs.size() < maxEntries;
+            }
+        } );
+        return authZs;
+    }
+
+
+    /**
+     * Force the current segment to disk and delete the segments past retention.
+     */
+    void sync()
+    {
+        Segment segment;
+        synchronized ( this )
+        {
+            segment = current;
+            purge();
+        }
+        if ( segment != null )
+        {
+            segment.buffer.force();
+        }
+    }
+
+
+    /**
+     * Stop the sync and force the current segment to disk, records may no longer be added.
+     */
+    synchronized void close()
+    {
+        if ( scheduler != null )
+        {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if ( current != null )
+        {
+            current.buffer.force();
+        }
+        isClosed = true;
+    }
+
+
+    private void append( byte type, String userDn, String targetDn, int result ) throws SecurityException
+    {
+        userDn = userDn != null ? userDn : "";
+        byte[] user = userDn.getBytes( StandardCharsets.UTF_8 );
+        byte[] target = targetDn != null ? targetDn.getBytes( StandardCharsets.UTF_8 ) : EMPTY;
+        int length = FIXED + user.length + target.length;
+        if ( user.length > Short.MAX_VALUE || target.length > Short.MAX_VALUE || HEADER + length > segmentBytes )
+        {
+            String error = "append record of [" + length + "] bytes for user [" + userDn + "] too large";
+            throw new FinderException( GlobalErrIds.AUDT_SINK_FAILED, error );
+        }
+        String key = userDn.toLowerCase();
+
+        synchronized ( this )
+        {
+            if ( isClosed )
+            {
+                throw new FinderException( GlobalErrIds.AUDT_SINK_FAILED, "append journal [" + dir + "] closed" );
+            }
+
+            // keep the records in order of time, and their reqStart unique:
+            long now = System.currentTimeMillis();
+            if ( now > lastTime )
+            {
+                lastTime = now;
+                sequence = 0;
+            }
+            else if ( sequence < MAX_SEQUENCE )
+            {
+                sequence++;
+            }
+            else
+            {
+                lastTime++;
+                sequence = 0;
+            }
+
+            if ( current == null || current.position + HEADER + length > current.buffer.capacity() )
+            {
+                roll();
+            }
+
+            if ( scratch.length < length )
+            {
+                scratch = new byte[Math.max( length, scratch.length * 2 )];
+            }
+            ByteBuffer body = ByteBuffer.wrap( scratch );
+            body.putLong( lastTime ).putShort( ( short ) sequence ).put( type ).putInt( result );
+            body.putShort( ( short ) user.length ).putShort( ( short ) target.length ).put( user ).put( target );
+            crc.reset();
+            crc.update( scratch, 0, length );
+
+            // the length is written last, a record is complete once it is set:
+            int offset = current.position;
+            current.buffer.position( offset + HEADER );
+            current.buffer.put( scratch, 0, length );
+            current.buffer.putInt( offset + 4, ( int ) crc.getValue() );
+            current.buffer.putInt( offset, length );
+            index( current, offset, lastTime, key );
+            current.position = offset + HEADER + length;
+        }
+    }
+
+
+    /**
+     * Start a new segment after the current one, which is forced to disk.
+     */
+    private void roll() throws FinderException
+    {
+        long id = 0;
+        if ( current != null )
+        {
+            current.buffer.force();
+            seal( current );
+            id = current.id + 1;
+        }
+
+        File file = new File( dir, String.format( "%016d", id ) + SUFFIX );
+        try
+        {
+            current = new Segment( file, id, segmentBytes );
+        }
+        catch ( IOException e )
+        {
+            String error = "roll segment [" + file + "] caught IOException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.AUDT_SINK_FAILED, error, e );
+        }
+        segments.add( current );
+        purge();
+    }
+
+
+    private void purge()
+    {
+        if ( retentionMillis <= 0 )
+        {
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        for ( Iterator<Segment> i = segments.iterator(); i.hasNext(); )
+        {
+            Segment segment = i.next();
+            if ( segment != current && segment.lastTime < cutoff )
+            {
+                i.remove();
+                // the mapping is released when the buffer is collected:
+                if ( !segment.file.delete() )
+                {
+                    LOG.warn( "purge could not delete segment [{}]", segment.file );
+                }
+                File index = getIndexFile( segment );
+                if ( segment.userIndex != null && !index.delete() )
+                {
+                    LOG.warn( "purge could not delete index [{}]", index );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Map the segments of the journal directory and index their records, the last becomes the current segment.
+     */
+    private void load() throws SecurityException
+    {
+        if ( !dir.isDirectory() && !dir.mkdirs() )
+        {
+            throw new FinderException( GlobalErrIds.AUDT_SINK_FAILED, "load could not create journal [" + dir + "]" );
+        }
+
+        File[] files = dir.listFiles( new FileFilter()
+        {
+            @Override
+            public boolean accept( File file )
+            {
+                return file.isFile() && file.getName().endsWith( SUFFIX );
+            }
+        } );
+        if ( files == null )
+        {
+            throw new FinderException( GlobalErrIds.AUDT_SINK_FAILED, "load could not list journal [" + dir + "]" );
+        }
+        Arrays.sort( files );
+
+        for ( File file : files )
+        {
+            String name = file.getName();
+            try
+            {
+                Segment segment = new Segment( file, Long.parseLong( name.substring( 0, name.length() - SUFFIX
+                    .length() ) ), ( int ) file.length() );
+                recover( segment );
+                segments.add( segment );
+                // no more records are added to the one before:
+                if ( current != null )
+                {
+                    seal( current );
+                }
+                current = segment;
+                lastTime = Math.max( lastTime, segment.lastTime );
+            }
+            catch ( NumberFormatException e )
+            {
+                LOG.warn( "load skipped file [{}] not named as a segment", file );
+            }
+            catch ( IOException e )
+            {
+                String error = "load segment [" + file + "] caught IOException=" + e.getMessage();
+                throw new FinderException( GlobalErrIds.AUDT_SINK_FAILED, error, e );
+            }
+        }
+        // a record added in the same millisecond as the last one recovered takes the next:
+        sequence = MAX_SEQUENCE;
+    }
+
+
+    /**
+     * Index the records of a segment up to the first that is incomplete, where the next record is added.
+     */
+    private void recover( Segment segment )
+    {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int capacity = buffer.capacity();
+        int offset = 0;
+
+        while ( offset + HEADER + FIXED <= capacity )
+        {
+            int length = buffer.getInt( offset );
+            if ( length < FIXED || length > capacity - offset - HEADER )
+            {
+                break;
+            }
+            if ( scratch.length < length )
+            {
+                scratch = new byte[length];
+            }
+            buffer.position( offset + HEADER );
+            buffer.get( scratch, 0, length );
+            crc.reset();
+            crc.update( scratch, 0, length );
+            if ( ( int ) crc.getValue() != buffer.getInt( offset + 4 ) )
+            {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.wrap( scratch, 0, length );
+            int userLength = body.getShort( USER_LENGTH );
+            String userDn = new String( scratch, FIXED, userLength, StandardCharsets.UTF_8 );
+            index( segment, offset, body.getLong( 0 ), userDn.toLowerCase() );
+            offset += HEADER + length;
+        }
+
+        segment.position = offset;
+        LOG.debug( "recover segment [{}] records [{}]", segment.file, segment.count );
+    }
+
+
+    private void index( Segment segment, int offset, long time, String key )
+    {
+        if ( segment.count % TIME_INDEX_STEP == 0 )
+        {
+            segment.times.add( offset );
+        }
+        if ( segment.count == 0 )
+        {
+            segment.firstTime = time;
+        }
+        segment.count++;
+        segment.lastTime = time;
+
+        Offsets offsets = segment.users.get( key );
+        if ( offsets == null )
+        {
+            offsets = new Offsets();
+            segment.users.put( key, offsets );
+        }
+        offsets.add( offset );
+    }
+
+
+    /**
+     * Replace the user index in memory of a segment no more records are added to by one mapped from its index file,
+     * written unless there is one of all its records.  The index is kept in memory if the file cannot be written.
+     */
+    private void seal( Segment segment )
+    {
+        File file = getIndexFile( segment );
+        try
+        {
+            MappedByteBuffer index = null;
+            if ( file.isFile() )
+            {
+                try ( RandomAccessFile raf = new RandomAccessFile( file, "r" ) )
+                {
+                    index = raf.getChannel().map( FileChannel.MapMode.READ_ONLY, 0, raf.length() );
+                }
+                if ( index.capacity() < INDEX_HEADER || index.getInt( 0 ) != segment.count )
+                {
+                    index = null;
+                }
+            }
+            if ( index == null )
+            {
+                index = write( segment, file );
+            }
+            segment.userIndex = index;
+            segment.users = null;
+        }
+        catch ( IOException e )
+        {
+            LOG.warn( "seal could not index segment [{}] caught IOException={}", segment.file, e.getMessage() );
+        }
+    }
+
+
+    /**
+     * Write the user index of a segment to a file, whole or not at all.  The file holds the record count and user
+     * count, the position of the entry of each user in order of key, then the entries, each the length of the key,
+     * the key, the number of offsets and the offsets.
+     */
+    private MappedByteBuffer write( Segment segment, File file ) throws IOException
+    {
+        List<String> keys = new ArrayList<>( segment.users.keySet() );
+        Collections.sort( keys );
+        byte[][] names = new byte[keys.size()][];
+        int size = INDEX_HEADER + 4 * names.length;
+        for ( int i = 0; i < names.length; i++ )
+        {
+            names[i] = keys.get( i ).getBytes( StandardCharsets.UTF_8 );
+            size += 8 + names[i].length + 4 * segment.users.get( keys.get( i ) ).size;
+        }
+
+        File temp = new File( dir, file.getName() + ".tmp" );
+        MappedByteBuffer index;
+        // the mapping stays valid once the file is closed or renamed:
+        try ( RandomAccessFile raf = new RandomAccessFile( temp, "rw" ) )
+        {
+            raf.setLength( size );
+            index = raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, size );
+        }
+        ByteBuffer entries = index.duplicate();
+        entries.position( INDEX_HEADER + 4 * names.length );
+        for ( int i = 0; i < names.length; i++ )
+        {
+            Offsets offsets = segment.users.get( keys.get( i ) );
+            index.putInt( INDEX_HEADER + 4 * i, entries.position() );
+            entries.putInt( names[i].length ).put( names[i] ).putInt( offsets.size );
+            entries.asIntBuffer().put( offsets.values, 0, offsets.size );
+            entries.position( entries.position() + 4 * offsets.size );
+        }
+        index.putInt( 4, names.length );
+        // the record count is written last, and the file only renamed once forced:
+        index.putInt( 0, segment.count );
+        index.force();
+        if ( file.exists() && !file.delete() || !temp.renameTo( file ) )
+        {
+            throw new IOException( "could not rename [" + temp + "] to [" + file + "]" );
+        }
+        LOG.debug( "write index [{}] users [{}]", file, names.length );
+        return index;
+    }
+
+
+    /**
+     * @return offsets of the records of a user in a mapped user index, null if there are none.
+     */
+    private static int[] lookup( ByteBuffer index, String key )
+    {
+        ByteBuffer entry = index.duplicate();
+        int low = 0;
+        int high = index.getInt( 4 ) - 1;
+        while ( low <= high )
+        {
+            int mid = ( low + high ) >>> 1;
+            entry.position( index.getInt( INDEX_HEADER + 4 * mid ) );
+            byte[] name = new byte[entry.getInt()];
+            entry.get( name );
+            int compare = new String( name, StandardCharsets.UTF_8 ).compareTo( key );
+            if ( compare < 0 )
+            {
+                low = mid + 1;
+            }
+            else if ( compare > 0 )
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                int[] offsets = new int[entry.getInt()];
+                entry.asIntBuffer().get( offsets );
+                return offsets;
+            }
+        }
+        return null;
+    }
+
+
+    private File getIndexFile( Segment segment )
+    {
+        String name = segment.file.getName();
+        return new File( dir, name.substring( 0, name.length() - SUFFIX.length() ) + INDEX_SUFFIX );
+    }
+
+
+    /**
+     * Pass the records from a time and before another, of a user if set, to the reader.  The offsets are copied from
+     * the indexes and the records read without holding the lock, so appends are not held up by a long scan.
+     */
+    private void scan( long from, long to, String userDn, Reader reader )
+    {
+        String key = userDn != null ? userDn.toLowerCase() : null;
+        List<Segment> views = new ArrayList<>();
+        List<int[]> offsets = new ArrayList<>();
+        List<Integer> limits = new ArrayList<>();
+
+        synchronized ( this )
+        {
+            for ( Segment segment : segments )
+            {
+                if ( segment.count == 0 || segment.lastTime < from || segment.firstTime >= to )
+                {
+                    continue;
+                }
+                int[] index;
+                if ( key == null )
+                {
+                    index = Arrays.copyOf( segment.times.values, segment.times.size );
+                }
+                else if ( segment.users != null )
+                {
+                    Offsets user = segment.users.get( key );
+                    index = user != null ? Arrays.copyOf( user.values, user.size ) : null;
+                }
+                else
+                {
+                    index = lookup( segment.userIndex, key );
+                }
+                if ( index != null )
+                {
+                    views.add( segment );
+                    offsets.add( index );
+                    limits.add( segment.position );
+                }
+            }
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat( "yyyyMMddHHmmss.SSS" );
+        format.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+
+        for ( int i = 0; i < views.size(); i++ )
+        {
+            ByteBuffer buffer = views.get( i ).buffer.duplicate();
+            int[] index = offsets.get( i );
+
+            if ( key != null )
+            {
+                // the records of the user, from the first at or after the start time:
+                for ( int j = search( buffer, index, from ); j < index.length; j++ )
+                {
+                    if ( buffer.getLong( index[j] + HEADER ) >= to || !read( buffer, index[j], format, reader ) )
+                    {
+                        return;
+                    }
+                }
+            }
+            else
+            {
+                // all records, from the last indexed before the start time:
+                int j = search( buffer, index, from ) - 1;
+                int offset = j < 0 ? 0 : index[j];
+                int limit = limits.get( i );
+                while ( offset < limit )
+                {
+                    long time = buffer.getLong( offset + HEADER );
+                    if ( time >= to )
+                    {
+                        return;
+                    }
+                    if ( time >= from && !read( buffer, offset, format, reader ) )
+                    {
+                        return;
+                    }
+                    offset += HEADER + buffer.getInt( offset );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @return position of the first offset whose record is at or after the time, the length if none is.
+     */
+    private static int search( ByteBuffer buffer, int[] offsets, long time )
+    {
+        int low = 0;
+        int high = offsets.length;
+        while ( low < high )
+        {
+            int mid = ( low + high ) >>> 1;
+            if ( buffer.getLong( offsets[mid] + HEADER ) < time )
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    private static boolean read( ByteBuffer buffer, int offset, SimpleDateFormat format, Reader reader )
+    {
+        int body = offset + HEADER;
+        int sequence = buffer.getShort( body + SEQUENCE );
+        byte[] user = new byte[buffer.getShort( body + USER_LENGTH )];
+        byte[] target = new byte[buffer.getShort( body + TARGET_LENGTH )];
+        buffer.position( body + FIXED );
+        buffer.get( user );
+        buffer.get( target );
+
+        String reqStart = format.format( new Date( buffer.getLong( body ) ) ) + ( sequence < 10 ? "00" : sequence
+            < 100 ? "0" : "" ) + sequence + "Z";
+        return reader.read( reqStart, buffer.get( body + TYPE ), buffer.getInt( body + RESULT ), new String( user,
+            StandardCharsets.UTF_8 ), target.length > 0 ? new String( target, StandardCharsets.UTF_8 ) : null );
+    }
+
+
+    private static boolean isAuthZ( byte type, int result, boolean isFailedOnly )
+    {
+        return type == AUTHZ && ( !isFailedOnly || result == GlobalIds.AUTHZ_COMPARE_FAILURE_FLAG );
+    }
+
+
+    private static boolean isBind( byte type, int result, boolean isFailedOnly )
+    {
+        return type == BIND && ( !isFailedOnly || result != 0 );
+    }
+
+
+    private static AuthZ newAuthZ( long sequence, String reqStart, int result, String userDn, String targetDn )
+    {
+        AuthZ authZ = new ObjectFactory().createAuthZ();
+        authZ.setSequenceId( sequence );
+        authZ.setObjectClass( "auditCompare" );
+        authZ.setReqType( "compare" );
+        authZ.setReqAuthzID( userDn );
+        authZ.setReqDN( targetDn );
+        authZ.setReqResult( String.valueOf( result ) );
+        authZ.setReqStart( reqStart );
+        authZ.setReqEnd( reqStart );
+        return authZ;
+    }
+
+
+    private static Bind newBind( long sequence, String reqStart, int result, String userDn )
+    {
+        Bind bind = new ObjectFactory().createBind();
+        bind.setSequenceId( sequence );
+        bind.setObjectClass( "auditBind" );
+        bind.setReqType( "bind" );
+        bind.setReqDN( userDn );
+        bind.setReqResult( String.valueOf( result ) );
+        bind.setReqStart( reqStart );
+        bind.setReqEnd( reqStart );
+        return bind;
+    }
+
+
+    private static long getFrom( Date beginDate )
+    {
+        return beginDate != null ? beginDate.getTime() : Long.MIN_VALUE;
+    }
+
+
+    private static long getTo( Date endDate )
+    {
+        return endDate != null ? endDate.getTime() + 1 : Long.MAX_VALUE;
+    }
+
+
+    /**
+     * A growable list of record offsets.
+     */
+    private static final class Offsets
+    {
+        private int[] values = new int[4];
+        private int size;
+
+
+        private void add( int value )
+        {
+            if ( size == values.length )
+            {
+                values = Arrays.copyOf( values, size * 2 );
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * A mapped segment file and the index of its records.  The index and counts are guarded by the journal, the user
+     * index is held in memory until the segment is sealed, then in a mapped file.
+     */
+    private static final class Segment
+    {
+        private final File file;
+        private final long id;
+        private final MappedByteBuffer buffer;
+        private final Offsets times = new Offsets();
+        private Map<String, Offsets> users = new HashMap<>();
+        private MappedByteBuffer userIndex;
+        private int position;
+        private int count;
+        private long firstTime;
+        private long lastTime = Long.MIN_VALUE;
+
+
+        private Segment( File file, long id, int size ) throws IOException
+        {
+            this.file = file;
+            this.id = id;
+            // the mapping stays valid once the file is closed:
+            try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) )
+            {
+                if ( raf.length() < size )
+                {
+                    raf.setLength( size );
+                }
+                buffer = raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, size );
+            }
+        }
+    }
+}
@@ -23,16 +23,19 @@ import java.io.Serializable;
 import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AuditConsumer;
 import org.apache.directory.fortress.core.AuditMgr;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.ReviewMgrFactory;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AuditStats;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Bind;
 import org.apache.directory.fortress.core.model.Mod;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.util.VUtil;
 
 /**
  * This object performs searches across <a href="http://www.openldap.org/">OpenLDAP</a>'s slapd access log.  The access log 
@@ -197,4 +200,89 @@ public class AuditMgrImpl extends Manageable implements AuditMgr, Serializable
         checkAccess(CLS_NM, methodName);
         return auditP.searchInvalidAuthNs(uAudit);
     }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long exportAuthZs(UserAudit uAudit, AuditConsumer<? super AuthZ> consumer)
+        throws SecurityException
+    {
+        String methodName = "exportAuthZs";
+        assertExport(methodName, uAudit, consumer);
+        checkAccess(CLS_NM, methodName);
+        return auditP.exportAuthZs(uAudit, consumer);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long exportBinds(UserAudit uAudit, AuditConsumer<? super Bind> consumer)
+        throws SecurityException
+    {
+        String methodName = "exportBinds";
+        assertExport(methodName, uAudit, consumer);
+        checkAccess(CLS_NM, methodName);
+        return auditP.exportBinds(uAudit, consumer);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long exportAdminMods(UserAudit uAudit, AuditConsumer<? super Mod> consumer)
+        throws SecurityException
+    {
+        String methodName = "exportAdminMods";
+        assertExport(methodName, uAudit, consumer);
+        checkAccess(CLS_NM, methodName);
+        if ( StringUtils.isNotEmpty( uAudit.getUserId() ))
+        {
+            ReviewMgr rMgr = ReviewMgrFactory.createInstance(this.contextId);
+            User user = rMgr.readUser(new User(uAudit.getUserId()));
+            uAudit.setInternalUserId(user.getInternalId());
+        }
+        return auditP.exportAdminMods(uAudit, consumer);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AuditStats getAuthZStats(UserAudit uAudit)
+        throws SecurityException
+    {
+        String methodName = "getAuthZStats";
+        assertContext(CLS_NM, methodName, uAudit, GlobalErrIds.AUDT_INPUT_NULL);
+        checkAccess(CLS_NM, methodName);
+        return auditP.getAuthZStats(uAudit);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AuditStats getBindStats(UserAudit uAudit)
+        throws SecurityException
+    {
+        String methodName = "getBindStats";
+        assertContext(CLS_NM, methodName, uAudit, GlobalErrIds.AUDT_INPUT_NULL);
+        checkAccess(CLS_NM, methodName);
+        return auditP.getBindStats(uAudit);
+    }
+
+
+    private void assertExport(String methodName, UserAudit uAudit, AuditConsumer<?> consumer)
+        throws SecurityException
+    {
+        assertContext(CLS_NM, methodName, uAudit, GlobalErrIds.AUDT_INPUT_NULL);
+        VUtil.assertNotNull(uAudit.getBeginDate(), GlobalErrIds.AUDT_EXPORT_BEGIN_NULL, CLS_NM + "." + methodName);
+        VUtil.assertNotNull(consumer, GlobalErrIds.AUDT_INPUT_NULL, CLS_NM + "." + methodName);
+    }
 }
\ No newline at end of file
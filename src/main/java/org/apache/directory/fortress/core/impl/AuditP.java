@@ -22,7 +22,10 @@ package org.apache.directory.fortress.core.impl;
 
 import java.util.List;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AuditConsumer;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AuditStats;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Bind;
 import org.apache.directory.fortress.core.model.Mod;
@@ -51,6 +54,9 @@ import org.apache.directory.fortress.core.model.UserAudit;
 final class AuditP
 {
     private AuditDAO aDao = new AuditDAO();
+    private AuditExport export = new AuditExport( aDao );
+    // exports from the journal when it is the sink, the admin modifications stay in the access log:
+    private volatile AuditExport journalExport;
 
 
     /**
@@ -64,6 +70,12 @@ final class AuditP
      */
     List<AuthZ> getAuthZs( UserAudit uAudit ) throws SecurityException
     {
+        AuditJournal journal = AuditSinks.getJournal();
+        if ( journal != null )
+        {
+            return journal.searchAuthZs( getUserDn( uAudit ), null, uAudit.isFailedOnly(), uAudit.getBeginDate(),
+                uAudit.getEndDate(), AuditDAO.AUDIT_SEARCH_LIMIT );
+        }
         return aDao.getAllAuthZs( uAudit );
     }
 
@@ -79,6 +91,12 @@ final class AuditP
      */
     List<AuthZ> searchAuthZs( UserAudit uAudit ) throws SecurityException
     {
+        AuditJournal journal = AuditSinks.getJournal();
+        if ( journal != null )
+        {
+            return journal.searchAuthZs( aDao.getUserDn( uAudit ), aDao.getPermDn( uAudit ), uAudit.isFailedOnly(),
+                uAudit.getBeginDate(), uAudit.getEndDate(), AuditDAO.AUDIT_SEARCH_LIMIT );
+        }
         return aDao.searchAuthZs( uAudit );
     }
 
@@ -93,6 +111,12 @@ final class AuditP
      */
     List<Bind> searchBinds( UserAudit uAudit ) throws SecurityException
     {
+        AuditJournal journal = AuditSinks.getJournal();
+        if ( journal != null )
+        {
+            return journal.searchBinds( getUserDn( uAudit ), uAudit.isFailedOnly(), uAudit.getBeginDate(),
+                uAudit.getEndDate(), AuditDAO.AUDIT_SEARCH_LIMIT );
+        }
         return aDao.searchBinds( uAudit );
     }
 
@@ -126,6 +150,83 @@ final class AuditP
     }
 
 
+    /**
+     * This method passes the authorization events selected as by {@link #getAuthZs} to the consumer, between
+     * {@link UserAudit#beginDate} and {@link UserAudit#endDate}, without limit on their number.
+     *
+     * @param uAudit   This entity is instantiated and populated before invocation.
+     * @param consumer receives each AuthZ object in order of the time it was logged.
+     * @return the number of events exported.
+     * @throws SecurityException if a runtime system error occurs, or thrown by the consumer.
+     */
+    long exportAuthZs( UserAudit uAudit, AuditConsumer<? super AuthZ> consumer ) throws SecurityException
+    {
+        return getExport().run( AuditExport.Kind.AUTHZ, uAudit, consumer );
+    }
+
+
+    /**
+     * This method passes the authentication events selected as by {@link #searchBinds} to the consumer, between
+     * {@link UserAudit#beginDate} and {@link UserAudit#endDate}, without limit on their number.
+     *
+     * @param uAudit   This entity is instantiated and populated before invocation.
+     * @param consumer receives each Bind object in order of the time it was logged.
+     * @return the number of events exported.
+     * @throws SecurityException if a runtime system error occurs, or thrown by the consumer.
+     */
+    long exportBinds( UserAudit uAudit, AuditConsumer<? super Bind> consumer ) throws SecurityException
+    {
+        return getExport().run( AuditExport.Kind.BIND, uAudit, consumer );
+    }
+
+
+    /**
+     * This method passes the admin operation events selected as by {@link #searchAdminMods} to the consumer, between
+     * {@link UserAudit#beginDate} and {@link UserAudit#endDate}, without limit on their number.
+     *
+     * @param uAudit   This entity is instantiated and populated before invocation.
+     * @param consumer receives each Mod object in order of the time it was logged.
+     * @return the number of events exported.
+     * @throws SecurityException if a runtime system error occurs, or thrown by the consumer.
+     */
+    long exportAdminMods( UserAudit uAudit, AuditConsumer<? super Mod> consumer ) throws SecurityException
+    {
+        return export.run( AuditExport.Kind.ADMIN_MOD, uAudit, consumer );
+    }
+
+
+    /**
+     * This method returns the number of authorization events for a permission {@link UserAudit#objName},
+     * {@link UserAudit#opName} and {@link UserAudit#objId}, or if not set for a user {@link UserAudit#userId}, or if
+     * neither is set for all of them, since {@link UserAudit#beginDate}.  The counts are kept in memory from the audit
+     * log, see {@link AuditAggregator}.
+     *
+     * @param uAudit This entity is instantiated and populated before invocation.
+     * @return the counts of successful and failed authorization events.
+     */
+    AuditStats getAuthZStats( UserAudit uAudit )
+    {
+        String userDn = getUserDn( uAudit );
+        String permDn = StringUtils.isNotEmpty( uAudit.getObjName() ) ? aDao.getPermDn( uAudit ) : null;
+        return AuditAggregator.getInstance().getAuthZStats( userDn, permDn, uAudit.getBeginDate() );
+    }
+
+
+    /**
+     * This method returns the number of authentication events for a user {@link UserAudit#userId}, or if not set for
+     * all of them, since {@link UserAudit#beginDate}.  The counts are kept in memory from the audit log, see
+     * {@link AuditAggregator}.
+     *
+     * @param uAudit This entity is instantiated and populated before invocation.
+     * @return the counts of successful and failed authentication events.
+     */
+    AuditStats getBindStats( UserAudit uAudit )
+    {
+        String userDn = getUserDn( uAudit );
+        return AuditAggregator.getInstance().getBindStats( userDn, uAudit.getBeginDate() );
+    }
+
+
     /**
      * This method returns a list of failed authentication events for a particular invalid user {@link UserAudit#userId},
      * and given timestamp {@link UserAudit#beginDate}.  If the {@link UserAudit#failedOnly} is true it will
@@ -140,6 +241,40 @@ final class AuditP
      */
     List<AuthZ> searchInvalidAuthNs( UserAudit uAudit ) throws SecurityException
     {
+        AuditJournal journal = AuditSinks.getJournal();
+        if ( journal != null )
+        {
+            return journal.searchInvalidAuthNs( getUserDn( uAudit ), uAudit.getBeginDate(), uAudit.getEndDate(),
+                AuditDAO.AUDIT_SEARCH_LIMIT );
+        }
         return aDao.searchInvalidAuthNs( uAudit );
     }
+
+
+    /**
+     * @return the export of the authorizations and authentications, from the journal if it is the sink.
+     * @throws SecurityException if the sink cannot be created, or its events cannot be read back.
+     */
+    private AuditExport getExport() throws SecurityException
+    {
+        AuditJournal journal = AuditSinks.getJournal();
+        if ( journal == null )
+        {
+            return export;
+        }
+        if ( journalExport == null )
+        {
+            journalExport = new AuditExport( journal );
+        }
+        return journalExport;
+    }
+
+
+    /**
+     * @return the dn of the user if the userId is set, null for all users.
+     */
+    private String getUserDn( UserAudit uAudit )
+    {
+        return StringUtils.isNotEmpty( uAudit.getUserId() ) ? aDao.getUserDn( uAudit ) : null;
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AuditSink;
+import org.apache.directory.fortress.core.FinderException;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.util.ClassUtil;
+import org.apache.directory.fortress.core.util.Config;
+
+
+/**
+ * Passes the authorization and authentication events to the {@link AuditSink} named by the {@code audit.sink}
+ * property.  When it is {@code accesslog}, the default, there is no sink and the events are left to the slapd access
+ * log.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class AuditSinks
+{
+    private static final String SINK = "audit.sink";
+    private static final String ACCESSLOG = "accesslog";
+    private static final String JOURNAL = "journal";
+
+    private static volatile AuditSink sINSTANCE = null;
+    private static volatile boolean isLoaded;
+
+
+    private AuditSinks()
+    {
+    }
+
+
+    /**
+     * Record the outcome of a permission check if there is a sink.
+     *
+     * @param userDn distinguished name of the user the check was made for.
+     * @param permDn distinguished name of the permission operation checked.
+     * @param result ldap result code of the check.
+     * @return false if there is no sink and the check is to be recorded in the access log.
+     * @throws FinderException if the event could not be recorded.
+     */
+    static boolean addAuthZ( String userDn, String permDn, int result ) throws FinderException
+    {
+        try
+        {
+            AuditSink sink = getInstance();
+            if ( sink == null )
+            {
+                return false;
+            }
+            sink.addAuthZ( userDn, permDn, result );
+            return true;
+        }
+        catch ( FinderException fe )
+        {
+            throw fe;
+        }
+        catch ( SecurityException se )
+        {
+            String error = "addAuthZ user [" + userDn + "] caught SecurityException=" + se.getMessage();
+            throw new FinderException( GlobalErrIds.AUDT_SINK_FAILED, error, se );
+        }
+    }
+
+
+    /**
+     * Record the outcome of an authentication if there is a sink.
+     *
+     * @param userDn distinguished name of the user that authenticated.
+     * @param result ldap result code of the bind.
+     * @throws FinderException if the event could not be recorded.
+     */
+    static void addBind( String userDn, int result ) throws FinderException
+    {
+        try
+        {
+            AuditSink sink = getInstance();
+            if ( sink != null )
+            {
+                sink.addBind( userDn, result );
+            }
+        }
+        catch ( FinderException fe )
+        {
+            throw fe;
+        }
+        catch ( SecurityException se )
+        {
+            String error = "addBind user [" + userDn + "] caught SecurityException=" + se.getMessage();
+            throw new FinderException( GlobalErrIds.AUDT_SINK_FAILED, error, se );
+        }
+    }
+
+
+    /**
+     * @return the journal if it is the sink, its records serve the audit queries in place of the access log, null if
+     *         the events are left to the access log.
+     * @throws SecurityException if the sink cannot be created, or is another sink, whose events cannot be read back.
+     */
+    static AuditJournal getJournal() throws SecurityException
+    {
+        AuditSink sink = getInstance();
+        if ( sink != null && !( sink instanceof AuditJournal ) )
+        {
+            String error = "getJournal sink [" + sink.getClass().getName() + "] cannot be searched";
+            throw new FinderException( GlobalErrIds.AUDT_SINK_NOT_SEARCHABLE, error );
+        }
+        return ( AuditJournal ) sink;
+    }
+
+
+    /**
+     * @return the sink, null if audit is disabled or left to the access log.
+     * @throws SecurityException if the sink cannot be created.
+     */
+    private static AuditSink getInstance() throws SecurityException
+    {
+        if ( Config.getInstance().isAuditDisabled() )
+        {
+            return null;
+        }
+        if ( !isLoaded )
+        {
+            synchronized ( AuditSinks.class )
+            {
+                if ( !isLoaded )
+                {
+                    String name = Config.getInstance().getProperty( SINK, ACCESSLOG );
+                    if ( JOURNAL.equalsIgnoreCase( name ) )
+                    {
+                        sINSTANCE = AuditJournal.open();
+                    }
+                    else if ( StringUtils.isNotEmpty( name ) && !ACCESSLOG.equalsIgnoreCase( name ) )
+                    {
+                        sINSTANCE = ( AuditSink ) ClassUtil.createInstance( name );
+                    }
+                    isLoaded = true;
+                }
+            }
+        }
+        return sINSTANCE;
+    }
+}
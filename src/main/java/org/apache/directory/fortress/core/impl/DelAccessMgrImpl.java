@@ -233,7 +233,10 @@ public class DelAccessMgrImpl extends AccessMgrImpl implements DelAccessMgr, Ser
         assertContext(CLS_NM, methodName, session, GlobalErrIds.USER_SESS_NULL);
         assertContext( CLS_NM, methodName, session.getUser(), GlobalErrIds.USER_NULL );
         setEntitySession(CLS_NM, methodName, session);
-        return AdminRoleUtil.getInheritedRoles( session.getAdminRoles(), this.contextId );
+        // copy the memoized set, callers are free to modify the one returned:
+        Set<String> iRoles = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        iRoles.addAll( AdminRoleUtil.getInheritedRoles( session, this.contextId ) );
+        return iRoles;
     }
 
     /**
@@ -278,17 +281,8 @@ public class DelAccessMgrImpl extends AccessMgrImpl implements DelAccessMgr, Ser
                 Set<String> osUs = uaRole.getOsUSet();
                 if(CollectionUtils.isNotEmpty( osUs ))
                 {
-                    // create Set with case insensitive comparator:
-                    Set<String> osUsFinal = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-                    for(String osU : osUs)
-                    {
-                        // Add osU children to the set:
-                        osUsFinal.add(osU);
-                        Set<String> children = UsoUtil.getInstance().getDescendants( osU, this.contextId );
-                        osUsFinal.addAll(children);
-                    }
-                    // does the admin role have authority over the user object?
-                    if(osUsFinal.contains(ue.getOu()))
+                    // does the admin role have authority over the user object, i.e. is user's ou one of osUs or their children?
+                    if(UsoUtil.getInstance().isWithin( ue.getOu(), osUs, this.contextId ))
                     {
                         // Get the Role range for admin role:
                         Set<String> range;
@@ -352,17 +346,8 @@ public class DelAccessMgrImpl extends AccessMgrImpl implements DelAccessMgr, Ser
                 Set<String> osPs = uaRole.getOsPSet();
                 if(CollectionUtils.isNotEmpty( osPs ))
                 {
-                    // create Set with case insensitive comparator:
-                    Set<String> osPsFinal = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-                    for(String osP : osPs)
-                    {
-                        // Add osU children to the set:
-                        osPsFinal.add(osP);
-                        Set<String> children = PsoUtil.getInstance().getDescendants( osP, this.contextId );
-                        osPsFinal.addAll(children);
-                    }
-                    // does the admin role have authority over the perm object?
-                    if(osPsFinal.contains(pObj.getOu()))
+                    // does the admin role have authority over the perm object, i.e. is perm's ou one of osPs or their children?
+                    if(PsoUtil.getInstance().isWithin( pObj.getOu(), osPs, this.contextId ))
                     {
                         // Get the Role range for admin role:
                         Set<String> range;
@@ -0,0 +1,153 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.fortress.core.model.SDSet;
+
+
+/**
+ * The roles activated in a session and their ascendants, matched against the members of a collection of DSD sets.
+ * Used by {@link SDUtil#validateDSD} so that the ascendants of each activated role are read once, rather than once per
+ * DSD set.  Every member of the sets is interned to an integer id that maps to a {@link BitSet} of the activated roles
+ * that equal or inherit it, and the number of activated roles that match a set is the bit count of the union of its
+ * members' bitsets.
+ * <p>
+ * An activated role counts once against a set whether it is a member itself or inherits one or more members.
+ * Instances are built for one validation and are not modified afterwards.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class DsdClosure
+{
+    /**
+     * Supplies the ascendants of a role, i.e. {@link RoleUtil#getAscendants} for a tenant.
+     */
+    interface Source
+    {
+        /**
+         * @param roleName contains the role name.
+         * @return the names of the role's ascendants, may be null or empty.
+         */
+        Set<String> getAscendants( String roleName );
+    }
+
+
+    private final Collection<SDSet> dsdSets;
+    // set member name in upper case to its id:
+    private final Map<String, Integer> ids = new HashMap<>();
+    // member id to the positions of the activated roles that equal or inherit the member:
+    private final List<BitSet> activeRoles = new ArrayList<>();
+
+
+    /**
+     * Compute the members of the DSD sets matched by each activated role.
+     *
+     * @param roleNames contains the names of the roles activated in the session.
+     * @param dsdSets   contains the DSD sets to validate.
+     * @param source    supplies the ascendants of the activated roles.
+     */
+    DsdClosure( List<String> roleNames, Collection<SDSet> dsdSets, Source source )
+    {
+        this.dsdSets = dsdSets;
+        for ( SDSet dsd : dsdSets )
+        {
+            if ( dsd.getMembers() != null )
+            {
+                for ( String member : dsd.getMembers() )
+                {
+                    if ( !ids.containsKey( member.toUpperCase() ) )
+                    {
+                        ids.put( member.toUpperCase(), activeRoles.size() );
+                        activeRoles.add( new BitSet() );
+                    }
+                }
+            }
+        }
+        if ( ids.isEmpty() )
+        {
+            return;
+        }
+        for ( int position = 0; position < roleNames.size(); position++ )
+        {
+            String roleName = roleNames.get( position );
+            match( roleName, position );
+            Set<String> ascendants = source.getAscendants( roleName );
+            if ( ascendants != null )
+            {
+                for ( String ascendant : ascendants )
+                {
+                    match( ascendant, position );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Return the first DSD set that one more activated role would violate, i.e. that is matched by at least its
+     * cardinality less one of the activated roles.  Sets without a cardinality, such as the placeholders cached for
+     * roles in no DSD set, are skipped.
+     *
+     * @return SDSet violated, or null if there is none.
+     */
+    SDSet getViolation()
+    {
+        for ( SDSet dsd : dsdSets )
+        {
+            if ( dsd.getCardinality() == null || dsd.getMembers() == null )
+            {
+                continue;
+            }
+            BitSet matched = new BitSet();
+            for ( String member : dsd.getMembers() )
+            {
+                matched.or( activeRoles.get( ids.get( member.toUpperCase() ) ) );
+            }
+            int matchCount = matched.cardinality();
+            // does the match count exceed the cardinality allowed for this particular DSD set?
+            if ( matchCount > 0 && matchCount >= dsd.getCardinality() - 1 )
+            {
+                return dsd;
+            }
+        }
+        return null;
+    }
+
+
+    private void match( String name, int position )
+    {
+        Integer id = ids.get( name.toUpperCase() );
+        if ( id != null )
+        {
+            activeRoles.get( id ).set( position );
+        }
+    }
+}
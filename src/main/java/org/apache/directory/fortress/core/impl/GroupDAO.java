@@ -41,6 +41,7 @@ import org.apache.directory.fortress.core.CreateException;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.MemberLoadException;
 import org.apache.directory.fortress.core.RemoveException;
 import org.apache.directory.fortress.core.UpdateException;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
@@ -53,12 +54,14 @@ import org.slf4j.LoggerFactory;
 
 
 /**
- * Contains the Group node for LDAP Directory Information Tree.
+ * Contains the Group node for LDAP Directory Information Tree.  The member attribute, which may hold many thousands of
+ * values, is not retrieved by reads and searches.  The members are loaded on first access of the group's getters,
+ * through {@link #loadCB(FortEntity, int, int)}, and may be tested one at a time with {@link #isMember(Group, String)}.
  * This class is thread safe.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
-final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
+final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>, MemberLoader
 {
     private static final String CLS_NM = GroupDAO.class.getName();
     private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
@@ -89,8 +92,7 @@ final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
                 SchemaConstants.DESCRIPTION_AT,
                 GlobalIds.TYPE,
                 GROUP_PROTOCOL_ATTR_IMPL,
-                GROUP_PROPERTY_ATTR_IMPL,
-                SchemaConstants.MEMBER_AT };
+                GROUP_PROPERTY_ATTR_IMPL };
     }
 
 
@@ -367,7 +369,7 @@ final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
                 String warning = "No Group entry found dn [" + dn + "]";
                 throw new FinderException( GlobalErrIds.GROUP_NOT_FOUND, warning );
             }
-            entity = unloadLdapEntry( findEntry, 0 );
+            entity = unloadLdapEntry( findEntry, 0, group.getContextId() );
         }
         catch ( LdapNoSuchObjectException e )
         {
@@ -412,7 +414,7 @@ final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
             long sequence = 0;
             while ( searchResults.next() )
             {
-                groupList.add( unloadLdapEntry( searchResults.getEntry(), sequence++ ) );
+                groupList.add( unloadLdapEntry( searchResults.getEntry(), sequence++, group.getContextId() ) );
             }
         }
         catch ( CursorException e )
@@ -460,7 +462,7 @@ final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
 
             while ( searchResults.next() )
             {
-                groupList.add( unloadLdapEntry( searchResults.getEntry(), sequence++ ) );
+                groupList.add( unloadLdapEntry( searchResults.getEntry(), sequence++, user.getContextId() ) );
             }
         }
         catch ( CursorException e )
@@ -508,7 +510,7 @@ final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
 
             while ( searchResults.next() )
             {
-                groupList.add( unloadLdapEntry( searchResults.getEntry(), sequence++ ) );
+                groupList.add( unloadLdapEntry( searchResults.getEntry(), sequence++, role.getContextId() ) );
             }
         }
         catch ( CursorException e )
@@ -530,13 +532,83 @@ final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
     }
 
 
+    /**
+     * Use the ldap compare operation to test whether the group has a member, without reading the members.
+     *
+     * @param group    contains the name and contextId of the group.
+     * @param memberDn dn of the user or role.
+     * @return true if the dn is a member of the group.
+     * @throws org.apache.directory.fortress.core.FinderException
+     *
+     */
+    boolean isMember( Group group, String memberDn ) throws FinderException
+    {
+        LdapConnection ld = null;
+        String dn = getDn( group.getName(), group.getContextId() );
+
+        try
+        {
+            ld = getAdminConnection();
+            return compareValue( ld, dn, SchemaConstants.MEMBER_AT, memberDn );
+        }
+        catch ( LdapNoSuchObjectException e )
+        {
+            String warning = "isMember COULD NOT FIND ENTRY for dn [" + dn + "]";
+            throw new FinderException( GlobalErrIds.GROUP_NOT_FOUND, warning, e );
+        }
+        catch ( LdapException e )
+        {
+            String error = "isMember dn [" + dn + "] member [" + memberDn + "] caught LdapException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.GROUP_READ_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+    }
+
+
+    /**
+     * Read a range of the group's members, see {@link LdapDataProvider#readRange}.
+     *
+     * @param entity contains the name and contextId of the group.
+     * @param offset index of the first member to retrieve.
+     * @param size   maximum number of members to retrieve, all remaining if less than one.
+     * @return List of member dns.
+     * @throws MemberLoadException in the event they could not be read.
+     */
+    @Override
+    public List<String> loadCB( FortEntity entity, int offset, int size )
+    {
+        LdapConnection ld = null;
+        Group group = ( Group ) entity;
+        String dn = getDn( group.getName(), group.getContextId() );
+
+        try
+        {
+            ld = getAdminConnection();
+            return readRange( ld, dn, SchemaConstants.MEMBER_AT, offset, size );
+        }
+        catch ( LdapException e )
+        {
+            String error = "loadCB dn [" + dn + "] caught LDAPException=" + e.getMessage();
+            throw new MemberLoadException( GlobalErrIds.GROUP_READ_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+    }
+
+
     /**
      * @param le
      * @param sequence
+     * @param contextId
      * @return
      * @throws LdapException
      */
-    private Group unloadLdapEntry( Entry le, long sequence )
+    private Group unloadLdapEntry( Entry le, long sequence, String contextId )
         throws LdapInvalidAttributeValueException
     {
         Group entity = new ObjectFactory().createGroup();
@@ -548,7 +620,9 @@ final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
             entity.setType( Group.Type.valueOf( typeAsString.toUpperCase() ) );
         }
         entity.setProtocol( getAttribute( le, GROUP_PROTOCOL_ATTR_IMPL ) );
-        entity.setMembers( getAttributes( le, SchemaConstants.MEMBER_AT ) );
+        // the callback needs the tenant to locate the entry:
+        entity.setContextId( contextId );
+        entity.deferMembers( this );
         entity.setMemberDn( true );
         entity.setProperties( PropUtil.getProperties( getAttributes( le, GROUP_PROPERTY_ATTR_IMPL ), '=' ) );
         entity.setSequenceId( sequence );
@@ -33,6 +33,7 @@ import org.apache.directory.fortress.core.model.Group;
 import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.VUtil;
 
 
 /**
@@ -246,6 +247,34 @@ public class GroupMgrImpl extends Manageable implements GroupMgr, Serializable
         return groupP.deassign( group, dn );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isMember( Group group, String member ) throws SecurityException
+    {
+        String methodName = "isMember";
+        assertContext(CLS_NM, methodName, group, GlobalErrIds.GROUP_NULL);
+        VUtil.assertNotNullOrEmpty( member, GlobalErrIds.GROUP_MEMBER_NULL, CLS_NM + "." + methodName );
+        checkAccess(CLS_NM, methodName);
+        ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( this.contextId );
+        String dn;
+        if( group.getType() == Group.Type.ROLE )
+        {
+            Role inRole = new Role( member );
+            inRole.setContextId( group.getContextId() );
+            dn = reviewMgr.readRole( inRole ).getDn();
+        }
+        else
+        {
+            User inUser = new User( member );
+            inUser.setContextId( group.getContextId() );
+            dn = reviewMgr.readUser( inUser ).getDn();
+        }
+
+        return groupP.isMember( group, dn );
+    }
+
     private void loadUserDns( Group group ) throws SecurityException
     {
         if( CollectionUtils.isNotEmpty( group.getMembers() ))
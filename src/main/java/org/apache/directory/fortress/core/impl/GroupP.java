@@ -158,6 +158,20 @@ final class GroupP
     }
 
 
+    /**
+     * Test whether a dn is a member of a group using the ldap compare operation.
+     *
+     * @param group    contains the group name.
+     * @param memberDn String contains the dn of the user or role.
+     * @return true if the dn is a member of the group.
+     * @throws SecurityException in the event group not found or DAO system error.
+     */
+    boolean isMember( Group group, String memberDn ) throws SecurityException
+    {
+        return gDao.isMember( group, memberDn );
+    }
+
+
     /**
      * Return a fully populated Group entity for a given name.  If matching record not found a
      * SecurityException will be thrown.
@@ -0,0 +1,159 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.directory.fortress.core.model.Relationship;
+import org.jgrapht.graph.SimpleDirectedGraph;
+
+
+/**
+ * Immutable transitive closure of a hierarchy digraph, as built by {@link HierUtil#buildGraph}, where each edge points
+ * from child to parent.  Every vertex name is interned to an integer id and the ids of all of its ascendants are held in
+ * a {@link BitSet}, so that asking whether one vertex is a descendant of another takes constant time rather than a
+ * traversal of the graph.
+ * <p>
+ * Used by {@link UsoUtil} and {@link PsoUtil} to answer whether an organizational unit falls within the OU scope of an
+ * administrative role.  Instances are never modified after construction, a new one is built when the hierarchy changes.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class HierClosure
+{
+    private final SimpleDirectedGraph<String, Relationship> graph;
+    private final Map<String, Integer> ids;
+    private final BitSet[] ascendants;
+
+
+    /**
+     * Build the closure from the current state of a hierarchy graph.  The graph is locked for the duration, as are the
+     * updates performed by {@link HierUtil#updateHier}.
+     *
+     * @param graph contains a reference to simple digraph {@code org.jgrapht.graph.SimpleDirectedGraph}.
+     */
+    HierClosure( SimpleDirectedGraph<String, Relationship> graph )
+    {
+        this.graph = graph;
+        synchronized ( graph )
+        {
+            Set<String> vertices = graph.vertexSet();
+            ids = new HashMap<>( vertices.size() * 2 );
+            String[] names = new String[vertices.size()];
+            int id = 0;
+            for ( String vertex : vertices )
+            {
+                names[id] = vertex;
+                ids.put( vertex.toUpperCase(), id++ );
+            }
+            ascendants = new BitSet[names.length];
+            for ( int i = 0; i < names.length; i++ )
+            {
+                computeAscendants( i, names );
+            }
+        }
+    }
+
+
+    /**
+     * Determine if a vertex equals, or is a descendant of, a given ascendant.
+     *
+     * @param name      maps to a vertex in the graph, case insensitive.
+     * @param ascendant maps to a vertex in the graph, case insensitive.
+     * @return true if name equals ascendant or ascendant is one of its ascendants.
+     */
+    boolean isWithin( String name, String ascendant )
+    {
+        if ( name == null || ascendant == null )
+        {
+            return false;
+        }
+        if ( name.equalsIgnoreCase( ascendant ) )
+        {
+            return true;
+        }
+        Integer child = ids.get( name.toUpperCase() );
+        Integer parent = ids.get( ascendant.toUpperCase() );
+        return child != null && parent != null && ascendants[child].get( parent );
+    }
+
+
+    /**
+     * Determine if a vertex equals, or is a descendant of, any one of a set of ascendants.
+     *
+     * @param name       maps to a vertex in the graph, case insensitive.
+     * @param ascendants contains the names of the ascendants.
+     * @return true if name is within at least one of the ascendants.
+     */
+    boolean isWithin( String name, Set<String> ascendants )
+    {
+        if ( name == null || CollectionUtils.isEmpty( ascendants ) )
+        {
+            return false;
+        }
+        for ( String ascendant : ascendants )
+        {
+            if ( isWithin( name, ascendant ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * @param graph contains a reference to simple digraph {@code org.jgrapht.graph.SimpleDirectedGraph}.
+     * @return true if this closure was built from the given graph instance.
+     */
+    boolean isBuiltFrom( SimpleDirectedGraph<String, Relationship> graph )
+    {
+        return this.graph == graph;
+    }
+
+
+    /**
+     * Compute, and memoize, the ascendants of the vertex with the given id from those of its parents.
+     */
+    private BitSet computeAscendants( int id, String[] names )
+    {
+        BitSet result = ascendants[id];
+        if ( result == null )
+        {
+            result = new BitSet( names.length );
+            // mark as visited before recursing so a malformed cycle terminates:
+            ascendants[id] = result;
+            for ( Relationship edge : graph.outgoingEdgesOf( names[id] ) )
+            {
+                int parent = ids.get( graph.getEdgeTarget( edge ).toUpperCase() );
+                result.set( parent );
+                result.or( computeAscendants( parent, names ) );
+            }
+        }
+        return result;
+    }
+}
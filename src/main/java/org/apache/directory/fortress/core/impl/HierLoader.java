@@ -0,0 +1,302 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Relationship;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.time.TUtil;
+import org.jgrapht.Graphs;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Builds the role hierarchy graphs cached by {@link RoleUtil} and {@link AdminRoleUtil} from the {@code ftParents}
+ * attribute of the role entries.  The entries are read a page at a time and their edges added to the graph as each is
+ * read, rather than collected into a {@link org.apache.directory.fortress.core.model.Hier} first.
+ * <p>
+ * With {@code enable.hier.delta.refresh=true}, once a tenant's graph has been loaded in full, later loads copy the
+ * previous graph and replace the edges of only the roles whose {@code modifyTimestamp} is later than the latest one
+ * seen, less {@code hier.delta.overlap.seconds} (default 60) to allow for changes made while the previous load was
+ * paging.  Deleted roles leave no trace to search for, so a full load is still done once the last one is older than
+ * {@code hier.full.refresh.millis} (default one hour).
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class HierLoader
+{
+    private static final String CLS_NM = HierLoader.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private static final String ENABLE_DELTA = "enable.hier.delta.refresh";
+    private static final String FULL_REFRESH_MILLIS = "hier.full.refresh.millis";
+    private static final String OVERLAP_SECONDS = "hier.delta.overlap.seconds";
+
+    /**
+     * Reads the members of a hierarchy from the directory.
+     */
+    interface Source
+    {
+        /**
+         * @param contextId     maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+         * @param modifiedSince generalized time, null reads every member that has parents, otherwise every member
+         *                      modified since.
+         * @param visitor       receives each member as it is read.
+         * @throws SecurityException in the event of DAO search error.
+         */
+        void read( String contextId, String modifiedSince, Visitor visitor ) throws SecurityException;
+    }
+
+    /**
+     * Receives the members of a hierarchy as they are read.
+     */
+    interface Visitor
+    {
+        /**
+         * @param name            of the member.
+         * @param parents         names of its parents, null or empty if it has none.
+         * @param modifyTimestamp generalized time the member's entry was last changed, may be null.
+         */
+        void visit( String name, Set<String> parents, String modifyTimestamp );
+    }
+
+    private final String type;
+    private final Source source;
+    private final boolean isDeltaEnabled;
+    private final long fullRefreshMillis;
+    private final long overlapMillis;
+    private final ConcurrentMap<String, State> states = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param type   of hierarchy, used for logging.
+     * @param source reads the members of the hierarchy.
+     */
+    HierLoader( String type, Source source )
+    {
+        this( type, source, Config.getInstance().getBoolean( ENABLE_DELTA, false ), Config.getInstance().getInt(
+            FULL_REFRESH_MILLIS, 3600000 ), TimeUnit.SECONDS.toMillis( Config.getInstance().getInt( OVERLAP_SECONDS,
+            60 ) ) );
+    }
+
+
+    /**
+     * @param type              of hierarchy, used for logging.
+     * @param source            reads the members of the hierarchy.
+     * @param isDeltaEnabled    if false every load is a full load.
+     * @param fullRefreshMillis age of the last full load after which the next load is a full one.
+     * @param overlapMillis     subtracted from the latest modifyTimestamp seen to give the time changes are read from.
+     */
+    HierLoader( String type, Source source, boolean isDeltaEnabled, long fullRefreshMillis, long overlapMillis )
+    {
+        this.type = type;
+        this.source = source;
+        this.isDeltaEnabled = isDeltaEnabled;
+        this.fullRefreshMillis = fullRefreshMillis;
+        this.overlapMillis = overlapMillis;
+    }
+
+
+    /**
+     * Load a tenant's graph, in full or by applying the changes made since the previous load.
+     *
+     * @param key       of the tenant's cache entry.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return a new graph, not shared with earlier loads.
+     */
+    SimpleDirectedGraph<String, Relationship> load( String key, String contextId )
+    {
+        State state = states.get( key );
+        long now = System.currentTimeMillis();
+        if ( isDeltaEnabled && state != null && state.watermark != null && now - state.loadTime < fullRefreshMillis )
+        {
+            String since = getSince( state.watermark );
+            if ( since != null )
+            {
+                return loadDelta( key, contextId, state, since );
+            }
+        }
+        return loadFull( key, contextId, now );
+    }
+
+
+    private SimpleDirectedGraph<String, Relationship> loadFull( String key, String contextId, long now )
+    {
+        LOG.info( "loadGraph initializing {} context [{}]", type, contextId );
+        SimpleDirectedGraph<String, Relationship> graph = new SimpleDirectedGraph<>( Relationship.class );
+        GraphVisitor visitor = new GraphVisitor( graph, false );
+        try
+        {
+            source.read( contextId, null, visitor );
+        }
+        catch ( SecurityException se )
+        {
+            LOG.info( "loadGraph caught SecurityException={}", se );
+            states.remove( key );
+            return new SimpleDirectedGraph<>( Relationship.class );
+        }
+
+        if ( isDeltaEnabled )
+        {
+            states.put( key, new State( graph, visitor.latest, now ) );
+        }
+        return graph;
+    }
+
+
+    private SimpleDirectedGraph<String, Relationship> loadDelta( String key, String contextId, State state,
+        String since )
+    {
+        SimpleDirectedGraph<String, Relationship> graph = new SimpleDirectedGraph<>( Relationship.class );
+        // the previous graph may be the cached one, whose edges are updated while holding its lock:
+        synchronized ( state.graph )
+        {
+            Graphs.addGraph( graph, state.graph );
+        }
+
+        GraphVisitor visitor = new GraphVisitor( graph, true );
+        try
+        {
+            source.read( contextId, since, visitor );
+        }
+        catch ( SecurityException se )
+        {
+            // keep the previous edges, the next load tries again:
+            LOG.info( "loadGraph {} context [{}] delta caught SecurityException={}", type, contextId, se );
+            return graph;
+        }
+
+        String watermark = visitor.latest != null && visitor.latest.compareTo( state.watermark ) > 0 ? visitor.latest
+            : state.watermark;
+        states.put( key, new State( graph, watermark, state.loadTime ) );
+        LOG.debug( "loadGraph {} context [{}] applied [{}] changes since [{}]", type, contextId, visitor.count, since );
+        return graph;
+    }
+
+
+    /**
+     * @return the time changes are read from, null if the watermark can't be parsed.
+     */
+    private String getSince( String watermark )
+    {
+        try
+        {
+            Date latest = TUtil.decodeGeneralizedTime( watermark );
+            if ( latest != null )
+            {
+                return TUtil.encodeGeneralizedTime( new Date( latest.getTime() - overlapMillis ) );
+            }
+        }
+        catch ( ParseException pe )
+        {
+            // fall through to a full load.
+        }
+        LOG.warn( "loadGraph {} invalid modifyTimestamp [{}], reloading", type, watermark );
+        return null;
+    }
+
+
+    /**
+     * Adds the edges of each member read to the graph, replacing those it had if the graph is a copy of an earlier one.
+     */
+    private static final class GraphVisitor implements Visitor
+    {
+        private final SimpleDirectedGraph<String, Relationship> graph;
+        private final boolean isReplace;
+        private String latest;
+        private int count;
+
+
+        private GraphVisitor( SimpleDirectedGraph<String, Relationship> graph, boolean isReplace )
+        {
+            this.graph = graph;
+            this.isReplace = isReplace;
+        }
+
+
+        @Override
+        public void visit( String name, Set<String> parents, String modifyTimestamp )
+        {
+            String child = name.toUpperCase();
+            if ( isReplace && graph.containsVertex( child ) )
+            {
+                graph.removeAllEdges( new ArrayList<>( graph.outgoingEdgesOf( child ) ) );
+            }
+
+            if ( CollectionUtils.isNotEmpty( parents ) )
+            {
+                for ( String parent : parents )
+                {
+                    Relationship edge = new Relationship( child, parent.toUpperCase() );
+                    try
+                    {
+                        graph.addVertex( edge.getChild() );
+                        graph.addVertex( edge.getParent() );
+                        graph.addEdge( edge.getChild(), edge.getParent(), edge );
+                    }
+                    catch ( IllegalArgumentException e )
+                    {
+                        LOG.error( "loadGraph child: " + edge.getChild() + " parent: " + edge.getParent()
+                            + " caught IllegalArgumentException=" + e );
+                    }
+                }
+            }
+
+            if ( modifyTimestamp != null && ( latest == null || modifyTimestamp.compareTo( latest ) > 0 ) )
+            {
+                latest = modifyTimestamp;
+            }
+            count++;
+        }
+    }
+
+
+    /**
+     * The graph a tenant's last load produced, the latest modifyTimestamp it saw, and when its last full load was.
+     */
+    private static final class State
+    {
+        private final SimpleDirectedGraph<String, Relationship> graph;
+        private final String watermark;
+        private final long loadTime;
+
+
+        private State( SimpleDirectedGraph<String, Relationship> graph, String watermark, long loadTime )
+        {
+            this.graph = graph;
+            this.watermark = watermark;
+            this.loadTime = loadTime;
+        }
+    }
+}
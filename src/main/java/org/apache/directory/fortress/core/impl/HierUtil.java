@@ -671,4 +671,27 @@ final class HierUtil
         LOG.debug( "buildGraph is success" );
         return graph;
     }
+
+
+    /**
+     * Method copies the edges of a digraph, {@code org.jgrapht.graph.SimpleDirectedGraph}, into a new {@link Hier}
+     * entity, the reverse of {@link #buildGraph(Hier)}.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param graph synchronized parameter contains a reference to simple digraph {@code org.jgrapht.graph.SimpleDirectedGraph}.
+     * @return reference to {@link Hier} containing a copy of each edge.
+     */
+    static Hier toHier( String contextId, SimpleDirectedGraph<String, Relationship> graph )
+    {
+        Hier hier = new Hier();
+        hier.setContextId( contextId );
+        synchronized ( graph )
+        {
+            for ( Relationship edge : graph.edgeSet() )
+            {
+                hier.setRelationship( new Relationship( edge.getChild(), edge.getParent() ) );
+            }
+        }
+        return hier;
+    }
 }
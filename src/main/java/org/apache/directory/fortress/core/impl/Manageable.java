@@ -44,6 +44,14 @@ public abstract class Manageable implements org.apache.directory.fortress.core.M
     protected Session adminSess;
     protected String contextId;
 
+    /**
+     * The first manager created primes the caches from the policy snapshot file, if one is configured.
+     */
+    protected Manageable()
+    {
+        PolicySnapshotFile.getInstance();
+    }
+
     /**
      * Use this method to load an administrative user's ARBAC Session object into Manager object will enable authorization to
      * be performed on behalf of admin user.  Setting Session into this object will enforce ARBAC controls and render this 
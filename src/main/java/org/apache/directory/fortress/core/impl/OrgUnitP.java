@@ -22,6 +22,7 @@ package org.apache.directory.fortress.core.impl;
 
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -32,8 +33,9 @@ import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.util.VUtil;
-import org.apache.directory.fortress.core.util.cache.Cache;
+import org.apache.directory.fortress.core.util.cache.CacheLoader;
 import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.directory.fortress.core.util.cache.LoadingCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,7 +69,7 @@ final class OrgUnitP
     // these fields are used to synchronize access to the above static pools:
     private static final ReadWriteLock userPoolLock = new ReentrantReadWriteLock();
     private static final ReadWriteLock permPoolLock = new ReentrantReadWriteLock();
-    private static Cache ouCache;
+    private static LoadingCache<Set<String>> ouCache;
 
     // DAO class for OU data sets must be initializer before the other statics:
     private OrgUnitDAO oDao = new OrgUnitDAO();
@@ -78,7 +80,7 @@ final class OrgUnitP
     private void init()
     {
         CacheMgr cacheMgr = CacheMgr.getInstance();
-        OrgUnitP.ouCache = cacheMgr.getCache( FORTRESS_OUS );
+        OrgUnitP.ouCache = cacheMgr.getLoadingCache( FORTRESS_OUS );
     }
 
 
@@ -158,8 +160,6 @@ final class OrgUnitP
             LOG.info( warning, se );
         }
 
-        ouCache.put( getKey( USER_OUS, orgUnit.getContextId() ), ouUserSet );
-
         return ouUserSet;
     }
 
@@ -183,8 +183,6 @@ final class OrgUnitP
             LOG.info( warning, se );
         }
 
-        ouCache.put( getKey( PERM_OUS, orgUnit.getContextId() ), ouPermSet );
-
         return ouPermSet;
     }
 
@@ -194,17 +192,16 @@ final class OrgUnitP
      * @param orgUnit will be a Perm OU.
      * @return Set containing the OU mapping to a Perm type and tenant.
      */
-    private Set<String> getPermSet( OrgUnit orgUnit )
+    private Set<String> getPermSet( final OrgUnit orgUnit )
     {
-        @SuppressWarnings("unchecked")
-        Set<String> permSet = ( Set<String> ) ouCache.get( getKey( PERM_OUS, orgUnit.getContextId() ) );
-
-        if ( permSet == null )
+        return ouCache.get( getKey( PERM_OUS, orgUnit.getContextId() ), new CacheLoader<Set<String>>()
         {
-            permSet = loadPermSet( orgUnit );
-        }
-
-        return permSet;
+            @Override
+            public Set<String> load()
+            {
+                return loadPermSet( orgUnit );
+            }
+        } );
     }
 
 
@@ -213,17 +210,75 @@ final class OrgUnitP
      * @param orgUnit will be a User OU
      * @return Set containing the OU mapping to the user type and tenant.
      */
-    private Set<String> getUserSet( OrgUnit orgUnit )
+    private Set<String> getUserSet( final OrgUnit orgUnit )
     {
-        @SuppressWarnings("unchecked")
-        Set<String> userSet = ( Set<String> ) ouCache.get( getKey( USER_OUS, orgUnit.getContextId() ) );
+        return ouCache.get( getKey( USER_OUS, orgUnit.getContextId() ), new CacheLoader<Set<String>>()
+        {
+            @Override
+            public Set<String> load()
+            {
+                return loadUserSet( orgUnit );
+            }
+        } );
+    }
+
 
-        if ( userSet == null )
+    /**
+     * Return a copy of the tenant's User or Perm OU names for a policy snapshot, loading them from ldap if necessary.
+     *
+     * @param type      either {@link OrgUnit.Type#USER} or {@link OrgUnit.Type#PERM}.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return copy of the names, or null if they couldn't be loaded or were primed and haven't been reloaded since.
+     */
+    Set<String> getSnapshot( final OrgUnit.Type type, String contextId )
+    {
+        final OrgUnit orgUnit = new OrgUnit();
+        orgUnit.setType( type );
+        orgUnit.setContextId( contextId );
+        ReadWriteLock poolLock = type == OrgUnit.Type.USER ? userPoolLock : permPoolLock;
+        try
         {
-            userSet = loadUserSet( orgUnit );
+            poolLock.readLock().lock();
+            Set<String> pool = ouCache.getLoaded( getKey( type == OrgUnit.Type.USER ? USER_OUS : PERM_OUS,
+                contextId ), new CacheLoader<Set<String>>()
+            {
+                @Override
+                public Set<String> load()
+                {
+                    return type == OrgUnit.Type.USER ? loadUserSet( orgUnit ) : loadPermSet( orgUnit );
+                }
+            } );
+            return pool != null ? copy( pool ) : null;
+        }
+        finally
+        {
+            poolLock.readLock().unlock();
         }
+    }
+
+
+    /**
+     * Store the User or Perm OU names read from a policy snapshot if the tenant's haven't been loaded yet.  They are
+     * reloaded from ldap in the background the first time they are read.
+     *
+     * @param type      either {@link OrgUnit.Type#USER} or {@link OrgUnit.Type#PERM}.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param names     contains the OU names.
+     */
+    void prime( OrgUnit.Type type, String contextId, Set<String> names )
+    {
+        ouCache.prime( getKey( type == OrgUnit.Type.USER ? USER_OUS : PERM_OUS, contextId ), copy( names ) );
+    }
 
-        return userSet;
+
+    /**
+     * @return a case insensitive set of the names, as {@link OrgUnitDAO#getOrgs} returns them.
+     */
+    private static Set<String> copy( Set<String> names )
+    {
+        Set<String> copy = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        copy.addAll( names );
+        return copy;
     }
 
 
@@ -283,6 +338,7 @@ final class OrgUnitP
                 if ( userPool != null )
                 {
                     userPool.add( entity.getName() );
+                    ouCache.put( getKey( USER_OUS, entity.getContextId() ), userPool );
                 }
             }
             finally
@@ -301,6 +357,7 @@ final class OrgUnitP
                 if ( permPool != null )
                 {
                     permPool.add( entity.getName() );
+                    ouCache.put( getKey( PERM_OUS, entity.getContextId() ), permPool );
                 }
             }
             finally
@@ -369,6 +426,7 @@ final class OrgUnitP
                 if ( userPool != null )
                 {
                     userPool.remove( entity.getName() );
+                    ouCache.put( getKey( USER_OUS, entity.getContextId() ), userPool );
                 }
             }
             finally
@@ -386,6 +444,7 @@ final class OrgUnitP
                 if ( permPool != null )
                 {
                     permPool.remove( entity.getName() );
+                    ouCache.put( getKey( PERM_OUS, entity.getContextId() ), permPool );
                 }
             }
             finally
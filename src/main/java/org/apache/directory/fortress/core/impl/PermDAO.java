@@ -40,15 +40,20 @@ import org.apache.directory.api.ldap.model.entry.ModificationOperation;
 import org.apache.directory.api.ldap.model.exception.LdapAttributeInUseException;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.exception.LdapNoSuchAttributeException;
 import org.apache.directory.api.ldap.model.exception.LdapNoSuchObjectException;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.fortress.core.CreateException;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.RemoveException;
 import org.apache.directory.fortress.core.UpdateException;
+import org.apache.directory.fortress.core.ldap.CircuitOpenException;
+import org.apache.directory.fortress.core.ldap.FilterTemplate;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
 import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.model.ObjectFactory;
@@ -188,6 +193,10 @@ class PermDAO extends LdapDataProvider
     private static final String ROLES = "ftRoles";
     private static final String USERS = "ftUsers";
     private static final String PERMISSION_ATTRIBUTE_SET = "ftPASet";
+    private static final FilterTemplate OP_SEARCH_FILTER = FilterTemplate.compile( GlobalIds.FILTER_PREFIX
+        + PERM_OP_OBJECT_CLASS_NAME + ")(" + GlobalIds.POBJ_NAME + "={0}*)(" + GlobalIds.POP_NAME + "={1}*))" );
+    private static final FilterTemplate OBJ_SEARCH_FILTER = FilterTemplate.compile( GlobalIds.FILTER_PREFIX
+        + PERM_OBJ_OBJECT_CLASS_NAME + ")(" + GlobalIds.POBJ_NAME + "={0}*))" );
     private static final String[] PERMISSION_OP_ATRS =
         {
             GlobalIds.FT_IID,
@@ -204,6 +213,15 @@ class PermDAO extends LdapDataProvider
             PERMISSION_ATTRIBUTE_SET
     };
 
+    private static final String[] PERMISSION_GRANT_ATRS =
+        {
+            GlobalIds.POBJ_NAME,
+            GlobalIds.POP_NAME,
+            GlobalIds.POBJ_ID,
+            ROLES,
+            USERS
+    };
+
     private static final String[] PERMISION_OBJ_ATRS =
         {
             GlobalIds.FT_IID, GlobalIds.POBJ_NAME, SchemaConstants.DESCRIPTION_AT, SchemaConstants.OU_AT, GlobalIds.TYPE,
@@ -1049,11 +1067,11 @@ class PermDAO extends LdapDataProvider
     {
         Permission entity = null;
         LdapConnection ld = null;
-        String dn = getOpRdn( permission.getOpName(), permission.getObjId() ) + "," + GlobalIds.POBJ_NAME + "="
-            + permission.getObjName() + "," + getRootDn( permission.isAdmin(), permission.getContextId() );
+        Dn dn = null;
 
         try
         {
+            dn = getDnName( permission );
             ld = getAdminConnection();
             Entry findEntry = read( ld, dn, PERMISSION_OP_ATRS );
             if ( findEntry == null )
@@ -1223,11 +1241,12 @@ class PermDAO extends LdapDataProvider
     {
         boolean isAuthZd = false;
         LdapConnection ld = null;
-        String dn = getOpRdn( inPerm.getOpName(), inPerm.getObjId() ) + "," + GlobalIds.POBJ_NAME + "="
-            + inPerm.getObjName() + "," + getRootDn( inPerm.isAdmin(), inPerm.getContextId() );
+        Dn dn = null;
 
         try
         {
+            // the container dn is parsed once per tenant, only the rdns are parsed here:
+            dn = getDnName( inPerm );
             ld = getAdminConnection();
 
             // LDAP Operation #1: Read the targeted permission from ldap server
@@ -1248,11 +1267,13 @@ class PermDAO extends LdapDataProvider
 
             // Pass the tenant id along:
             outPerm.setContextId( inPerm.getContextId() );
+            PolicySnapshot.getInstance().putPermission( dn.getName(), outPerm );
 
             // The objective of these next steps is to evaluate the outcome of authorization attempt and trigger a write to slapd access logger containing the result.
             // The objectClass triggered by slapd access log write for upcoming ldap op is 'auditCompare'.
             // Set this attribute either with actual operation name that will succeed compare (for authZ success) or bogus value which will fail compare (for authZ failure):
             String attributeValue;
+            ResultCodeEnum result;
 
             // This method determines if the user is authorized for this permission:
             isAuthZd = isAuthorized( session, outPerm );
@@ -1262,11 +1283,13 @@ class PermDAO extends LdapDataProvider
             {
                 // Yes, set the operation name onto this attribute for storage into audit trail:
                 attributeValue = outPerm.getOpName();
+                result = ResultCodeEnum.COMPARE_TRUE;
             }
             else
             {
                 // Changing this attribute value forces the compare to fail.  This facilitates tracking of authorization failures events in the slapd access log (by searching for compare failures).
                 attributeValue = outPerm.getOpName() + GlobalIds.FAILED_AUTHZ_INDICATOR;
+                result = ResultCodeEnum.COMPARE_FALSE;
             }
 
             // There is a switch in fortress config to disable audit ops like this one.
@@ -1274,9 +1297,14 @@ class PermDAO extends LdapDataProvider
             // LDAP Operation #2: Compare.
             if ( !session.isGroupSession() )
             {
-                addAuthZAudit( ld, dn, session.getUser().getDn(), attributeValue );
+                addAuthZAudit( ld, dn, session.getUser().getDn(), attributeValue, result );
             }
         }
+        catch ( CircuitOpenException e )
+        {
+            // the directory is unavailable, answer from the last known good copy of the permission if there is one:
+            isAuthZd = isAuthorized( session, PolicySnapshot.getInstance().getPermission( dn.getName(), e ) );
+        }
         catch ( LdapException e ) {
             if (!(e instanceof LdapNoSuchObjectException))
             {
@@ -1287,7 +1315,7 @@ class PermDAO extends LdapDataProvider
             // There is a switch in fortress config to disable the audit ops.
             if (!session.isGroupSession())
             {
-                addAuthZAudit(ld, dn, session.getUser().getDn(), "AuthZ Invalid");
+                addAuthZAudit(ld, dn, session.getUser().getDn(), "AuthZ Invalid", ResultCodeEnum.NO_SUCH_OBJECT);
             }
         }
         finally
@@ -1300,17 +1328,24 @@ class PermDAO extends LdapDataProvider
 
 
     /**
-     * Perform LDAP compare operation here to associate audit record with user authorization event.
+     * Perform LDAP compare operation here to associate audit record with user authorization event, or pass the event
+     * to the audit sink if one is configured, see {@link AuditSinks}.
      *
      * @param ld this method expects the ldap connection to be good
      * @param permDn contains distinguished name of the permission object.
      * @param userDn contains the distinguished name of the user object.
      * @param attributeValue string value will be associated with the 'audit' record stored in ldap.
+     * @param result the result the compare will have, recorded by the audit sink.
      * @throws FinderException in the event ldap system exception occurs.
      */
-    private void addAuthZAudit( LdapConnection ld, String permDn, String userDn, String attributeValue )
-        throws FinderException
+    private void addAuthZAudit( LdapConnection ld, Dn permDn, String userDn, String attributeValue,
+        ResultCodeEnum result ) throws FinderException
     {
+        if ( AuditSinks.addAuthZ( userDn, permDn.getName(), result.getResultCode() ) )
+        {
+            return;
+        }
+
         // Audit can be turned off here with fortress config param: 'disable.audit=true'
         if ( Config.getInstance().isOpenldap() && ! Config.getInstance().isAuditDisabled() )
         {
@@ -1365,8 +1400,7 @@ class PermDAO extends LdapDataProvider
             if ( permission.isAdmin() )
             {
                 // ARBAC Permission check include's User's inherited admin roles:
-                Set<String> activatedRoles = AdminRoleUtil.getInheritedRoles( session.getAdminRoles(),
-                    permission.getContextId() );
+                Set<String> activatedRoles = AdminRoleUtil.getInheritedRoles( session, permission.getContextId() );
 
                 for ( String role : roles )
                 {
@@ -1381,7 +1415,7 @@ class PermDAO extends LdapDataProvider
             else
             {
                 // RBAC Permission check include's User's inherited roles:
-                Set<String> activatedRoles = RoleUtil.getInstance().getInheritedRoles( session.getRoles(), permission.getContextId() );
+                Set<String> activatedRoles = RoleUtil.getInstance().getInheritedRoles( session, permission.getContextId() );
 
                 for ( String role : roles )
                 {
@@ -1509,21 +1543,10 @@ class PermDAO extends LdapDataProvider
         {
             String permObjVal = encodeSafeText( permission.getObjName(), GlobalIds.PERM_LEN );
             String permOpVal = encodeSafeText( permission.getOpName(), GlobalIds.PERM_LEN );
-            StringBuilder filterbuf = new StringBuilder();
-            filterbuf.append( GlobalIds.FILTER_PREFIX );
-            filterbuf.append( PERM_OP_OBJECT_CLASS_NAME );
-            filterbuf.append( ")(" );
-            filterbuf.append( GlobalIds.POBJ_NAME );
-            filterbuf.append( "=" );
-            filterbuf.append( permObjVal );
-            filterbuf.append( "*)(" );
-            filterbuf.append( GlobalIds.POP_NAME );
-            filterbuf.append( "=" );
-            filterbuf.append( permOpVal );
-            filterbuf.append(  "*))" );
+            String filter = OP_SEARCH_FILTER.render( permObjVal, permOpVal );
             ld = getAdminConnection();
             SearchCursor searchResults = search( ld, permRoot,
-                SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, GlobalIds.BATCH_SIZE );
+                SearchScope.SUBTREE, filter, PERMISSION_OP_ATRS, false, GlobalIds.BATCH_SIZE );
             long sequence = 0;
 
             while ( searchResults.next() )
@@ -1548,6 +1571,58 @@ class PermDAO extends LdapDataProvider
         return permList;
     }
 
+
+    /**
+     * Read the roles and users granted each RBAC permission operation in the tenant, without a size limit.  Used to
+     * build {@link ReviewIndex}.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of type Permission containing object name, operation name, object id, roles and users.
+     * @throws FinderException in the event of system error.
+     */
+    List<Permission> findPermissionGrants( String contextId )
+        throws FinderException
+    {
+        List<Permission> permList = new ArrayList<>();
+        LdapConnection ld = null;
+        String permRoot = getRootDn( false, contextId );
+
+        try
+        {
+            String filter = OP_SEARCH_FILTER.render( "", "" );
+            ld = getAdminConnection();
+            SearchCursor searchResults = search( ld, permRoot,
+                SearchScope.SUBTREE, filter, PERMISSION_GRANT_ATRS, false );
+
+            while ( searchResults.next() )
+            {
+                Entry entry = searchResults.getEntry();
+                Permission entity = new ObjectFactory().createPermission();
+                entity.setObjName( getAttribute( entry, GlobalIds.POBJ_NAME ) );
+                entity.setOpName( getAttribute( entry, GlobalIds.POP_NAME ) );
+                entity.setObjId( getAttribute( entry, GlobalIds.POBJ_ID ) );
+                entity.setRoles( getAttributeSet( entry, ROLES ) );
+                entity.setUsers( getAttributeSet( entry, USERS ) );
+                permList.add( entity );
+            }
+        }
+        catch ( LdapException e )
+        {
+            String error = "findPermissionGrants caught LdapException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.PERM_SEARCH_FAILED, error, e );
+        }
+        catch ( CursorException e )
+        {
+            String error = "findPermissionGrants caught CursorException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.PERM_SEARCH_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+        return permList;
+    }
+
     List<Permission> findPermissionOperations( PermObj permObj )
             throws FinderException
         {
@@ -1677,17 +1752,10 @@ class PermDAO extends LdapDataProvider
         try
         {
             String permObjVal = encodeSafeText( permObj.getObjName(), GlobalIds.PERM_LEN );
-            StringBuilder filterbuf = new StringBuilder();
-            filterbuf.append( GlobalIds.FILTER_PREFIX );
-            filterbuf.append( PERM_OBJ_OBJECT_CLASS_NAME );
-            filterbuf.append( ")(" );
-            filterbuf.append( GlobalIds.POBJ_NAME );
-            filterbuf.append( "=" );
-            filterbuf.append( permObjVal );
-            filterbuf.append( "*))" );
+            String filter = OBJ_SEARCH_FILTER.render( permObjVal );
             ld = getAdminConnection();
             SearchCursor searchResults = search( ld, permRoot,
-                SearchScope.SUBTREE, filterbuf.toString(), PERMISION_OBJ_ATRS, false, GlobalIds.BATCH_SIZE );
+                SearchScope.SUBTREE, filter, PERMISION_OBJ_ATRS, false, GlobalIds.BATCH_SIZE );
             long sequence = 0;
 
             while ( searchResults.next() )
@@ -2008,6 +2076,7 @@ class PermDAO extends LdapDataProvider
         List<Permission> permList = new ArrayList<>();
         LdapConnection ld = null;
         String permRoot = getRootDn( isAdmin, session.getContextId() );
+        String query = null;
 
         try
         {
@@ -2026,11 +2095,11 @@ class PermDAO extends LdapDataProvider
             Set<String> roles;
             if ( isAdmin )
             {
-                roles = AdminRoleUtil.getInheritedRoles( session.getAdminRoles(), session.getContextId() );
+                roles = AdminRoleUtil.getInheritedRoles( session, session.getContextId() );
             }
             else
             {
-                roles = RoleUtil.getInstance().getInheritedRoles( session.getRoles(), session.getContextId() );
+                roles = RoleUtil.getInstance().getInheritedRoles( session, session.getContextId() );
             }
             if ( CollectionUtils.isNotEmpty( roles ) )
             {
@@ -2045,6 +2114,7 @@ class PermDAO extends LdapDataProvider
             }
 
             filterbuf.append( "))" );
+            query = permRoot + filterbuf;
             ld = getAdminConnection();
             SearchCursor searchResults = search( ld, permRoot,
                 SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, GlobalIds.BATCH_SIZE );
@@ -2054,6 +2124,12 @@ class PermDAO extends LdapDataProvider
             {
                 permList.add( unloadPopLdapEntry( searchResults.getEntry(), sequence++, isAdmin ) );
             }
+            PolicySnapshot.getInstance().putPermissions( query, permList );
+        }
+        catch ( CircuitOpenException e )
+        {
+            // the directory is unavailable, answer from the last known good result of this search if there is one:
+            permList = PolicySnapshot.getInstance().getPermissions( query, e );
         }
         catch ( LdapException e )
         {
@@ -2105,6 +2181,20 @@ class PermDAO extends LdapDataProvider
     }
 
 
+    /**
+     * Derive the dn of a permission operation from the parsed dn of its container.
+     *
+     * @param pOp contains the objName, opName, objId, admin flag and contextId of the operation.
+     * @return Dn of the permission operation.
+     * @throws LdapInvalidDnException in the event the rdn values are malformed.
+     */
+    private Dn getDnName( Permission pOp ) throws LdapInvalidDnException
+    {
+        return getRootDnName( pOp.isAdmin(), pOp.getContextId() ).add( GlobalIds.POBJ_NAME + "=" + pOp.getObjName() )
+            .add( getOpRdn( pOp.getOpName(), pOp.getObjId() ) );
+    }
+
+
     protected String getDn( PermObj pObj, String contextId )
     {
         return GlobalIds.POBJ_NAME + "=" + pObj.getObjName() + "," + getRootDn( pObj.isAdmin(), contextId );
@@ -2123,6 +2213,12 @@ class PermDAO extends LdapDataProvider
     }
     
 
+    private Dn getRootDnName( boolean isAdmin, String contextId ) throws LdapInvalidDnException
+    {
+        return getRootDnName( contextId, isAdmin ? GlobalIds.ADMIN_PERM_ROOT : GlobalIds.PERM_ROOT );
+    }
+
+
     private String getRootDn( boolean isAdmin, String contextId )
     {
         String dn;
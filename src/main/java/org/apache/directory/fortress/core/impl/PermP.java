@@ -101,6 +101,20 @@ final class PermP
     {
         return pDao.findPermissions( permission );
     }
+
+
+    /**
+     * Return the roles and users granted each RBAC Permission operation in the tenant.  Used to build
+     * {@link ReviewIndex}.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of type Permission containing object name, operation name, object id, roles and users.
+     * @throws SecurityException in the event of DAO search error.
+     */
+    List<Permission> searchGrants( String contextId ) throws SecurityException
+    {
+        return pDao.findPermissionGrants( contextId );
+    }
     
     /**
      * Takes a permission object that contains an object name and returns permisison operations for that object
@@ -364,7 +378,9 @@ final class PermP
     Permission add( Permission entity ) throws SecurityException
     {
         validate( entity, false );
-        return pDao.createOperation( entity );
+        Permission perm = pDao.createOperation( entity );
+        ReviewIndex.getInstance().putPermission( entity );
+        return perm;
     }
     
     /**
@@ -491,7 +507,9 @@ final class PermP
         {
             validate( entity, true );
         }
-        return pDao.updateOperation( entity );
+        Permission perm = pDao.updateOperation( entity );
+        ReviewIndex.getInstance().putPermission( entity );
+        return perm;
     }
 
 
@@ -506,6 +524,7 @@ final class PermP
     void delete( PermObj entity ) throws SecurityException
     {
         pDao.deleteObj( entity );
+        ReviewIndex.getInstance().deletePermObj( entity );
     }
 
 
@@ -519,6 +538,7 @@ final class PermP
     void delete( Permission entity ) throws SecurityException
     {
         pDao.deleteOperation( entity );
+        ReviewIndex.getInstance().deletePermission( entity );
     }
 
     //TODO: add documentation
@@ -542,6 +562,7 @@ final class PermP
     {
         // Now assign it to the perm op:
         pDao.grant( pOp, role );
+        ReviewIndex.getInstance().grantRole( pOp, role.getName(), true );
     }
 
 
@@ -559,6 +580,7 @@ final class PermP
     void revoke( Permission pOp, Role role ) throws SecurityException
     {
         pDao.revoke( pOp, role );
+        ReviewIndex.getInstance().grantRole( pOp, role.getName(), false );
     }
 
 
@@ -573,6 +595,7 @@ final class PermP
     {
         // call dao to grant userId access to the perm op:
         pDao.grant( pOp, user );
+        ReviewIndex.getInstance().grantUser( pOp, user.getUserId(), true );
     }
 
 
@@ -586,6 +609,7 @@ final class PermP
     void revoke( Permission pOp, User user ) throws SecurityException
     {
         pDao.revoke( pOp, user );
+        ReviewIndex.getInstance().grantUser( pOp, user.getUserId(), false );
     }
 
 
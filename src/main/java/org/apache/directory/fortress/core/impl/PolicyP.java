@@ -22,6 +22,7 @@ package org.apache.directory.fortress.core.impl;
 
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -31,8 +32,9 @@ import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
 import org.apache.directory.fortress.core.model.PwPolicy;
-import org.apache.directory.fortress.core.util.cache.Cache;
+import org.apache.directory.fortress.core.util.cache.CacheLoader;
 import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.directory.fortress.core.util.cache.LoadingCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,7 +69,7 @@ final class PolicyP
     // this field is used to synchronize access to the above static data set:
     private static final ReadWriteLock policySetLock = new ReentrantReadWriteLock();
     // static field holds the list of names for all valid pw policies in effect:
-    private static Cache policyCache;
+    private static LoadingCache<Set<String>> policyCache;
     private static final int MIN_PW_LEN = 20;
     private static final int MAX_FAILURE = 100;
     private static final int MAX_GRACE_COUNT = 10;
@@ -78,7 +80,7 @@ final class PolicyP
     private void init()
     {
         CacheMgr cacheMgr = CacheMgr.getInstance();
-        PolicyP.policyCache = cacheMgr.getCache( FORTRESS_POLICIES );
+        PolicyP.policyCache = cacheMgr.getLoadingCache( FORTRESS_POLICIES );
     }
 
 
@@ -157,6 +159,7 @@ final class PolicyP
             if ( policySet != null )
             {
                 policySet.add( policy.getName() );
+                policyCache.put( getKey( policy.getContextId() ), policySet );
             }
         }
         finally
@@ -202,6 +205,7 @@ final class PolicyP
             if ( policySet != null )
             {
                 policySet.remove( policy.getName() );
+                policyCache.put( getKey( policy.getContextId() ), policySet );
             }
         }
         finally
@@ -386,8 +390,6 @@ final class PolicyP
             LOG.info( warning );
         }
 
-        policyCache.put( getKey( contextId ), policySet );
-
         return policySet;
     }
 
@@ -397,20 +399,49 @@ final class PolicyP
      * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
      * @return set containing list of policy names active.
      */
-    private Set<String> getPolicySet( String contextId )
+    private Set<String> getPolicySet( final String contextId )
     {
         try
         {
             policySetLock.readLock().lock();
 
-            Set<String> policySet = ( Set<String> ) policyCache.get( getKey( contextId ) );
-
-            if ( policySet == null )
+            return policyCache.get( getKey( contextId ), new CacheLoader<Set<String>>()
             {
-                policySet = loadPolicySet( contextId );
-            }
+                @Override
+                public Set<String> load()
+                {
+                    return loadPolicySet( contextId );
+                }
+            } );
+        }
+        finally
+        {
+            policySetLock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Return a copy of the tenant's policy names for a policy snapshot, loading them from ldap if necessary.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return copy of the names, or null if they couldn't be loaded or were primed and haven't been reloaded since.
+     */
+    Set<String> getSnapshot( final String contextId )
+    {
+        try
+        {
+            policySetLock.readLock().lock();
 
-            return policySet;
+            Set<String> policySet = policyCache.getLoaded( getKey( contextId ), new CacheLoader<Set<String>>()
+            {
+                @Override
+                public Set<String> load()
+                {
+                    return loadPolicySet( contextId );
+                }
+            } );
+            return policySet != null ? copy( policySet ) : null;
         }
         finally
         {
@@ -419,6 +450,30 @@ final class PolicyP
     }
 
 
+    /**
+     * Store the policy names read from a policy snapshot if the tenant's haven't been loaded yet.  They are reloaded
+     * from ldap in the background the first time they are read.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param names     contains the policy names.
+     */
+    void prime( String contextId, Set<String> names )
+    {
+        policyCache.prime( getKey( contextId ), copy( names ) );
+    }
+
+
+    /**
+     * @return a case insensitive set of the names, as {@link PolicyDAO#getPolicies} returns them.
+     */
+    private static Set<String> copy( Set<String> names )
+    {
+        Set<String> copy = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        copy.addAll( names );
+        return copy;
+    }
+
+
     /**
      *
      * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
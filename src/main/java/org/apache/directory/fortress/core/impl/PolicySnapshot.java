@@ -0,0 +1,177 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.fortress.core.ldap.CircuitOpenException;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The last known good permission data read by {@link PermDAO} for authorization checks, held in memory so that
+ * checkAccess and sessionPermissions can still be answered while the circuit breaker is open, i.e. the directory is
+ * unavailable.  Answers from the snapshot reflect the policy as of the last successful read of each permission, which
+ * may predate recent changes.  Requests for permissions that were never read fail with {@link CircuitOpenException}.
+ * <p>
+ * Enabled by {@code enable.ldap.breaker.fallback=true}, {@code ldap.breaker.fallback.size} (default 10000) bounds the
+ * number of entries, least recently used are evicted first.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class PolicySnapshot
+{
+    private static final String CLS_NM = PolicySnapshot.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private static final String ENABLE_FALLBACK = "enable.ldap.breaker.fallback";
+    private static final String FALLBACK_SIZE = "ldap.breaker.fallback.size";
+    private static final String PERMISSION_KEY = "perm:";
+    private static final String SESSION_KEY = "sess:";
+
+    private static volatile PolicySnapshot sINSTANCE = null;
+
+    private final boolean enabled;
+    private final Map<String, Object> entries;
+
+
+    static PolicySnapshot getInstance()
+    {
+        if ( sINSTANCE == null )
+        {
+            synchronized ( PolicySnapshot.class )
+            {
+                if ( sINSTANCE == null )
+                {
+                    sINSTANCE = new PolicySnapshot();
+                }
+            }
+        }
+        return sINSTANCE;
+    }
+
+
+    private PolicySnapshot()
+    {
+        enabled = Config.getInstance().getBoolean( ENABLE_FALLBACK, false );
+        final int size = Config.getInstance().getInt( FALLBACK_SIZE, 10000 );
+        entries = Collections.synchronizedMap( new LinkedHashMap<String, Object>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Object> eldest )
+            {
+                return size() > size;
+            }
+        } );
+    }
+
+
+    /**
+     * @return true if the fallback is configured.
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Remember a permission read for an authorization check.
+     *
+     * @param dn         of the permission.
+     * @param permission contains the roles and users the permission is granted to, must not be modified afterwards.
+     */
+    void putPermission( String dn, Permission permission )
+    {
+        if ( enabled )
+        {
+            entries.put( PERMISSION_KEY + dn, permission );
+        }
+    }
+
+
+    /**
+     * Return the last known good copy of a permission.
+     *
+     * @param dn of the permission.
+     * @param e  thrown because the directory is unavailable.
+     * @return the permission.
+     * @throws CircuitOpenException if the fallback is disabled or the permission was never read.
+     */
+    Permission getPermission( String dn, CircuitOpenException e )
+    {
+        Object permission = enabled ? entries.get( PERMISSION_KEY + dn ) : null;
+        if ( permission == null )
+        {
+            throw e;
+        }
+        LOG.debug( "getPermission [{}] answered from snapshot", dn );
+        return ( Permission ) permission;
+    }
+
+
+    /**
+     * Remember the result of a session permission search.
+     *
+     * @param query       contains the search base and filter.
+     * @param permissions result of the search.
+     */
+    void putPermissions( String query, List<Permission> permissions )
+    {
+        if ( enabled )
+        {
+            entries.put( SESSION_KEY + query, new ArrayList<>( permissions ) );
+        }
+    }
+
+
+    /**
+     * Return the last known good result of a session permission search.
+     *
+     * @param query contains the search base and filter.
+     * @param e     thrown because the directory is unavailable.
+     * @return a copy of the result.
+     * @throws CircuitOpenException if the fallback is disabled or the search was never performed.
+     */
+    @SuppressWarnings("unchecked")
+    List<Permission> getPermissions( String query, CircuitOpenException e )
+    {
+        Object permissions = enabled ? entries.get( SESSION_KEY + query ) : null;
+        if ( permissions == null )
+        {
+            throw e;
+        }
+        LOG.debug( "getPermissions [{}] answered from snapshot", query );
+        return new ArrayList<>( ( List<Permission> ) permissions );
+    }
+}
@@ -0,0 +1,826 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.model.Hier;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.Relationship;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A file holding the role, admin role, user ou and perm ou hierarchies, the SSD sets, the user and perm ou names and
+ * the password policy names of a list of tenants.  It is written periodically and read when the first manager of this
+ * process is created, priming the caches that hold them so that the first requests after a restart don't each wait on
+ * the directory.  A primed value is served as though it had been loaded, and the first read of it reloads it from the
+ * directory in the background, see {@link org.apache.directory.fortress.core.util.cache.LoadingCache#prime}.
+ * <p>
+ * Enabled by {@code policy.snapshot.file}, the path of the file.  The tenants in {@code policy.snapshot.contexts}, a
+ * comma separated list (default HOME), are written every {@code policy.snapshot.write.minutes} (default 60, zero or
+ * less never).  Only values loaded from the directory are written, not ones still primed from the previous file, so
+ * the file is never rewritten with values the directory hasn't confirmed.  A file written more than
+ * {@code policy.snapshot.max.age.hours} (default 24, zero or less any age) ago is not read.
+ * <p>
+ * The SSD sets are those of the {@link SsdIndex} and are written only with {@code enable.ssd.index=true}.  The DSD
+ * sets aren't written as the {@code fortress.dsd} cache is searched on each use, nor are permissions, which aren't
+ * cached.
+ * <p>
+ * The file starts with a header of a magic number, the format version, the time written, and the length and crc32 of
+ * the body.  A file of another version or whose crc doesn't match is not read.  The body holds the number of tenants,
+ * then for each its contextId and sections, each a tag and length so that a section unknown to the reader is skipped.
+ * A hierarchy section is a table of its vertices followed by its edges, as pairs of indexes into the table.  Strings
+ * are an unsigned short length followed by UTF-8.  The file is written to a temporary file that then replaces it, and
+ * is read memory mapped.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class PolicySnapshotFile
+{
+    private static final String CLS_NM = PolicySnapshotFile.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private static final String FILE = "policy.snapshot.file";
+    private static final String CONTEXTS = "policy.snapshot.contexts";
+    private static final String WRITE_MINUTES = "policy.snapshot.write.minutes";
+    private static final String MAX_AGE_HOURS = "policy.snapshot.max.age.hours";
+    // "FTPS":
+    private static final int MAGIC = 0x46545053;
+    // changed only when the layout of an existing section changes, sections may be added without changing it:
+    private static final short VERSION = 1;
+    // magic, version, time written, body length and crc:
+    private static final int HEADER = 22;
+    private static final int CHUNK = 8192;
+
+    /**
+     * The sections of a tenant and their tags.
+     */
+    enum Section
+    {
+        ROLE( 1 ),
+        ADMIN_ROLE( 2 ),
+        USO( 3 ),
+        PSO( 4 ),
+        SSD( 5 ),
+        USER_OUS( 6 ),
+        PERM_OUS( 7 ),
+        POLICIES( 8 );
+
+        private final byte tag;
+
+
+        Section( int tag )
+        {
+            this.tag = ( byte ) tag;
+        }
+
+
+        /**
+         * @return true if the section holds a hierarchy.
+         */
+        boolean isHier()
+        {
+            return this == ROLE || this == ADMIN_ROLE || this == USO || this == PSO;
+        }
+
+
+        /**
+         * @param tag of the section.
+         * @return the section, or null if the tag is unknown.
+         */
+        static Section forTag( byte tag )
+        {
+            for ( Section section : values() )
+            {
+                if ( section.tag == tag )
+                {
+                    return section;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static volatile PolicySnapshotFile sINSTANCE = null;
+
+    private final File file;
+    private final List<String> contextIds = new ArrayList<>();
+    private final long writeMillis;
+    private final long maxAgeMillis;
+
+
+    /**
+     * Return the policy snapshot file, priming the caches from it and starting its periodic write the first time this
+     * is called.  A file that can't be read is logged and otherwise ignored.
+     *
+     * @return the policy snapshot file.
+     */
+    static PolicySnapshotFile getInstance()
+    {
+        if ( sINSTANCE == null )
+        {
+            synchronized ( PolicySnapshotFile.class )
+            {
+                if ( sINSTANCE == null )
+                {
+                    PolicySnapshotFile snapshotFile = new PolicySnapshotFile();
+                    // published before priming, as creating the utils primed may create another manager:
+                    sINSTANCE = snapshotFile;
+                    snapshotFile.start();
+                }
+            }
+        }
+        return sINSTANCE;
+    }
+
+
+    private PolicySnapshotFile()
+    {
+        Config config = Config.getInstance();
+        String path = config.getProperty( FILE );
+        file = StringUtils.isNotEmpty( path ) ? new File( path ) : null;
+        for ( String contextId : StringUtils.split( config.getProperty( CONTEXTS, GlobalIds.HOME ), ',' ) )
+        {
+            if ( StringUtils.isNotBlank( contextId ) )
+            {
+                contextIds.add( contextId.trim() );
+            }
+        }
+        writeMillis = TimeUnit.MINUTES.toMillis( config.getInt( WRITE_MINUTES, 60 ) );
+        maxAgeMillis = TimeUnit.HOURS.toMillis( config.getInt( MAX_AGE_HOURS, 24 ) );
+    }
+
+
+    /**
+     * @return true if a file is configured.
+     */
+    boolean isEnabled()
+    {
+        return file != null;
+    }
+
+
+    /**
+     * Write the configured tenants to the file, replacing it.  Values not yet loaded are loaded from the directory.
+     *
+     * @return false if no file is configured, there was nothing to write or it could not be written.
+     */
+    synchronized boolean write()
+    {
+        if ( file == null )
+        {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try
+        {
+            List<Tenant> tenants = new ArrayList<>();
+            for ( String contextId : contextIds )
+            {
+                Tenant tenant = getTenant( contextId );
+                if ( !tenant.isEmpty() )
+                {
+                    tenants.add( tenant );
+                }
+            }
+            if ( tenants.isEmpty() )
+            {
+                LOG.info( "write policy snapshot [{}] has nothing loaded to write", file );
+                return false;
+            }
+            write( file, start, tenants );
+            LOG.info( "write policy snapshot [{}] tenants [{}] bytes [{}] millis [{}]", file, tenants.size(),
+                file.length(), System.currentTimeMillis() - start );
+            return true;
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            LOG.warn( "write policy snapshot [" + file + "] caught " + e.getClass().getSimpleName() + "=" + e );
+            return false;
+        }
+    }
+
+
+    /**
+     * Prime the caches from the file, if it can be read and isn't too old, and schedule the periodic write.
+     */
+    private void start()
+    {
+        if ( file == null )
+        {
+            return;
+        }
+        try
+        {
+            prime();
+        }
+        catch ( RuntimeException re )
+        {
+            LOG.warn( "prime policy snapshot [" + file + "] caught RuntimeException=" + re );
+        }
+
+        if ( writeMillis > 0 )
+        {
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-policy-snapshot" );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+            scheduler.scheduleWithFixedDelay( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    write();
+                }
+            }, writeMillis, writeMillis, TimeUnit.MILLISECONDS );
+        }
+    }
+
+
+    private void prime()
+    {
+        if ( !file.exists() )
+        {
+            LOG.info( "prime policy snapshot [{}] not found", file );
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Contents contents;
+        try
+        {
+            contents = read( file );
+        }
+        catch ( IOException ioe )
+        {
+            LOG.warn( "prime policy snapshot [{}] not read, caught IOException={}", file, ioe.getMessage() );
+            return;
+        }
+        if ( maxAgeMillis > 0 && start - contents.getCreated() > maxAgeMillis )
+        {
+            LOG.info( "prime policy snapshot [{}] written [{}] is too old", file, contents.getCreated() );
+            return;
+        }
+        for ( Tenant tenant : contents.getTenants() )
+        {
+            prime( tenant );
+        }
+        LOG.info( "prime policy snapshot [{}] tenants [{}] millis [{}]", file, contents.getTenants().size(),
+            System.currentTimeMillis() - start );
+    }
+
+
+    private static void prime( Tenant tenant )
+    {
+        String contextId = tenant.getContextId();
+        if ( tenant.getHier( Section.ROLE ) != null )
+        {
+            RoleUtil.getInstance().prime( contextId, tenant.getHier( Section.ROLE ) );
+        }
+        if ( tenant.getHier( Section.ADMIN_ROLE ) != null )
+        {
+            AdminRoleUtil.prime( contextId, tenant.getHier( Section.ADMIN_ROLE ) );
+        }
+        if ( tenant.getHier( Section.USO ) != null )
+        {
+            UsoUtil.getInstance().prime( contextId, tenant.getHier( Section.USO ) );
+        }
+        if ( tenant.getHier( Section.PSO ) != null )
+        {
+            PsoUtil.getInstance().prime( contextId, tenant.getHier( Section.PSO ) );
+        }
+        if ( tenant.getSsdSets() != null )
+        {
+            SsdIndex.getInstance().prime( contextId, tenant.getSsdSets() );
+        }
+        OrgUnitP orgUnitP = new OrgUnitP();
+        if ( tenant.getNames( Section.USER_OUS ) != null )
+        {
+            orgUnitP.prime( OrgUnit.Type.USER, contextId, tenant.getNames( Section.USER_OUS ) );
+        }
+        if ( tenant.getNames( Section.PERM_OUS ) != null )
+        {
+            orgUnitP.prime( OrgUnit.Type.PERM, contextId, tenant.getNames( Section.PERM_OUS ) );
+        }
+        if ( tenant.getNames( Section.POLICIES ) != null )
+        {
+            new PolicyP().prime( contextId, tenant.getNames( Section.POLICIES ) );
+        }
+    }
+
+
+    private static Tenant getTenant( String contextId )
+    {
+        Tenant tenant = new Tenant( contextId );
+        tenant.setHier( Section.ROLE, RoleUtil.getInstance().getSnapshot( contextId ) );
+        tenant.setHier( Section.ADMIN_ROLE, AdminRoleUtil.getSnapshot( contextId ) );
+        tenant.setHier( Section.USO, UsoUtil.getInstance().getSnapshot( contextId ) );
+        tenant.setHier( Section.PSO, PsoUtil.getInstance().getSnapshot( contextId ) );
+        tenant.setSsdSets( SsdIndex.getInstance().getSnapshot( contextId ) );
+        OrgUnitP orgUnitP = new OrgUnitP();
+        tenant.setNames( Section.USER_OUS, orgUnitP.getSnapshot( OrgUnit.Type.USER, contextId ) );
+        tenant.setNames( Section.PERM_OUS, orgUnitP.getSnapshot( OrgUnit.Type.PERM, contextId ) );
+        tenant.setNames( Section.POLICIES, new PolicyP().getSnapshot( contextId ) );
+        return tenant;
+    }
+
+
+    /**
+     * Write tenants to a file, replacing it.
+     *
+     * @param file    to be written.
+     * @param created time the contents were read.
+     * @param tenants contains the tenants to be written.
+     * @throws IOException if the file could not be written.
+     */
+    static void write( File file, long created, List<Tenant> tenants ) throws IOException
+    {
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream( bodyBytes );
+        ByteArrayOutputStream sectionBytes = new ByteArrayOutputStream();
+        DataOutputStream section = new DataOutputStream( sectionBytes );
+        body.writeInt( tenants.size() );
+        for ( Tenant tenant : tenants )
+        {
+            writeString( body, tenant.getContextId() );
+            List<Section> sections = tenant.getSections();
+            body.writeShort( sections.size() );
+            for ( Section tag : sections )
+            {
+                sectionBytes.reset();
+                if ( tag.isHier() )
+                {
+                    writeHier( section, tenant.getHier( tag ) );
+                }
+                else if ( tag == Section.SSD )
+                {
+                    writeSsdSets( section, tenant.getSsdSets() );
+                }
+                else
+                {
+                    writeNames( section, tenant.getNames( tag ) );
+                }
+                section.flush();
+                body.writeByte( tag.tag );
+                body.writeInt( sectionBytes.size() );
+                sectionBytes.writeTo( body );
+            }
+        }
+        body.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update( bodyBytes.toByteArray() );
+        ByteBuffer header = ByteBuffer.allocate( HEADER );
+        header.putInt( MAGIC );
+        header.putShort( VERSION );
+        header.putLong( created );
+        header.putInt( bodyBytes.size() );
+        header.putInt( ( int ) crc.getValue() );
+
+        File temp = new File( file.getPath() + ".tmp" );
+        try ( FileOutputStream out = new FileOutputStream( temp ) )
+        {
+            out.write( header.array() );
+            bodyBytes.writeTo( out );
+            out.getFD().sync();
+        }
+        Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE );
+    }
+
+
+    /**
+     * Read the tenants of a file.
+     *
+     * @param file to be read.
+     * @return the time the file's contents were read and its tenants.
+     * @throws IOException if the file could not be read, is of another version or is corrupt.
+     */
+    static Contents read( File file ) throws IOException
+    {
+        try ( RandomAccessFile raf = new RandomAccessFile( file, "r" ) )
+        {
+            long size = raf.length();
+            if ( size < HEADER || size > Integer.MAX_VALUE )
+            {
+                throw new IOException( "read [" + file + "] invalid size [" + size + "]" );
+            }
+            ByteBuffer buffer = raf.getChannel().map( FileChannel.MapMode.READ_ONLY, 0, size );
+            if ( buffer.getInt() != MAGIC )
+            {
+                throw new IOException( "read [" + file + "] is not a policy snapshot" );
+            }
+            short version = buffer.getShort();
+            if ( version != VERSION )
+            {
+                throw new IOException( "read [" + file + "] unsupported version [" + version + "]" );
+            }
+            long created = buffer.getLong();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if ( length != size - HEADER )
+            {
+                throw new IOException( "read [" + file + "] length [" + length + "] expected [" + ( size - HEADER )
+                    + "]" );
+            }
+            if ( crc != getCrc( buffer ) )
+            {
+                throw new IOException( "read [" + file + "] crc mismatch" );
+            }
+            try
+            {
+                return new Contents( created, readTenants( buffer ) );
+            }
+            catch ( BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e )
+            {
+                throw new IOException( "read [" + file + "] malformed, caught " + e, e );
+            }
+        }
+    }
+
+
+    /**
+     * @return crc32 of the buffer's remaining bytes, read a chunk at a time.
+     */
+    private static int getCrc( ByteBuffer buffer )
+    {
+        ByteBuffer body = buffer.duplicate();
+        byte[] chunk = new byte[CHUNK];
+        CRC32 crc = new CRC32();
+        while ( body.hasRemaining() )
+        {
+            int length = Math.min( chunk.length, body.remaining() );
+            body.get( chunk, 0, length );
+            crc.update( chunk, 0, length );
+        }
+        return ( int ) crc.getValue();
+    }
+
+
+    private static List<Tenant> readTenants( ByteBuffer buffer )
+    {
+        int count = buffer.getInt();
+        List<Tenant> tenants = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            Tenant tenant = new Tenant( readString( buffer ) );
+            int sections = buffer.getShort() & 0xFFFF;
+            for ( int j = 0; j < sections; j++ )
+            {
+                Section tag = Section.forTag( buffer.get() );
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                if ( tag == null )
+                {
+                    // written by a later release:
+                    buffer.position( end );
+                }
+                else if ( tag.isHier() )
+                {
+                    tenant.setHier( tag, readHier( buffer, tenant.getContextId() ) );
+                }
+                else if ( tag == Section.SSD )
+                {
+                    tenant.setSsdSets( readSsdSets( buffer ) );
+                }
+                else
+                {
+                    tenant.setNames( tag, readNames( buffer ) );
+                }
+                if ( buffer.position() != end )
+                {
+                    throw new IllegalArgumentException( "section [" + tag + "] length [" + length + "] mismatch" );
+                }
+            }
+            tenants.add( tenant );
+        }
+        return tenants;
+    }
+
+
+    private static void writeHier( DataOutputStream out, Hier hier ) throws IOException
+    {
+        Map<String, Integer> vertices = new LinkedHashMap<>();
+        for ( Relationship relationship : hier.getRelationships() )
+        {
+            addVertex( vertices, relationship.getChild() );
+            addVertex( vertices, relationship.getParent() );
+        }
+        out.writeInt( vertices.size() );
+        for ( String vertex : vertices.keySet() )
+        {
+            writeString( out, vertex );
+        }
+        out.writeInt( hier.getRelationships().size() );
+        for ( Relationship relationship : hier.getRelationships() )
+        {
+            out.writeInt( vertices.get( relationship.getChild() ) );
+            out.writeInt( vertices.get( relationship.getParent() ) );
+        }
+    }
+
+
+    private static void addVertex( Map<String, Integer> vertices, String vertex )
+    {
+        if ( !vertices.containsKey( vertex ) )
+        {
+            vertices.put( vertex, vertices.size() );
+        }
+    }
+
+
+    private static Hier readHier( ByteBuffer buffer, String contextId )
+    {
+        String[] vertices = new String[buffer.getInt()];
+        for ( int i = 0; i < vertices.length; i++ )
+        {
+            vertices[i] = readString( buffer );
+        }
+        Hier hier = new Hier();
+        hier.setContextId( contextId );
+        int count = buffer.getInt();
+        for ( int i = 0; i < count; i++ )
+        {
+            String child = vertices[buffer.getInt()];
+            String parent = vertices[buffer.getInt()];
+            hier.setRelationship( new Relationship( child, parent ) );
+        }
+        return hier;
+    }
+
+
+    private static void writeSsdSets( DataOutputStream out, List<SDSet> ssdSets ) throws IOException
+    {
+        out.writeInt( ssdSets.size() );
+        for ( SDSet ssd : ssdSets )
+        {
+            writeString( out, ssd.getName() );
+            out.writeInt( ssd.getCardinality() );
+            writeNames( out, ssd.getMembers() );
+        }
+    }
+
+
+    private static List<SDSet> readSsdSets( ByteBuffer buffer )
+    {
+        int count = buffer.getInt();
+        List<SDSet> ssdSets = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            SDSet ssd = new SDSet();
+            ssd.setType( SDSet.SDType.STATIC );
+            ssd.setName( readString( buffer ) );
+            ssd.setCardinality( buffer.getInt() );
+            ssd.setMembers( readNames( buffer ) );
+            ssdSets.add( ssd );
+        }
+        return ssdSets;
+    }
+
+
+    private static void writeNames( DataOutputStream out, Set<String> names ) throws IOException
+    {
+        out.writeInt( names.size() );
+        for ( String name : names )
+        {
+            writeString( out, name );
+        }
+    }
+
+
+    private static Set<String> readNames( ByteBuffer buffer )
+    {
+        int count = buffer.getInt();
+        Set<String> names = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        for ( int i = 0; i < count; i++ )
+        {
+            names.add( readString( buffer ) );
+        }
+        return names;
+    }
+
+
+    private static void writeString( DataOutputStream out, String value ) throws IOException
+    {
+        byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        if ( bytes.length > 0xFFFF )
+        {
+            throw new IOException( "writeString length [" + bytes.length + "] too long" );
+        }
+        out.writeShort( bytes.length );
+        out.write( bytes );
+    }
+
+
+    private static String readString( ByteBuffer buffer )
+    {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+
+    /**
+     * The sections of one tenant.  A section that is null or empty is left out.
+     */
+    static final class Tenant
+    {
+        private final String contextId;
+        private final Map<Section, Hier> hiers = new EnumMap<>( Section.class );
+        private final Map<Section, Set<String>> names = new EnumMap<>( Section.class );
+        private List<SDSet> ssdSets;
+
+
+        /**
+         * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+         */
+        Tenant( String contextId )
+        {
+            this.contextId = contextId;
+        }
+
+
+        String getContextId()
+        {
+            return contextId;
+        }
+
+
+        /**
+         * @param section one of {@link Section#ROLE}, {@link Section#ADMIN_ROLE}, {@link Section#USO} or
+         *                {@link Section#PSO}.
+         * @return the hierarchy, or null if left out.
+         */
+        Hier getHier( Section section )
+        {
+            return hiers.get( section );
+        }
+
+
+        void setHier( Section section, Hier hier )
+        {
+            if ( hier != null && CollectionUtils.isNotEmpty( hier.getRelationships() ) )
+            {
+                hiers.put( section, hier );
+            }
+        }
+
+
+        /**
+         * @return the SSD sets, or null if left out.
+         */
+        List<SDSet> getSsdSets()
+        {
+            return ssdSets;
+        }
+
+
+        void setSsdSets( List<SDSet> ssdSets )
+        {
+            this.ssdSets = CollectionUtils.isNotEmpty( ssdSets ) ? ssdSets : null;
+        }
+
+
+        /**
+         * @param section one of {@link Section#USER_OUS}, {@link Section#PERM_OUS} or {@link Section#POLICIES}.
+         * @return the names, or null if left out.
+         */
+        Set<String> getNames( Section section )
+        {
+            return names.get( section );
+        }
+
+
+        void setNames( Section section, Set<String> names )
+        {
+            if ( CollectionUtils.isNotEmpty( names ) )
+            {
+                this.names.put( section, names );
+            }
+        }
+
+
+        /**
+         * @return the sections not left out, in order of their tags.
+         */
+        List<Section> getSections()
+        {
+            List<Section> sections = new ArrayList<>();
+            for ( Section section : Section.values() )
+            {
+                if ( has( section ) )
+                {
+                    sections.add( section );
+                }
+            }
+            return sections;
+        }
+
+
+        private boolean has( Section section )
+        {
+            if ( section.isHier() )
+            {
+                return hiers.containsKey( section );
+            }
+            else if ( section == Section.SSD )
+            {
+                return ssdSets != null;
+            }
+            return names.containsKey( section );
+        }
+
+
+        boolean isEmpty()
+        {
+            return getSections().isEmpty();
+        }
+    }
+
+
+    /**
+     * The contents of a file.
+     */
+    static final class Contents
+    {
+        private final long created;
+        private final List<Tenant> tenants;
+
+
+        private Contents( long created, List<Tenant> tenants )
+        {
+            this.created = created;
+            this.tenants = tenants;
+        }
+
+
+        /**
+         * @return time the contents were read, in milliseconds since the epoch.
+         */
+        long getCreated()
+        {
+            return created;
+        }
+
+
+        List<Tenant> getTenants()
+        {
+            return tenants;
+        }
+    }
+}
@@ -0,0 +1,754 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.cache.CacheException;
+import org.apache.directory.fortress.core.util.cache.CacheLoader;
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.directory.fortress.core.util.cache.LoadingCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * In memory reverse indexes, role to assigned users and permission to granted roles and users, used by
+ * {@link ReviewMgrImpl} to answer "who can access" review queries without searching the directory with filters that
+ * OR together every role or user involved.
+ * <p>
+ * There is one index per tenant, held in the {@code fortress.review.index} cache.  It is read from the directory on
+ * first query, and again once its time to live passes, and in between is kept current by the {@link UserP},
+ * {@link RoleP} and {@link PermP} methods that assign, deassign, grant, revoke, add and delete.  These only update an
+ * index that is already cached, so that a write never waits on a read of the whole tenant.  Changes made by other
+ * processes become visible when the index is next read from the directory, as with the role hierarchy in
+ * {@link RoleUtil}.  A query for a role or permission the index doesn't know about returns null so that the caller
+ * falls back to the directory, which also reports entities that don't exist as before.
+ * <p>
+ * Enabled by {@code enable.review.index=true}.  Only RBAC permissions are indexed.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class ReviewIndex
+{
+    private static final String CLS_NM = ReviewIndex.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private static final String ENABLE_REVIEW_INDEX = "enable.review.index";
+    private static final String FORTRESS_REVIEW_INDEX = "fortress.review.index";
+    private static final String KEY_PREFIX = "REVIEW";
+
+    private static volatile ReviewIndex sINSTANCE = null;
+
+    private final boolean enabled;
+    private LoadingCache<Index> indexCache;
+    private final UserP userP = new UserP();
+    private final RoleP roleP = new RoleP();
+    private final PermP permP = new PermP();
+
+
+    static ReviewIndex getInstance()
+    {
+        if ( sINSTANCE == null )
+        {
+            synchronized ( ReviewIndex.class )
+            {
+                if ( sINSTANCE == null )
+                {
+                    sINSTANCE = new ReviewIndex();
+                }
+            }
+        }
+        return sINSTANCE;
+    }
+
+
+    private ReviewIndex()
+    {
+        enabled = Config.getInstance().getBoolean( ENABLE_REVIEW_INDEX, false );
+        if ( enabled )
+        {
+            indexCache = CacheMgr.getInstance().getLoadingCache( FORTRESS_REVIEW_INDEX );
+        }
+    }
+
+
+    /**
+     * @return true if the index is configured.
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Return the userIds of the users assigned a role.  Hierarchical relations are not considered.
+     *
+     * @param role contains the role name and contextId.
+     * @return Set of userIds, or null if the index is unavailable or doesn't contain the role.
+     */
+    Set<String> getAssignedUsers( Role role )
+    {
+        Index index = getIndex( role.getContextId() );
+        if ( index == null || !index.hasRole( role.getName() ) )
+        {
+            return null;
+        }
+        return index.getUsers( Arrays.asList( role.getName() ) );
+    }
+
+
+    /**
+     * Return the userIds of the users assigned a role or any of its descendants.
+     *
+     * @param role contains the role name and contextId.
+     * @return Set of userIds, or null if the index is unavailable or doesn't contain the role.
+     */
+    Set<String> getAuthorizedUsers( Role role )
+    {
+        Index index = getIndex( role.getContextId() );
+        if ( index == null || !index.hasRole( role.getName() ) )
+        {
+            return null;
+        }
+        Set<String> roles = new HashSet<>();
+        roles.add( role.getName() );
+        Set<String> descendants = RoleUtil.getInstance().getDescendants( role.getName(), role.getContextId() );
+        if ( CollectionUtils.isNotEmpty( descendants ) )
+        {
+            roles.addAll( descendants );
+        }
+        return index.getUsers( roles );
+    }
+
+
+    /**
+     * Return the userIds of the users assigned any of a set of roles.
+     *
+     * @param roles     contains the role names.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return Set of userIds, or null if the index is unavailable.
+     */
+    Set<String> getAssignedUsers( Set<String> roles, String contextId )
+    {
+        Index index = getIndex( contextId );
+        if ( index == null )
+        {
+            return null;
+        }
+        return index.getUsers( roles );
+    }
+
+
+    /**
+     * Return the roles and users a permission is granted to.
+     *
+     * @param perm contains the object name, operation name, optional object id and contextId.
+     * @return Permission containing the object name, operation name, object id, roles and users, or null if the index
+     * is unavailable or doesn't contain the permission.
+     */
+    Permission read( Permission perm )
+    {
+        if ( perm.isAdmin() )
+        {
+            return null;
+        }
+        Index index = getIndex( perm.getContextId() );
+        if ( index == null )
+        {
+            return null;
+        }
+        return index.read( perm );
+    }
+
+
+    /**
+     * Record a role that was added.
+     *
+     * @param role contains the role name and contextId.
+     */
+    void addRole( Role role )
+    {
+        Index index = getCachedIndex( role.getContextId() );
+        if ( index != null )
+        {
+            index.addRole( role.getName() );
+            store( role.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Forget a role that was deleted, along with its assignments and grants.
+     *
+     * @param role contains the role name and contextId.
+     */
+    void deleteRole( Role role )
+    {
+        Index index = getCachedIndex( role.getContextId() );
+        if ( index != null )
+        {
+            index.deleteRole( role.getName() );
+            store( role.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Forget a user that was deleted, along with its assignments and grants.
+     *
+     * @param user contains the userId and contextId.
+     */
+    void deleteUser( User user )
+    {
+        Index index = getCachedIndex( user.getContextId() );
+        if ( index != null )
+        {
+            index.deleteUser( user.getUserId() );
+            store( user.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Record a role assignment.
+     *
+     * @param uRole contains the userId, role name and contextId.
+     */
+    void assign( UserRole uRole )
+    {
+        Index index = getCachedIndex( uRole.getContextId() );
+        if ( index != null )
+        {
+            index.assign( uRole.getUserId(), uRole.getName() );
+            store( uRole.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Remove a role assignment.
+     *
+     * @param uRole contains the userId, role name and contextId.
+     */
+    void deassign( UserRole uRole )
+    {
+        Index index = getCachedIndex( uRole.getContextId() );
+        if ( index != null )
+        {
+            index.deassign( uRole.getUserId(), uRole.getName() );
+            store( uRole.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Record a permission that was added or updated.  Roles and users are replaced only when the permission contains
+     * them, the same way the directory entry is updated.
+     *
+     * @param perm contains the object name, operation name, optional object id, roles, users and contextId.
+     */
+    void putPermission( Permission perm )
+    {
+        if ( perm.isAdmin() )
+        {
+            return;
+        }
+        Index index = getCachedIndex( perm.getContextId() );
+        if ( index != null )
+        {
+            index.putPermission( perm );
+            store( perm.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Forget a permission operation that was deleted.
+     *
+     * @param perm contains the object name, operation name, optional object id and contextId.
+     */
+    void deletePermission( Permission perm )
+    {
+        if ( perm.isAdmin() )
+        {
+            return;
+        }
+        Index index = getCachedIndex( perm.getContextId() );
+        if ( index != null )
+        {
+            index.deletePermission( perm );
+            store( perm.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Forget the permission operations of a permission object that was deleted.
+     *
+     * @param pObj contains the object name and contextId.
+     */
+    void deletePermObj( PermObj pObj )
+    {
+        if ( pObj.isAdmin() )
+        {
+            return;
+        }
+        Index index = getCachedIndex( pObj.getContextId() );
+        if ( index != null )
+        {
+            index.deletePermObj( pObj.getObjName() );
+            store( pObj.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Record a permission granted to, or revoked from, a role.
+     *
+     * @param perm      contains the object name, operation name, optional object id and contextId.
+     * @param roleName  contains the role name.
+     * @param isGranted true if granted, false if revoked.
+     */
+    void grantRole( Permission perm, String roleName, boolean isGranted )
+    {
+        if ( perm.isAdmin() )
+        {
+            return;
+        }
+        Index index = getCachedIndex( perm.getContextId() );
+        if ( index != null )
+        {
+            index.grant( perm, roleName, null, isGranted );
+            store( perm.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Record a permission granted to, or revoked from, a user directly.
+     *
+     * @param perm      contains the object name, operation name, optional object id and contextId.
+     * @param userId    contains the userId.
+     * @param isGranted true if granted, false if revoked.
+     */
+    void grantUser( Permission perm, String userId, boolean isGranted )
+    {
+        if ( perm.isAdmin() )
+        {
+            return;
+        }
+        Index index = getCachedIndex( perm.getContextId() );
+        if ( index != null )
+        {
+            index.grant( perm, null, userId, isGranted );
+            store( perm.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Return the tenant's index, reading it from the directory if necessary.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return the index, or null if disabled or it could not be read.
+     */
+    private Index getIndex( final String contextId )
+    {
+        if ( !enabled )
+        {
+            return null;
+        }
+        try
+        {
+            return indexCache.get( getKey( contextId ), new CacheLoader<Index>()
+            {
+                @Override
+                public Index load()
+                {
+                    return loadIndex( contextId );
+                }
+            } );
+        }
+        catch ( CacheException ce )
+        {
+            LOG.warn( "getIndex context [{}] unavailable, caught CacheException={}", contextId, ce.getMessage() );
+            return null;
+        }
+    }
+
+
+    /**
+     * Return the tenant's index if it is cached, for a write to keep current.  A write doesn't read an index that isn't
+     * cached, the next query does, and so that it sees the write a read already in progress is not kept.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return the index, or null if disabled or not cached.
+     */
+    private Index getCachedIndex( String contextId )
+    {
+        if ( !enabled )
+        {
+            return null;
+        }
+        try
+        {
+            Index index = indexCache.getIfPresent( getKey( contextId ) );
+            if ( index == null )
+            {
+                indexCache.clear( getKey( contextId ) );
+            }
+            return index;
+        }
+        catch ( CacheException ce )
+        {
+            LOG.warn( "getCachedIndex context [{}] caught CacheException={}", contextId, ce.getMessage() );
+            return null;
+        }
+    }
+
+
+    /**
+     * Store an index modified in place, so that a background refresh that read the directory before the modification
+     * is discarded.
+     */
+    private void store( String contextId, Index index )
+    {
+        indexCache.put( getKey( contextId ), index );
+    }
+
+
+    /**
+     * Read the role names, role assignments and permission grants of a tenant.  Unlike the hierarchies, an index read
+     * partially would give wrong answers, so a failure is thrown rather than logged.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return the index.
+     */
+    private Index loadIndex( String contextId )
+    {
+        LOG.info( "loadIndex initializing REVIEW context [{}]", contextId );
+        Index index = new Index();
+        try
+        {
+            Role role = new Role( "" );
+            role.setContextId( contextId );
+            for ( String roleName : roleP.search( role, 0 ) )
+            {
+                index.addRole( roleName );
+            }
+
+            for ( User user : userP.getRoleAssignments( contextId ) )
+            {
+                for ( UserRole uRole : user.getRoles() )
+                {
+                    index.assign( user.getUserId(), uRole.getName() );
+                }
+            }
+
+            for ( Permission perm : permP.searchGrants( contextId ) )
+            {
+                index.putPermission( perm );
+            }
+        }
+        catch ( SecurityException se )
+        {
+            String error = "loadIndex context [" + contextId + "] caught SecurityException=" + se;
+            throw new CacheException( GlobalErrIds.FT_CACHE_GET_ERR, error, se );
+        }
+        return index;
+    }
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return key to this tenant's cache entry.
+     */
+    private static String getKey( String contextId )
+    {
+        String key = KEY_PREFIX;
+
+        if ( StringUtils.isNotEmpty( contextId ) && !contextId.equalsIgnoreCase( GlobalIds.NULL ) )
+        {
+            key += ":" + contextId;
+        }
+
+        return key;
+    }
+
+
+    private static Set<String> newSet()
+    {
+        return new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+    }
+
+
+    private static String upper( String value )
+    {
+        return value == null ? "" : value.toUpperCase();
+    }
+
+
+    /**
+     * The indexes of one tenant.  Names are matched case insensitively, as the directory does, and returned as stored.
+     */
+    static final class Index implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        // role name in upper case to the role name:
+        private final Map<String, String> roles = new HashMap<>();
+        // role name in upper case to the userIds assigned:
+        private final Map<String, Set<String>> roleUsers = new HashMap<>();
+        // userId in upper case to the role names assigned:
+        private final Map<String, Set<String>> userRoles = new HashMap<>();
+        // object name, operation name and object id, in upper case, to the roles and users granted:
+        private final Map<List<String>, Grant> grants = new HashMap<>();
+
+
+        synchronized boolean hasRole( String roleName )
+        {
+            return roles.containsKey( upper( roleName ) );
+        }
+
+
+        synchronized Set<String> getUsers( Collection<String> roleNames )
+        {
+            Set<String> users = new HashSet<>();
+            if ( roleNames != null )
+            {
+                for ( String roleName : roleNames )
+                {
+                    Set<String> assigned = roleUsers.get( upper( roleName ) );
+                    if ( assigned != null )
+                    {
+                        users.addAll( assigned );
+                    }
+                }
+            }
+            return users;
+        }
+
+
+        synchronized Permission read( Permission perm )
+        {
+            Grant grant = grants.get( toKey( perm ) );
+            if ( grant == null )
+            {
+                return null;
+            }
+            Permission entity = new Permission( perm.getObjName(), perm.getOpName(), perm.getObjId() );
+            Set<String> roleNames = newSet();
+            roleNames.addAll( grant.roles );
+            entity.setRoles( roleNames );
+            Set<String> userIds = newSet();
+            userIds.addAll( grant.users );
+            entity.setUsers( userIds );
+            return entity;
+        }
+
+
+        synchronized void addRole( String roleName )
+        {
+            roles.put( upper( roleName ), roleName );
+        }
+
+
+        synchronized void deleteRole( String roleName )
+        {
+            roles.remove( upper( roleName ) );
+            Set<String> users = roleUsers.remove( upper( roleName ) );
+            if ( users != null )
+            {
+                for ( String userId : users )
+                {
+                    remove( userRoles, userId, roleName );
+                }
+            }
+            for ( Grant grant : grants.values() )
+            {
+                grant.roles.remove( roleName );
+            }
+        }
+
+
+        synchronized void deleteUser( String userId )
+        {
+            Set<String> assigned = userRoles.remove( upper( userId ) );
+            if ( assigned != null )
+            {
+                for ( String roleName : assigned )
+                {
+                    remove( roleUsers, roleName, userId );
+                }
+            }
+            for ( Grant grant : grants.values() )
+            {
+                grant.users.remove( userId );
+            }
+        }
+
+
+        synchronized void assign( String userId, String roleName )
+        {
+            add( roleUsers, roleName, userId );
+            add( userRoles, userId, roleName );
+        }
+
+
+        synchronized void deassign( String userId, String roleName )
+        {
+            remove( roleUsers, roleName, userId );
+            remove( userRoles, userId, roleName );
+        }
+
+
+        synchronized void putPermission( Permission perm )
+        {
+            Grant grant = getGrant( perm );
+            if ( CollectionUtils.isNotEmpty( perm.getRoles() ) )
+            {
+                grant.roles.clear();
+                grant.roles.addAll( perm.getRoles() );
+            }
+            if ( CollectionUtils.isNotEmpty( perm.getUsers() ) )
+            {
+                grant.users.clear();
+                grant.users.addAll( perm.getUsers() );
+            }
+        }
+
+
+        synchronized void deletePermission( Permission perm )
+        {
+            grants.remove( toKey( perm ) );
+        }
+
+
+        synchronized void deletePermObj( String objName )
+        {
+            String key = upper( objName );
+            for ( Iterator<List<String>> i = grants.keySet().iterator(); i.hasNext(); )
+            {
+                if ( i.next().get( 0 ).equals( key ) )
+                {
+                    i.remove();
+                }
+            }
+        }
+
+
+        synchronized void grant( Permission perm, String roleName, String userId, boolean isGranted )
+        {
+            Grant grant = getGrant( perm );
+            Set<String> values = roleName != null ? grant.roles : grant.users;
+            String value = roleName != null ? roleName : userId;
+            if ( isGranted )
+            {
+                values.add( value );
+            }
+            else
+            {
+                values.remove( value );
+            }
+        }
+
+
+        private Grant getGrant( Permission perm )
+        {
+            List<String> key = toKey( perm );
+            Grant grant = grants.get( key );
+            if ( grant == null )
+            {
+                grant = new Grant();
+                grants.put( key, grant );
+            }
+            return grant;
+        }
+
+
+        private static List<String> toKey( Permission perm )
+        {
+            return Arrays.asList( upper( perm.getObjName() ), upper( perm.getOpName() ), upper( perm.getObjId() ) );
+        }
+
+
+        private static void add( Map<String, Set<String>> map, String key, String value )
+        {
+            Set<String> values = map.get( upper( key ) );
+            if ( values == null )
+            {
+                values = newSet();
+                map.put( upper( key ), values );
+            }
+            values.add( value );
+        }
+
+
+        private static void remove( Map<String, Set<String>> map, String key, String value )
+        {
+            Set<String> values = map.get( upper( key ) );
+            if ( values != null )
+            {
+                values.remove( value );
+                if ( values.isEmpty() )
+                {
+                    map.remove( upper( key ) );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * The roles and users a permission operation is granted to.
+     */
+    private static final class Grant implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Set<String> roles = newSet();
+        private final Set<String> users = newSet();
+    }
+}
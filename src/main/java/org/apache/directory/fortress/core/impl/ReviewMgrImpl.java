@@ -39,6 +39,7 @@ import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.model.RoleConstraint;
 import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserProjection;
 import org.apache.directory.fortress.core.model.UserRole;
 import org.apache.directory.fortress.core.util.VUtil;
 
@@ -258,6 +259,21 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         return userP.read( user, true );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final User readUser(User user, Set<UserProjection> projection)
+        throws SecurityException
+    {
+        String methodName = "readUser";
+        assertContext( CLS_NM, methodName, user, GlobalErrIds.USER_NULL );
+        VUtil.assertNotNullOrEmpty( user.getUserId(), GlobalErrIds.USER_ID_NULL, CLS_NM + "." + methodName );
+        VUtil.assertNotNull( projection, GlobalErrIds.USER_PROJECTION_NULL, CLS_NM + "." + methodName );
+        checkAccess( CLS_NM, methodName );
+        return userP.read( user, projection );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -271,6 +287,20 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         return userP.search( user );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final List<User> findUsers(User user, Set<UserProjection> projection)
+        throws SecurityException
+    {
+        String methodName = "findUsers";
+        assertContext( CLS_NM, methodName, user, GlobalErrIds.USER_NULL );
+        VUtil.assertNotNull( projection, GlobalErrIds.USER_PROJECTION_NULL, CLS_NM + "." + methodName );
+        checkAccess(CLS_NM, methodName);
+        return userP.search( user, projection );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -309,19 +339,9 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         assertContext(CLS_NM, methodName, role, GlobalErrIds.ROLE_NULL);
         checkAccess(CLS_NM, methodName);
         Role entity = roleP.read(role);
-        // this one retrieves from the role itself.
-        List<String> users = entity.getOccupants();
-        if (users != null && users.size() > limit)
-        {
-            users = users.subList(0, limit);
-        }
-        // No users found for this role.
-        // return empty list to caller:
-        else if (users == null)
-        {
-            users = new ArrayList<>();
-        }
-        return users;
+        // this one retrieves from the role itself, only the first page of occupants is read.
+        // No users found for this role returns empty list to caller:
+        return limit > 0 ? entity.getOccupants(0, limit) : new ArrayList<String>();
         // this one does a search across all users:
         //return userP.getAuthorizedUsers(role, limit);
     }
@@ -336,6 +356,11 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         String methodName = "assignedUsers";
         assertContext(CLS_NM, methodName, role, GlobalErrIds.ROLE_NULL);
         checkAccess(CLS_NM, methodName);
+        Set<String> userIds = ReviewIndex.getInstance().getAssignedUsers( role );
+        if ( userIds != null )
+        {
+            return getUsers( userIds );
+        }
         return userP.getAssignedUsers(role);
     }
 
@@ -378,6 +403,11 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         String methodName = "authorizedUsers";
         assertContext( CLS_NM, methodName, role, GlobalErrIds.ROLE_NULL );
         checkAccess( CLS_NM, methodName );
+        Set<String> userIds = ReviewIndex.getInstance().getAuthorizedUsers( role );
+        if ( userIds != null )
+        {
+            return getUsers( userIds );
+        }
         return userP.getAuthorizedUsers( role );
     }
 
@@ -478,7 +508,7 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         String methodName = "permissionRoles";
         assertContext(CLS_NM, methodName, perm, GlobalErrIds.PERM_OBJECT_NULL);
         checkAccess(CLS_NM, methodName);
-        Permission pe = permP.read(perm);
+        Permission pe = readGrants(perm);
         List<String> retVals;
         if(pe != null && CollectionUtils.isNotEmpty( pe.getRoles() ))
         {
@@ -502,8 +532,8 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         String methodName = "authorizedPermissionRoles";
         assertContext(CLS_NM, methodName, perm, GlobalErrIds.PERM_OPERATION_NULL);
         checkAccess(CLS_NM, methodName);
-        // Pull the permission from ldap:
-        Permission pe = permP.read(perm);
+        // Pull the permission from the review index or ldap:
+        Permission pe = readGrants(perm);
 
         // Get all roles that this permission is authorized for:
         authorizedRoles = authorizeRoles(pe.getRoles());
@@ -520,7 +550,7 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         String methodName = "permissionUsers";
         assertContext(CLS_NM, methodName, perm, GlobalErrIds.PERM_OPERATION_NULL);
         checkAccess(CLS_NM, methodName);
-        Permission pe = permP.read(perm);
+        Permission pe = readGrants(perm);
         List<String> retVals;
         if(pe != null && CollectionUtils.isNotEmpty( pe.getUsers() ))
         {
@@ -544,15 +574,19 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         String methodName = "authorizedPermissionUsers";
         assertContext(CLS_NM, methodName, perm, GlobalErrIds.PERM_OPERATION_NULL);
         checkAccess(CLS_NM, methodName);
-        // Pull the permission from ldap:
-        Permission pe = permP.read(perm);
+        // Pull the permission from the review index or ldap:
+        Permission pe = readGrants(perm);
 
         // Get all roles that this permission is authorized for:
         Set<String> authorizedRoles = authorizeRoles(pe.getRoles());
         if (authorizedRoles != null)
         {
-            // Pull the set of users assigned to descendant or assigned roles from ldap:
-            authorizedUsers = userP.getAssignedUsers(authorizedRoles, this.contextId);
+            // Pull the set of users assigned to descendant or assigned roles from the review index or ldap:
+            authorizedUsers = ReviewIndex.getInstance().getAssignedUsers( authorizedRoles, this.contextId );
+            if ( authorizedUsers == null )
+            {
+                authorizedUsers = userP.getAssignedUsers(authorizedRoles, this.contextId);
+            }
         }
         // Now add any users who have been directly assigned to this permission entity:
         Set<String> assignedUsers = pe.getUsers();
@@ -569,6 +603,39 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         return authorizedUsers;
     }
 
+    /**
+     * Return the roles and users a permission is granted to, from the review index if it has the permission,
+     * otherwise from ldap.
+     *
+     * @param perm contains object name, operation name and optional object id.
+     * @return Permission containing at least the roles and users granted.
+     * @throws SecurityException if the permission doesn't exist or in the event of system error.
+     */
+    private Permission readGrants( Permission perm ) throws SecurityException
+    {
+        Permission pe = ReviewIndex.getInstance().read( perm );
+        return pe != null ? pe : permP.read( perm );
+    }
+
+
+    /**
+     * Read the users found in the review index, matching each on its userId rather than searching every user's role
+     * assignments.
+     *
+     * @param userIds contains the userIds.
+     * @return List of type User.
+     * @throws SecurityException in the event of system error.
+     */
+    private List<User> getUsers( Set<String> userIds ) throws SecurityException
+    {
+        if ( userIds.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+        return userP.getUsers( userIds, this.contextId );
+    }
+
+
     /**
      * {@inheritDoc}
      */
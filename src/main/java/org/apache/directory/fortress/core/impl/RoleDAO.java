@@ -37,20 +37,28 @@ import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
 import org.apache.directory.api.ldap.model.exception.LdapNoSuchObjectException;
 import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.fortress.core.CreateException;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.MemberLoadException;
 import org.apache.directory.fortress.core.RemoveException;
+import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.UpdateException;
+import org.apache.directory.fortress.core.ldap.FilterTemplate;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
+import org.apache.directory.fortress.core.ldap.WriteBatch;
 import org.apache.directory.fortress.core.model.ConstraintUtil;
-import org.apache.directory.fortress.core.model.Graphable;
+import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.directory.fortress.core.model.Group;
+import org.apache.directory.fortress.core.model.MemberLoader;
 import org.apache.directory.fortress.core.model.ObjectFactory;
 import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.util.PropUtil;
 import org.apache.directory.ldap.client.api.LdapConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -94,18 +102,26 @@ import org.apache.directory.ldap.client.api.LdapConnection;
  * <li>  ------------------------------------------
  * </ul>
  * <p>
+ * The roleOccupant attribute is not retrieved by reads and searches, the occupants are loaded on first access of the
+ * role's getters through {@link #loadCB(FortEntity, int, int)}.
+ * <p>
  * This class is thread safe.
  *
  * @author Kevin McKinney
  */
-final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>
+final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>, MemberLoader
 {
+    private static final String CLS_NM = RoleDAO.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
     /*
       *  *************************************************************************
       *  **  OpenAccessMgr ROLE STATICS
       *  ************************************************************************
       */
     private static final String ROLE_NM = "ftRoleName";
+    private static final FilterTemplate ROLE_SEARCH_FILTER = FilterTemplate.compile( GlobalIds.FILTER_PREFIX
+        + GlobalIds.ROLE_OBJECT_CLASS_NM + ")(" + ROLE_NM + "={0}*))" );
 
     private static final String[] ROLE_NM_ATR =
         {
@@ -118,7 +134,6 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>
             ROLE_NM,
             SchemaConstants.DESCRIPTION_AT,
             GlobalIds.CONSTRAINT,
-            SchemaConstants.ROLE_OCCUPANT_AT,
             GlobalIds.PARENT_NODES,
             GlobalIds.PROPS
     };
@@ -314,6 +329,63 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>
     }
 
 
+    /**
+     * Add the user dns to the roleOccupant attribute of the roles, sending the modifications together.  Dns added to
+     * the same role are merged into one modification of the entry.
+     *
+     * @param entities contains the roles targeted, the nth receives the nth user dn.
+     * @param userDns  contains the dns of the user entries being assigned.
+     * @return the outcome of each assignment in the order given, null if it succeeded.
+     * @throws UpdateException in the event of a system error.
+     */
+    List<SecurityException> assign( List<Role> entities, List<String> userDns ) throws UpdateException
+    {
+        List<SecurityException> outcomes = new ArrayList<>( entities.size() );
+        LdapConnection ld = null;
+
+        try
+        {
+            WriteBatch batch = new WriteBatch();
+            for ( int i = 0; i < entities.size(); i++ )
+            {
+                Role entity = entities.get( i );
+                List<Modification> mods = new ArrayList<Modification>();
+                mods.add( new DefaultModification( ModificationOperation.ADD_ATTRIBUTE,
+                    SchemaConstants.ROLE_OCCUPANT_AT, userDns.get( i ) ) );
+                batch.modify( new Dn( getDn( entity.getName(), entity.getContextId() ) ), mods, entity );
+            }
+
+            ld = getAdminConnection();
+            List<WriteBatch.Result> results = writeGrouped( ld, batch );
+            for ( int i = 0; i < entities.size(); i++ )
+            {
+                WriteBatch.Result result = results.get( i );
+                if ( result.isSuccess() )
+                {
+                    outcomes.add( null );
+                }
+                else
+                {
+                    String error = "assign role name [" + entities.get( i ).getName() + "] user dn [" + userDns.get( i )
+                        + "] failed " + result;
+                    outcomes.add( new UpdateException( GlobalErrIds.ROLE_USER_ASSIGN_FAILED, error ) );
+                }
+            }
+        }
+        catch ( LdapException e )
+        {
+            String error = "assign caught LdapException=" + e.getMessage();
+            throw new UpdateException( GlobalErrIds.ROLE_USER_ASSIGN_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+
+        return outcomes;
+    }
+
+
     /**
      * @param entity
      * @param userDn
@@ -438,8 +510,7 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>
         try
         {
             String searchVal = encodeSafeText( role.getName(), GlobalIds.ROLE_LEN );
-            filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")("
-                + ROLE_NM + "=" + searchVal + "*))";
+            filter = ROLE_SEARCH_FILTER.render( searchVal );
             ld = getAdminConnection();
             SearchCursor searchResults = search( ld, roleRoot,
                 SearchScope.ONELEVEL, filter, ROLE_ATRS, false, GlobalIds.BATCH_SIZE );
@@ -636,71 +707,60 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>
 
 
     /**
+     * Read the roles that have parents, or every role modified since the given time, a page at a time, and pass each
+     * to the visitor as it is read.
      *
-     * @param contextId
-     * @return
-     * @throws FinderException
+     * @param contextId     maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param modifiedSince generalized time, null reads the roles that have parents.
+     * @param visitor       receives the name, parents and modifyTimestamp of each role.
+     * @throws FinderException in the event of ldap search error.
      */
-    List<Graphable> getAllDescendants( String contextId )
+    void getDescendants( String contextId, String modifiedSince, HierLoader.Visitor visitor )
         throws FinderException
     {
         String[] DESC_ATRS =
-            { ROLE_NM, GlobalIds.PARENT_NODES };
-        List<Graphable> descendants = new ArrayList<>();
+            { ROLE_NM, GlobalIds.PARENT_NODES, SchemaConstants.MODIFY_TIMESTAMP_AT };
         LdapConnection ld = null;
         String roleRoot = getRootDn( contextId, GlobalIds.ROLE_ROOT );
         String filter = null;
 
         try
         {
-            filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")("
-                + GlobalIds.PARENT_NODES + "=*))";
+            filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")(" + ( modifiedSince == null
+                ? GlobalIds.PARENT_NODES + "=*" : SchemaConstants.MODIFY_TIMESTAMP_AT + ">=" + modifiedSince ) + "))";
             ld = getAdminConnection();
-            SearchCursor searchResults = search( ld, roleRoot,
-                SearchScope.ONELEVEL, filter, DESC_ATRS, false, GlobalIds.BATCH_SIZE );
-            long sequence = 0;
+            byte[] cookie = null;
 
-            while ( searchResults.next() )
+            do
             {
-                descendants.add( unloadDescendants( searchResults.getEntry(), sequence++, contextId ) );
+                SearchCursor searchResults = searchPage( ld, roleRoot, SearchScope.ONELEVEL, filter, DESC_ATRS,
+                    cookie );
+
+                while ( searchResults.next() )
+                {
+                    Entry entry = searchResults.getEntry();
+                    visitor.visit( getAttribute( entry, ROLE_NM ), getAttributeSet( entry, GlobalIds.PARENT_NODES ),
+                        getAttribute( entry, SchemaConstants.MODIFY_TIMESTAMP_AT ) );
+                }
+
+                cookie = getCookie( searchResults );
             }
+            while ( cookie != null );
         }
         catch ( LdapException e )
         {
-            String error = "getAllDescendants filter [" + filter + "] caught LdapException=" + e.getMessage();
+            String error = "getDescendants filter [" + filter + "] caught LdapException=" + e.getMessage();
             throw new FinderException( GlobalErrIds.ROLE_SEARCH_FAILED, error, e );
         }
         catch ( CursorException e )
         {
-            String error = "getAllDescendants filter [" + filter + "] caught CursorException=" + e.getMessage();
+            String error = "getDescendants filter [" + filter + "] caught CursorException=" + e.getMessage();
             throw new FinderException( GlobalErrIds.ROLE_SEARCH_FAILED, error, e );
         }
         finally
         {
             closeAdminConnection( ld );
         }
-
-        return descendants;
-    }
-
-
-    /**
-     *
-     * @param le
-     * @param sequence
-     * @param contextId
-     * @return
-     * @throws LdapInvalidAttributeValueException 
-     * @throws LdapException
-     */
-    private Graphable unloadDescendants( Entry le, long sequence, String contextId )
-        throws LdapInvalidAttributeValueException
-    {
-        Role entity = new ObjectFactory().createRole();
-        entity.setSequenceId( sequence );
-        entity.setName( getAttribute( le, ROLE_NM ) );
-        entity.setParents( getAttributeSet( le, GlobalIds.PARENT_NODES ) );
-        return entity;
     }
 
 
@@ -720,7 +780,9 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>
         entity.setId( getAttribute( le, GlobalIds.FT_IID ) );
         entity.setName( getAttribute( le, ROLE_NM ) );
         entity.setDescription( getAttribute( le, SchemaConstants.DESCRIPTION_AT ) );
-        entity.setOccupants( getAttributes( le, SchemaConstants.ROLE_OCCUPANT_AT ) );
+        // the callback needs the tenant to locate the entry:
+        entity.setContextId( contextId );
+        entity.deferOccupants( this );
         //entity.setParents(RoleUtil.getParents(entity.getName().toUpperCase(), contextId));
         entity.setChildren( RoleUtil.getInstance().getChildren( entity.getName().toUpperCase(), contextId ) );
         entity.setParents( getAttributeSet( le, GlobalIds.PARENT_NODES ) );        
@@ -737,6 +799,39 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>
     }
 
 
+    /**
+     * Read a range of the role's occupants, see {@link LdapDataProvider#readRange}.
+     *
+     * @param entity contains the name and contextId of the role.
+     * @param offset index of the first occupant to retrieve.
+     * @param size   maximum number of occupants to retrieve, all remaining if less than one.
+     * @return List of user dns.
+     * @throws MemberLoadException in the event they could not be read.
+     */
+    @Override
+    public List<String> loadCB( FortEntity entity, int offset, int size )
+    {
+        LdapConnection ld = null;
+        Role role = ( Role ) entity;
+        String dn = getDn( role.getName(), role.getContextId() );
+
+        try
+        {
+            ld = getAdminConnection();
+            return readRange( ld, dn, SchemaConstants.ROLE_OCCUPANT_AT, offset, size );
+        }
+        catch ( LdapException e )
+        {
+            String error = "loadCB dn [" + dn + "] caught LDAPException=" + e.getMessage();
+            throw new MemberLoadException( GlobalErrIds.ROLE_OCCUPANT_SEARCH_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+    }
+
+
     @Override
     public String getDn( Role entity )
     {
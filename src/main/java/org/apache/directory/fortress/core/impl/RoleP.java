@@ -30,7 +30,6 @@ import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
 import org.apache.directory.fortress.core.util.ConstraintValidator;
-import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.Group;
 import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.model.UserRole;
@@ -124,15 +123,17 @@ final class RoleP
 
 
     /**
-     * Return all Roles that have a parent assignment.  This used for hierarchical processing.
+     * Read all Roles that have a parent assignment, or all Roles modified since the given time.  This used for
+     * hierarchical processing.
      *
-     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
-     * @return List of type Role containing {@link Role#name} and {@link Role#parents} populated.
+     * @param contextId     maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param modifiedSince generalized time, null reads the Roles that have a parent assignment.
+     * @param visitor       receives the {@link Role#name} and {@link Role#parents} of each Role as it is read.
      * @throws SecurityException in the event of DAO search error.
      */
-    List<Graphable> getAllDescendants( String contextId ) throws SecurityException
+    void getDescendants( String contextId, String modifiedSince, HierLoader.Visitor visitor ) throws SecurityException
     {
-        return rDao.getAllDescendants( contextId );
+        rDao.getDescendants( contextId, modifiedSince, visitor );
     }
 
 
@@ -147,7 +148,9 @@ final class RoleP
     Role add( Role entity ) throws SecurityException
     {
         validate( entity );
-        return rDao.create( entity );
+        Role role = rDao.create( entity );
+        ReviewIndex.getInstance().addRole( entity );
+        return role;
     }
 
 
@@ -194,6 +197,21 @@ final class RoleP
     }
 
 
+    /**
+     * Method will add the "roleOccupant" attribute on the OpenLDAP entries of the roles, sending the changes together.
+     * Each assignment succeeds or fails on its own.
+     *
+     * @param entities contains the role names targeted, the nth receives the nth user dn.
+     * @param userDns  contains the dns for the user entries that are being assigned the RBAC Roles.
+     * @return the outcome of each assignment in the order given, null if it succeeded.
+     * @throws SecurityException in the event of DAO system error.
+     */
+    List<SecurityException> assign( List<Role> entities, List<String> userDns ) throws SecurityException
+    {
+        return rDao.assign( entities, userDns );
+    }
+
+
     /**
      * Method will remove the "roleOccupant" attribute on OpenLDAP entry which represents an RBAC Role assignment in Fortress.
      *
@@ -271,6 +289,7 @@ final class RoleP
     void delete( Role entity ) throws SecurityException
     {
         rDao.remove( entity );
+        ReviewIndex.getInstance().deleteRole( entity );
     }
 
 
@@ -20,23 +20,29 @@
 package org.apache.directory.fortress.core.impl;
 
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
-import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.Hier;
+import org.apache.directory.fortress.core.model.InheritedRoles;
 import org.apache.directory.fortress.core.model.ParentUtil;
 import org.apache.directory.fortress.core.model.Relationship;
 import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.UserRole;
-import org.apache.directory.fortress.core.util.cache.Cache;
+import org.apache.directory.fortress.core.util.cache.CacheLoader;
 import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.directory.fortress.core.util.cache.LoadingCache;
 import org.jgrapht.graph.SimpleDirectedGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,7 +51,7 @@ import org.slf4j.LoggerFactory;
 /**
  * This utility wraps {@link org.apache.directory.fortress.core.impl.HierUtil} methods to provide hierarchical functionality for the {@link org.apache.directory.fortress.core.model.Role} data set.
  * The {@code cn=Hierarchies, ou=Roles} data is stored within a cache, {@link #roleCache}, contained within this class.  The parent-child edges are contained in LDAP,
- * in {@code ftParents} attribute.  The ldap data is retrieved {@link org.apache.directory.fortress.core.impl.RoleP#getAllDescendants(String)} and loaded into {@code org.jgrapht.graph.SimpleDirectedGraph}.
+ * in {@code ftParents} attribute.  The ldap data is retrieved {@link org.apache.directory.fortress.core.impl.RoleP#getDescendants(String, String, HierLoader.Visitor)} and loaded into {@code org.jgrapht.graph.SimpleDirectedGraph}.
  * The graph...
  * <ol>
  * <li>is stored as singleton in this class with vertices of {@code String}, and edges, as {@link org.apache.directory.fortress.core.model.Relationship}s</li>
@@ -64,8 +70,11 @@ import org.slf4j.LoggerFactory;
  */
 final class RoleUtil implements ParentUtil
 {
-    private Cache roleCache;
+    private LoadingCache<SimpleDirectedGraph<String, Relationship>> roleCache;
     private RoleP roleP = new RoleP();
+    private HierLoader hierLoader;
+    // incremented per tenant on each hierarchy update, invalidates the inherited roles memoized on sessions:
+    private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
     private static final String CLS_NM = RoleUtil.class.getName();
     private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
 
@@ -97,9 +106,18 @@ final class RoleUtil implements ParentUtil
     private void init()
     {
     	roleP = new RoleP();
+        hierLoader = new HierLoader( "ROLE", new HierLoader.Source()
+        {
+            @Override
+            public void read( String contextId, String modifiedSince, HierLoader.Visitor visitor )
+                throws SecurityException
+            {
+                roleP.getDescendants( contextId, modifiedSince, visitor );
+            }
+        } );
     	
         CacheMgr cacheMgr = CacheMgr.getInstance();
-        roleCache = cacheMgr.getCache( "fortress.roles" );
+        roleCache = cacheMgr.getLoadingCache( "fortress.roles" );
     }
 
     /**
@@ -219,6 +237,38 @@ final class RoleUtil implements ParentUtil
      * @return contains Set of all authorized RBAC Roles for a given User.
      */
     Set<String> getInheritedRoles( List<UserRole> uRoles, String contextId )
+    {
+        return getInheritedRoles( uRoles, getGraph( contextId ) );
+    }
+
+
+    /**
+     * Return Set of RBAC {@link org.apache.directory.fortress.core.model.Role#name}s, activated and inherited, for a
+     * {@link org.apache.directory.fortress.core.model.Session}.  The set is memoized on the Session and only recomputed
+     * after roles are activated or dropped or the role hierarchy changes.
+     *
+     * @param session contains the list of Roles activated within a {@link org.apache.directory.fortress.core.model.User}'s or Group's session.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return contains unmodifiable Set of all authorized RBAC Roles for the session.
+     */
+    Set<String> getInheritedRoles( Session session, String contextId )
+    {
+        // read the version first so that an update made while computing leaves the result stale:
+        long version = getVersion( contextId );
+        SimpleDirectedGraph<String, Relationship> graph = getGraph( contextId );
+        List<UserRole> uRoles = session.getRoles();
+        InheritedRoles memo = session.getInheritedRolesCB();
+        if ( memo != null && memo.isCurrent( uRoles, contextId, graph, version ) )
+        {
+            return memo.getRoles();
+        }
+        Set<String> iRoles = Collections.unmodifiableSet( getInheritedRoles( uRoles, graph ) );
+        session.setInheritedRolesCB( new InheritedRoles( uRoles, contextId, graph, version, iRoles ) );
+        return iRoles;
+    }
+
+
+    private static Set<String> getInheritedRoles( List<UserRole> uRoles, SimpleDirectedGraph<String, Relationship> graph )
     {
         // create Set with case insensitive comparator:
         Set<String> iRoles = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
@@ -228,7 +278,7 @@ final class RoleUtil implements ParentUtil
             {
                 String rleName = uRole.getName();
                 iRoles.add( rleName );
-                Set<String> parents = HierUtil.getAscendants( rleName, getGraph( contextId ) );
+                Set<String> parents = HierUtil.getAscendants( rleName, graph );
                 if ( CollectionUtils.isNotEmpty( parents ) )
                 {
                     iRoles.addAll( parents );
@@ -342,40 +392,50 @@ final class RoleUtil implements ParentUtil
      */
     void updateHier( String contextId, Relationship relationship, Hier.Op op ) throws SecurityException
     {
-        HierUtil.updateHier( getGraph( contextId ), relationship, op );
+        SimpleDirectedGraph<String, Relationship> graph = getGraph( contextId );
+        HierUtil.updateHier( graph, relationship, op );
+        // store it back so a background refresh that started before this change is discarded:
+        roleCache.put( getKey( contextId ), graph );
+        getVersionCounter( contextId ).incrementAndGet();
     }
 
 
     /**
-     * Read this ldap record,{@code cn=Hierarchies, ou=OS-P} into this entity, {@link Hier}, before loading into this collection class,{@code org.jgrapht.graph.SimpleDirectedGraph}
-     * using 3rd party lib, <a href="http://www.jgrapht.org/">JGraphT</a>.
-     *
      * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
-     * @return handle to simple digraph containing role hierarchies.
+     * @return number of updates made to this tenant's hierarchy by this process.
      */
-    private synchronized SimpleDirectedGraph<String, Relationship> loadGraph( String contextId )
+    private long getVersion( String contextId )
     {
-        Hier inHier = new Hier( Hier.Type.ROLE );
-        inHier.setContextId( contextId );
-        LOG.info( "loadGraph initializing ROLE context [{}]", inHier.getContextId() );
-        List<Graphable> descendants = null;
+        AtomicLong counter = versions.get( getKey( contextId ) );
+        return counter == null ? 0 : counter.get();
+    }
 
-        try
-        {
-            descendants = roleP.getAllDescendants( inHier.getContextId() );
-        }
-        catch ( SecurityException se )
+
+    private AtomicLong getVersionCounter( String contextId )
+    {
+        String key = getKey( contextId );
+        AtomicLong counter = versions.get( key );
+        if ( counter == null )
         {
-            LOG.info( "loadGraph caught SecurityException={}", se );
+            AtomicLong created = new AtomicLong();
+            AtomicLong existing = versions.putIfAbsent( key, created );
+            counter = existing != null ? existing : created;
         }
+        return counter;
+    }
 
-        Hier hier = HierUtil.loadHier( contextId, descendants );
-        SimpleDirectedGraph<String, Relationship> graph;
-
-        graph = HierUtil.buildGraph( hier );
-        roleCache.put( getKey( contextId ), graph );
 
-        return graph;
+    /**
+     * Read the parents of the roles from ldap, a page at a time, into this collection class,{@code org.jgrapht.graph.SimpleDirectedGraph}
+     * using 3rd party lib, <a href="http://www.jgrapht.org/">JGraphT</a>.  See {@link HierLoader} for how a refresh may
+     * read only the roles changed since the previous load.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return handle to simple digraph containing role hierarchies.
+     */
+    private SimpleDirectedGraph<String, Relationship> loadGraph( String contextId )
+    {
+        return hierLoader.load( getKey( contextId ), contextId );
     }
 
 
@@ -397,6 +457,33 @@ final class RoleUtil implements ParentUtil
     }
 
 
+    /**
+     * Return a copy of this tenant's role hierarchy for a policy snapshot, loading it from ldap if necessary.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return copy of the hierarchy, or null if it was primed and hasn't been reloaded since.
+     */
+    Hier getSnapshot( String contextId )
+    {
+        SimpleDirectedGraph<String, Relationship> graph = roleCache.getLoaded( getKey( contextId ),
+            getLoader( contextId ) );
+        return graph != null ? HierUtil.toHier( contextId, graph ) : null;
+    }
+
+
+    /**
+     * Store a role hierarchy read from a policy snapshot if this tenant's hasn't been loaded yet.  It is reloaded
+     * from ldap in the background the first time it is read.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param hier      contains the hierarchy's relationships.
+     */
+    void prime( String contextId, Hier hier )
+    {
+        roleCache.prime( getKey( contextId ), HierUtil.buildGraph( hier ) );
+    }
+
+
     /**
      *
      * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
@@ -404,19 +491,20 @@ final class RoleUtil implements ParentUtil
      */
     private SimpleDirectedGraph<String, Relationship> getGraph( String contextId )
     {
-        String key = getKey( contextId );        
-        LOG.debug("Getting graph for key " + contextId);
-         
-        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) roleCache
-                 .get( key );
-             
-        if(graph == null){
-            LOG.debug("Graph was null, creating... " + contextId);
-            return loadGraph( contextId );
-        }
-        else{
-            LOG.debug("Graph found in cache, returning...");
-            return graph;
-        }
+        LOG.debug( "Getting graph for key " + contextId );
+        return roleCache.get( getKey( contextId ), getLoader( contextId ) );
+    }
+
+
+    private CacheLoader<SimpleDirectedGraph<String, Relationship>> getLoader( final String contextId )
+    {
+        return new CacheLoader<SimpleDirectedGraph<String, Relationship>>()
+        {
+            @Override
+            public SimpleDirectedGraph<String, Relationship> load()
+            {
+                return loadGraph( contextId );
+            }
+        };
     }
 }
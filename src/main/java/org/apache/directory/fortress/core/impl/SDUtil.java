@@ -19,6 +19,7 @@
  */
 package org.apache.directory.fortress.core.impl;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -152,6 +153,21 @@ final class SDUtil
         checkSSD( role, rls, contextId);
     }
 
+    /**
+     * This method is called by AdminMgr.assignUsers and AdminMgr.assignRoles and is used to validate Static Separation
+     * of Duty constraints when assigning a role to a user whose authorized roles are already known.
+     *
+     * @param role            contains the name of the role being assigned.
+     * @param authorizedRoles contains the roles the user is authorized for, including inherited ones.
+     * @param contextId       maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @throws org.apache.directory.fortress.core.SecurityException
+     *
+     */
+    void validateSSD( Role role, Set<String> authorizedRoles, String contextId ) throws SecurityException
+    {
+        checkSSD( role, authorizedRoles, contextId );
+    }
+
     private void checkSSD( Role role, Set<String> authorizedRls, String contextId ) throws SecurityException
     {
         int matchCount;
@@ -161,6 +177,12 @@ final class SDUtil
             return;
         }
 
+        // the compiled index, when enabled, counts the matches of every set as a bitset intersection:
+        if ( SsdIndex.getInstance().validate( role, authorizedRls, contextId ) )
+        {
+            return;
+        }
+
         // get all SSD sets that contain the new role
         List<SDSet> ssdSets = getSsdCache( role.getName(), contextId );
         for ( SDSet ssd : ssdSets )
@@ -209,55 +231,36 @@ final class SDUtil
         }
 
         // get all DSD sets that contain the target role
-        Set<SDSet> dsdSets = getDsdCache(role.getName(), session.getContextId());
-        for (SDSet dsd : dsdSets)
+        final String contextId = session.getContextId();
+        Set<SDSet> dsdSets = getDsdCache(role.getName(), contextId);
+        if (dsdSets.isEmpty())
         {
-            // Keeps the number of matched roles to a particular DSD set.
-            int matchCount = 0;
-
-            // Contains the list of roles assigned to a particular DSD set.
-            Set<String> map = dsd.getMembers();
+            return;
+        }
 
-            // iterate over every role active in session for match wth DSD members:
-            for (UserRole actRole : rls)
+        // match the active roles, and their parents, with the members of every DSD set at once:
+        List<String> roleNames = new ArrayList<>(rls.size());
+        for (UserRole actRole : rls)
+        {
+            roleNames.add(actRole.getName());
+        }
+        DsdClosure closure = new DsdClosure(roleNames, dsdSets, new DsdClosure.Source()
+        {
+            @Override
+            public Set<String> getAscendants(String roleName)
             {
-                // is there a match found between active role in session and DSD set members?
-                if (map.contains(actRole.getName()))
-                {
-                    // Yes, we found a match, increment the count.
-                    matchCount++;
-
-                    // Does the match count exceed the cardinality allowed for this particular DSD set?
-                    if (matchCount >= dsd.getCardinality() - 1)
-                    {
-                        // Yes, the target role violates DSD cardinality rule.
-                        String error = "validateDSD failed for role [" + role.getName() + "] DSD Set Name:" + dsd.getName() + " Cardinality:" + dsd.getCardinality();
-                        throw new SecurityException(GlobalErrIds.DSD_VALIDATION_FAILED, error);
-                    }
-                }
-                else // Check the parents of activated role for DSD match:
-                {
-                    // Now pull the activated role's list of parents.
-                    Set<String> parentSet = RoleUtil.getInstance().getAscendants(actRole.getName(), session.getContextId());
-
-                    // Iterate over the list of parent roles:
-                    for (String parentRole : parentSet)
-                    {
-                        if (map.contains(parentRole)) // is there match between parent and DSD member?
-                        {
-                            matchCount++;
-                            if (matchCount >= dsd.getCardinality() - 1) // Does the counter exceed max per cardinality on this DSD set?
-                            {
-                                String error = "validateDSD failed for role [" + role.getName() + "] parent role [" + parentRole + "] DSD Set Name:" + dsd.getName() + " Cardinality:" + dsd.getCardinality();
-                                throw new SecurityException(GlobalErrIds.DSD_VALIDATION_FAILED, error);
-                            }
-                            // Breaking out of the loop here means the DSD algorithm will only match one
-                            // role per parent of active role candidate.
-                            break;
-                        }
-                    }
-                }
+                return RoleUtil.getInstance().getAscendants(roleName, contextId);
             }
+        });
+
+        // Does the match count of a DSD set exceed the cardinality allowed for it?
+        SDSet dsd = closure.getViolation();
+        if (dsd != null)
+        {
+            // Yes, the target role violates DSD cardinality rule.
+            String error = "validateDSD failed for role [" + role.getName() + "] DSD Set Name:" + dsd.getName()
+                + " Cardinality:" + dsd.getCardinality();
+            throw new SecurityException(GlobalErrIds.DSD_VALIDATION_FAILED, error);
         }
     }
 
@@ -46,6 +46,7 @@ import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.RemoveException;
 import org.apache.directory.fortress.core.UpdateException;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
+import org.apache.directory.fortress.core.ldap.PagedSearch;
 import org.apache.directory.fortress.core.model.ObjectFactory;
 import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.model.SDSet;
@@ -423,6 +424,59 @@ final class SdDAO extends LdapDataProvider
     }
 
 
+    /**
+     * Read every static SDSet of a tenant, a page at a time, so that none are left out by the server's size limit.  A
+     * server that doesn't support paging returns the sets up to its size limit, that is a failure rather than the sets
+     * read.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of the SDSets.
+     * @throws FinderException in the event of ldap search error, or if the server returned only some of the sets.
+     */
+    List<SDSet> getSsdSets( String contextId ) throws FinderException
+    {
+        List<SDSet> sdList = new ArrayList<>();
+        final String ssdRoot = getSdRoot( contextId );
+        final String filter = GlobalIds.FILTER_PREFIX + SSD_OBJECT_CLASS_NM + ")(" + SD_SET_NM + "=*))";
+        LdapConnection ld = null;
+
+        try
+        {
+            ld = getAdminConnection();
+            final LdapConnection connection = ld;
+            PagedSearch searchResults = new PagedSearch( new PagedSearch.Pages()
+            {
+                @Override
+                public SearchCursor search( byte[] cookie ) throws LdapException
+                {
+                    return searchPage( connection, ssdRoot, SearchScope.SUBTREE, filter, SD_SET_ATRS, cookie );
+                }
+            } );
+
+            long sequence = 0;
+            while ( searchResults.next() )
+            {
+                sdList.add( unloadLdapEntry( searchResults.getEntry(), sequence++ ) );
+            }
+        }
+        catch ( LdapException e )
+        {
+            String error = "getSsdSets filter [" + filter + "] caught LdapException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.SSD_SEARCH_FAILED, error, e );
+        }
+        catch ( CursorException e )
+        {
+            String error = "getSsdSets filter [" + filter + "] caught CursorException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.SSD_SEARCH_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+        return sdList;
+    }
+
+
     /**
      * @param role
      * @return
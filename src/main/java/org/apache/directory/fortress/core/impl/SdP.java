@@ -73,7 +73,9 @@ final class SdP
     SDSet add( SDSet entity ) throws SecurityException
     {
         validate( entity );
-        return sdDao.create( entity );
+        SDSet sdSet = sdDao.create( entity );
+        SsdIndex.getInstance().putSsdSet( entity );
+        return sdSet;
     }
 
 
@@ -90,7 +92,9 @@ final class SdP
     SDSet update( SDSet entity ) throws SecurityException
     {
         validate( entity );
-        return sdDao.update( entity );
+        SDSet sdSet = sdDao.update( entity );
+        SsdIndex.getInstance().putSsdSet( entity );
+        return sdSet;
     }
 
 
@@ -105,7 +109,9 @@ final class SdP
      */
     SDSet delete( SDSet entity ) throws SecurityException
     {
-        return sdDao.remove( entity );
+        SDSet sdSet = sdDao.remove( entity );
+        SsdIndex.getInstance().deleteSsdSet( entity );
+        return sdSet;
     }
 
 
@@ -144,6 +150,20 @@ final class SdP
     }
 
 
+    /**
+     * Return every STATIC SDSet of a tenant.  Unlike {@link #search(SDSet)} the sets are read a page at a time, so
+     * none are left out by the server's size limit.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of SDSet entities found.
+     * @throws SecurityException in the event of DAO search error, or if the server returned only some of the sets.
+     */
+    List<SDSet> getSsdSets( String contextId ) throws SecurityException
+    {
+        return sdDao.getSsdSets( contextId );
+    }
+
+
     /**
      * Will search using a single RBAC Role name either STATIC or DYNAMIC SDSet depending on which type is passed.
      * The role entity contains full RBAC Role name associated with SDSet node in directory.
@@ -0,0 +1,557 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.cache.CacheException;
+import org.apache.directory.fortress.core.util.cache.CacheLoader;
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.directory.fortress.core.util.cache.LoadingCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Compiled index of the Static Separation of Duty sets, used by {@link SDUtil} to validate SSD constraints when a role
+ * is assigned without comparing every authorized role of the user with every member of every SSD set.  Role names and
+ * SSD sets are interned to integer ids, each role maps to a {@link BitSet} of the sets it belongs to and each set to a
+ * BitSet of its member roles, so a check is one intersection and bit count per set that contains the role.
+ * <p>
+ * There is one index per tenant, held in the {@code fortress.ssd.index} cache.  It is read from the directory on first
+ * use, and again once its time to live passes, and in between is kept current by the {@link SdP} methods that add,
+ * update and delete SSD sets, i.e. by createSsdSet, addSsdRoleMember, deleteSsdRoleMember and the like.  Changes
+ * made by other processes become visible when the index is next read from the directory, as with the
+ * {@code fortress.ssd} cache it replaces.  If the index cannot be read the caller falls back to that cache.
+ * <p>
+ * Enabled by {@code enable.ssd.index=true}.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class SsdIndex
+{
+    private static final String CLS_NM = SsdIndex.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private static final String ENABLE_SSD_INDEX = "enable.ssd.index";
+    private static final String FORTRESS_SSD_INDEX = "fortress.ssd.index";
+    private static final String KEY_PREFIX = "SSD";
+
+    private static volatile SsdIndex sINSTANCE = null;
+
+    private final boolean enabled;
+    private LoadingCache<Index> indexCache;
+    private final SdP sdP = new SdP();
+
+
+    static SsdIndex getInstance()
+    {
+        if ( sINSTANCE == null )
+        {
+            synchronized ( SsdIndex.class )
+            {
+                if ( sINSTANCE == null )
+                {
+                    sINSTANCE = new SsdIndex();
+                }
+            }
+        }
+        return sINSTANCE;
+    }
+
+
+    private SsdIndex()
+    {
+        enabled = Config.getInstance().getBoolean( ENABLE_SSD_INDEX, false );
+        if ( enabled )
+        {
+            indexCache = CacheMgr.getInstance().getLoadingCache( FORTRESS_SSD_INDEX );
+        }
+    }
+
+
+    /**
+     * @return true if the index is configured.
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Validate the SSD constraints of the sets that contain a role, or one of its ascendants, being assigned to a user
+     * or group authorized for a set of roles.
+     *
+     * @param role            contains the name of the role being assigned.
+     * @param authorizedRoles contains the roles the user or group is authorized for, including inherited ones.
+     * @param contextId       maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return false if the index is unavailable and the constraints were not validated.
+     * @throws SecurityException with {@link GlobalErrIds#SSD_VALIDATION_FAILED} if a constraint is violated.
+     */
+    boolean validate( Role role, Set<String> authorizedRoles, String contextId ) throws SecurityException
+    {
+        Index index = getIndex( contextId );
+        if ( index == null )
+        {
+            return false;
+        }
+        Set<String> ascendants = RoleUtil.getInstance().getAscendants( role.getName(), contextId );
+        SDSet ssd = index.getViolation( role.getName(), ascendants, authorizedRoles );
+        if ( ssd != null )
+        {
+            String error = "validateSSD new role [" + role.getName() + "] validates SSD Set Name:" + ssd.getName()
+                + " Cardinality:" + ssd.getCardinality();
+            throw new SecurityException( GlobalErrIds.SSD_VALIDATION_FAILED, error );
+        }
+        return true;
+    }
+
+
+    /**
+     * Record an SSD set that was added or updated.  The members and cardinality are replaced only when the set contains
+     * them, the same way the directory entry is updated.
+     *
+     * @param ssdSet contains the name, optional members and cardinality, and contextId.
+     */
+    void putSsdSet( SDSet ssdSet )
+    {
+        if ( ssdSet.getType() == SDSet.SDType.DYNAMIC )
+        {
+            return;
+        }
+        Index index = getIndex( ssdSet.getContextId() );
+        if ( index != null )
+        {
+            if ( index.put( ssdSet.getName(), ssdSet.getCardinality(), ssdSet.getMembers() ) )
+            {
+                store( ssdSet.getContextId(), index );
+            }
+            else
+            {
+                // the members of a set the index doesn't know about are unknown, read them with the rest:
+                indexCache.clear( getKey( ssdSet.getContextId() ) );
+            }
+        }
+    }
+
+
+    /**
+     * Forget an SSD set that was deleted.
+     *
+     * @param ssdSet contains the name and contextId.
+     */
+    void deleteSsdSet( SDSet ssdSet )
+    {
+        if ( ssdSet.getType() == SDSet.SDType.DYNAMIC )
+        {
+            return;
+        }
+        Index index = getIndex( ssdSet.getContextId() );
+        if ( index != null )
+        {
+            index.delete( ssdSet.getName() );
+            store( ssdSet.getContextId(), index );
+        }
+    }
+
+
+    /**
+     * Return a copy of the tenant's SSD sets for a policy snapshot, reading them from the directory if necessary.  The
+     * member names are returned in upper case.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return the sets, or null if disabled, they could not be read or were primed and haven't been read since.
+     */
+    List<SDSet> getSnapshot( String contextId )
+    {
+        if ( !enabled )
+        {
+            return null;
+        }
+        try
+        {
+            Index index = indexCache.getLoaded( getKey( contextId ), getLoader( contextId ) );
+            return index != null ? index.getSsdSets() : null;
+        }
+        catch ( CacheException ce )
+        {
+            LOG.warn( "getSnapshot context [{}] unavailable, caught CacheException={}", contextId, ce.getMessage() );
+            return null;
+        }
+    }
+
+
+    /**
+     * Store the SSD sets read from a policy snapshot if the tenant's index hasn't been read yet.  It is read from the
+     * directory in the background the first time it is used.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param ssdSets   contains the name, cardinality and members of each set.
+     */
+    void prime( String contextId, List<SDSet> ssdSets )
+    {
+        if ( enabled )
+        {
+            Index index = new Index();
+            for ( SDSet ssd : ssdSets )
+            {
+                index.put( ssd.getName(), ssd.getCardinality(), ssd.getMembers() );
+            }
+            indexCache.prime( getKey( contextId ), index );
+        }
+    }
+
+
+    /**
+     * Return the tenant's index, reading it from the directory if necessary.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return the index, or null if disabled or it could not be read.
+     */
+    private Index getIndex( String contextId )
+    {
+        if ( !enabled )
+        {
+            return null;
+        }
+        try
+        {
+            return indexCache.get( getKey( contextId ), getLoader( contextId ) );
+        }
+        catch ( CacheException ce )
+        {
+            LOG.warn( "getIndex context [{}] unavailable, caught CacheException={}", contextId, ce.getMessage() );
+            return null;
+        }
+    }
+
+
+    private CacheLoader<Index> getLoader( final String contextId )
+    {
+        return new CacheLoader<Index>()
+        {
+            @Override
+            public Index load()
+            {
+                return loadIndex( contextId );
+            }
+        };
+    }
+
+
+    /**
+     * Store an index modified in place, so that a background refresh that read the directory before the modification
+     * is discarded.
+     */
+    private void store( String contextId, Index index )
+    {
+        indexCache.put( getKey( contextId ), index );
+    }
+
+
+    /**
+     * Read the SSD sets of a tenant, a page at a time.  An index missing a set would let its constraint be violated,
+     * so a failure, including a read cut short by the server's size limit, is thrown rather than logged.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return the index.
+     */
+    private Index loadIndex( String contextId )
+    {
+        LOG.info( "loadIndex initializing SSD context [{}]", contextId );
+        Index index = new Index();
+        try
+        {
+            for ( SDSet ssd : sdP.getSsdSets( contextId ) )
+            {
+                index.put( ssd.getName(), ssd.getCardinality(), ssd.getMembers() );
+            }
+        }
+        catch ( SecurityException se )
+        {
+            String error = "loadIndex context [" + contextId + "] caught SecurityException=" + se;
+            throw new CacheException( GlobalErrIds.FT_CACHE_GET_ERR, error, se );
+        }
+        return index;
+    }
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return key to this tenant's cache entry.
+     */
+    private static String getKey( String contextId )
+    {
+        String key = KEY_PREFIX;
+
+        if ( StringUtils.isNotEmpty( contextId ) && !contextId.equalsIgnoreCase( GlobalIds.NULL ) )
+        {
+            key += ":" + contextId;
+        }
+
+        return key;
+    }
+
+
+    private static String upper( String value )
+    {
+        return value == null ? "" : value.toUpperCase();
+    }
+
+
+    /**
+     * The SSD sets of one tenant.  Role and set names are matched case insensitively, as the directory does.  The id of
+     * a deleted set is reused by the next set added, role ids are never released.
+     */
+    static final class Index implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        // role name in upper case to its id:
+        private final Map<String, Integer> roleIds = new HashMap<>();
+        // role id to the ids of the sets it is a member of:
+        private final List<BitSet> roleSets = new ArrayList<>();
+        // set name in upper case to its id:
+        private final Map<String, Integer> setIds = new HashMap<>();
+        // set id to the set, null once deleted:
+        private final List<Entry> sets = new ArrayList<>();
+
+
+        /**
+         * Return the first set violated by assigning a role.
+         *
+         * @param roleName        contains the name of the role being assigned.
+         * @param ascendants      contains the names of the role's ascendants, may be null.
+         * @param authorizedRoles contains the roles already authorized, including inherited ones.
+         * @return SDSet containing the name and cardinality of the set violated, or null if there is none.
+         */
+        synchronized SDSet getViolation( String roleName, Set<String> ascendants, Set<String> authorizedRoles )
+        {
+            BitSet candidates = new BitSet();
+            addSets( candidates, roleName );
+            if ( ascendants != null )
+            {
+                for ( String ascendant : ascendants )
+                {
+                    addSets( candidates, ascendant );
+                }
+            }
+            if ( candidates.isEmpty() || CollectionUtils.isEmpty( authorizedRoles ) )
+            {
+                return null;
+            }
+
+            // roles that aren't members of any set aren't interned and can't count against one:
+            BitSet authorized = new BitSet( roleIds.size() );
+            for ( String authorizedRole : authorizedRoles )
+            {
+                Integer id = roleIds.get( upper( authorizedRole ) );
+                if ( id != null )
+                {
+                    authorized.set( id );
+                }
+            }
+
+            for ( int id = candidates.nextSetBit( 0 ); id >= 0; id = candidates.nextSetBit( id + 1 ) )
+            {
+                Entry entry = sets.get( id );
+                BitSet matched = ( BitSet ) entry.members.clone();
+                matched.and( authorized );
+                int matchCount = matched.cardinality();
+                // does the match count exceed the cardinality allowed for this particular SSD set?
+                if ( matchCount > 0 && matchCount >= entry.cardinality - 1 )
+                {
+                    SDSet ssd = new SDSet();
+                    ssd.setName( entry.name );
+                    ssd.setCardinality( entry.cardinality );
+                    return ssd;
+                }
+            }
+            return null;
+        }
+
+
+        /**
+         * Add or update a set.
+         *
+         * @param name        contains the set name.
+         * @param cardinality contains the cardinality, null to leave it as is, or 2 for a new set.
+         * @param members     contains the member role names, null or empty to leave them as is.
+         * @return false if the set is unknown and has no members, so could not be added.
+         */
+        synchronized boolean put( String name, Integer cardinality, Set<String> members )
+        {
+            Integer id = setIds.get( upper( name ) );
+            Entry entry;
+            if ( id == null )
+            {
+                if ( CollectionUtils.isEmpty( members ) )
+                {
+                    return false;
+                }
+                id = sets.indexOf( null );
+                entry = new Entry();
+                entry.cardinality = 2;
+                if ( id < 0 )
+                {
+                    id = sets.size();
+                    sets.add( entry );
+                }
+                else
+                {
+                    sets.set( id, entry );
+                }
+                setIds.put( upper( name ), id );
+            }
+            else
+            {
+                entry = sets.get( id );
+            }
+            entry.name = name;
+            if ( cardinality != null )
+            {
+                entry.cardinality = cardinality;
+            }
+            if ( CollectionUtils.isNotEmpty( members ) )
+            {
+                clearMembers( id, entry );
+                for ( String member : members )
+                {
+                    int roleId = getRoleId( member );
+                    entry.members.set( roleId );
+                    roleSets.get( roleId ).set( id );
+                }
+            }
+            return true;
+        }
+
+
+        /**
+         * @return a copy of each set, its member names in upper case.
+         */
+        synchronized List<SDSet> getSsdSets()
+        {
+            String[] roleNames = new String[roleSets.size()];
+            for ( Map.Entry<String, Integer> roleId : roleIds.entrySet() )
+            {
+                roleNames[roleId.getValue()] = roleId.getKey();
+            }
+            List<SDSet> ssdSets = new ArrayList<>();
+            for ( Entry entry : sets )
+            {
+                if ( entry != null )
+                {
+                    SDSet ssd = new SDSet();
+                    ssd.setName( entry.name );
+                    ssd.setType( SDSet.SDType.STATIC );
+                    ssd.setCardinality( entry.cardinality );
+                    for ( int roleId = entry.members.nextSetBit( 0 ); roleId >= 0; roleId = entry.members
+                        .nextSetBit( roleId + 1 ) )
+                    {
+                        ssd.addMember( roleNames[roleId] );
+                    }
+                    ssdSets.add( ssd );
+                }
+            }
+            return ssdSets;
+        }
+
+
+        /**
+         * Remove a set.
+         *
+         * @param name contains the set name.
+         */
+        synchronized void delete( String name )
+        {
+            Integer id = setIds.remove( upper( name ) );
+            if ( id != null )
+            {
+                clearMembers( id, sets.get( id ) );
+                sets.set( id, null );
+            }
+        }
+
+
+        private void addSets( BitSet candidates, String roleName )
+        {
+            Integer id = roleIds.get( upper( roleName ) );
+            if ( id != null )
+            {
+                candidates.or( roleSets.get( id ) );
+            }
+        }
+
+
+        private void clearMembers( int id, Entry entry )
+        {
+            for ( int roleId = entry.members.nextSetBit( 0 ); roleId >= 0; roleId = entry.members
+                .nextSetBit( roleId + 1 ) )
+            {
+                roleSets.get( roleId ).clear( id );
+            }
+            entry.members.clear();
+        }
+
+
+        private int getRoleId( String roleName )
+        {
+            Integer id = roleIds.get( upper( roleName ) );
+            if ( id == null )
+            {
+                id = roleSets.size();
+                roleSets.add( new BitSet() );
+                roleIds.put( upper( roleName ), id );
+            }
+            return id;
+        }
+    }
+
+
+    /**
+     * An SSD set, its members held as role ids.
+     */
+    private static final class Entry implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private String name;
+        private int cardinality;
+        private final BitSet members = new BitSet();
+    }
+}
@@ -21,10 +21,10 @@ package org.apache.directory.fortress.core.impl;
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -51,15 +51,19 @@ import org.apache.directory.api.ldap.model.exception.LdapNoSuchObjectException;
 import org.apache.directory.api.ldap.model.message.BindResponse;
 import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.fortress.core.CreateException;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.PasswordException;
+import org.apache.directory.fortress.core.ProjectionLoadException;
 import org.apache.directory.fortress.core.RemoveException;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.UpdateException;
+import org.apache.directory.fortress.core.ldap.FilterTemplate;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
+import org.apache.directory.fortress.core.ldap.WriteBatch;
 import org.apache.directory.fortress.core.model.Address;
 import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.model.ConstraintUtil;
@@ -72,6 +76,8 @@ import org.apache.directory.fortress.core.model.RoleConstraint;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserLoader;
+import org.apache.directory.fortress.core.model.UserProjection;
 import org.apache.directory.fortress.core.model.UserRole;
 import org.apache.directory.fortress.core.model.Warning;
 import org.apache.directory.fortress.core.util.Config;
@@ -149,7 +155,7 @@ import org.slf4j.LoggerFactory;
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  * @created August 30, 2009
  */
-final class UserDAO extends LdapDataProvider
+final class UserDAO extends LdapDataProvider implements UserLoader
 {
     /*
       *  *************************************************************************
@@ -188,13 +194,57 @@ final class UserDAO extends LdapDataProvider
     private static final String OPENLDAP_ACCOUNT_LOCKED_TIME = "pwdAccountLockedTime";
     private static final String LOCK_VALUE = "000001010000Z";
     private static final String[] USERID = { SchemaConstants.UID_AT };
+
+    // Search filters, {0} is the user object class when it comes from config:
+    private static final FilterTemplate UID_PREFIX_FILTER = FilterTemplate.compile( GlobalIds.FILTER_PREFIX + "{0})("
+        + SchemaConstants.UID_AT + "={1}*))" );
+    private static final FilterTemplate IID_FILTER = FilterTemplate.compile( GlobalIds.FILTER_PREFIX + "{0})("
+        + GlobalIds.FT_IID + "={1}))" );
+    private static final FilterTemplate ALL_USERS_FILTER = FilterTemplate.compile( "(objectclass={0})" );
+    private static final FilterTemplate ROLE_ASSIGN_FILTER = FilterTemplate.compile( GlobalIds.FILTER_PREFIX
+        + USERS_AUX_OBJECT_CLASS_NAME + ")(" + GlobalIds.USER_ROLE_ASSIGN + "={0}))" );
+    private static final FilterTemplate ROLE_ASSIGN_CLAUSE = FilterTemplate.compile( "(" + GlobalIds.USER_ROLE_ASSIGN
+        + "={0})" );
     private static final String[] ROLES = { GlobalIds.USER_ROLE_ASSIGN };
     private static final String[] USERID_ATRS = { SchemaConstants.UID_AT };
+    private static final String[] USERID_ROLES_ATRS = { SchemaConstants.UID_AT, GlobalIds.USER_ROLE_ASSIGN };
+    private static final FilterTemplate UID_CLAUSE = FilterTemplate.compile( "(" + SchemaConstants.UID_AT + "={0})" );
+    // userIds matched per search by getUsers:
+    private static final int UID_CHUNK_SIZE = 100;
     // These will be loaded in static initializer that follows:
     private static String[] authnAtrs = null;
     private static String[] defaultAtrs = null;
     private static final String[] ROLE_ATR = { GlobalIds.USER_ROLE_DATA };
     private static final String[] AROLE_ATR = { GlobalIds.USER_ADMINROLE_DATA };
+    // Attributes always returned when the caller passes a projection, see UserProjection:
+    private static final String[] CORE_ATRS =
+        {
+            GlobalIds.FT_IID,
+            SchemaConstants.UID_AT,
+            SchemaConstants.DESCRIPTION_AT,
+            SchemaConstants.OU_AT,
+            SchemaConstants.CN_AT,
+            SchemaConstants.SN_AT,
+            GlobalIds.CONSTRAINT,
+            EMPLOYEE_TYPE,
+            SchemaConstants.TITLE_AT,
+            SYSTEM_USER };
+    private static final String[] ROLES_ATRS = { GlobalIds.USER_ROLE_DATA, GlobalIds.USER_ROLE_ASSIGN };
+    private static final String[] ADMIN_ROLES_ATRS = { GlobalIds.USER_ADMINROLE_DATA, GlobalIds.USER_ADMINROLE_ASSIGN };
+    private static final String[] ADDRESS_ATRS =
+        {
+            SchemaConstants.POSTAL_ADDRESS_AT,
+            SchemaConstants.L_AT,
+            SchemaConstants.POSTALCODE_AT,
+            SchemaConstants.POSTOFFICEBOX_AT,
+            SchemaConstants.ST_AT,
+            SchemaConstants.PHYSICAL_DELIVERY_OFFICE_NAME_AT,
+            DEPARTMENT_NUMBER,
+            ROOM_NUMBER };
+    private static final String[] CONTACTS_ATRS = { SchemaConstants.TELEPHONE_NUMBER_AT, MOBILE, SchemaConstants.MAIL_AT };
+    private static final String[] PROPS_ATRS = { GlobalIds.PROPS };
+    private static final String[] PW_POLICY_ATRS = { OPENLDAP_PW_RESET, OPENLDAP_PW_LOCKED_TIME, OPENLDAP_POLICY_SUBENTRY };
+    private static final String[] PHOTO_ATRS = { JPEGPHOTO };
 
     /**
      * Default constructor is public
@@ -593,10 +643,6 @@ final class UserDAO extends LdapDataProvider
      */
     User getUser( User user, boolean isRoles ) throws FinderException
     {
-        User entity = null;
-        LdapConnection ld = null;
-        String userDn = getDn( user.getUserId(), user.getContextId() );
-
         String[] uATTRS;
         // Retrieve role attributes?
 
@@ -612,6 +658,30 @@ final class UserDAO extends LdapDataProvider
             uATTRS = authnAtrs;
         }
 
+        return getUser( user, uATTRS, null );
+    }
+
+
+    /**
+     * Read the user entry retrieving only the attribute groups contained within the projection.  Groups not requested
+     * are loaded on first access through {@link #loadCB(User, Set)}.
+     *
+     * @param user       contains the userId targeted for read.
+     * @param projection contains the attribute groups to retrieve.  If null all attributes are returned.
+     * @return User entity containing the requested attributes.
+     * @throws org.apache.directory.fortress.core.FinderException
+     */
+    User getUser( User user, Set<UserProjection> projection ) throws FinderException
+    {
+        return getUser( user, getProjectionAtrs( projection ), projection );
+    }
+
+
+    private User getUser( User user, String[] uATTRS, Set<UserProjection> projection ) throws FinderException
+    {
+        User entity = null;
+        LdapConnection ld = null;
+        String userDn = getDn( user.getUserId(), user.getContextId() );
         Entry findEntry = null;
 
         try
@@ -638,7 +708,7 @@ final class UserDAO extends LdapDataProvider
         {
             if ( findEntry != null )
             {
-                entity = unloadLdapEntry( findEntry, 0, user.getContextId() );
+                entity = unloadLdapEntry( findEntry, 0, user.getContextId(), projection );
             }
         }
         catch ( LdapInvalidAttributeValueException e )
@@ -746,6 +816,7 @@ final class UserDAO extends LdapDataProvider
     {
         Session session = null;
         LdapConnection ld = null;
+        boolean isBroken = false;
         String userDn = getDn( user.getUserId(), user.getContextId() );
 
         try
@@ -755,6 +826,7 @@ final class UserDAO extends LdapDataProvider
             session.setUserId( user.getUserId() );
             ld = getUserConnection();
             BindResponse bindResponse = bind( ld, userDn, user.getPassword() );
+            AuditSinks.addBind( userDn, bindResponse.getLdapResult().getResultCode().getResultCode() );
             String info;
 
             if ( bindResponse.getLdapResult().getResultCode() != ResultCodeEnum.SUCCESS )
@@ -785,17 +857,27 @@ final class UserDAO extends LdapDataProvider
         }
         catch ( LdapAuthenticationException e )
         {
+            AuditSinks.addBind( userDn, ResultCodeEnum.INVALID_CREDENTIALS.getResultCode() );
             String info = "checkPassword INVALID PASSWORD for userId [" + user.getUserId() + "] exception [" + e + "]";
             throw new PasswordException( GlobalErrIds.USER_PW_INVLD, info );
         }
         catch ( LdapException e )
         {
+            isBroken = true;
             String error = "checkPassword userId [" + user.getUserId() + "] caught LDAPException=" + e.getMessage();
             throw new FinderException( GlobalErrIds.USER_READ_FAILED, error, e );
         }
         finally
         {
-            closeUserConnection( ld );
+            if ( isBroken && ld != null )
+            {
+                // don't return a connection in an unknown state to the authentication pool:
+                invalidateUserConnection( ld );
+            }
+            else
+            {
+                closeUserConnection( ld );
+            }
         }
 
         return session;
@@ -918,6 +1000,21 @@ final class UserDAO extends LdapDataProvider
      * @throws FinderException
      */
     List<User> findUsers( User user ) throws FinderException
+    {
+        return findUsers( user, null );
+    }
+
+
+    /**
+     * Search for users retrieving only the attribute groups contained within the projection.  Groups not requested
+     * are loaded on first access through {@link #loadCB(User, Set)}.
+     *
+     * @param user       contains all or partial userId or full internal userId.
+     * @param projection contains the attribute groups to retrieve.  If null all attributes are returned.
+     * @return List of type User containing the requested attributes.
+     * @throws FinderException
+     */
+    List<User> findUsers( User user, Set<UserProjection> projection ) throws FinderException
     {
         List<User> userList = new ArrayList<>();
         LdapConnection ld = null;
@@ -925,49 +1022,35 @@ final class UserDAO extends LdapDataProvider
 
         try
         {
-            //String filter;
-            StringBuilder filterbuf = new StringBuilder();
+            String filter;
+            String objectClass = Config.getInstance().getProperty( USER_OBJECT_CLASS );
             if ( StringUtils.isNotEmpty( user.getUserId() ) )
             {
                 // place a wild card after the input userId:
                 String searchVal = encodeSafeText( user.getUserId(), GlobalIds.USERID_LEN );
-                filterbuf.append( GlobalIds.FILTER_PREFIX );
-                filterbuf.append( Config.getInstance().getProperty( USER_OBJECT_CLASS ) );
-                filterbuf.append( ")(" );
-                filterbuf.append( SchemaConstants.UID_AT );
-                filterbuf.append( "=" );
-                filterbuf.append( searchVal );
-                filterbuf.append( "*))" );
+                filter = UID_PREFIX_FILTER.render( objectClass, searchVal );
             }
             else if ( StringUtils.isNotEmpty( user.getInternalId() ) )
             {
                 // internalUserId search
                 String searchVal = encodeSafeText( user.getInternalId(), GlobalIds.USERID_LEN );
                 // this is not a wildcard search. Must be exact match.
-                filterbuf.append( GlobalIds.FILTER_PREFIX );
-                filterbuf.append( Config.getInstance().getProperty( USER_OBJECT_CLASS ) );
-                filterbuf.append( ")(" );
-                filterbuf.append( GlobalIds.FT_IID );
-                filterbuf.append( "=" );
-                filterbuf.append( searchVal );
-                filterbuf.append( "))" );
+                filter = IID_FILTER.render( objectClass, searchVal );
             }
             else
             {
                 // Beware - returns ALL users!!:"
-                filterbuf.append( "(objectclass=" );
-                filterbuf.append( Config.getInstance().getProperty( USER_OBJECT_CLASS ) );
-                filterbuf.append( ")" );
+                filter = ALL_USERS_FILTER.render( objectClass );
             }
 
             ld = getAdminConnection();
-            SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), defaultAtrs, false,
-                GlobalIds.BATCH_SIZE );
+            SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filter,
+                getProjectionAtrs( projection ), false, GlobalIds.BATCH_SIZE );
             long sequence = 0;
 
             while ( searchResults.next() )
             {
-                userList.add( unloadLdapEntry( searchResults.getEntry(), sequence++, user.getContextId() ) );
+                userList.add( unloadLdapEntry( searchResults.getEntry(), sequence++, user.getContextId(), projection ) );
             }
         }
         catch ( LdapException e )
@@ -1004,17 +1087,10 @@ final class UserDAO extends LdapDataProvider
         try
         {
             String searchVal = encodeSafeText( user.getUserId(), GlobalIds.USERID_LEN );
-            StringBuilder filterbuf = new StringBuilder();
-            filterbuf.append( GlobalIds.FILTER_PREFIX );
-            filterbuf.append( Config.getInstance().getProperty( USER_OBJECT_CLASS ) );
-            filterbuf.append( ")(" );
-            filterbuf.append( SchemaConstants.UID_AT );
-            filterbuf.append( "=" );
-            filterbuf.append( searchVal );
-            filterbuf.append( "*))" );
+            String filter = UID_PREFIX_FILTER.render( Config.getInstance().getProperty( USER_OBJECT_CLASS ), searchVal );
 
             ld = getAdminConnection();
-            SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), USERID,
+            SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filter, USERID,
                 false, limit );
 
             while ( searchResults.next() )
@@ -1059,35 +1135,25 @@ final class UserDAO extends LdapDataProvider
             StringBuilder filterbuf = new StringBuilder();
             filterbuf.append( GlobalIds.FILTER_PREFIX );
             filterbuf.append( USERS_AUX_OBJECT_CLASS_NAME );
-            filterbuf.append( ")(" );
+            filterbuf.append( ")" );
 
             Set<String> roles = RoleUtil.getInstance().getDescendants( role.getName(), role.getContextId() );
 
             if ( CollectionUtils.isNotEmpty( roles ) )
             {
-                filterbuf.append( "|(" );
-                filterbuf.append( GlobalIds.USER_ROLE_ASSIGN );
-                filterbuf.append( "=" );
-                filterbuf.append( roleVal );
-                filterbuf.append( ")" );
+                filterbuf.append( "(|" );
+                ROLE_ASSIGN_CLAUSE.appendTo( filterbuf, roleVal );
 
                 for ( String uRole : roles )
                 {
-                    filterbuf.append( "(" );
-                    filterbuf.append( GlobalIds.USER_ROLE_ASSIGN );
-                    filterbuf.append( "=" );
-                    filterbuf.append( uRole );
-                    filterbuf.append( ")" );
+                    ROLE_ASSIGN_CLAUSE.appendTo( filterbuf, uRole );
                 }
 
                 filterbuf.append( ")" );
             }
             else
             {
-                filterbuf.append( GlobalIds.USER_ROLE_ASSIGN );
-                filterbuf.append( "=" );
-                filterbuf.append( roleVal );
-                filterbuf.append( ")" );
+                ROLE_ASSIGN_CLAUSE.appendTo( filterbuf, roleVal );
             }
 
             filterbuf.append( ")" );
@@ -1136,17 +1202,10 @@ final class UserDAO extends LdapDataProvider
         try
         {
             String roleVal = encodeSafeText( role.getName(), GlobalIds.USERID_LEN );
-            StringBuilder filterbuf = new StringBuilder();
-            filterbuf.append( GlobalIds.FILTER_PREFIX );
-            filterbuf.append( USERS_AUX_OBJECT_CLASS_NAME );
-            filterbuf.append( ")(" );
-            filterbuf.append( GlobalIds.USER_ROLE_ASSIGN );
-            filterbuf.append( "=" );
-            filterbuf.append( roleVal );
-            filterbuf.append( "))" );
+            String filter = ROLE_ASSIGN_FILTER.render( roleVal );
 
             ld = getAdminConnection();
-            SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), defaultAtrs, false,
+            SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filter, defaultAtrs, false,
                 GlobalIds.BATCH_SIZE );
             long sequence = 0;
 
@@ -1199,11 +1258,7 @@ final class UserDAO extends LdapDataProvider
                 for ( String roleVal : roles )
                 {
                     String filteredVal = encodeSafeText( roleVal, GlobalIds.USERID_LEN );
-                    filterbuf.append( "(" );
-                    filterbuf.append( GlobalIds.USER_ROLE_ASSIGN );
-                    filterbuf.append( "=" );
-                    filterbuf.append( filteredVal );
-                    filterbuf.append( ")" );
+                    ROLE_ASSIGN_CLAUSE.appendTo( filterbuf, filteredVal );
                 }
             }
             else
@@ -1241,6 +1296,125 @@ final class UserDAO extends LdapDataProvider
     }
 
 
+    /**
+     * Read the RBAC role assignments, 'ftRA', of every user in the tenant, without a size limit.  Used to build
+     * {@link ReviewIndex}.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of type User containing the userId and assigned role names of each user with an assignment.
+     * @throws FinderException
+     */
+    List<User> getRoleAssignments( String contextId ) throws FinderException
+    {
+        List<User> userList = new ArrayList<>();
+        LdapConnection ld = null;
+        String userRoot = getRootDn( contextId, GlobalIds.USER_ROOT );
+
+        try
+        {
+            ld = getAdminConnection();
+            SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, ROLE_ASSIGN_FILTER.render( "*" ),
+                USERID_ROLES_ATRS, false );
+
+            while ( searchResults.next() )
+            {
+                Entry entry = searchResults.getEntry();
+                User user = new ObjectFactory().createUser();
+                user.setUserId( getAttribute( entry, SchemaConstants.UID_AT ) );
+                List<String> roles = getAttributes( entry, GlobalIds.USER_ROLE_ASSIGN );
+
+                if ( roles != null )
+                {
+                    for ( String role : roles )
+                    {
+                        user.setRoleName( role );
+                    }
+                }
+
+                userList.add( user );
+            }
+        }
+        catch ( LdapException e )
+        {
+            String warning = "getRoleAssignments caught LDAPException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.URLE_SEARCH_FAILED, warning, e );
+        }
+        catch ( CursorException e )
+        {
+            String warning = "getRoleAssignments caught CursorException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.URLE_SEARCH_FAILED, warning, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+
+        return userList;
+    }
+
+
+    /**
+     * Read the users with the given userIds.  The userIds are matched by equality on 'uid', which the directory
+     * indexes, a chunk at a time.  Users that don't exist are skipped.
+     *
+     * @param userIds   contains the userIds of the users to read.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of type User.
+     * @throws FinderException
+     */
+    List<User> getUsers( Set<String> userIds, String contextId ) throws FinderException
+    {
+        List<User> userList = new ArrayList<>();
+        LdapConnection ld = null;
+        String userRoot = getRootDn( contextId, GlobalIds.USER_ROOT );
+
+        try
+        {
+            List<String> ids = new ArrayList<>( userIds );
+            long sequence = 0;
+            ld = getAdminConnection();
+
+            for ( int i = 0; i < ids.size(); i += UID_CHUNK_SIZE )
+            {
+                StringBuilder filterbuf = new StringBuilder();
+                filterbuf.append( GlobalIds.FILTER_PREFIX );
+                filterbuf.append( USERS_AUX_OBJECT_CLASS_NAME );
+                filterbuf.append( ")(|" );
+
+                for ( String userId : ids.subList( i, Math.min( i + UID_CHUNK_SIZE, ids.size() ) ) )
+                {
+                    UID_CLAUSE.appendTo( filterbuf, encodeSafeText( userId, GlobalIds.USERID_LEN ) );
+                }
+
+                filterbuf.append( "))" );
+                SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(),
+                    defaultAtrs, false );
+
+                while ( searchResults.next() )
+                {
+                    userList.add( unloadLdapEntry( searchResults.getEntry(), sequence++, contextId ) );
+                }
+            }
+        }
+        catch ( LdapException e )
+        {
+            String warning = "getUsers caught LDAPException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+        }
+        catch ( CursorException e )
+        {
+            String warning = "getUsers caught CursorException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+
+        return userList;
+    }
+
+
     /**
      * @param role
      * @return
@@ -1611,6 +1785,69 @@ final class UserDAO extends LdapDataProvider
         return userDn;
     }
 
+
+    /**
+     * Add the role assignments to the user entries, sending the modifications together.  Assignments to the same user
+     * are merged into one modification of the entry.
+     *
+     * @param uRoles contains the userIds and role names targeted for assignment.
+     * @return the outcome of each assignment in the order given, null if it succeeded.
+     * @throws UpdateException in the event of a system error.
+     */
+    List<SecurityException> assign( List<UserRole> uRoles ) throws UpdateException
+    {
+        List<SecurityException> outcomes = new ArrayList<>( uRoles.size() );
+        LdapConnection ld = null;
+
+        try
+        {
+            WriteBatch batch = new WriteBatch();
+            for ( UserRole uRole : uRoles )
+            {
+                List<Modification> mods = new ArrayList<Modification>();
+                mods.add( new DefaultModification( ModificationOperation.ADD_ATTRIBUTE, GlobalIds.USER_ROLE_DATA,
+                    uRole.getRawData() ) );
+                mods.add( new DefaultModification( ModificationOperation.ADD_ATTRIBUTE, GlobalIds.USER_ROLE_ASSIGN,
+                    uRole.getName() ) );
+                batch.modify( new Dn( getDn( uRole.getUserId(), uRole.getContextId() ) ), mods, uRole );
+            }
+
+            ld = getAdminConnection();
+            List<WriteBatch.Result> results = writeGrouped( ld, batch );
+            for ( int i = 0; i < uRoles.size(); i++ )
+            {
+                WriteBatch.Result result = results.get( i );
+                UserRole uRole = uRoles.get( i );
+                String warning = "assign userId [" + uRole.getUserId() + "] name [" + uRole.getName() + "] ";
+                if ( result.isSuccess() )
+                {
+                    outcomes.add( null );
+                }
+                else if ( result.getResponse() != null && result.getResponse().getLdapResult().getResultCode() ==
+                    ResultCodeEnum.ATTRIBUTE_OR_VALUE_EXISTS )
+                {
+                    outcomes.add( new FinderException( GlobalErrIds.URLE_ASSIGN_EXIST, warning
+                        + "assignment already exists." ) );
+                }
+                else
+                {
+                    outcomes.add( new UpdateException( GlobalErrIds.URLE_ASSIGN_FAILED, warning + "failed " + result ) );
+                }
+            }
+        }
+        catch ( LdapException e )
+        {
+            String warning = "assign caught LDAPException=" + e.getMessage();
+            throw new UpdateException( GlobalErrIds.URLE_ASSIGN_FAILED, warning, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+
+        return outcomes;
+    }
+
     /**
      * @param uRole
      * @param roleConstraint
@@ -1903,6 +2140,19 @@ final class UserDAO extends LdapDataProvider
      */
     private User unloadLdapEntry( Entry entry, long sequence, String contextId )
         throws LdapInvalidAttributeValueException
+    {
+        return unloadLdapEntry( entry, sequence, contextId, null );
+    }
+
+
+    /**
+     * @param entry
+     * @param projection contains the attribute groups that were retrieved.  If null all attributes were retrieved.
+     * @return
+     * @throws LdapInvalidAttributeValueException
+     */
+    private User unloadLdapEntry( Entry entry, long sequence, String contextId, Set<UserProjection> projection )
+        throws LdapInvalidAttributeValueException
     {
         User entity = new ObjectFactory().createUser();
         entity.setSequenceId( sequence );
@@ -1917,12 +2167,6 @@ final class UserDAO extends LdapDataProvider
         entity.setTitle( getAttribute( entry, SchemaConstants.TITLE_AT ) );
         entity.setEmployeeType( getAttribute( entry, EMPLOYEE_TYPE ) );
         unloadTemporal( entry, entity );
-        entity.setRoles( unloadUserRoles( entry, entity.getUserId(), contextId ) );
-        entity.setAdminRoles( unloadUserAdminRoles( entry, entity.getUserId(), contextId ) );
-        entity.setAddress( unloadAddress( entry ) );
-        entity.setPhones( getAttributes( entry, SchemaConstants.TELEPHONE_NUMBER_AT ) );
-        entity.setMobiles( getAttributes( entry, MOBILE ) );
-        entity.setEmails( getAttributes( entry, SchemaConstants.MAIL_AT ) );
         String szBoolean = getAttribute( entry, SYSTEM_USER );
         if ( szBoolean != null )
         {
@@ -1938,32 +2182,207 @@ final class UserDAO extends LdapDataProvider
                 entity.setGecos( getAttribute( entry, GECOS ) );
         */
 
-        entity.addProperties( PropUtil.getProperties( getAttributes( entry, GlobalIds.PROPS ) ) );
+        Set<UserProjection> groups = projection == null ? EnumSet.allOf( UserProjection.class ) : projection;
 
-        if ( Config.getInstance().isOpenldap() )
+        for ( UserProjection group : groups )
         {
-            szBoolean = getAttribute( entry, OPENLDAP_PW_RESET );
-            if ( szBoolean != null && szBoolean.equalsIgnoreCase( "true" ) )
-            {
-                entity.setReset( true );
-            }
-            String szPolicy = getAttribute( entry, OPENLDAP_POLICY_SUBENTRY );
-            if ( StringUtils.isNotEmpty( szPolicy ) )
+            unloadGroup( entry, entity, group, contextId );
+        }
+
+        if ( projection != null )
+        {
+            EnumSet<UserProjection> deferred = EnumSet.allOf( UserProjection.class );
+            deferred.removeAll( projection );
+            // the callback needs the tenant to locate the entry:
+            entity.setContextId( contextId );
+            entity.defer( deferred, this );
+        }
+
+        return entity;
+    }
+
+
+    /**
+     * Unload the attributes belonging to a single {@link UserProjection} group from the ldap entry onto the User.
+     *
+     * @param entry     contains the ldap entry retrieved from the directory.
+     * @param entity    the User entity to load.
+     * @param group     attribute group to unload.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @throws LdapInvalidAttributeValueException
+     */
+    private void unloadGroup( Entry entry, User entity, UserProjection group, String contextId )
+        throws LdapInvalidAttributeValueException
+    {
+        switch ( group )
+        {
+            case ROLES:
+                entity.setRoles( unloadUserRoles( entry, entity.getUserId(), contextId ) );
+                break;
+
+            case ADMIN_ROLES:
+                entity.setAdminRoles( unloadUserAdminRoles( entry, entity.getUserId(), contextId ) );
+                break;
+
+            case ADDRESS:
+                entity.setAddress( unloadAddress( entry ) );
+                break;
+
+            case CONTACTS:
+                entity.setPhones( getAttributes( entry, SchemaConstants.TELEPHONE_NUMBER_AT ) );
+                entity.setMobiles( getAttributes( entry, MOBILE ) );
+                entity.setEmails( getAttributes( entry, SchemaConstants.MAIL_AT ) );
+                break;
+
+            case PROPERTIES:
+                entity.addProperties( PropUtil.getProperties( getAttributes( entry, GlobalIds.PROPS ) ) );
+                break;
+
+            case PASSWORD_POLICY:
+                if ( Config.getInstance().isOpenldap() )
+                {
+                    String szBoolean = getAttribute( entry, OPENLDAP_PW_RESET );
+                    if ( szBoolean != null && szBoolean.equalsIgnoreCase( "true" ) )
+                    {
+                        entity.setReset( true );
+                    }
+                    String szPolicy = getAttribute( entry, OPENLDAP_POLICY_SUBENTRY );
+                    if ( StringUtils.isNotEmpty( szPolicy ) )
+                    {
+                        entity.setPwPolicy( getRdn( szPolicy ) );
+                    }
+
+                    szBoolean = getAttribute( entry, OPENLDAP_PW_LOCKED_TIME );
+
+                    if ( szBoolean != null && szBoolean.equals( LOCK_VALUE ) )
+                    {
+                        entity.setLocked( true );
+                    }
+                }
+                break;
+
+            case PHOTO:
+                entity.setJpegPhoto( getPhoto( entry, JPEGPHOTO ) );
+                break;
+        }
+    }
+
+
+    /**
+     * Callback from {@link User} to load attribute groups that were excluded from the original read.  Failures are
+     * thrown as {@link ProjectionLoadException} as the User accessors cannot throw checked exceptions.
+     *
+     * @param user       contains the userId and contextId of the entity to load.
+     * @param projection contains the attribute groups to load.
+     * @throws ProjectionLoadException if the user could not be read.
+     */
+    @Override
+    public void loadCB( User user, Set<UserProjection> projection )
+    {
+        String[] atrs = getGroupAtrs( projection );
+
+        if ( atrs.length == 0 )
+        {
+            // e.g. the password policy on a server other than OpenLDAP, whose attributes aren't read, an empty list
+            // would return them all:
+            return;
+        }
+
+        LdapConnection ld = null;
+        String userDn = getDn( user.getUserId(), user.getContextId() );
+
+        try
+        {
+            ld = getAdminConnection();
+            Entry findEntry = read( ld, userDn, atrs );
+
+            if ( findEntry != null )
             {
-                entity.setPwPolicy( getRdn( szPolicy ) );
+                for ( UserProjection group : projection )
+                {
+                    unloadGroup( findEntry, user, group, user.getContextId() );
+                }
             }
+        }
+        catch ( LdapException e )
+        {
+            String error = "loadCB userId [" + user.getUserId() + "] projection " + projection
+                + " caught LDAPException=" + e.getMessage();
+            throw new ProjectionLoadException( error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+    }
+
+
+    /**
+     * Return the ldap attributes to request for the given projection.
+     *
+     * @param projection contains the attribute groups to retrieve.  If null all attributes are returned.
+     * @return array of ldap attribute names.
+     */
+    private String[] getProjectionAtrs( Set<UserProjection> projection )
+    {
+        if ( projection == null )
+        {
+            return defaultAtrs;
+        }
+
+        List<String> atrs = new ArrayList<>( Arrays.asList( CORE_ATRS ) );
+        atrs.addAll( Arrays.asList( getGroupAtrs( projection ) ) );
+
+        return atrs.toArray( new String[atrs.size()] );
+    }
 
-            szBoolean = getAttribute( entry, OPENLDAP_PW_LOCKED_TIME );
 
-            if ( szBoolean != null && szBoolean.equals( LOCK_VALUE ) )
+    /**
+     * @param projection contains the attribute groups.
+     * @return array of the ldap attribute names mapped to the groups, excluding the core attributes.
+     */
+    private String[] getGroupAtrs( Set<UserProjection> projection )
+    {
+        List<String> atrs = new ArrayList<>();
+
+        for ( UserProjection group : projection )
+        {
+            switch ( group )
             {
-                entity.setLocked( true );
+                case ROLES:
+                    atrs.addAll( Arrays.asList( ROLES_ATRS ) );
+                    break;
+
+                case ADMIN_ROLES:
+                    atrs.addAll( Arrays.asList( ADMIN_ROLES_ATRS ) );
+                    break;
+
+                case ADDRESS:
+                    atrs.addAll( Arrays.asList( ADDRESS_ATRS ) );
+                    break;
+
+                case CONTACTS:
+                    atrs.addAll( Arrays.asList( CONTACTS_ATRS ) );
+                    break;
+
+                case PROPERTIES:
+                    atrs.addAll( Arrays.asList( PROPS_ATRS ) );
+                    break;
+
+                case PASSWORD_POLICY:
+                    if ( Config.getInstance().isOpenldap() )
+                    {
+                        atrs.addAll( Arrays.asList( PW_POLICY_ATRS ) );
+                    }
+                    break;
+
+                case PHOTO:
+                    atrs.addAll( Arrays.asList( PHOTO_ATRS ) );
+                    break;
             }
         }
 
-        entity.setJpegPhoto( getPhoto( entry, JPEGPHOTO ) );
-
-        return entity;
+        return atrs.toArray( new String[atrs.size()] );
     }
 
 
@@ -2334,7 +2753,7 @@ final class UserDAO extends LdapDataProvider
      * @param contextId
      * @return
      */
-    private String getDn( String userId, String contextId )
+    String getDn( String userId, String contextId )
     {
         return SchemaConstants.UID_AT + "=" + userId + "," + getRootDn( contextId, GlobalIds.USER_ROOT );
     }
@@ -2352,35 +2771,8 @@ final class UserDAO extends LdapDataProvider
      */
     private List<UserRole> unloadUserRoles( Entry entry, String userId, String contextId )
     {
-    	Map<String, UserRole> uRoles = new HashMap<String, UserRole>();    	
         List<String> roles = getAttributes( entry, GlobalIds.USER_ROLE_DATA );
-
-        if ( roles != null )
-        {
-            long sequence = 0;
-
-            for ( String raw : roles )
-            {
-            	//get role name
-            	String roleName = raw.substring(0, raw.indexOf( Config.getInstance().getDelimiter() )).toUpperCase();
-            	
-            	//if already found, add to user role
-            	if(uRoles.containsKey(roleName)){
-            		UserRole ure = uRoles.get(roleName);
-            		ure.load( raw, contextId, RoleUtil.getInstance() );
-            	}
-            	//else create new
-            	else{            	
-	                UserRole ure = new ObjectFactory().createUserRole();
-	                ure.load( raw, contextId, RoleUtil.getInstance() );
-	                ure.setUserId( userId );
-	                ure.setSequenceId( sequence++ );
-	                uRoles.put(roleName, ure );
-            	}
-            }
-        }
-
-        return new ArrayList<UserRole>(uRoles.values());
+        return UserRoleDecoder.decode( roles, userId, contextId, RoleUtil.getInstance() );
     }
 
 
@@ -26,6 +26,7 @@ import java.util.Set;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.PasswordException;
@@ -42,6 +43,7 @@ import org.apache.directory.fortress.core.model.RoleConstraint;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserProjection;
 import org.apache.directory.fortress.core.model.UserRole;
 import org.apache.directory.fortress.core.util.VUtil;
 
@@ -88,6 +90,21 @@ final class UserP
     }
 
 
+    /**
+     * Takes a User entity that contains full or partial userId OR a full internal userId for search and returns
+     * entities populated with the attribute groups contained in the projection.
+     *
+     * @param user       contains all or partial userId or full internal userId.
+     * @param projection contains the attribute groups to retrieve.
+     * @return List of type User containing matching User entities.  If no records found this will be empty.
+     * @throws SecurityException in the event of DAO search error.
+     */
+    List<User> search( User user, Set<UserProjection> projection ) throws SecurityException
+    {
+        return uDao.findUsers( user, projection );
+    }
+
+
     List<User> search( OrgUnit ou, boolean limitSize ) throws SecurityException
     {
         return uDao.findUsers( ou, limitSize );
@@ -136,6 +153,33 @@ final class UserP
     }
 
 
+    /**
+     * Return the RBAC role assignments of every User in the tenant.  Used to build {@link ReviewIndex}.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of type User containing the userId and assigned role names. If no records found this will be empty.
+     * @throws SecurityException in the event of DAO search error.
+     */
+    List<User> getRoleAssignments( String contextId ) throws SecurityException
+    {
+        return uDao.getRoleAssignments( contextId );
+    }
+
+
+    /**
+     * Return the Users with the given userIds.
+     *
+     * @param userIds   contains the userIds targeted for search.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of fully populated User entities. If no records found this will be empty.
+     * @throws SecurityException in the event of DAO search error.
+     */
+    List<User> getUsers( Set<String> userIds, String contextId ) throws SecurityException
+    {
+        return uDao.getUsers( userIds, contextId );
+    }
+
+
     /**
      * Return a list of Users that are authorized the given Role.
      * In RBAC the word "authorized" implies the hierarchical role relations graph is considered in result set.
@@ -208,6 +252,21 @@ final class UserP
     }
 
 
+    /**
+     * Return a User entity for a given userId populated with the attribute groups contained in the projection.  Groups
+     * not requested are loaded from the directory on first access.
+     *
+     * @param user       contains full userId value.
+     * @param projection contains the attribute groups to retrieve.
+     * @return User entity containing the requested attributes.
+     * @throws SecurityException in the event of User not found or DAO search error.
+     */
+    User read( User user, Set<UserProjection> projection ) throws SecurityException
+    {
+        return uDao.getUser( user, projection );
+    }
+
+
     /**
      * Adds a new User entity to directory.  The User entity input object will be validated to ensure that:
      * userId is present, orgUnitId is valid, roles (optiona) are valid, reasonability checks on all of the
@@ -344,7 +403,9 @@ final class UserP
                 + "] can't be removed due to policy violation, rc=" + GlobalErrIds.USER_PLCY_VIOLATION;
             throw new SecurityException( GlobalErrIds.USER_PLCY_VIOLATION, warning );
         }
-        return uDao.remove( user );
+        String dn = uDao.remove( user );
+        ReviewIndex.getInstance().deleteUser( user );
+        return dn;
     }
 
 
@@ -488,7 +549,21 @@ final class UserP
         throws SecurityException
     {
         // read user entity:
-        User user = read( inUser, true );
+        User user;
+        try
+        {
+            user = read( inUser, true );
+        }
+        catch ( SecurityException se )
+        {
+            if ( se.getErrorId() == GlobalErrIds.USER_NOT_FOUND )
+            {
+                // the audit sink records the authentication of a user that does not exist, as the access log does:
+                AuditSinks.addBind( uDao.getDn( inUser.getUserId(), inUser.getContextId() ),
+                    ResultCodeEnum.NO_SUCH_OBJECT.getResultCode() );
+            }
+            throw se;
+        }
         user.setContextId( inUser.getContextId() );
 
         // authenticate password, check pw policies and validate user temporal constraints:
@@ -623,7 +698,35 @@ final class UserP
     {
         validate( uRole );
         // "assign" custom Fortress role data, i.e. temporal constraints, onto the user node:
-        return uDao.assign( uRole );
+        String dn = uDao.assign( uRole );
+        ReviewIndex.getInstance().assign( uRole );
+        return dn;
+    }
+
+
+    /**
+     * This command assigns roles to users as {@link #assign(UserRole)} does, sending the changes to the user entries
+     * together.  Each assignment succeeds or fails on its own.
+     *
+     * @param uRoles entities contain userId and role name for targeted assignment.
+     * @return the outcome of each assignment in the order given, null if it succeeded.
+     * @throws SecurityException in the event data error in user or role objects or system error.
+     */
+    List<SecurityException> assign( List<UserRole> uRoles ) throws SecurityException
+    {
+        for ( UserRole uRole : uRoles )
+        {
+            validate( uRole );
+        }
+        List<SecurityException> outcomes = uDao.assign( uRoles );
+        for ( int i = 0; i < uRoles.size(); i++ )
+        {
+            if ( outcomes.get( i ) == null )
+            {
+                ReviewIndex.getInstance().assign( uRoles.get( i ) );
+            }
+        }
+        return outcomes;
     }
     
     //TODO: add documentation
@@ -661,7 +764,9 @@ final class UserP
     {
         validate( uRole );
         // "deassign" custom Fortress role data from the user's node:
-        return uDao.deassign( uRole );
+        String dn = uDao.deassign( uRole );
+        ReviewIndex.getInstance().deassign( uRole );
+        return dn;
     }
 
 
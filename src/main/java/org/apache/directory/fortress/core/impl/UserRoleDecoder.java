@@ -0,0 +1,202 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.model.ObjectFactory;
+import org.apache.directory.fortress.core.model.ParentUtil;
+import org.apache.directory.fortress.core.model.RoleConstraint;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+
+
+/**
+ * Decodes the raw 'ftRC' attribute values stored on the 'ftUserAttrs' object class into {@link UserRole} entities.
+ * <p>
+ * Each raw value is scanned once to locate the role name and to detect the {@link RoleConstraint} format.  Role names
+ * are interned per tenant so that the thousands of UserRole entities unloaded by a large search share a single copy of
+ * each name, and its upper case key, rather than allocating new ones per value.  The temporal constraint fields are not
+ * parsed here but are handed to {@link UserRole#setRawConstraint(String, int)} to be decoded on first access.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class UserRoleDecoder
+{
+    /**
+     * Upper bound on the number of role names interned per tenant.  Names seen beyond this are decoded without interning.
+     */
+    private static final int MAX_NAMES = 20000;
+    private static final ConcurrentMap<String, ConcurrentMap<String, RoleName>> NAMES = new ConcurrentHashMap<>();
+
+
+    /**
+     * Private constructor
+     *
+     */
+    private UserRoleDecoder()
+    {
+    }
+
+
+    /**
+     * Convert the raw 'ftRC' values into a collection of {@link UserRole}.  Values that share a role name, i.e. the
+     * temporal constraint value and any {@link RoleConstraint} values, are merged into one entity.
+     *
+     * @param rawValues  contains the 'ftRC' values retrieved from the user entry, may be null.
+     * @param userId     attribute maps to {@link UserRole#userId}.
+     * @param contextId  maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param parentUtil provides method to getParents.
+     * @return List of type {@link UserRole} containing RBAC roles assigned to a particular user.
+     */
+    static List<UserRole> decode( List<String> rawValues, String userId, String contextId, ParentUtil parentUtil )
+    {
+        if ( rawValues == null )
+        {
+            return new ArrayList<>();
+        }
+
+        String delimiter = Config.getInstance().getDelimiter();
+        ConcurrentMap<String, RoleName> names = getNames( contextId );
+        Map<String, UserRole> uRoles = new HashMap<>( rawValues.size() * 2 );
+        List<UserRole> results = new ArrayList<>( rawValues.size() );
+        long sequence = 0;
+
+        for ( String raw : rawValues )
+        {
+            int nameEnd = raw.indexOf( delimiter );
+
+            if ( nameEnd <= 0 )
+            {
+                continue;
+            }
+
+            RoleName roleName = intern( names, raw.substring( 0, nameEnd ) );
+            UserRole ure = uRoles.get( roleName.key );
+
+            if ( ure == null )
+            {
+                ure = new ObjectFactory().createUserRole();
+                ure.setUserId( userId );
+                ure.setSequenceId( sequence++ );
+                uRoles.put( roleName.key, ure );
+                results.add( ure );
+            }
+
+            int typeStart = nameEnd + delimiter.length();
+
+            if ( raw.startsWith( RoleConstraint.RC_TYPE_NAME, typeStart )
+                && raw.startsWith( delimiter, typeStart + RoleConstraint.RC_TYPE_NAME.length() ) )
+            {
+                // role constraints are rare and carry no temporal data, use the existing parser:
+                ure.load( raw, contextId, parentUtil );
+            }
+            else
+            {
+                ure.setName( roleName.name );
+                ure.setParents( parentUtil.getParentsCB( roleName.key, contextId ) );
+                ure.setRawConstraint( raw, typeStart );
+            }
+        }
+
+        return results;
+    }
+
+
+    private static RoleName intern( ConcurrentMap<String, RoleName> names, String name )
+    {
+        RoleName roleName = names.get( name );
+
+        if ( roleName == null )
+        {
+            roleName = new RoleName( name );
+
+            if ( names.size() < MAX_NAMES )
+            {
+                RoleName existing = names.putIfAbsent( name, roleName );
+
+                if ( existing != null )
+                {
+                    roleName = existing;
+                }
+            }
+        }
+
+        return roleName;
+    }
+
+
+    private static ConcurrentMap<String, RoleName> getNames( String contextId )
+    {
+        String key = getKey( contextId );
+        ConcurrentMap<String, RoleName> names = NAMES.get( key );
+
+        if ( names == null )
+        {
+            names = new ConcurrentHashMap<>();
+            ConcurrentMap<String, RoleName> existing = NAMES.putIfAbsent( key, names );
+
+            if ( existing != null )
+            {
+                names = existing;
+            }
+        }
+
+        return names;
+    }
+
+
+    private static String getKey( String contextId )
+    {
+        if ( StringUtils.isEmpty( contextId ) || contextId.equalsIgnoreCase( GlobalIds.NULL ) )
+        {
+            return GlobalIds.NULL;
+        }
+
+        return contextId;
+    }
+
+
+    /**
+     * Interned role name along with its upper case form used for hierarchy lookups and merging.
+     */
+    private static final class RoleName
+    {
+        private final String name;
+        private final String key;
+
+
+        private RoleName( String name )
+        {
+            this.name = name;
+            this.key = name.toUpperCase();
+        }
+    }
+}
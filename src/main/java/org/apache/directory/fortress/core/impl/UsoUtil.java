@@ -23,6 +23,8 @@ package org.apache.directory.fortress.core.impl;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
@@ -33,8 +35,9 @@ import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.Hier;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.Relationship;
-import org.apache.directory.fortress.core.util.cache.Cache;
+import org.apache.directory.fortress.core.util.cache.CacheLoader;
 import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.directory.fortress.core.util.cache.LoadingCache;
 import org.jgrapht.graph.SimpleDirectedGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,7 +65,8 @@ import org.slf4j.LoggerFactory;
  */
 final class UsoUtil
 {
-    private Cache usoCache;
+    private LoadingCache<SimpleDirectedGraph<String, Relationship>> usoCache;
+    private final ConcurrentMap<String, HierClosure> closures = new ConcurrentHashMap<>();
     private OrgUnitP orgUnitP;
     private static final String CLS_NM = UsoUtil.class.getName();
     private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
@@ -94,7 +98,7 @@ final class UsoUtil
         orgUnitP = new OrgUnitP();
     	
         CacheMgr cacheMgr = CacheMgr.getInstance();
-        usoCache = cacheMgr.getCache( "fortress.uso" );
+        usoCache = cacheMgr.getLoadingCache( "fortress.uso" );
     }
 
     /**
@@ -118,6 +122,21 @@ final class UsoUtil
     }
 
 
+    /**
+     * Determine if a User OU equals, or is a descendant of, any of the OUs in an administrative role's scope.  Answered from
+     * a precomputed {@link HierClosure} of the graph rather than by traversal.
+     *
+     * @param name      maps to logical {@link org.apache.directory.fortress.core.model.OrgUnit#name} on 'ftOrgUnit' object class.
+     * @param scope     contains the names of the OUs the administrative role has authority over.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return true if the OU is within scope.
+     */
+    boolean isWithin( String name, Set<String> scope, String contextId )
+    {
+        return getClosure( contextId ).isWithin( name, scope );
+    }
+
+
     /**
      * Recursively traverse the {@link org.apache.directory.fortress.core.model.OrgUnit.Type#USER} graph and return all of the ascendants of a given child ou.
      *
@@ -229,9 +248,14 @@ final class UsoUtil
      * @param op   used to pass the ldap op {@link org.apache.directory.fortress.core.model.Hier.Op#ADD}, {@link org.apache.directory.fortress.core.model.Hier.Op#MOD}, {@link org.apache.directory.fortress.core.model.Hier.Op#REM}
      * @throws org.apache.directory.fortress.core.SecurityException in the event of a system error.
      */
-    void updateHier( String contextId, Relationship relationship, Hier.Op op ) throws SecurityException
+    synchronized void updateHier( String contextId, Relationship relationship, Hier.Op op ) throws SecurityException
     {
-        HierUtil.updateHier( getGraph( contextId ), relationship, op );
+        SimpleDirectedGraph<String, Relationship> graph = getGraph( contextId );
+        HierUtil.updateHier( graph, relationship, op );
+        // store it back so a background refresh that started before this change is discarded:
+        usoCache.put( getKey( contextId ), graph );
+        // the closure is rebuilt on next use:
+        closures.remove( getKey( contextId ) );
     }
 
 
@@ -242,7 +266,7 @@ final class UsoUtil
      * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
      * @return handle to simple digraph containing user ou hierarchies.
      */
-    private synchronized SimpleDirectedGraph<String, Relationship> loadGraph( String contextId )
+    private SimpleDirectedGraph<String, Relationship> loadGraph( String contextId )
     {
         Hier inHier = new Hier( Hier.Type.ROLE );
         inHier.setContextId( contextId );
@@ -265,32 +289,98 @@ final class UsoUtil
         SimpleDirectedGraph<String, Relationship> graph;
         
         graph = HierUtil.buildGraph( hier );
-        usoCache.put( getKey( contextId ), graph );
         
         return graph;
     }
 
 
+    /**
+     * Return a copy of this tenant's user ou hierarchy for a policy snapshot, loading it from ldap if necessary.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return copy of the hierarchy, or null if it was primed and hasn't been reloaded since.
+     */
+    Hier getSnapshot( String contextId )
+    {
+        SimpleDirectedGraph<String, Relationship> graph = usoCache.getLoaded( getKey( contextId ),
+            getLoader( contextId ) );
+        return graph != null ? HierUtil.toHier( contextId, graph ) : null;
+    }
+
+
+    /**
+     * Store a user ou hierarchy read from a policy snapshot if this tenant's hasn't been loaded yet.  It is reloaded
+     * from ldap in the background the first time it is read.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param hier      contains the hierarchy's relationships.
+     */
+    void prime( String contextId, Hier hier )
+    {
+        usoCache.prime( getKey( contextId ), HierUtil.buildGraph( hier ) );
+    }
+
+
     /**
      *
      * @return handle to simple digraph containing user ou hierarchies.
      */
     private SimpleDirectedGraph<String, Relationship> getGraph( String contextId )
     {
-        String key = getKey( contextId );        
-        LOG.debug("Getting graph for key " + contextId);
-         
-        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) usoCache
-                 .get( key );
-             
-        if(graph == null){
-            LOG.debug("Graph was null, creating... " + contextId);
-            return loadGraph( contextId );
+        LOG.debug( "Getting graph for key " + contextId );
+        return usoCache.get( getKey( contextId ), getLoader( contextId ) );
+    }
+
+
+    private CacheLoader<SimpleDirectedGraph<String, Relationship>> getLoader( final String contextId )
+    {
+        return new CacheLoader<SimpleDirectedGraph<String, Relationship>>()
+        {
+            @Override
+            public SimpleDirectedGraph<String, Relationship> load()
+            {
+                return loadGraph( contextId );
+            }
+        };
+    }
+
+
+    /**
+     * Return the closure of this tenant's graph, building a new one if the graph has been reloaded or updated.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return handle to the closure of the user ou hierarchies.
+     */
+    private HierClosure getClosure( String contextId )
+    {
+        SimpleDirectedGraph<String, Relationship> graph = getGraph( contextId );
+        HierClosure closure = closures.get( getKey( contextId ) );
+        if ( closure == null || !closure.isBuiltFrom( graph ) )
+        {
+            closure = loadClosure( contextId, graph );
         }
-        else{
-            LOG.debug("Graph found in cache, returning...");
-            return graph;
+        return closure;
+    }
+
+
+    /**
+     * Build and publish a new closure.  Synchronized with {@link #updateHier} so that a closure built before an update
+     * is never published after it.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param graph     contains the user ou hierarchies.
+     * @return handle to the closure of the user ou hierarchies.
+     */
+    private synchronized HierClosure loadClosure( String contextId, SimpleDirectedGraph<String, Relationship> graph )
+    {
+        String key = getKey( contextId );
+        HierClosure closure = closures.get( key );
+        if ( closure == null || !closure.isBuiltFrom( graph ) )
+        {
+            closure = new HierClosure( graph );
+            closures.put( key, closure );
         }
+        return closure;
     }
 
 
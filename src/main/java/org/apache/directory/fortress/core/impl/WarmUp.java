@@ -0,0 +1,468 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.ldap.LdapConnectionProvider;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Initializes this process ahead of its first request: loads the config, including the remote config, creates the
+ * caches and connection pools, opens each pool's minimum of idle connections and loads the role, admin role, user ou
+ * and perm ou hierarchies, the SSD sets, the ou names and the password policy names of a list of tenants.  Otherwise
+ * each of these is initialized by the first request that needs it, which waits on it.  Call {@link #run()} from a
+ * servlet's init, or run {@link #main(String[])} or the CLI's {@code system warmup}.
+ * <p>
+ * The config is loaded first, as everything else reads it, then the caches and connection pools are created.  The pools
+ * are then filled in parallel with priming the caches from the {@link PolicySnapshotFile}, if one is configured, and
+ * the tenants are loaded last, in parallel, so that the values primed are reconciled rather than loaded twice.  Each
+ * phase is timed and a phase that fails is logged and reported, but doesn't stop the others.  The DSD sets aren't
+ * loaded as the {@code fortress.dsd} cache is filled per role, and the SSD sets only with
+ * {@code enable.ssd.index=true}.  Nothing but the config is loaded when the managers use REST.
+ * <p>
+ * The tenants are those in {@code warmup.contexts}, a comma separated list (default HOME), loaded on
+ * {@code warmup.threads} (default 8) threads.  Phases not done within {@code warmup.timeout.seconds} (default 300) of
+ * the start are cancelled.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class WarmUp
+{
+    private static final String CLS_NM = WarmUp.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private static final String CONTEXTS = "warmup.contexts";
+    private static final String THREADS = "warmup.threads";
+    private static final String TIMEOUT_SECONDS = "warmup.timeout.seconds";
+
+
+    /**
+     * The time taken by one phase of the warm-up and its error, if it failed.
+     */
+    public static final class Phase
+    {
+        private final String name;
+        private long millis;
+        private String error;
+        private boolean isDone;
+
+
+        private Phase( String name )
+        {
+            this.name = name;
+        }
+
+
+        /**
+         * Record the outcome of the phase, unless it has been recorded already, i.e. the phase timed out.
+         */
+        private synchronized void done( long millis, String error )
+        {
+            if ( !isDone )
+            {
+                this.millis = millis;
+                this.error = error;
+                isDone = true;
+            }
+        }
+
+
+        /**
+         * @return name of the phase, e.g. pool.admin or role:HOME.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+
+        /**
+         * @return time the phase took in milliseconds.
+         */
+        public synchronized long getMillis()
+        {
+            return millis;
+        }
+
+
+        /**
+         * @return the error that failed the phase, or null if it succeeded.
+         */
+        public synchronized String getError()
+        {
+            return error;
+        }
+
+
+        /**
+         * @return true if the phase succeeded.
+         */
+        public synchronized boolean isSuccess()
+        {
+            return isDone && error == null;
+        }
+
+
+        @Override
+        public synchronized String toString()
+        {
+            return name + " millis [" + millis + "]" + ( error != null ? " failed [" + error + "]" : "" );
+        }
+    }
+
+
+    /**
+     * One phase of the warm-up.
+     */
+    abstract static class Task implements Runnable
+    {
+        private final Phase phase;
+
+
+        Task( String name )
+        {
+            phase = new Phase( name );
+        }
+
+
+        abstract void warm() throws Exception;
+
+
+        Phase getPhase()
+        {
+            return phase;
+        }
+
+
+        @Override
+        public final void run()
+        {
+            long start = System.nanoTime();
+            String error = null;
+            try
+            {
+                warm();
+            }
+            catch ( Exception e )
+            {
+                error = e.toString();
+                LOG.warn( "warmUp phase [{}] caught {}", phase.getName(), error );
+            }
+            phase.done( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ), error );
+            LOG.debug( "warmUp phase [{}] millis [{}]", phase.getName(), phase.getMillis() );
+        }
+    }
+
+
+    private WarmUp()
+    {
+    }
+
+
+    /**
+     * Warm up this process and the tenants in {@code warmup.contexts}.
+     *
+     * @return the phases of the warm-up, in the order they were started, the last one the total.
+     */
+    public static List<Phase> run()
+    {
+        return run( null );
+    }
+
+
+    /**
+     * Warm up this process and a list of tenants.
+     *
+     * @param contextIds maps to sub-trees in DIT, e.g. ou=contextId, dc=example, dc=com, or null for those in
+     *                   {@code warmup.contexts}.
+     * @return the phases of the warm-up, in the order they were started, the last one the total.
+     */
+    public static List<Phase> run( List<String> contextIds )
+    {
+        long start = System.nanoTime();
+        List<Phase> phases = new ArrayList<>();
+        Task config = new Task( "config" )
+        {
+            @Override
+            void warm()
+            {
+                Config.getInstance();
+            }
+        };
+        config.run();
+        phases.add( config.phase );
+        if ( config.phase.isSuccess() )
+        {
+            if ( Config.getInstance().isRestEnabled() )
+            {
+                LOG.info( "warmUp skipped the caches and connection pools, the managers use REST" );
+            }
+            else
+            {
+                warm( contextIds != null ? contextIds : getContextIds(), phases, start );
+            }
+        }
+        Phase total = new Phase( "total" );
+        total.done( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ), null );
+        phases.add( total );
+        LOG.info( "warmUp {}", phases );
+        return phases;
+    }
+
+
+    private static void warm( List<String> contextIds, List<Phase> phases, long start )
+    {
+        Config config = Config.getInstance();
+        long deadline = start + TimeUnit.SECONDS.toNanos( config.getInt( TIMEOUT_SECONDS, 300 ) );
+        ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, config.getInt( THREADS, 8 ) ),
+            new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-warmup-" + count.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+        try
+        {
+            List<Task> tasks = new ArrayList<>();
+            tasks.add( new Task( "cache" )
+            {
+                @Override
+                void warm()
+                {
+                    CacheMgr.getInstance();
+                }
+            } );
+            tasks.add( new Task( "ldap" )
+            {
+                @Override
+                void warm()
+                {
+                    LdapConnectionProvider.getInstance();
+                }
+            } );
+            runAll( executor, tasks, phases, deadline );
+
+            tasks = new ArrayList<>();
+            tasks.add( new Task( "pool.admin" )
+            {
+                @Override
+                void warm() throws Exception
+                {
+                    LdapConnectionProvider.getInstance().fillAdminPool();
+                }
+            } );
+            tasks.add( new Task( "pool.user" )
+            {
+                @Override
+                void warm() throws Exception
+                {
+                    LdapConnectionProvider.getInstance().fillUserPool();
+                }
+            } );
+            tasks.add( new Task( "pool.log" )
+            {
+                @Override
+                void warm() throws Exception
+                {
+                    LdapConnectionProvider.getInstance().fillLogPool();
+                }
+            } );
+            tasks.add( new Task( "snapshot" )
+            {
+                @Override
+                void warm()
+                {
+                    PolicySnapshotFile.getInstance();
+                }
+            } );
+            tasks.add( new Task( "sd" )
+            {
+                @Override
+                void warm()
+                {
+                    SDUtil.getInstance();
+                }
+            } );
+            runAll( executor, tasks, phases, deadline );
+
+            tasks = new ArrayList<>();
+            boolean isSsdIndex = SsdIndex.getInstance().isEnabled();
+            for ( String contextId : contextIds )
+            {
+                for ( PolicySnapshotFile.Section section : PolicySnapshotFile.Section.values() )
+                {
+                    if ( section != PolicySnapshotFile.Section.SSD || isSsdIndex )
+                    {
+                        tasks.add( load( section, contextId ) );
+                    }
+                }
+            }
+            runAll( executor, tasks, phases, deadline );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Run tasks on the executor, waiting until they are done or the deadline passes, when those not done are cancelled.
+     */
+    static void runAll( ExecutorService executor, List<Task> tasks, List<Phase> phases, long deadline )
+    {
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for ( Task task : tasks )
+        {
+            futures.add( executor.submit( task ) );
+            phases.add( task.phase );
+        }
+        for ( int i = 0; i < tasks.size(); i++ )
+        {
+            Future<?> future = futures.get( i );
+            try
+            {
+                future.get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+            }
+            catch ( TimeoutException e )
+            {
+                // recorded first, as a task interrupted by the cancel may then complete:
+                tasks.get( i ).phase.done( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ), "timed out" );
+                future.cancel( true );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                tasks.get( i ).phase.done( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ), "interrupted" );
+                future.cancel( true );
+            }
+            catch ( Exception e )
+            {
+                // an error the task doesn't catch, or a cancellation:
+                tasks.get( i ).phase.done( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ), e.toString() );
+            }
+        }
+    }
+
+
+    /**
+     * Return a task that loads a tenant's section of a policy snapshot into its cache, discarding the copy returned.
+     */
+    private static Task load( final PolicySnapshotFile.Section section, final String contextId )
+    {
+        return new Task( section.name().toLowerCase() + ":" + contextId )
+        {
+            @Override
+            void warm()
+            {
+                switch ( section )
+                {
+                    case ROLE:
+                        RoleUtil.getInstance().getSnapshot( contextId );
+                        break;
+                    case ADMIN_ROLE:
+                        AdminRoleUtil.getSnapshot( contextId );
+                        break;
+                    case USO:
+                        UsoUtil.getInstance().getSnapshot( contextId );
+                        break;
+                    case PSO:
+                        PsoUtil.getInstance().getSnapshot( contextId );
+                        break;
+                    case SSD:
+                        SsdIndex.getInstance().getSnapshot( contextId );
+                        break;
+                    case USER_OUS:
+                        new OrgUnitP().getSnapshot( OrgUnit.Type.USER, contextId );
+                        break;
+                    case PERM_OUS:
+                        new OrgUnitP().getSnapshot( OrgUnit.Type.PERM, contextId );
+                        break;
+                    case POLICIES:
+                        new PolicyP().getSnapshot( contextId );
+                        break;
+                }
+            }
+        };
+    }
+
+
+    private static List<String> getContextIds()
+    {
+        List<String> contextIds = new ArrayList<>();
+        String contexts = Config.getInstance().getProperty( CONTEXTS, GlobalIds.HOME );
+        for ( String contextId : StringUtils.split( contexts, ',' ) )
+        {
+            if ( StringUtils.isNotBlank( contextId ) )
+            {
+                contextIds.add( contextId.trim() );
+            }
+        }
+        return contextIds;
+    }
+
+
+    /**
+     * Warm up this process, logging the time taken by each phase, and exit with 1 if any failed, otherwise 0.
+     *
+     * @param args the tenants to load, or none for those in {@code warmup.contexts}.
+     */
+    public static void main( String[] args )
+    {
+        int status = 0;
+        for ( Phase phase : run( args.length > 0 ? Arrays.asList( args ) : null ) )
+        {
+            LOG.info( "{}", phase );
+            if ( !phase.isSuccess() )
+            {
+                status = 1;
+            }
+        }
+        System.exit( status );
+    }
+}
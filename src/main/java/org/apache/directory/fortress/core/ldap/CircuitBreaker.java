@@ -0,0 +1,326 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Guards the connections to the directory server.  Each ldap operation counts as a call, which fails if the directory
+ * doesn't respond to it, as does a connection that could not be borrowed.  Results returned by the directory, i.e. no
+ * such object, are not failures.  Nor is an operation that failed once its caller's {@link Deadline} had passed
+ * counted, as the caller's time rather than the directory ran out.
+ * <ul>
+ * <li>CLOSED: calls proceed.  If, within a window, at least the minimum number of calls were made and the failure rate
+ * reaches the threshold, the breaker opens.</li>
+ * <li>OPEN: calls fail immediately with {@link CircuitOpenException}, rather than wait on an unresponsive server, until
+ * the open interval has passed.</li>
+ * <li>HALF_OPEN: a single trial connection is borrowed.  The breaker closes once an operation succeeds and opens again
+ * if one fails.  If neither happens within the open interval, another trial connection may be borrowed.</li>
+ * </ul>
+ * Enabled by {@code enable.ldap.circuit.breaker=true}.  {@code ldap.breaker.failure.rate} (percent, default 50),
+ * {@code ldap.breaker.min.calls} (default 20), {@code ldap.breaker.window.millis} (default 10000) and
+ * {@code ldap.breaker.open.millis} (default 5000) tune it.  Obtain it with
+ * {@link LdapConnectionProvider#getCircuitBreaker()} to read its state and transition counts.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class CircuitBreaker
+{
+    private static final String CLS_NM = CircuitBreaker.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    /**
+     * The states of the breaker.
+     */
+    public enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean enabled;
+    private final int failureRate;
+    private final int minCalls;
+    private final long windowMillis;
+    private final long openMillis;
+
+    // written while holding this:
+    private volatile State state = State.CLOSED;
+    private long windowStart;
+    private int calls;
+    private int failures;
+    private long openedAt;
+    private boolean isTrialPending;
+    private long trialAt;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong halfOpened = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+
+    /**
+     * Package private constructor, the breaker is created by {@link LdapConnectionProvider}.
+     *
+     * @param enabled      if false every call proceeds and nothing is counted.
+     * @param failureRate  percentage of failed calls within a window that opens the breaker.
+     * @param minCalls     calls within a window before the failure rate is considered.
+     * @param windowMillis length of the window calls are counted in.
+     * @param openMillis   time the breaker stays open before a trial call is allowed.
+     */
+    CircuitBreaker( boolean enabled, int failureRate, int minCalls, long windowMillis, long openMillis )
+    {
+        this.enabled = enabled;
+        this.failureRate = failureRate;
+        this.minCalls = minCalls;
+        this.windowMillis = windowMillis;
+        this.openMillis = openMillis;
+        this.windowStart = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Called before borrowing a connection.  Calls aren't counted here but by the operations on the connection.
+     *
+     * @param method name of the method borrowing.
+     * @throws CircuitOpenException if the breaker is open, or half open with its trial connection in use.
+     */
+    void acquire( String method )
+    {
+        if ( !enabled || state == State.CLOSED )
+        {
+            return;
+        }
+
+        synchronized ( this )
+        {
+            long now = System.currentTimeMillis();
+            switch ( state )
+            {
+                case CLOSED:
+                    return;
+
+                case OPEN:
+                    if ( now - openedAt >= openMillis )
+                    {
+                        transition( State.HALF_OPEN, now );
+                        startTrial( now );
+                        return;
+                    }
+                    break;
+
+                default:
+                    if ( !isTrialPending || now - trialAt >= openMillis )
+                    {
+                        startTrial( now );
+                        return;
+                    }
+                    break;
+            }
+        }
+
+        rejected.incrementAndGet();
+        throw new CircuitOpenException( method + " directory unavailable, circuit breaker is open" );
+    }
+
+
+    /**
+     * Called when the directory responds to an operation.
+     */
+    void recordSuccess()
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+
+        synchronized ( this )
+        {
+            long now = System.currentTimeMillis();
+            switch ( state )
+            {
+                case CLOSED:
+                    roll( now );
+                    calls++;
+                    break;
+
+                case HALF_OPEN:
+                    transition( State.CLOSED, now );
+                    break;
+
+                default:
+                    break;
+            }
+        }
+    }
+
+
+    /**
+     * Called when a borrow fails or the directory doesn't respond to an operation.
+     */
+    void recordFailure()
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+
+        synchronized ( this )
+        {
+            long now = System.currentTimeMillis();
+            switch ( state )
+            {
+                case CLOSED:
+                    roll( now );
+                    calls++;
+                    failures++;
+                    if ( calls >= minCalls && failures * 100 >= failureRate * calls )
+                    {
+                        transition( State.OPEN, now );
+                    }
+                    break;
+
+                case HALF_OPEN:
+                    transition( State.OPEN, now );
+                    break;
+
+                default:
+                    break;
+            }
+        }
+    }
+
+
+    /**
+     * @return true if the breaker is configured.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * @return the current state.
+     */
+    public State getState()
+    {
+        return state;
+    }
+
+
+    /**
+     * @return number of times the breaker opened.
+     */
+    public long getOpenedCount()
+    {
+        return opened.get();
+    }
+
+
+    /**
+     * @return number of times the breaker allowed a trial call.
+     */
+    public long getHalfOpenedCount()
+    {
+        return halfOpened.get();
+    }
+
+
+    /**
+     * @return number of times the breaker closed after a successful trial call.
+     */
+    public long getClosedCount()
+    {
+        return closed.get();
+    }
+
+
+    /**
+     * @return number of calls failed fast while the breaker was open.
+     */
+    public long getRejectedCount()
+    {
+        return rejected.get();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "CircuitBreaker state=" + getState() + " opened=" + opened.get() + " halfOpened=" + halfOpened.get()
+            + " closed=" + closed.get() + " rejected=" + rejected.get();
+    }
+
+
+    private void startTrial( long now )
+    {
+        isTrialPending = true;
+        trialAt = now;
+    }
+
+
+    /**
+     * Start a new window once the current one has passed.
+     */
+    private void roll( long now )
+    {
+        if ( now - windowStart >= windowMillis )
+        {
+            windowStart = now;
+            calls = 0;
+            failures = 0;
+        }
+    }
+
+
+    private void transition( State next, long now )
+    {
+        LOG.warn( "circuit breaker [{}] -> [{}], window calls [{}] failures [{}]", state, next, calls, failures );
+        state = next;
+        isTrialPending = false;
+        switch ( next )
+        {
+            case OPEN:
+                openedAt = now;
+                opened.incrementAndGet();
+                break;
+
+            case HALF_OPEN:
+                halfOpened.incrementAndGet();
+                break;
+
+            default:
+                windowStart = now;
+                calls = 0;
+                failures = 0;
+                closed.incrementAndGet();
+                break;
+        }
+    }
+}
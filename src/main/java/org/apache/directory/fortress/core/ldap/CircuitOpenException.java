@@ -0,0 +1,48 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import org.apache.directory.fortress.core.BaseRuntimeException;
+import org.apache.directory.fortress.core.GlobalErrIds;
+
+
+/**
+ * This exception extends {@link BaseRuntimeException} and is thrown, without contacting the directory, when a connection
+ * is requested while the {@link CircuitBreaker} is open.  It carries {@link GlobalErrIds#FT_LDAP_CIRCUIT_OPEN} and passes
+ * through the DAOs unchanged so that callers can fail fast or fall back.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CircuitOpenException extends BaseRuntimeException
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+
+
+    /**
+     * Create exception with message.
+     * @param newMsgText contains text related to the exception.
+     */
+    public CircuitOpenException( String newMsgText )
+    {
+        super( GlobalErrIds.FT_LDAP_CIRCUIT_OPEN, newMsgText );
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
+import org.apache.directory.ldap.client.api.LdapConnection;
+
+
+/**
+ * A point in time by which the ldap operations of the current thread must complete.  It is set around a call to any of
+ * the Fortress managers and is honored when a connection is borrowed from the pools, while waiting for the response to
+ * each ldap operation, and while iterating the results of a search:
+ * <pre>
+ * try ( Deadline deadline = Deadline.start( 250, TimeUnit.MILLISECONDS ) )
+ * {
+ *     accessMgr.checkAccess( session, perm );
+ * }
+ * catch ( DeadlineExceededException e )
+ * {
+ *     // e.getErrorId() == GlobalErrIds.FT_LDAP_DEADLINE_EXCEEDED
+ * }
+ * </pre>
+ * Deadlines nest, an inner one never extends the time allowed by an outer one.  Without a deadline the operations wait
+ * for the connection's configured timeout, as before.
+ * <p>
+ * Instances are immutable, and are bound to the thread that started them until closed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class Deadline implements AutoCloseable
+{
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAt;
+    private final Deadline previous;
+
+
+    private Deadline( long expiresAt, Deadline previous )
+    {
+        this.expiresAt = expiresAt;
+        this.previous = previous;
+    }
+
+
+    /**
+     * Set the deadline of the current thread, unless one that expires sooner is already set.
+     *
+     * @param timeout time allowed from now.
+     * @param unit    unit of the timeout.
+     * @return the deadline, to be closed once the call it guards returns.
+     */
+    public static Deadline start( long timeout, TimeUnit unit )
+    {
+        Deadline previous = CURRENT.get();
+        long expiresAt = System.nanoTime() + unit.toNanos( timeout );
+        if ( previous != null && previous.expiresAt - expiresAt < 0 )
+        {
+            expiresAt = previous.expiresAt;
+        }
+        Deadline deadline = new Deadline( expiresAt, previous );
+        CURRENT.set( deadline );
+        return deadline;
+    }
+
+
+    /**
+     * @return the deadline of the current thread, null if none is set.
+     */
+    public static Deadline current()
+    {
+        return CURRENT.get();
+    }
+
+
+    /**
+     * @return milliseconds left, rounded up, or 0 if expired.
+     */
+    public long getRemainingMillis()
+    {
+        long remaining = expiresAt - System.nanoTime();
+        return remaining <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis( remaining + 999999 );
+    }
+
+
+    /**
+     * @return true if the deadline has passed.
+     */
+    public boolean isExpired()
+    {
+        return expiresAt - System.nanoTime() <= 0;
+    }
+
+
+    /**
+     * Restore the deadline that was in effect when this one was started.
+     */
+    @Override
+    public void close()
+    {
+        if ( CURRENT.get() == this )
+        {
+            if ( previous == null )
+            {
+                CURRENT.remove();
+            }
+            else
+            {
+                CURRENT.set( previous );
+            }
+        }
+    }
+
+
+    /**
+     * Return the time an ldap operation about to start may wait for a response.
+     *
+     * @param defaultMillis the connection's configured timeout.
+     * @return the time left before the current deadline, or the default if there is none.
+     * @throws DeadlineExceededException if the current deadline has already passed.
+     */
+    static long getTimeout( long defaultMillis )
+    {
+        Deadline deadline = CURRENT.get();
+        if ( deadline == null )
+        {
+            return defaultMillis;
+        }
+        long remaining = deadline.getRemainingMillis();
+        if ( remaining == 0 )
+        {
+            throw new DeadlineExceededException( "deadline passed before ldap operation started" );
+        }
+        return Math.min( remaining, defaultMillis );
+    }
+
+
+    /**
+     * Limit the time the next ldap operation on a connection may wait for its response to the time left before the
+     * current deadline.  Does nothing if no deadline is set.
+     *
+     * @param connection handle to ldap connection.
+     * @param operation  name of the ldap operation about to start.
+     * @throws DeadlineExceededException if the current deadline has already passed.
+     */
+    static void apply( LdapConnection connection, String operation )
+    {
+        Deadline deadline = CURRENT.get();
+        if ( deadline != null )
+        {
+            long remaining = deadline.getRemainingMillis();
+            if ( remaining == 0 )
+            {
+                throw new DeadlineExceededException( operation + " deadline passed before ldap operation started" );
+            }
+            connection.setTimeOut( Math.min( remaining, LdapConnectionProvider.getTimeout() ) );
+        }
+    }
+
+
+    /**
+     * @return true if the current thread has a deadline and it has passed.
+     */
+    static boolean isPassed()
+    {
+        Deadline deadline = CURRENT.get();
+        return deadline != null && deadline.isExpired();
+    }
+
+
+    /**
+     * Throw if the current deadline has passed.
+     *
+     * @param operation name of the ldap operation about to start.
+     * @throws DeadlineExceededException if the current deadline has already passed.
+     */
+    static void check( String operation )
+    {
+        if ( isPassed() )
+        {
+            throw new DeadlineExceededException( operation + " deadline passed before ldap operation started" );
+        }
+    }
+
+
+    /**
+     * Decide what an ldap operation that failed should throw.
+     *
+     * @param operation name of the ldap operation.
+     * @param cause     the failure.
+     * @return the failure, to be rethrown, unless the current deadline has passed.
+     * @throws DeadlineExceededException if the current deadline has passed, which is taken to be the reason for the
+     *                                   failure.
+     */
+    static <E extends Exception> E failed( String operation, E cause )
+    {
+        if ( isPassed() )
+        {
+            throw new DeadlineExceededException( operation + " deadline exceeded", cause );
+        }
+        return cause;
+    }
+
+
+    /**
+     * Guard the iteration of a search's results with the current deadline, if any.  A cursor that fails once the
+     * deadline has passed throws {@link DeadlineExceededException} instead.
+     *
+     * @param cursor results of the search.
+     * @return the cursor itself if no deadline is set, otherwise a view that enforces it.
+     */
+    static SearchCursor guard( final SearchCursor cursor )
+    {
+        final Deadline deadline = CURRENT.get();
+        if ( deadline == null )
+        {
+            return cursor;
+        }
+        return ( SearchCursor ) Proxy.newProxyInstance( SearchCursor.class.getClassLoader(), new Class<?>[]
+            { SearchCursor.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+                {
+                    try
+                    {
+                        return method.invoke( cursor, args );
+                    }
+                    catch ( InvocationTargetException ite )
+                    {
+                        Throwable cause = ite.getCause();
+                        if ( cause instanceof Exception && deadline.isExpired() )
+                        {
+                            throw new DeadlineExceededException( "search cursor " + method.getName()
+                                + " deadline exceeded", cause );
+                        }
+                        throw cause;
+                    }
+                }
+            } );
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import org.apache.directory.fortress.core.BaseRuntimeException;
+import org.apache.directory.fortress.core.GlobalErrIds;
+
+
+/**
+ * This exception extends {@link BaseRuntimeException} and is thrown when an ldap operation, including borrowing its
+ * connection and iterating its results, did not complete before the {@link Deadline} set by the caller.  It carries
+ * {@link GlobalErrIds#FT_LDAP_DEADLINE_EXCEEDED} and passes through the DAOs unchanged so that callers can tell it apart
+ * from other ldap failures.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class DeadlineExceededException extends BaseRuntimeException
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+
+
+    /**
+     * Create exception with message and related exception.
+     * @param newMsgText contains text related to the exception.
+     * @param newException contains related exception, may be null.
+     */
+    public DeadlineExceededException( String newMsgText, Throwable newException )
+    {
+        super( GlobalErrIds.FT_LDAP_DEADLINE_EXCEEDED, newMsgText, newException );
+    }
+
+
+    /**
+     * Create exception with message.
+     * @param newMsgText contains text related to the exception.
+     */
+    public DeadlineExceededException( String newMsgText )
+    {
+        super( GlobalErrIds.FT_LDAP_DEADLINE_EXCEEDED, newMsgText );
+    }
+}
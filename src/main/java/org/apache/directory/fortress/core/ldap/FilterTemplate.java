@@ -0,0 +1,154 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * An ldap search filter with numbered placeholders, i.e. {@code (&(objectClass={0})(uid={1}*))}, that is parsed once,
+ * when the DAO is loaded, and rendered per request by copying its literal parts and the supplied values into a single
+ * presized buffer.
+ * <p>
+ * Values are inserted as given.  They must already have been made safe by the DAO, usually with
+ * {@link LdapDataProvider#encodeSafeText(String, int)}.
+ * <p>
+ * This class is immutable and thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class FilterTemplate
+{
+    private final String pattern;
+    // literal text preceding each placeholder, the last one follows the final placeholder.
+    private final String[] literals;
+    private final int[] params;
+    private final int literalLength;
+
+
+    private FilterTemplate( String pattern, String[] literals, int[] params )
+    {
+        this.pattern = pattern;
+        this.literals = literals;
+        this.params = params;
+        int length = 0;
+        for ( String literal : literals )
+        {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+
+    /**
+     * Parse a filter pattern.
+     *
+     * @param pattern contains the filter with placeholders {@code {0}}, {@code {1}}, ... which may repeat and appear in
+     *                any order.
+     * @return the compiled template.
+     * @throws IllegalArgumentException if a placeholder is malformed.
+     */
+    public static FilterTemplate compile( String pattern )
+    {
+        List<String> literals = new ArrayList<>();
+        List<Integer> params = new ArrayList<>();
+        int start = 0;
+        int open = pattern.indexOf( '{' );
+        while ( open >= 0 )
+        {
+            int close = pattern.indexOf( '}', open );
+            if ( close < 0 )
+            {
+                throw new IllegalArgumentException( "compile unterminated placeholder in [" + pattern + "]" );
+            }
+            try
+            {
+                params.add( Integer.parseInt( pattern.substring( open + 1, close ) ) );
+            }
+            catch ( NumberFormatException nfe )
+            {
+                throw new IllegalArgumentException( "compile invalid placeholder in [" + pattern + "]", nfe );
+            }
+            literals.add( pattern.substring( start, open ) );
+            start = close + 1;
+            open = pattern.indexOf( '{', start );
+        }
+        literals.add( pattern.substring( start ) );
+        int[] indexes = new int[params.size()];
+        for ( int i = 0; i < indexes.length; i++ )
+        {
+            indexes[i] = params.get( i );
+        }
+        return new FilterTemplate( pattern, literals.toArray( new String[literals.size()] ), indexes );
+    }
+
+
+    /**
+     * Render the filter with the given values.
+     *
+     * @param values contains the value of each placeholder, by number.
+     * @return the ldap search filter.
+     */
+    public String render( String... values )
+    {
+        StringBuilder sb = new StringBuilder( literalLength + valueLength( values ) );
+        appendTo( sb, values );
+        return sb.toString();
+    }
+
+
+    /**
+     * Render the filter with the given values at the end of a buffer, used to assemble filters that contain a variable
+     * number of clauses.
+     *
+     * @param sb     buffer the filter is appended to.
+     * @param values contains the value of each placeholder, by number.
+     * @return the buffer.
+     */
+    public StringBuilder appendTo( StringBuilder sb, String... values )
+    {
+        for ( int i = 0; i < params.length; i++ )
+        {
+            sb.append( literals[i] ).append( values[params[i]] );
+        }
+        return sb.append( literals[params.length] );
+    }
+
+
+    private int valueLength( String[] values )
+    {
+        int length = 0;
+        for ( int param : params )
+        {
+            String value = values[param];
+            length += value == null ? 4 : value.length();
+        }
+        return length;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return pattern;
+    }
+}
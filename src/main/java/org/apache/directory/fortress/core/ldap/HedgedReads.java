@@ -0,0 +1,362 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchRequest;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.ldap.client.api.LdapAsyncConnection;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Reads entries from the primary server and, when it is slow to answer, sends the same read to the replica server and
+ * returns whichever answers first.  A read is hedged once it has been outstanding longer than a configured percentile
+ * of recent read latencies, so only the slowest few percent of reads cost a second request.
+ * <p>
+ * Enabled by {@code enable.ldap.hedged.reads=true} along with {@code replica.host} and, if different from the primary,
+ * {@code replica.port}.  {@code ldap.hedge.percentile} (default 95) and {@code ldap.hedge.min.millis} (default 2) set
+ * when a read is hedged.  Hedging starts once enough latencies have been sampled.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class HedgedReads
+{
+    private static final String CLS_NM = HedgedReads.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private static final String ENABLE_HEDGED_READS = "enable.ldap.hedged.reads";
+    private static final String HEDGE_PERCENTILE = "ldap.hedge.percentile";
+    private static final String HEDGE_MIN_MILLIS = "ldap.hedge.min.millis";
+    private static final int SAMPLES = 512;
+    private static final int RECOMPUTE_EVERY = 64;
+    private static final long POLL_MILLIS = 1;
+
+    private static volatile HedgedReads sINSTANCE = null;
+
+    private final boolean enabled;
+    private final int percentile;
+    private final long minDelayMillis;
+    // recent read latencies in microseconds, guarded by itself.
+    private final long[] latencies = new long[SAMPLES];
+    private long samples;
+    private volatile long delayMillis = Long.MAX_VALUE;
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong replicaWins = new AtomicLong();
+
+
+    static HedgedReads getInstance()
+    {
+        if ( sINSTANCE == null )
+        {
+            synchronized ( HedgedReads.class )
+            {
+                if ( sINSTANCE == null )
+                {
+                    sINSTANCE = new HedgedReads();
+                }
+            }
+        }
+        return sINSTANCE;
+    }
+
+
+    private HedgedReads()
+    {
+        this( Config.getInstance().getBoolean( ENABLE_HEDGED_READS, false )
+            && LdapConnectionProvider.getInstance().isReplicaEnabled(), Config.getInstance().getInt( HEDGE_PERCENTILE,
+            95 ), Config.getInstance().getInt( HEDGE_MIN_MILLIS, 2 ) );
+        if ( enabled )
+        {
+            LOG.info( "LDAP HEDGED READS:  percentile=[{}], min.millis=[{}]", percentile, minDelayMillis );
+        }
+    }
+
+
+    /**
+     * Package private constructor, the instance is created by {@link #getInstance()}.
+     *
+     * @param enabled        if true reads are hedged.
+     * @param percentile     of recent read latencies after which a read is hedged, limited to 1 through 99.
+     * @param minDelayMillis least time a read is outstanding before it is hedged.
+     */
+    HedgedReads( boolean enabled, int percentile, long minDelayMillis )
+    {
+        this.enabled = enabled;
+        this.percentile = Math.max( 1, Math.min( 99, percentile ) );
+        this.minDelayMillis = minDelayMillis;
+    }
+
+
+    /**
+     * @return true if hedged reads are configured.
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Read the ldap record from specified location.
+     *
+     * @param connection handle to ldap connection to the primary server.
+     * @param dn         contains ldap distinguished name.
+     * @param attrs      array contains array names to pull back.
+     * @return ldap entry.
+     * @throws LdapException in the event system error occurs.
+     */
+    Entry read( LdapConnection connection, String dn, String[] attrs ) throws LdapException
+    {
+        return read( connection, new Dn( dn ), attrs );
+    }
+
+
+    /**
+     * Read the ldap record from specified location.
+     *
+     * @param connection handle to ldap connection to the primary server.
+     * @param dn         contains ldap distinguished name.
+     * @param attrs      array contains array names to pull back.
+     * @return ldap entry.
+     * @throws LdapException in the event system error occurs.
+     */
+    Entry read( LdapConnection connection, Dn dn, String[] attrs ) throws LdapException
+    {
+        if ( !( connection instanceof LdapAsyncConnection ) )
+        {
+            return connection.lookup( dn, attrs );
+        }
+
+        long start = System.nanoTime();
+        long timeout = Deadline.getTimeout( LdapConnectionProvider.getTimeout() );
+        SearchFuture primary = ( ( LdapAsyncConnection ) connection ).searchAsync( newLookup( dn, attrs ) );
+        long delay = delayMillis;
+        Response response = poll( primary, Math.min( delay, timeout ) );
+
+        if ( response == null && delay < timeout )
+        {
+            response = hedge( primary, dn, attrs, start + TimeUnit.MILLISECONDS.toNanos( timeout ) );
+        }
+
+        if ( response == null )
+        {
+            primary.cancel( true );
+            throw new LdapException( "read [" + dn + "] no response in [" + timeout + "] ms" );
+        }
+
+        record( System.nanoTime() - start );
+        return toEntry( response );
+    }
+
+
+    /**
+     * @return time a read is outstanding before it is hedged, {@link Long#MAX_VALUE} until enough latencies have been
+     * sampled.
+     */
+    long getDelayMillis()
+    {
+        return delayMillis;
+    }
+
+
+    /**
+     * @return number of reads sent to the replica.
+     */
+    long getHedgeCount()
+    {
+        return hedges.get();
+    }
+
+
+    /**
+     * @return number of hedged reads the replica answered first.
+     */
+    long getReplicaWinCount()
+    {
+        return replicaWins.get();
+    }
+
+
+    /**
+     * Send the read to the replica and wait for the first of the two to answer, abandoning the other.
+     */
+    private Response hedge( SearchFuture primary, Dn dn, String[] attrs, long expiresAt ) throws LdapException
+    {
+        LdapConnection replica;
+        try
+        {
+            replica = LdapConnectionProvider.getInstance().getReplicaConnection();
+        }
+        catch ( LdapException e )
+        {
+            LOG.debug( "hedge read [{}] replica unavailable: {}", dn, e.getMessage() );
+            return poll( primary, TimeUnit.NANOSECONDS.toMillis( Math.max( 0, expiresAt - System.nanoTime() ) ) );
+        }
+
+        try
+        {
+            hedges.incrementAndGet();
+            SearchFuture secondary = ( ( LdapAsyncConnection ) replica ).searchAsync( newLookup( dn, attrs ) );
+            boolean isSecondaryPending = true;
+            while ( expiresAt - System.nanoTime() > 0 )
+            {
+                Response response = poll( primary, POLL_MILLIS );
+                if ( response != null )
+                {
+                    if ( isSecondaryPending )
+                    {
+                        secondary.cancel( true );
+                    }
+                    return response;
+                }
+
+                if ( isSecondaryPending )
+                {
+                    response = poll( secondary, POLL_MILLIS );
+                    if ( response instanceof SearchResultEntry )
+                    {
+                        replicaWins.incrementAndGet();
+                        primary.cancel( true );
+                        return response;
+                    }
+                    // a replica that has yet to receive the entry, or fails, doesn't decide the outcome:
+                    isSecondaryPending = response == null;
+                }
+            }
+            if ( isSecondaryPending )
+            {
+                secondary.cancel( true );
+            }
+            return null;
+        }
+        finally
+        {
+            LdapConnectionProvider.getInstance().closeReplicaConnection( replica );
+        }
+    }
+
+
+    /**
+     * Wait up to the given time for a response.
+     *
+     * @return the response, or null if none arrived in time.
+     */
+    private static Response poll( SearchFuture future, long millis ) throws LdapException
+    {
+        try
+        {
+            return future.get( millis, TimeUnit.MILLISECONDS );
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+            throw new LdapException( "read interrupted", ie );
+        }
+        catch ( Exception e )
+        {
+            if ( e instanceof TimeoutException )
+            {
+                return null;
+            }
+            throw new LdapException( "read caught Exception=" + e, e );
+        }
+    }
+
+
+    private static SearchRequest newLookup( Dn dn, String[] attrs ) throws LdapException
+    {
+        SearchRequest searchRequest = new SearchRequestImpl();
+        searchRequest.setBase( dn );
+        searchRequest.setScope( SearchScope.OBJECT );
+        searchRequest.setFilter( "(objectClass=*)" );
+        if ( attrs != null )
+        {
+            searchRequest.addAttributes( attrs );
+        }
+        return searchRequest;
+    }
+
+
+    /**
+     * Convert the first response of a lookup the same way {@link LdapConnection#lookup(Dn, String...)} does.
+     */
+    private static Entry toEntry( Response response ) throws LdapException
+    {
+        if ( response instanceof SearchResultEntry )
+        {
+            return ( ( SearchResultEntry ) response ).getEntry();
+        }
+
+        if ( response instanceof SearchResultDone )
+        {
+            // throws the exception matching the result code, i.e. LdapNoSuchObjectException:
+            ResultCodeEnum.processResponse( ( SearchResultDone ) response );
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Add a latency sample, and every so often recompute the delay after which reads are hedged.
+     */
+    void record( long nanos )
+    {
+        long[] copy = null;
+        synchronized ( latencies )
+        {
+            latencies[( int ) ( samples % SAMPLES )] = TimeUnit.NANOSECONDS.toMicros( nanos );
+            samples++;
+            if ( samples % RECOMPUTE_EVERY == 0 && samples >= SAMPLES / 2 )
+            {
+                copy = Arrays.copyOf( latencies, ( int ) Math.min( samples, SAMPLES ) );
+            }
+        }
+
+        if ( copy != null )
+        {
+            Arrays.sort( copy );
+            long micros = copy[copy.length * percentile / 100];
+            delayMillis = Math.max( minDelayMillis, TimeUnit.MICROSECONDS.toMillis( micros + 999 ) );
+            LOG.debug( "hedge delay millis [{}] hedges [{}] replica wins [{}]", delayMillis, hedges.get(),
+                replicaWins.get() );
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.EncryptUtil;
 import org.apache.directory.ldap.client.api.LdapConnection;
 import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+import org.apache.directory.ldap.client.api.DefaultLdapConnectionFactory;
 import org.apache.directory.ldap.client.api.LdapConnectionPool;
 import org.apache.directory.ldap.client.api.ValidatingPoolableLdapConnectionFactory;
 import org.slf4j.Logger;
@@ -45,8 +46,10 @@ import org.slf4j.LoggerFactory;
  * This utility manages the LDAP connection pools and provides methods for adding / removing connections from the three pools.
  * <ul>
  *   <li>Admin Connections - bound with ldap service account creds</li>
- *   <li>User Connections - unbound used for authentication</li>
+ *   <li>User Connections - unbound, used only to bind as the end user for authentication and password changes</li>
  *   <li>Audit Log Connections - bound with slapo access log service account creds (OpenLDAP only)</li>
+ *   <li>Replica Connections - bound with ldap service account creds to a second server, optional, used for hedged
+ *   reads</li>
  * </ul>
  *
  * Each connection pool is initialized on first invocation of getInstance() which stores a reference to self used by subsequent callers.
@@ -65,9 +68,21 @@ public class LdapConnectionProvider
     private static final String LDAP_LOG_POOL_PW = "log.admin.pw";
     private static final String LDAP_LOG_POOL_MIN = "min.log.conn";
     private static final String LDAP_LOG_POOL_MAX = "max.log.conn";
+    private static final String LDAP_USER_POOL_MIN = "min.user.conn";
+    private static final String LDAP_USER_POOL_MAX = "max.user.conn";
+    private static final String LDAP_USER_POOL_EVICT_MILLIS = "user.conn.evict.millis";
+
+    private static final String LDAP_REPLICA_HOST = "replica.host";
+    private static final String LDAP_REPLICA_PORT = "replica.port";
 
     private static final String ENABLE_LDAP_STARTTLS = "enable.ldap.starttls";
 
+    private static final String ENABLE_CIRCUIT_BREAKER = "enable.ldap.circuit.breaker";
+    private static final String BREAKER_FAILURE_RATE = "ldap.breaker.failure.rate";
+    private static final String BREAKER_MIN_CALLS = "ldap.breaker.min.calls";
+    private static final String BREAKER_WINDOW_MILLIS = "ldap.breaker.window.millis";
+    private static final String BREAKER_OPEN_MILLIS = "ldap.breaker.open.millis";
+
     private boolean IS_SSL;
     private boolean IS_SET_TRUST_STORE_PROP;
     private boolean IS_SSL_DEBUG;
@@ -83,10 +98,26 @@ public class LdapConnectionProvider
     private static LdapConnectionPool logPool;
 
     /**
-     * The User connection pool
+     * The User connection pool, kept apart from the admin pool so that binding as an end user never disturbs a
+     * connection that carries the service account's identity.
      */
     private static LdapConnectionPool userPool;
 
+    /**
+     * The Replica connection pool, null unless a replica host is configured.
+     */
+    private static LdapConnectionPool replicaPool;
+
+    /**
+     * Fails fast when the directory is unresponsive, guards all pools but the replica's.
+     */
+    private static CircuitBreaker breaker = new CircuitBreaker( false, 0, 0, 0, 0 );
+
+    /**
+     * Time in milliseconds to wait for a response when the caller has set no deadline.
+     */
+    private static long timeout = LdapConnectionConfig.DEFAULT_TIMEOUT;
+
     private static volatile LdapConnectionProvider sINSTANCE = null;
 
     /**
@@ -142,6 +173,8 @@ public class LdapConnectionProvider
         int max = Config.getInstance().getInt( GlobalIds.LDAP_ADMIN_POOL_MAX, 10 );
         int logmin = Config.getInstance().getInt( LDAP_LOG_POOL_MIN, 1 );
         int logmax = Config.getInstance().getInt( LDAP_LOG_POOL_MAX, 10 );
+        int usermin = Config.getInstance().getInt( LDAP_USER_POOL_MIN, min );
+        int usermax = Config.getInstance().getInt( LDAP_USER_POOL_MAX, max );
         LOG.info( "LDAP POOL:  host=[{}], port=[{}], min=[{}], max=[{}]", host, port, min, max );
 
         if ( IS_SET_TRUST_STORE_PROP )
@@ -189,6 +222,8 @@ public class LdapConnectionProvider
         }
 
         config.setCredentials( adminPw );
+        timeout = config.getTimeout();
+        LdapApiService ldapApiService;
         try
         {
             List<String> listExOps = new ArrayList<>();
@@ -198,7 +233,7 @@ public class LdapConnectionProvider
             listExOps.add( "org.openldap.accelerator.impl.dropRole.RbacDropRoleFactory" );
             listExOps.add( "org.openldap.accelerator.impl.deleteSession.RbacDeleteSessionFactory" );
             listExOps.add( "org.openldap.accelerator.impl.sessionRoles.RbacSessionRolesFactory" );
-            LdapApiService ldapApiService = new StandaloneLdapApiService( new ArrayList<String>(), listExOps );
+            ldapApiService = new StandaloneLdapApiService( new ArrayList<String>(), listExOps );
 
             if ( !LdapApiServiceFactory.isInitialized() )
             {
@@ -212,6 +247,11 @@ public class LdapConnectionProvider
             throw new CfgRuntimeException( GlobalErrIds.FT_APACHE_LDAP_POOL_INIT_FAILED, error, ex );
         }
 
+        breaker = new CircuitBreaker( Config.getInstance().getBoolean( ENABLE_CIRCUIT_BREAKER, false ),
+            Config.getInstance().getInt( BREAKER_FAILURE_RATE, 50 ), Config.getInstance().getInt( BREAKER_MIN_CALLS,
+            20 ), Config.getInstance().getInt( BREAKER_WINDOW_MILLIS, 10000 ), Config.getInstance().getInt(
+            BREAKER_OPEN_MILLIS, 5000 ) );
+
         PoolableObjectFactory<LdapConnection> poolFactory = new ValidatingPoolableLdapConnectionFactory( config );
 
         // Create the Admin pool
@@ -223,13 +263,51 @@ public class LdapConnectionProvider
         adminPool.setMaxIdle( -1 );
         //adminPool.setMaxWait( 0 );
 
-        // Create the User pool
-        userPool = new LdapConnectionPool( poolFactory );
+        // Create the User pool.  Its connections are opened without a bind and only ever used to bind as the end
+        // user, so they aren't rebound to the service account on release, as the validating factory does.  A later bind
+        // simply replaces the identity left by the previous one.  Connections are checked to be open on borrow and by
+        // the evictor while idle, and a connection that fails mid request is invalidated by the caller.
+        LdapConnectionConfig userConfig = new LdapConnectionConfig();
+        userConfig.setLdapHost( host );
+        userConfig.setLdapPort( port );
+        userConfig.setUseSsl( IS_SSL );
+        userConfig.setUseTls( config.isUseTls() );
+        userConfig.setTrustManagers( config.getTrustManagers() );
+        userConfig.setLdapApiService( ldapApiService );
+        userPool = new LdapConnectionPool( new UserConnectionFactory( new DefaultLdapConnectionFactory(
+            userConfig ) ) );
         userPool.setTestOnBorrow( true );
+        userPool.setTestWhileIdle( true );
+        userPool.setTimeBetweenEvictionRunsMillis( Config.getInstance().getInt( LDAP_USER_POOL_EVICT_MILLIS,
+            30000 ) );
         userPool.setWhenExhaustedAction( GenericObjectPool.WHEN_EXHAUSTED_GROW );
-        userPool.setMaxActive( max );
-        userPool.setMinIdle( min );
+        userPool.setMaxActive( usermax );
+        userPool.setMinIdle( usermin );
         userPool.setMaxIdle( -1 );
+        LOG.info( "LDAP USER POOL:  min=[{}], max=[{}]", usermin, usermax );
+
+        // The replica pool is used to hedge reads the primary is slow to answer, see HedgedReads:
+        String replicaHost = Config.getInstance().getProperty( LDAP_REPLICA_HOST );
+        if ( StringUtils.isNotEmpty( replicaHost ) )
+        {
+            int replicaPort = Config.getInstance().getInt( LDAP_REPLICA_PORT, port );
+            LdapConnectionConfig replicaConfig = new LdapConnectionConfig();
+            replicaConfig.setLdapHost( replicaHost );
+            replicaConfig.setLdapPort( replicaPort );
+            replicaConfig.setName( config.getName() );
+            replicaConfig.setCredentials( config.getCredentials() );
+            replicaConfig.setUseSsl( IS_SSL );
+            replicaConfig.setUseTls( config.isUseTls() );
+            replicaConfig.setTrustManagers( config.getTrustManagers() );
+            replicaConfig.setLdapApiService( ldapApiService );
+            replicaPool = new LdapConnectionPool( new ValidatingPoolableLdapConnectionFactory( replicaConfig ) );
+            replicaPool.setTestOnBorrow( true );
+            replicaPool.setWhenExhaustedAction( GenericObjectPool.WHEN_EXHAUSTED_GROW );
+            replicaPool.setMaxActive( max );
+            replicaPool.setMinIdle( 0 );
+            replicaPool.setMaxIdle( -1 );
+            LOG.info( "LDAP REPLICA POOL:  host=[{}], port=[{}]", replicaHost, replicaPort );
+        }
 
         // This pool of access log connections is used by {@link org.apache.directory.fortress.AuditMgr}.
         // To enable, set {@code log.admin.user} && {@code log.admin.pw} inside fortress.properties file:
@@ -282,6 +360,12 @@ public class LdapConnectionProvider
      */
     public void closeAdminConnection(LdapConnection connection)
     {
+        if ( connection == null )
+        {
+            // the borrow failed
+            return;
+        }
+
         try
         {
             adminPool.releaseConnection( connection );
@@ -300,6 +384,12 @@ public class LdapConnectionProvider
      */
     public void closeLogConnection(LdapConnection connection)
     {
+        if ( connection == null )
+        {
+            // the borrow failed
+            return;
+        }
+
         try
         {
             logPool.releaseConnection( connection );
@@ -318,6 +408,12 @@ public class LdapConnectionProvider
      */
     public void closeUserConnection(LdapConnection connection)
     {
+        if ( connection == null )
+        {
+            // the borrow failed
+            return;
+        }
+
         try
         {
             userPool.releaseConnection( connection );
@@ -330,43 +426,73 @@ public class LdapConnectionProvider
 
 
     /**
-     * Calls the PoolMgr to get an Admin connection to the LDAP server.
+     * Discard a User LDAP connection that failed with an error other than invalid credentials, rather than return a
+     * connection in an unknown state to the pool.
      *
-     * @return ldap connection.
-     * @throws LdapException If we had an issue getting an LDAP connection
+     * @param connection handle to ldap connection object.
+     * @throws LdapException If the connection could not be discarded
      */
-    public LdapConnection getAdminConnection() throws LdapException
+    public void invalidateUserConnection(LdapConnection connection) throws LdapException
     {
         try
         {
-            return adminPool.getConnection();
+            userPool.invalidateObject( connection );
         }
         catch ( Exception e )
         {
-            throw new LdapException( e.getMessage(), e );
+            throw new LdapException( "invalidateUserConnection caught " + e.getMessage(), e );
         }
     }
 
 
     /**
-     * Calls the PoolMgr to get an Log connection to the LDAP server.
+     * Calls the PoolMgr to close the Replica LDAP connection.
      *
-     * @return ldap connection.
-     * @throws LdapException If we had an issue getting an LDAP connection
+     * @param connection handle to ldap connection object.
      */
-    public LdapConnection getLogConnection() throws LdapException
+    public void closeReplicaConnection(LdapConnection connection)
     {
+        if ( connection == null )
+        {
+            // the borrow failed
+            return;
+        }
+
         try
         {
-            return logPool.getConnection();
+            replicaPool.releaseConnection( connection );
         }
         catch ( Exception e )
         {
-            throw new LdapException( e.getMessage(), e );
+            throw new RuntimeException( e.getMessage(), e );
         }
     }
 
 
+    /**
+     * Calls the PoolMgr to get an Admin connection to the LDAP server.
+     *
+     * @return ldap connection.
+     * @throws LdapException If we had an issue getting an LDAP connection
+     */
+    public LdapConnection getAdminConnection() throws LdapException
+    {
+        return getConnection( adminPool, "getAdminConnection", breaker );
+    }
+
+
+    /**
+     * Calls the PoolMgr to get an Log connection to the LDAP server.
+     *
+     * @return ldap connection.
+     * @throws LdapException If we had an issue getting an LDAP connection
+     */
+    public LdapConnection getLogConnection() throws LdapException
+    {
+        return getConnection( logPool, "getLogConnection", breaker );
+    }
+
+
     /**
      * Calls the PoolMgr to get an User connection to the LDAP server.
      *
@@ -375,16 +501,167 @@ public class LdapConnectionProvider
      */
     public LdapConnection getUserConnection() throws LdapException
     {
+        return getConnection( userPool, "getUserConnection", breaker );
+    }
+
+    /**
+     * Calls the PoolMgr to get a connection to the replica LDAP server.
+     *
+     * @return ldap connection.
+     * @throws LdapException If we had an issue getting an LDAP connection
+     */
+    public LdapConnection getReplicaConnection() throws LdapException
+    {
+        return getConnection( replicaPool, "getReplicaConnection", null );
+    }
+
+
+    /**
+     * @return the circuit breaker that guards the connections to the directory server.
+     */
+    public CircuitBreaker getCircuitBreaker()
+    {
+        return breaker;
+    }
+
+
+    /**
+     * @return the circuit breaker, for the ldap operations on the connections it guards to record their outcome.
+     */
+    static CircuitBreaker getBreaker()
+    {
+        return breaker;
+    }
+
+
+    /**
+     * @return time in milliseconds to wait for a response when the caller has set no deadline.
+     */
+    static long getTimeout()
+    {
+        return timeout;
+    }
+
+
+    /**
+     * @return true if a replica host is configured.
+     */
+    public boolean isReplicaEnabled()
+    {
+        return replicaPool != null;
+    }
+
+
+    /**
+     * Open connections in the Admin pool until it holds its configured minimum of idle connections,
+     * {@code min.admin.conn}, rather than leave them to be opened by the first requests.
+     *
+     * @return number of connections opened.
+     * @throws LdapException If a connection could not be opened
+     */
+    public int fillAdminPool() throws LdapException
+    {
+        return fill( adminPool, "fillAdminPool" );
+    }
+
+
+    /**
+     * Open connections in the User pool until it holds its configured minimum of idle connections,
+     * {@code min.user.conn}.
+     *
+     * @return number of connections opened.
+     * @throws LdapException If a connection could not be opened
+     */
+    public int fillUserPool() throws LdapException
+    {
+        return fill( userPool, "fillUserPool" );
+    }
+
+
+    /**
+     * Open connections in the Log pool until it holds its configured minimum of idle connections, {@code min.log.conn}.
+     *
+     * @return number of connections opened.
+     * @throws LdapException If a connection could not be opened
+     */
+    public int fillLogPool() throws LdapException
+    {
+        return fill( logPool, "fillLogPool" );
+    }
+
+
+    /**
+     * Add connections to a pool up to its minimum idle count, as measured on entry so that connections borrowed
+     * meanwhile aren't replaced.
+     */
+    private static int fill( LdapConnectionPool pool, String method ) throws LdapException
+    {
+        if ( pool == null )
+        {
+            return 0;
+        }
+        int count = 0;
+        try
+        {
+            for ( int idle = pool.getNumIdle(); idle < pool.getMinIdle(); idle++ )
+            {
+                pool.addObject();
+                count++;
+            }
+        }
+        catch ( Exception e )
+        {
+            throw new LdapException( method + " opened [" + count + "] connections, caught " + e.getMessage(), e );
+        }
+        LOG.debug( "{} opened [{}] connections", method, count );
+        return count;
+    }
+
+
+    /**
+     * Borrow a connection and set the time it may wait for each response, which is the time left before the current
+     * {@link Deadline}, if one is set, otherwise the configured timeout.
+     */
+    private static LdapConnection getConnection( LdapConnectionPool pool, String method, CircuitBreaker breaker )
+        throws LdapException
+    {
+        LdapConnection connection;
+        Deadline.check( method );
+        if ( breaker != null )
+        {
+            breaker.acquire( method );
+        }
         try
         {
-            return userPool.getConnection();
+            connection = pool.getConnection();
         }
         catch ( Exception e )
         {
-            throw new LdapException( e.getMessage(), e );
+            // the operations on a connection count as its calls, a borrow counts only if it fails in time:
+            if ( breaker != null && !Deadline.isPassed() )
+            {
+                breaker.recordFailure();
+            }
+            throw Deadline.failed( method, new LdapException( e.getMessage(), e ) );
+        }
+
+        boolean isReady = false;
+        try
+        {
+            connection.setTimeOut( Deadline.getTimeout( timeout ) );
+            isReady = true;
         }
+        finally
+        {
+            if ( !isReady )
+            {
+                pool.releaseConnection( connection );
+            }
+        }
+        return connection;
     }
 
+
     /**
      * Closes all the ldap connection pools.
      */
@@ -419,5 +696,18 @@ public class LdapConnectionProvider
         {
             LOG.warn( "Error closing log pool: " + e.getMessage() );
         }
+
+        if ( replicaPool != null )
+        {
+            try
+            {
+                LOG.info( "Closing replica pool" );
+                replicaPool.close();
+            }
+            catch ( Exception e )
+            {
+                LOG.warn( "Error closing replica pool: " + e.getMessage() );
+            }
+        }
     }
 }
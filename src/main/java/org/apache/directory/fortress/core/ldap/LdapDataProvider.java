@@ -23,11 +23,15 @@ package org.apache.directory.fortress.core.ldap;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.directory.api.ldap.extras.controls.ppolicy.PasswordPolicy;
@@ -46,7 +50,11 @@ import org.apache.directory.api.ldap.model.entry.Value;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.exception.LdapNoSuchObjectException;
 import org.apache.directory.api.ldap.model.exception.LdapOperationErrorException;
+import org.apache.directory.api.ldap.model.exception.LdapOperationException;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
 import org.apache.directory.api.ldap.model.message.BindRequest;
 import org.apache.directory.api.ldap.model.message.BindRequestImpl;
 import org.apache.directory.api.ldap.model.message.BindResponse;
@@ -54,11 +62,17 @@ import org.apache.directory.api.ldap.model.message.CompareRequest;
 import org.apache.directory.api.ldap.model.message.CompareRequestImpl;
 import org.apache.directory.api.ldap.model.message.CompareResponse;
 import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.ModifyRequest;
+import org.apache.directory.api.ldap.model.message.ModifyRequestImpl;
 import org.apache.directory.api.ldap.model.message.Response;
 import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
 import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
 import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
 import org.apache.directory.api.ldap.model.message.controls.ProxiedAuthz;
 import org.apache.directory.api.ldap.model.message.controls.ProxiedAuthzImpl;
 import org.apache.directory.api.ldap.model.name.Dn;
@@ -70,7 +84,11 @@ import org.apache.directory.fortress.core.model.Hier;
 import org.apache.directory.fortress.core.model.Relationship;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.LdapUtil;
+import org.apache.directory.ldap.client.api.LdapAsyncConnection;
 import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.future.ResponseFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -87,9 +105,19 @@ public abstract class LdapDataProvider
 {
     // Logging
     private static final String CLS_NM = LdapDataProvider.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
     private static final int MAX_DEPTH = 100;
     private static final LdapCounters COUNTERS = new LdapCounters();
     private static final PasswordPolicy PP_REQ_CTRL = new PasswordPolicyImpl();
+    // max operations of a batch outstanding on a connection:
+    private static final int WRITE_WINDOW = Math.max( 1, Config.getInstance().getInt( "ldap.write.window", 64 ) );
+    // entries per page of a paged search:
+    private static final int PAGE_SIZE = Math.max( 1, Config.getInstance().getInt( "ldap.page.size",
+        GlobalIds.BATCH_SIZE ) );
+    // servers that support it return large multi-valued attributes a range at a time, i.e. member;range=0-1499:
+    private static final boolean IS_RANGE_RETRIEVAL = Config.getInstance().getBoolean( "enable.ldap.range.retrieval",
+        false );
+    private static final String RANGE_OPTION = ";range=";
     
     /**
      * Given a contextId and a fortress param name return the LDAP dn.
@@ -100,32 +128,22 @@ public abstract class LdapDataProvider
      */
     protected String getRootDn( String contextId, String root )
     {
-        String szDn = Config.getInstance().getProperty( root );
+        return RootDnRegistry.getInstance().getRootDn( contextId, root );
+    }
 
-        // The contextId must not be null, or "HOME" or "null"
-        if ( StringUtils.isNotEmpty( contextId ) && !contextId.equalsIgnoreCase( GlobalIds.NULL ) && !contextId
-            .equals( GlobalIds.HOME ) )
-        {
-          int idx = szDn.indexOf( Config.getInstance().getProperty( GlobalIds.SUFFIX ) );
-          if ( idx > 0 )
-            {
-                // Found. The DN is ,ou=<contextId>,
-                StringBuilder dn = new StringBuilder();
-                dn.append( szDn.substring( 0, idx - 1 ) ).append( "," ).append( SchemaConstants.OU_AT ).append( "=" )
-                    .append(
-                        contextId ).append( "," ).append( szDn.substring( idx ) );
 
-                return dn.toString();
-            }
-            else
-            {
-                return "";
-            }
-        }
-        else
-        {
-            return szDn;
-        }
+    /**
+     * Given a contextId and a fortress param name return the parsed LDAP dn.  Dns of entities within the container may
+     * be derived from it with {@link Dn#add(String)} which parses only the added rdn.
+     *
+     * @param contextId is to determine what sub-tree to use.
+     * @param root      contains the fortress parameter name that corresponds with a particular LDAP container.
+     * @return Dn contains the dn to use for operation.
+     * @throws LdapInvalidDnException in the event the configured dn is malformed.
+     */
+    protected Dn getRootDnName( String contextId, String root ) throws LdapInvalidDnException
+    {
+        return RootDnRegistry.getInstance().getRootDnName( contextId, root );
     }
 
     /**
@@ -136,18 +154,7 @@ public abstract class LdapDataProvider
      */
     protected String getRootDn( String contextId )
     {
-        StringBuilder dn = new StringBuilder();
-        if ( StringUtils.isNotEmpty( contextId ) && !contextId.equalsIgnoreCase( GlobalIds.NULL ) && !contextId
-            .equals( GlobalIds.HOME ) )
-        {
-            dn.append( SchemaConstants.OU_AT ).append( "=" ).append( contextId ).append( "," +
-                "" ).append( Config.getInstance().getProperty( GlobalIds.SUFFIX ) );
-        }
-        else
-        {
-            dn.append( Config.getInstance().getProperty( GlobalIds.SUFFIX ) );
-        }
-        return dn.toString();
+        return RootDnRegistry.getInstance().getRootDn( contextId );
     }
 
 
@@ -163,8 +170,19 @@ public abstract class LdapDataProvider
     protected Entry read( LdapConnection connection, String dn, String[] attrs ) throws LdapException
     {
         COUNTERS.incrementRead();
-
-        return connection.lookup( dn, attrs );
+        Deadline.apply( connection, "read" );
+        try
+        {
+            if ( HedgedReads.getInstance().isEnabled() )
+            {
+                return succeeded( HedgedReads.getInstance().read( connection, dn, attrs ) );
+            }
+            return succeeded( connection.lookup( dn, attrs ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "read", e );
+        }
     }
 
 
@@ -180,8 +198,19 @@ public abstract class LdapDataProvider
     protected Entry read( LdapConnection connection, Dn dn, String[] attrs ) throws LdapException
     {
         COUNTERS.incrementRead();
-
-        return connection.lookup( dn, attrs );
+        Deadline.apply( connection, "read" );
+        try
+        {
+            if ( HedgedReads.getInstance().isEnabled() )
+            {
+                return succeeded( HedgedReads.getInstance().read( connection, dn, attrs ) );
+            }
+            return succeeded( connection.lookup( dn, attrs ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "read", e );
+        }
     }
 
 
@@ -201,8 +230,19 @@ public abstract class LdapDataProvider
     protected Entry read( LdapConnection connection, String dn, String[] attrs, String userDn ) throws LdapException
     {
         COUNTERS.incrementRead();
-
-        return connection.lookup( dn, attrs );
+        Deadline.apply( connection, "read" );
+        try
+        {
+            if ( HedgedReads.getInstance().isEnabled() )
+            {
+                return succeeded( HedgedReads.getInstance().read( connection, dn, attrs ) );
+            }
+            return succeeded( connection.lookup( dn, attrs ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "read", e );
+        }
     }
 
 
@@ -216,7 +256,16 @@ public abstract class LdapDataProvider
     protected void add( LdapConnection connection, Entry entry ) throws LdapException
     {
         COUNTERS.incrementAdd();
-        connection.add( entry );
+        Deadline.apply( connection, "add" );
+        try
+        {
+            connection.add( entry );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "add", e );
+        }
+        succeeded();
     }
 
 
@@ -231,26 +280,17 @@ public abstract class LdapDataProvider
     protected void add( LdapConnection connection, Entry entry, FortEntity entity ) throws LdapException
     {
         COUNTERS.incrementAdd();
-
-        if ( !Config.getInstance().isAuditDisabled() && ( entity != null ) && ( entity.getAdminSession() != null ) )
+        Deadline.apply( connection, "add" );
+        audit( entry, entity );
+        try
         {
-            if ( StringUtils.isNotEmpty( entity.getAdminSession().getInternalUserId() ) )
-            {
-                entry.add( GlobalIds.FT_MODIFIER, entity.getAdminSession().getInternalUserId() );
-            }
-
-            if ( StringUtils.isNotEmpty( entity.getModCode() ) )
-            {
-                entry.add( GlobalIds.FT_MODIFIER_CODE, entity.getModCode() );
-            }
-
-            if ( StringUtils.isNotEmpty( entity.getModId() ) )
-            {
-                entry.add( GlobalIds.FT_MODIFIER_ID, entity.getModId() );
-            }
+            connection.add( entry );
         }
-
-        connection.add( entry );
+        catch ( LdapException e )
+        {
+            throw failed( "add", e );
+        }
+        succeeded();
     }
 
 
@@ -265,8 +305,17 @@ public abstract class LdapDataProvider
     protected void modify( LdapConnection connection, String dn, List<Modification> mods ) throws LdapException
     {
         COUNTERS.incrementMod();
-        connection.modify( dn, mods.toArray( new Modification[]
-            {} ) );
+        Deadline.apply( connection, "modify" );
+        try
+        {
+            connection.modify( dn, mods.toArray( new Modification[]
+                {} ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "modify", e );
+        }
+        succeeded();
     }
 
 
@@ -281,8 +330,17 @@ public abstract class LdapDataProvider
     protected void modify( LdapConnection connection, Dn dn, List<Modification> mods ) throws LdapException
     {
         COUNTERS.incrementMod();
-        connection.modify( dn, mods.toArray( new Modification[]
-            {} ) );
+        Deadline.apply( connection, "modify" );
+        try
+        {
+            connection.modify( dn, mods.toArray( new Modification[]
+                {} ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "modify", e );
+        }
+        succeeded();
     }
 
 
@@ -299,9 +357,18 @@ public abstract class LdapDataProvider
         FortEntity entity ) throws LdapException
     {
         COUNTERS.incrementMod();
+        Deadline.apply( connection, "modify" );
         audit( mods, entity );
-        connection.modify( dn, mods.toArray( new Modification[]
-            {} ) );
+        try
+        {
+            connection.modify( dn, mods.toArray( new Modification[]
+                {} ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "modify", e );
+        }
+        succeeded();
     }
 
 
@@ -318,9 +385,18 @@ public abstract class LdapDataProvider
         FortEntity entity ) throws LdapException
     {
         COUNTERS.incrementMod();
+        Deadline.apply( connection, "modify" );
         audit( mods, entity );
-        connection.modify( dn, mods.toArray( new Modification[]
-            {} ) );
+        try
+        {
+            connection.modify( dn, mods.toArray( new Modification[]
+                {} ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "modify", e );
+        }
+        succeeded();
     }
 
 
@@ -334,7 +410,16 @@ public abstract class LdapDataProvider
     protected void delete( LdapConnection connection, String dn ) throws LdapException
     {
         COUNTERS.incrementDelete();
-        connection.delete( dn );
+        Deadline.apply( connection, "delete" );
+        try
+        {
+            connection.delete( dn );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "delete", e );
+        }
+        succeeded();
     }
 
 
@@ -351,6 +436,7 @@ public abstract class LdapDataProvider
     protected void delete( LdapConnection connection, String dn, FortEntity entity ) throws LdapException
     {
         COUNTERS.incrementDelete();
+        Deadline.apply( connection, "delete" );
         List<Modification> mods = new ArrayList<Modification>();
         audit( mods, entity );
 
@@ -359,7 +445,15 @@ public abstract class LdapDataProvider
             modify( connection, dn, mods );
         }
 
-        connection.delete( dn );
+        try
+        {
+            connection.delete( dn );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "delete", e );
+        }
+        succeeded();
     }
 
 
@@ -376,6 +470,7 @@ public abstract class LdapDataProvider
     protected void delete( LdapConnection connection, Dn dn, FortEntity entity ) throws LdapException
     {
         COUNTERS.incrementDelete();
+        Deadline.apply( connection, "delete" );
         List<Modification> mods = new ArrayList<Modification>();
         audit( mods, entity );
 
@@ -384,7 +479,15 @@ public abstract class LdapDataProvider
             modify( connection, dn, mods );
         }
 
-        connection.delete( dn );
+        try
+        {
+            connection.delete( dn );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "delete", e );
+        }
+        succeeded();
     }
 
 
@@ -431,7 +534,9 @@ public abstract class LdapDataProvider
 
 
     /**
-     * Used to recursively remove all nodes up to record pointed to by dn attribute.
+     * Used to remove a node and all of its descendants.  The subtree is read with a paged search and the entries are
+     * deleted deepest first, pipelining the deletes of all entries at the same depth as these don't depend on each
+     * other.
      *
      * @param dn             contains distinguished node of entry targeted for removal..
      * @param connection     handle to ldap connection.
@@ -439,49 +544,319 @@ public abstract class LdapDataProvider
      * @throws LdapException   in the event system error occurs.
      * @throws CursorException
      */
-    private void deleteRecursive( String dn, LdapConnection connection, int recursiveCount ) throws LdapException,
-        CursorException
+    private void deleteRecursive( final String dn, final LdapConnection connection, int recursiveCount )
+        throws LdapException, CursorException
     {
         String method = "deleteRecursive";
+        Dn baseDn = new Dn( dn );
+        List<Dn> subtree = new ArrayList<>();
 
-        // Sanity check - only allow max tree depth of 100
-        if ( recursiveCount++ > MAX_DEPTH )
+        // Find the node and all of its descendants
+        PagedSearch cursor = new PagedSearch( new PagedSearch.Pages()
         {
-            // too deep inside of a recursive sequence;
-            String error = "." + method + " dn [" + dn + "] depth error in recursive";
-            throw new LdapOperationErrorException( error );
+            @Override
+            public SearchCursor search( byte[] cookie ) throws LdapException
+            {
+                return searchPage( connection, dn, SearchScope.SUBTREE, "(objectclass=*)",
+                    SchemaConstants.NO_ATTRIBUTE_ARRAY, cookie );
+            }
+        } );
+
+        while ( cursor.next() )
+        {
+            Dn entryDn = cursor.getEntry().getDn();
+
+            // Sanity check - only allow max tree depth of 100
+            if ( recursiveCount + entryDn.size() - baseDn.size() > MAX_DEPTH )
+            {
+                // too deep inside of a recursive sequence;
+                String error = "." + method + " dn [" + dn + "] depth error in recursive";
+                throw new LdapOperationErrorException( error );
+            }
+            subtree.add( entryDn );
+        }
+
+        for ( WriteBatch.Result result : write( connection, WriteBatch.deleteSubtree( baseDn, subtree ) ) )
+        {
+            if ( !result.isSuccess() )
+            {
+                // cannot continue;
+                String error = "." + method + " dn [" + dn + "] caught LdapException=" + result;
+                throw new LdapException( error );
+            }
         }
+    }
+
 
-        String theDN;
+    /**
+     * Send the operations of a batch over one connection, without waiting for the response to each before sending the
+     * next, unless a barrier separates them.  Once an operation fails, those following the next barrier are not sent.
+     * At most {@code ldap.write.window} (default 64) operations are outstanding at a time.  Connections that don't
+     * support asynchronous operations send each operation in turn.
+     *
+     * @param connection handle to ldap connection.
+     * @param batch      contains the operations to send.
+     * @return the outcome of each operation, in the order they were added to the batch.
+     * @throws LdapException in the event of a system error, or a response is not received in time.
+     */
+    protected List<WriteBatch.Result> write( LdapConnection connection, WriteBatch batch ) throws LdapException
+    {
+        Deadline.apply( connection, "write" );
+        return new ConnectionPipeline( connection ).write( batch );
+    }
 
-        // Find child nodes
-        SearchCursor cursor = search( connection, dn, SearchScope.ONELEVEL, "(objectclass=*)",
-            SchemaConstants.NO_ATTRIBUTE_ARRAY,
-            false, 0 );
 
-        // Iterate over all entries under this entry
-        while ( cursor.next() )
+    /**
+     * Send the operations of a batch as {@link #write(LdapConnection, WriteBatch)} does, after merging modifications of
+     * the same entry into a single modify request.  Barriers are ignored, the operations must be independent of each
+     * other.  If a merged request fails, its operations are sent again one at a time so that each has its own outcome.
+     *
+     * @param connection handle to ldap connection.
+     * @param batch      contains the operations to send.
+     * @return the outcome of each operation, in the order they were added to the batch.
+     * @throws LdapException in the event of a system error, or a response is not received in time.
+     */
+    protected List<WriteBatch.Result> writeGrouped( LdapConnection connection, WriteBatch batch ) throws LdapException
+    {
+        List<WriteBatch.Operation> operations = batch.getOperations();
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for ( int i = 0; i < operations.size(); i++ )
         {
+            WriteBatch.Operation operation = operations.get( i );
+            String key = operation.getType() == WriteBatch.Type.MODIFY ? operation.getDn().getNormName() : "#" + i;
+            List<Integer> members = groups.get( key );
+            if ( members == null )
+            {
+                members = new ArrayList<>();
+                groups.put( key, members );
+            }
+            members.add( i );
+        }
+
+        WriteBatch merged = new WriteBatch();
+        for ( List<Integer> members : groups.values() )
+        {
+            WriteBatch.Operation first = operations.get( members.get( 0 ) );
+            if ( members.size() == 1 )
+            {
+                append( merged, first );
+            }
+            else
+            {
+                List<Modification> mods = new ArrayList<>();
+                for ( int i : members )
+                {
+                    mods.addAll( operations.get( i ).getMods() );
+                }
+                merged.modify( first.getDn(), mods, first.getEntity() );
+            }
+        }
+
+        WriteBatch.Result[] outcomes = new WriteBatch.Result[operations.size()];
+        WriteBatch retry = new WriteBatch();
+        List<Integer> retried = new ArrayList<>();
+        int group = 0;
+        List<WriteBatch.Result> results = write( connection, merged );
+        for ( List<Integer> members : groups.values() )
+        {
+            WriteBatch.Result result = results.get( group++ );
+            for ( int i : members )
+            {
+                WriteBatch.Operation operation = operations.get( i );
+                if ( members.size() > 1 && result.getResponse() != null && !result.isSuccess() )
+                {
+                    append( retry, operation );
+                    retried.add( i );
+                }
+                else
+                {
+                    outcomes[i] = new WriteBatch.Result( operation.getType(), operation.getDn(), result.getResponse() );
+                }
+            }
+        }
+
+        if ( retry.size() > 0 )
+        {
+            results = write( connection, retry );
+            for ( int i = 0; i < retried.size(); i++ )
+            {
+                outcomes[retried.get( i )] = results.get( i );
+            }
+        }
+
+        return Arrays.asList( outcomes );
+    }
+
+
+    private static void append( WriteBatch batch, WriteBatch.Operation operation )
+    {
+        switch ( operation.getType() )
+        {
+            case ADD:
+                batch.add( operation.getEntry(), operation.getEntity() );
+                break;
+
+            case MODIFY:
+                batch.modify( operation.getDn(), operation.getMods(), operation.getEntity() );
+                break;
+
+            default:
+                batch.delete( operation.getDn() );
+                break;
+        }
+    }
+
+
+    /**
+     * Sends the operations of a batch over a connection, counting the outcome of each against the circuit breaker.
+     */
+    private final class ConnectionPipeline extends WritePipeline
+    {
+        private final LdapConnection connection;
+
+
+        private ConnectionPipeline( LdapConnection connection )
+        {
+            super( connection instanceof LdapAsyncConnection ? WRITE_WINDOW : 1 );
+            this.connection = connection;
+        }
+
+
+        @Override
+        protected ResponseFuture<? extends ResultResponse> send( WriteBatch.Operation operation ) throws LdapException
+        {
+            if ( connection instanceof LdapAsyncConnection )
+            {
+                return writeAsync( ( LdapAsyncConnection ) connection, operation );
+            }
+
+            // the connection doesn't support asynchronous operations, the response is already in:
+            ResponseFuture<ResultResponse> future = new ResponseFuture<>( connection, 0 );
             try
             {
-                // Next directory entry
-                Entry entry = cursor.getEntry();
-                theDN = entry.getDn().getName();
-                // continue down:
-                deleteRecursive( theDN, connection, recursiveCount );
-                recursiveCount--;
+                future.set( LdapDataProvider.this.write( connection, operation ) );
             }
-            catch ( LdapException le )
+            catch ( InterruptedException ie )
             {
-                // cannot continue;
-                String error = "." + method + " dn [" + dn + "] caught LdapException=" + le.getMessage();
-                throw new LdapException( error );
+                Thread.currentThread().interrupt();
+                throw new LdapException( "write [" + operation.getDn() + "] interrupted", ie );
             }
+            catch ( ExecutionException ee )
+            {
+                throw new LdapException( "write [" + operation.getDn() + "] caught ExecutionException=" + ee, ee );
+            }
+            return future;
         }
 
-        // delete the node:
-        COUNTERS.incrementDelete();
-        delete( connection, dn );
+
+        @Override
+        protected long getTimeout()
+        {
+            return Deadline.getTimeout( LdapConnectionProvider.getTimeout() );
+        }
+
+
+        @Override
+        protected void received()
+        {
+            succeeded();
+        }
+
+
+        @Override
+        protected LdapException failed( LdapException cause )
+        {
+            return LdapDataProvider.failed( "write", cause );
+        }
+    }
+
+
+    private ResponseFuture<? extends ResultResponse> writeAsync( LdapAsyncConnection connection,
+        WriteBatch.Operation operation ) throws LdapException
+    {
+        switch ( operation.getType() )
+        {
+            case ADD:
+                COUNTERS.incrementAdd();
+                return connection.addAsync( newAddRequest( operation ) );
+
+            case MODIFY:
+                COUNTERS.incrementMod();
+                return connection.modifyAsync( newModifyRequest( operation ) );
+
+            default:
+                COUNTERS.incrementDelete();
+                return connection.deleteAsync( new DeleteRequestImpl().setName( operation.getDn() ) );
+        }
+    }
+
+
+    private ResultResponse write( LdapConnection connection, WriteBatch.Operation operation ) throws LdapException
+    {
+        switch ( operation.getType() )
+        {
+            case ADD:
+                COUNTERS.incrementAdd();
+                return connection.add( newAddRequest( operation ) );
+
+            case MODIFY:
+                COUNTERS.incrementMod();
+                return connection.modify( newModifyRequest( operation ) );
+
+            default:
+                COUNTERS.incrementDelete();
+                return connection.delete( new DeleteRequestImpl().setName( operation.getDn() ) );
+        }
+    }
+
+
+    private AddRequest newAddRequest( WriteBatch.Operation operation ) throws LdapException
+    {
+        Entry entry = operation.getEntry();
+        audit( entry, operation.getEntity() );
+        return new AddRequestImpl().setEntry( entry );
+    }
+
+
+    private ModifyRequest newModifyRequest( WriteBatch.Operation operation )
+    {
+        List<Modification> mods = new ArrayList<>( operation.getMods() );
+        audit( mods, operation.getEntity() );
+        ModifyRequest modifyRequest = new ModifyRequestImpl().setName( operation.getDn() );
+        for ( Modification mod : mods )
+        {
+            modifyRequest.addModification( mod );
+        }
+        return modifyRequest;
+    }
+
+
+    /**
+     * Add the audit context variables to a new entry.
+     *
+     * @param entry  contains data to add.
+     * @param entity contains audit context.
+     * @throws LdapException in the event the attributes can't be added to the entry.
+     */
+    private void audit( Entry entry, FortEntity entity ) throws LdapException
+    {
+        if ( !Config.getInstance().isAuditDisabled() && ( entity != null ) && ( entity.getAdminSession() != null ) )
+        {
+            if ( StringUtils.isNotEmpty( entity.getAdminSession().getInternalUserId() ) )
+            {
+                entry.add( GlobalIds.FT_MODIFIER, entity.getAdminSession().getInternalUserId() );
+            }
+
+            if ( StringUtils.isNotEmpty( entity.getModCode() ) )
+            {
+                entry.add( GlobalIds.FT_MODIFIER_CODE, entity.getModCode() );
+            }
+
+            if ( StringUtils.isNotEmpty( entity.getModId() ) )
+            {
+                entry.add( GlobalIds.FT_MODIFIER_ID, entity.getModId() );
+            }
+        }
     }
 
 
@@ -544,7 +919,7 @@ public abstract class LdapDataProvider
         searchRequest.setTypesOnly( attrsOnly );
         searchRequest.addAttributes( attrs );
 
-        return connection.search( searchRequest );
+        return search( connection, searchRequest );
     }
 
 
@@ -576,7 +951,113 @@ public abstract class LdapDataProvider
         searchRequest.setTypesOnly( attrsOnly );
         searchRequest.addAttributes( attrs );
 
-        return connection.search( searchRequest );
+        return search( connection, searchRequest );
+    }
+
+
+    /**
+     * Perform an ldap search for one page of results using the simple paged results control, so that the search is not
+     * truncated by the server's size limit.  Pages contain up to {@code ldap.page.size} (default 1000) entries.  Read the
+     * returned cursor to its end, then pass it to {@link #getCookie(SearchCursor)} for the cookie that requests the next
+     * page.
+     *
+     * @param connection is LdapConnection object used for all communication with host.
+     * @param baseDn     contains address of distinguished name to begin ldap search
+     * @param scope      indicates depth of search starting at basedn.  0 (base dn),
+     *                   1 (one level down) or 2 (infinite) are valid values.
+     * @param filter     contains the search criteria
+     * @param attrs      is the requested list of attritubutes to return from directory search.
+     * @param cookie     returned with the previous page, null requests the first page.
+     * @return result set containing ldap entries returned from directory.
+     * @throws LdapException thrown in the event of error in ldap client or server code.
+     */
+    protected SearchCursor searchPage( LdapConnection connection, String baseDn, SearchScope scope, String filter,
+        String[] attrs, byte[] cookie ) throws LdapException
+    {
+        COUNTERS.incrementSearch();
+
+        SearchRequest searchRequest = new SearchRequestImpl();
+        searchRequest.setBase( new Dn( baseDn ) );
+        searchRequest.setScope( scope );
+        searchRequest.setFilter( filter );
+        searchRequest.addAttributes( attrs );
+
+        PagedResults pagedResults = new PagedResultsImpl();
+        pagedResults.setSize( PAGE_SIZE );
+        pagedResults.setCookie( cookie != null ? cookie : new byte[0] );
+        searchRequest.addControl( pagedResults );
+
+        return search( connection, searchRequest );
+    }
+
+
+    /**
+     * Return the cookie that requests the page following the one a cursor returned by
+     * {@link #searchPage(LdapConnection, String, SearchScope, String, String[], byte[])} has been read to its end.
+     *
+     * @param cursor contains the page that was read.
+     * @return the cookie, null if it was the last page or the server doesn't support paging.
+     */
+    protected byte[] getCookie( SearchCursor cursor )
+    {
+        return PagedSearch.getCookie( cursor );
+    }
+
+
+    /**
+     * Count an ldap operation the directory responded to as a success of the circuit breaker.
+     */
+    private static void succeeded()
+    {
+        LdapConnectionProvider.getBreaker().recordSuccess();
+    }
+
+
+    /**
+     * Count an ldap operation the directory responded to as a success of the circuit breaker.
+     *
+     * @return the response.
+     */
+    private static <T> T succeeded( T response )
+    {
+        succeeded();
+        return response;
+    }
+
+
+    /**
+     * Count an ldap operation that failed against the circuit breaker and decide what to throw.  An operation the
+     * directory returned a result to is a success, and one that failed once the caller's deadline had passed is not
+     * counted, as the caller's time ran out rather than the directory's.
+     */
+    private static <E extends Exception> E failed( String operation, E cause )
+    {
+        if ( cause instanceof LdapOperationException )
+        {
+            succeeded();
+        }
+        else if ( !Deadline.isPassed() )
+        {
+            LdapConnectionProvider.getBreaker().recordFailure();
+        }
+        return Deadline.failed( operation, cause );
+    }
+
+
+    /**
+     * Send a search request, its results are iterated within the current {@link Deadline}, if any.
+     */
+    private SearchCursor search( LdapConnection connection, SearchRequest searchRequest ) throws LdapException
+    {
+        Deadline.apply( connection, "search" );
+        try
+        {
+            return Deadline.guard( succeeded( connection.search( searchRequest ) ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "search", e );
+        }
     }
 
 
@@ -606,7 +1087,7 @@ public abstract class LdapDataProvider
         searchRequest.setTypesOnly( attrsOnly );
         searchRequest.addAttributes( attrs );
 
-        SearchCursor result = connection.search( searchRequest );
+        SearchCursor result = search( connection, searchRequest );
 
         Entry entry = result.getEntry();
 
@@ -649,7 +1130,7 @@ public abstract class LdapDataProvider
         searchRequest.setTypesOnly( attrsOnly );
         searchRequest.addAttributes( attrs );
 
-        SearchCursor result = connection.search( searchRequest );
+        SearchCursor result = search( connection, searchRequest );
 
         Entry entry = result.getEntry();
 
@@ -681,11 +1162,29 @@ public abstract class LdapDataProvider
      */
     protected boolean compareNode( LdapConnection connection, String dn, String userDn,
         Attribute attribute ) throws LdapException, UnsupportedEncodingException
+    {
+        return compareNode( connection, new Dn( dn ), userDn, attribute );
+    }
+
+
+    /**
+     * Perform an LDAP compare operation on a particular attribute and value pair.
+     *
+     * @param connection handle to ldap connection.
+     * @param dn         contains address of distinguished name to begin ldap search
+     * @param userDn     dn for user node
+     * @param attribute  attribute used for compare
+     * @return true if compare operation succeeds
+     * @throws LdapException                thrown in the event of error in ldap client or server code.
+     * @throws UnsupportedEncodingException in the event the server cannot perform the operation.
+     */
+    protected boolean compareNode( LdapConnection connection, Dn dn, String userDn,
+        Attribute attribute ) throws LdapException, UnsupportedEncodingException
     {
         COUNTERS.incrementCompare();
 
         CompareRequest compareRequest = new CompareRequestImpl();
-        compareRequest.setName( new Dn( dn ) );
+        compareRequest.setName( dn );
         compareRequest.setAttributeId( attribute.getId() );
         compareRequest.setAssertionValue( attribute.getString() );
 
@@ -693,11 +1192,160 @@ public abstract class LdapDataProvider
         ProxiedAuthz proxiedAuthzControl = new ProxiedAuthzImpl();
         proxiedAuthzControl.setAuthzId( "dn: " + userDn );
         compareRequest.addControl( proxiedAuthzControl );
-        CompareResponse response = connection.compare( compareRequest );
+        Deadline.apply( connection, "compare" );
+        CompareResponse response;
+        try
+        {
+            response = succeeded( connection.compare( compareRequest ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "compare", e );
+        }
         return response.getLdapResult().getResultCode() == ResultCodeEnum.SUCCESS;
     }
 
 
+    /**
+     * Perform an LDAP compare operation to test whether an entry holds a particular attribute value, i.e. whether a
+     * user is a member of a group, without reading the attribute's values.
+     *
+     * @param connection  handle to ldap connection.
+     * @param dn          contains ldap distinguished name of the entry.
+     * @param attributeId name of the attribute to test.
+     * @param value       to look for.
+     * @return true if the entry holds the value, false if it doesn't or doesn't have the attribute.
+     * @throws LdapNoSuchObjectException if the entry doesn't exist.
+     * @throws LdapException             in the event system error occurs.
+     */
+    protected boolean compareValue( LdapConnection connection, String dn, String attributeId, String value )
+        throws LdapException
+    {
+        COUNTERS.incrementCompare();
+
+        CompareRequest compareRequest = new CompareRequestImpl();
+        compareRequest.setName( new Dn( dn ) );
+        compareRequest.setAttributeId( attributeId );
+        compareRequest.setAssertionValue( value );
+        Deadline.apply( connection, "compare" );
+        CompareResponse response;
+        try
+        {
+            response = succeeded( connection.compare( compareRequest ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "compare", e );
+        }
+
+        ResultCodeEnum resultCode = response.getLdapResult().getResultCode();
+        switch ( resultCode )
+        {
+            case COMPARE_TRUE:
+                return true;
+
+            case COMPARE_FALSE:
+            case NO_SUCH_ATTRIBUTE:
+                return false;
+
+            case NO_SUCH_OBJECT:
+                throw new LdapNoSuchObjectException( response.getLdapResult().getDiagnosticMessage() );
+
+            default:
+                throw new LdapOperationException( resultCode, response.getLdapResult().getDiagnosticMessage() );
+        }
+    }
+
+
+    /**
+     * Read a range of the values of a multi-valued attribute, i.e. a page of a group's members.  With
+     * {@code enable.ldap.range.retrieval=true} the values are requested a range at a time (attribute;range=low-high),
+     * so only those asked for are transferred.  Otherwise, or if the server ignores the range, every value is read
+     * and the range taken from them.
+     *
+     * @param connection  handle to ldap connection.
+     * @param dn          contains ldap distinguished name of the entry.
+     * @param attributeId name of the attribute to read.
+     * @param offset      index of the first value to return.
+     * @param size        maximum number of values to return, all remaining if less than one.
+     * @return List of values in the range, empty if the offset is past the last, null if the entry was not found.
+     * @throws LdapException in the event system error occurs.
+     */
+    protected List<String> readRange( LdapConnection connection, String dn, String attributeId, int offset, int size )
+        throws LdapException
+    {
+        if ( !IS_RANGE_RETRIEVAL )
+        {
+            Entry entry = read( connection, dn, new String[]{ attributeId } );
+            return entry != null ? getRange( entry.get( attributeId ), offset, size ) : null;
+        }
+
+        List<String> values = new ArrayList<>();
+        String prefix = ( attributeId + RANGE_OPTION ).toLowerCase();
+        String high = size > 0 ? String.valueOf( offset + size - 1 ) : "*";
+        int low = offset;
+        while ( size < 1 || values.size() < size )
+        {
+            Entry entry = read( connection, dn, new String[]{ attributeId + RANGE_OPTION + low + "-" + high } );
+            if ( entry == null )
+            {
+                return null;
+            }
+
+            String end = null;
+            for ( Attribute attribute : entry )
+            {
+                String upId = attribute.getUpId().toLowerCase();
+                if ( upId.equalsIgnoreCase( attributeId ) )
+                {
+                    // the server returned every value:
+                    return getRange( attribute, offset, size );
+                }
+                else if ( upId.startsWith( prefix ) )
+                {
+                    for ( Value<?> value : attribute )
+                    {
+                        values.add( value.getString() );
+                    }
+                    end = upId.substring( upId.lastIndexOf( '-' ) + 1 );
+                }
+            }
+
+            // the last range ends with '*':
+            if ( end == null || "*".equals( end ) )
+            {
+                break;
+            }
+            low = Integer.parseInt( end ) + 1;
+        }
+
+        return values;
+    }
+
+
+    private static List<String> getRange( Attribute attribute, int offset, int size )
+    {
+        List<String> values = new ArrayList<>();
+        if ( attribute != null )
+        {
+            int i = 0;
+            for ( Value<?> value : attribute )
+            {
+                if ( size > 0 && i >= offset + size )
+                {
+                    break;
+                }
+                else if ( i++ >= offset )
+                {
+                    values.add( value.getString() );
+                }
+            }
+        }
+
+        return values;
+    }
+
+
     /**
      * Method wraps ldap client to return multi-occurring attribute values by name within a given entry and returns
      * as a list of strings.
@@ -1189,7 +1837,14 @@ public abstract class LdapDataProvider
         bindReq.setDn( userDn );
         bindReq.setCredentials( password );
         bindReq.addControl( PP_REQ_CTRL );
-        return connection.bind( bindReq );
+        try
+        {
+            return succeeded( connection.bind( bindReq ) );
+        }
+        catch ( LdapException e )
+        {
+            throw failed( "bind", e );
+        }
     }
 
 
@@ -1226,6 +1881,25 @@ public abstract class LdapDataProvider
     }
 
 
+    /**
+     * Calls the PoolMgr to discard a User LDAP connection that is in an unknown state.  Called while the failure that
+     * broke the connection is being thrown, so a failure to discard it is logged rather than thrown in its place.
+     *
+     * @param connection handle to ldap connection object.
+     */
+    protected void invalidateUserConnection( LdapConnection connection )
+    {
+        try
+        {
+            LdapConnectionProvider.getInstance().invalidateUserConnection( connection );
+        }
+        catch ( LdapException e )
+        {
+            LOG.warn( "invalidateUserConnection caught LdapException={}", e.getMessage() );
+        }
+    }
+
+
     /**
      * Calls the PoolMgr to get an Admin connection to the LDAP server.
      *
@@ -1285,37 +1959,7 @@ public abstract class LdapDataProvider
      */
     protected String escapeLDAPSearchFilter( String filter )
     {
-        StringBuilder sb = new StringBuilder();
-        int filterLen = filter.length();
-
-        for ( int i = 0; i < filterLen; i++ )
-        {
-            boolean found = false;
-            char curChar = filter.charAt( i );
-            int j = 0;
-
-            for ( ; j < GlobalIds.LDAP_FILTER_SIZE; j++ )
-            {
-                if ( LdapUtil.getInstance().getLdapMetaChars()[j] > curChar )
-                {
-                    break;
-                }
-                else if ( curChar == LdapUtil.getInstance().getLdapMetaChars()[j] )
-                {
-                    sb.append( "\\" );
-                    sb.append( LdapUtil.getInstance().getLdapReplVals()[j] );
-                    found = true;
-                    break;
-                }
-            }
-
-            if ( !found )
-            {
-                sb.append( curChar );
-            }
-        }
-
-        return sb.toString();
+        return LdapUtil.getInstance().escapeFilterValue( filter );
     }
 
     /**
@@ -0,0 +1,146 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import org.apache.directory.api.ldap.model.cursor.CursorException;
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapOperationException;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+
+
+/**
+ * Iterates over the entries of a search read a page at a time with the simple paged results control, requesting each
+ * page with the cookie returned by the one before until the server returns an empty cookie.  The pages are requested
+ * from a {@link Pages}, usually
+ * {@link LdapDataProvider#searchPage(org.apache.directory.ldap.client.api.LdapConnection, String,
+ * org.apache.directory.api.ldap.model.message.SearchScope, String, String[], byte[])}.
+ * <p>
+ * A server that doesn't support paging returns a single page, ending it with sizeLimitExceeded if it holds fewer
+ * entries than match.  That is a failure rather than the end of the search, so a caller never mistakes a truncated
+ * result for a complete one.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class PagedSearch
+{
+    /**
+     * Sends the search for one page.
+     */
+    public interface Pages
+    {
+        /**
+         * @param cookie returned with the previous page, null requests the first page.
+         * @return cursor over the entries of the page.
+         * @throws LdapException in the event the search fails.
+         */
+        SearchCursor search( byte[] cookie ) throws LdapException;
+    }
+
+    private final Pages pages;
+    private SearchCursor cursor;
+    private byte[] cookie;
+    private long count;
+    private boolean isDone;
+
+
+    /**
+     * @param pages sends the search for each page.
+     */
+    public PagedSearch( Pages pages )
+    {
+        this.pages = pages;
+    }
+
+
+    /**
+     * Move to the next entry, requesting the next page once the current one has been read.
+     *
+     * @return true if there is another entry, false once the last page has been read.
+     * @throws LdapException in the event the search fails, or a page was cut short by the server's size limit.
+     * @throws CursorException in the event a page can't be read.
+     */
+    public boolean next() throws LdapException, CursorException
+    {
+        while ( !isDone )
+        {
+            if ( cursor == null )
+            {
+                cursor = pages.search( cookie );
+            }
+
+            if ( cursor.next() )
+            {
+                count++;
+                return true;
+            }
+
+            SearchResultDone done = cursor.getSearchResultDone();
+            if ( done != null && done.getLdapResult().getResultCode() == ResultCodeEnum.SIZE_LIMIT_EXCEEDED )
+            {
+                throw new LdapOperationException( ResultCodeEnum.SIZE_LIMIT_EXCEEDED, "size limit exceeded after ["
+                    + count + "] entries" );
+            }
+
+            cookie = getCookie( cursor );
+            cursor = null;
+            isDone = cookie == null;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * @return the entry {@link #next()} moved to.
+     * @throws LdapException in the event the response is not an entry.
+     */
+    public Entry getEntry() throws LdapException
+    {
+        return cursor.getEntry();
+    }
+
+
+    /**
+     * Return the cookie that requests the page following the one a cursor has been read to the end of.
+     *
+     * @param cursor contains the page that was read.
+     * @return the cookie, null if it was the last page or the server doesn't support paging.
+     */
+    static byte[] getCookie( SearchCursor cursor )
+    {
+        SearchResultDone done = cursor.getSearchResultDone();
+        Control control = done != null ? done.getControls().get( PagedResults.OID ) : null;
+        if ( !( control instanceof PagedResults ) )
+        {
+            return null;
+        }
+
+        byte[] cookie = ( ( PagedResults ) control ).getCookie();
+        return cookie != null && cookie.length > 0 ? cookie : null;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.util.Config;
+
+
+/**
+ * Holds, per tenant, the distinguished names of the containers the DAOs operate on, i.e. people, roles, perms, admin
+ * roles, OUs, audit and groups, both as strings and as parsed {@link Dn}s.  Each one is computed from the config on first
+ * use and kept until the config changes, so the DAOs no longer rebuild and reparse a container dn on every request.
+ * <p>
+ * Entity dns are derived from these by adding their rdn with {@link Dn#add(String)}, which parses only the rdn.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class RootDnRegistry
+{
+    private static final RootDnRegistry INSTANCE = new RootDnRegistry();
+    // key of the tenant's suffix, not a fortress parameter name.
+    private static final String SUFFIX_KEY = "";
+
+    private volatile Tenants tenants = new Tenants( 0 );
+
+
+    static RootDnRegistry getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+    private RootDnRegistry()
+    {
+    }
+
+
+    /**
+     * Given a contextId and a fortress param name return the LDAP dn.
+     *
+     * @param contextId is to determine what sub-tree to use.
+     * @param root      contains the fortress parameter name that corresponds with a particular LDAP container.
+     * @return String contains the dn to use for operation.
+     */
+    String getRootDn( String contextId, String root )
+    {
+        Roots roots = getRoots( contextId );
+        String dn = roots.strings.get( root );
+        if ( dn == null )
+        {
+            dn = computeRootDn( contextId, root );
+            if ( dn != null )
+            {
+                roots.strings.putIfAbsent( root, dn );
+            }
+        }
+        return dn;
+    }
+
+
+    /**
+     * Given a contextId return the LDAP dn that includes the suffix.
+     *
+     * @param contextId is to determine what sub-tree to use.
+     * @return String contains the dn to use for operation.
+     */
+    String getRootDn( String contextId )
+    {
+        Roots roots = getRoots( contextId );
+        String dn = roots.strings.get( SUFFIX_KEY );
+        if ( dn == null )
+        {
+            dn = computeSuffixDn( contextId );
+            roots.strings.putIfAbsent( SUFFIX_KEY, dn );
+        }
+        return dn;
+    }
+
+
+    /**
+     * Given a contextId and a fortress param name return the parsed LDAP dn.
+     *
+     * @param contextId is to determine what sub-tree to use.
+     * @param root      contains the fortress parameter name that corresponds with a particular LDAP container.
+     * @return Dn to use for operation.
+     * @throws LdapInvalidDnException in the event the configured dn is malformed.
+     */
+    Dn getRootDnName( String contextId, String root ) throws LdapInvalidDnException
+    {
+        Roots roots = getRoots( contextId );
+        Dn dn = roots.dns.get( root );
+        if ( dn == null )
+        {
+            dn = new Dn( getRootDn( contextId, root ) );
+            roots.dns.putIfAbsent( root, dn );
+        }
+        return dn;
+    }
+
+
+    /**
+     * Return the tenant's entries, discarding those of all tenants if the config changed since they were computed.
+     */
+    private Roots getRoots( String contextId )
+    {
+        Tenants current = tenants;
+        long version = Config.getInstance().getVersion();
+        if ( current.version != version )
+        {
+            current = new Tenants( version );
+            tenants = current;
+        }
+        String key = StringUtils.isEmpty( contextId ) ? GlobalIds.NULL : contextId;
+        Roots roots = current.roots.get( key );
+        if ( roots == null )
+        {
+            Roots created = new Roots();
+            roots = current.roots.putIfAbsent( key, created );
+            if ( roots == null )
+            {
+                roots = created;
+            }
+        }
+        return roots;
+    }
+
+
+    private static String computeRootDn( String contextId, String root )
+    {
+        String szDn = Config.getInstance().getProperty( root );
+
+        // The contextId must not be null, or "HOME" or "null"
+        if ( StringUtils.isNotEmpty( contextId ) && !contextId.equalsIgnoreCase( GlobalIds.NULL ) && !contextId
+            .equals( GlobalIds.HOME ) )
+        {
+            int idx = szDn.indexOf( Config.getInstance().getProperty( GlobalIds.SUFFIX ) );
+            if ( idx > 0 )
+            {
+                // Found. The DN is ,ou=<contextId>,
+                StringBuilder dn = new StringBuilder();
+                dn.append( szDn.substring( 0, idx - 1 ) ).append( "," ).append( SchemaConstants.OU_AT ).append( "=" )
+                    .append( contextId ).append( "," ).append( szDn.substring( idx ) );
+
+                return dn.toString();
+            }
+            else
+            {
+                return "";
+            }
+        }
+        else
+        {
+            return szDn;
+        }
+    }
+
+
+    private static String computeSuffixDn( String contextId )
+    {
+        StringBuilder dn = new StringBuilder();
+        if ( StringUtils.isNotEmpty( contextId ) && !contextId.equalsIgnoreCase( GlobalIds.NULL ) && !contextId
+            .equals( GlobalIds.HOME ) )
+        {
+            dn.append( SchemaConstants.OU_AT ).append( "=" ).append( contextId ).append( "," ).append(
+                Config.getInstance().getProperty( GlobalIds.SUFFIX ) );
+        }
+        else
+        {
+            dn.append( Config.getInstance().getProperty( GlobalIds.SUFFIX ) );
+        }
+        return dn.toString();
+    }
+
+
+    /**
+     * Entries of all tenants computed from one version of the config.
+     */
+    private static final class Tenants
+    {
+        private final long version;
+        private final ConcurrentMap<String, Roots> roots = new ConcurrentHashMap<>();
+
+
+        private Tenants( long version )
+        {
+            this.version = version;
+        }
+    }
+
+
+    /**
+     * Container dns of a single tenant keyed by fortress parameter name.
+     */
+    private static final class Roots
+    {
+        private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Dn> dns = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.io.IOException;
+
+import org.apache.commons.pool.PoolableObjectFactory;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.LdapConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Makes the connections of the User pool, which are only ever used to bind as the end user.  They are opened without a
+ * bind, as the pooled factories of the ldap api bind each new connection with the configured credentials, anonymously
+ * if there are none, and directories commonly disallow anonymous binds, e.g. {@code disallow bind_anon} in OpenLDAP.
+ * Nor are they rebound on release, as the bind made by the next borrower replaces the identity left by the previous
+ * one.  A connection is valid while it is open, so that one closed by the server, e.g. on restart, is replaced on
+ * borrow rather than failing a login.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class UserConnectionFactory implements PoolableObjectFactory<LdapConnection>
+{
+    private static final String CLS_NM = UserConnectionFactory.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+
+    private final LdapConnectionFactory connectionFactory;
+
+
+    /**
+     * @param connectionFactory makes the unbound connections, configured with the host, port and tls settings.
+     */
+    UserConnectionFactory( LdapConnectionFactory connectionFactory )
+    {
+        this.connectionFactory = connectionFactory;
+    }
+
+
+    /**
+     * Open a connection without binding it.
+     *
+     * @return the connection.
+     * @throws Exception if the connection could not be opened.
+     */
+    @Override
+    public LdapConnection makeObject() throws Exception
+    {
+        LdapConnection connection = connectionFactory.newUnboundLdapConnection();
+        boolean isConnected = false;
+        try
+        {
+            isConnected = connection.connect();
+            if ( !isConnected )
+            {
+                throw new LdapException( "makeObject could not connect" );
+            }
+        }
+        finally
+        {
+            if ( !isConnected )
+            {
+                close( connection );
+            }
+        }
+        return connection;
+    }
+
+
+    @Override
+    public void destroyObject( LdapConnection connection )
+    {
+        close( connection );
+    }
+
+
+    /**
+     * @return true if the connection is still open.
+     */
+    @Override
+    public boolean validateObject( LdapConnection connection )
+    {
+        return connection.isConnected();
+    }
+
+
+    @Override
+    public void activateObject( LdapConnection connection )
+    {
+    }
+
+
+    @Override
+    public void passivateObject( LdapConnection connection )
+    {
+    }
+
+
+    private static void close( LdapConnection connection )
+    {
+        try
+        {
+            connection.close();
+        }
+        catch ( IOException e )
+        {
+            LOG.debug( "close caught IOException={}", e.getMessage() );
+        }
+    }
+}
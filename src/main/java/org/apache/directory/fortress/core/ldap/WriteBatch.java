@@ -0,0 +1,303 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Modification;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.fortress.core.model.FortEntity;
+
+
+/**
+ * An ordered list of ldap writes that {@link LdapDataProvider#write(org.apache.directory.ldap.client.api.LdapConnection,
+ * WriteBatch)} sends over one connection without waiting for each response in turn.
+ * <p>
+ * The directory may process the requests of a single connection concurrently, so operations are only pipelined while
+ * they are independent of each other.  Call {@link #barrier()} before an operation that depends on an earlier one, i.e.
+ * adding an entry beneath one added earlier in the batch, and it is not sent until all of the operations preceding it
+ * have completed.  If any operation fails, those after the next barrier are not sent.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class WriteBatch
+{
+    /**
+     * The kinds of ldap operations a batch contains.
+     */
+    public enum Type
+    {
+        ADD,
+        MODIFY,
+        DELETE
+    }
+
+    private final List<Operation> operations = new ArrayList<>();
+    private boolean barrier;
+
+
+    /**
+     * Add a new ldap entry to the directory.  Add audit context if the entity is not null.
+     *
+     * @param entry  contains data to add.
+     * @param entity contains audit context, may be null.
+     * @return this batch.
+     */
+    public WriteBatch add( Entry entry, FortEntity entity )
+    {
+        return append( new Operation( Type.ADD, entry.getDn(), entry, null, entity, barrier ) );
+    }
+
+
+    /**
+     * Update an existing ldap entry.  Add audit context if the entity is not null.
+     *
+     * @param dn     contains distinguished node of entry.
+     * @param mods   contains data to modify.
+     * @param entity contains audit context, may be null.
+     * @return this batch.
+     */
+    public WriteBatch modify( Dn dn, List<Modification> mods, FortEntity entity )
+    {
+        return append( new Operation( Type.MODIFY, dn, null, mods, entity, barrier ) );
+    }
+
+
+    /**
+     * Delete an existing ldap entry.  No audit context is added.
+     *
+     * @param dn contains distinguished node of entry targeted for removal.
+     * @return this batch.
+     */
+    public WriteBatch delete( Dn dn )
+    {
+        return append( new Operation( Type.DELETE, dn, null, null, null, barrier ) );
+    }
+
+
+    /**
+     * Ensure the next operation added is not sent until all operations added before it have completed.
+     *
+     * @return this batch.
+     */
+    public WriteBatch barrier()
+    {
+        barrier = !operations.isEmpty();
+        return this;
+    }
+
+
+    /**
+     * Build the batch that deletes a node and all of its descendants, deepest first.  The deletes of entries at the
+     * same depth are pipelined, as these don't depend on each other, and each level waits for the one beneath it.
+     *
+     * @param baseDn  contains distinguished name of the node.
+     * @param subtree contains the node and its descendants, in any order.
+     * @return the batch.
+     */
+    static WriteBatch deleteSubtree( Dn baseDn, List<Dn> subtree )
+    {
+        // descendants by depth below the node, deepest first:
+        SortedMap<Integer, List<Dn>> levels = new TreeMap<>( Collections.reverseOrder() );
+        for ( Dn dn : subtree )
+        {
+            int depth = dn.size() - baseDn.size();
+            List<Dn> level = levels.get( depth );
+            if ( level == null )
+            {
+                level = new ArrayList<>();
+                levels.put( depth, level );
+            }
+            level.add( dn );
+        }
+
+        WriteBatch batch = new WriteBatch();
+        for ( List<Dn> level : levels.values() )
+        {
+            // children must be gone before their parent is deleted:
+            batch.barrier();
+            for ( Dn dn : level )
+            {
+                batch.delete( dn );
+            }
+        }
+        return batch;
+    }
+
+
+    /**
+     * @return number of operations in the batch.
+     */
+    public int size()
+    {
+        return operations.size();
+    }
+
+
+    /**
+     * @return the operations in the order they were added.
+     */
+    List<Operation> getOperations()
+    {
+        return Collections.unmodifiableList( operations );
+    }
+
+
+    private WriteBatch append( Operation operation )
+    {
+        operations.add( operation );
+        barrier = false;
+        return this;
+    }
+
+
+    /**
+     * A single write held by the batch.
+     */
+    static final class Operation
+    {
+        private final Type type;
+        private final Dn dn;
+        private final Entry entry;
+        private final List<Modification> mods;
+        private final FortEntity entity;
+        private final boolean barrier;
+
+
+        private Operation( Type type, Dn dn, Entry entry, List<Modification> mods, FortEntity entity, boolean barrier )
+        {
+            this.type = type;
+            this.dn = dn;
+            this.entry = entry;
+            this.mods = mods;
+            this.entity = entity;
+            this.barrier = barrier;
+        }
+
+
+        Type getType()
+        {
+            return type;
+        }
+
+
+        Dn getDn()
+        {
+            return dn;
+        }
+
+
+        Entry getEntry()
+        {
+            return entry;
+        }
+
+
+        List<Modification> getMods()
+        {
+            return mods;
+        }
+
+
+        FortEntity getEntity()
+        {
+            return entity;
+        }
+
+
+        boolean isBarrier()
+        {
+            return barrier;
+        }
+    }
+
+
+    /**
+     * The outcome of one operation of a batch.
+     */
+    public static final class Result
+    {
+        private final Type type;
+        private final Dn dn;
+        private final ResultResponse response;
+
+
+        Result( Type type, Dn dn, ResultResponse response )
+        {
+            this.type = type;
+            this.dn = dn;
+            this.response = response;
+        }
+
+
+        /**
+         * @return the kind of operation.
+         */
+        public Type getType()
+        {
+            return type;
+        }
+
+
+        /**
+         * @return distinguished name of the entry the operation targeted.
+         */
+        public Dn getDn()
+        {
+            return dn;
+        }
+
+
+        /**
+         * @return the server's response, null if the operation was not sent because an earlier one failed.
+         */
+        public ResultResponse getResponse()
+        {
+            return response;
+        }
+
+
+        /**
+         * @return true if the operation was sent and the directory returned success.
+         */
+        public boolean isSuccess()
+        {
+            return response != null && response.getLdapResult().getResultCode() == ResultCodeEnum.SUCCESS;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return type + " [" + dn + "] " + ( response == null ? "NOT SENT" : response.getLdapResult()
+                .getResultCode() );
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.ldap.client.api.future.ResponseFuture;
+
+
+/**
+ * Sends the operations of a {@link WriteBatch} without waiting for the response to each before sending the next,
+ * unless a barrier separates them.  Once an operation fails, those following the next barrier are not sent.  At most
+ * {@code window} operations are outstanding at a time.
+ * <p>
+ * Subclasses send each operation, i.e. over an ldap connection, and are told of the outcome of each so they can count
+ * it against the circuit breaker.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+abstract class WritePipeline
+{
+    private final int window;
+
+
+    /**
+     * @param window max operations outstanding at a time, one sends each operation in turn.
+     */
+    WritePipeline( int window )
+    {
+        this.window = Math.max( 1, window );
+    }
+
+
+    /**
+     * Send an operation.
+     *
+     * @param operation contains the write to send.
+     * @return the future that receives the response.
+     * @throws LdapException in the event the operation can't be sent.
+     */
+    protected abstract ResponseFuture<? extends ResultResponse> send( WriteBatch.Operation operation )
+        throws LdapException;
+
+
+    /**
+     * @return how long to wait for a response, in milliseconds.
+     */
+    protected abstract long getTimeout();
+
+
+    /**
+     * Called for each response received.
+     */
+    protected void received()
+    {
+    }
+
+
+    /**
+     * Called when an operation can't be sent, or its response is not received.
+     *
+     * @param cause contains the reason.
+     * @return the exception to throw.
+     */
+    protected LdapException failed( LdapException cause )
+    {
+        return cause;
+    }
+
+
+    /**
+     * Send the operations of a batch.
+     *
+     * @param batch contains the operations to send.
+     * @return the outcome of each operation, in the order they were added to the batch.
+     * @throws LdapException in the event of a system error, or a response is not received in time.
+     */
+    final List<WriteBatch.Result> write( WriteBatch batch ) throws LdapException
+    {
+        List<WriteBatch.Result> results = new ArrayList<>( batch.size() );
+        List<WriteBatch.Operation> sent = new ArrayList<>();
+        List<ResponseFuture<? extends ResultResponse>> pending = new ArrayList<>();
+        // an operation since the last barrier failed:
+        boolean failed = false;
+        boolean isStopped = false;
+
+        for ( WriteBatch.Operation operation : batch.getOperations() )
+        {
+            if ( operation.isBarrier() && !isStopped )
+            {
+                if ( !pending.isEmpty() )
+                {
+                    failed = await( sent, pending, results ) || failed;
+                }
+                isStopped = failed;
+            }
+
+            if ( isStopped )
+            {
+                results.add( new WriteBatch.Result( operation.getType(), operation.getDn(), null ) );
+                continue;
+            }
+
+            try
+            {
+                pending.add( send( operation ) );
+            }
+            catch ( LdapException e )
+            {
+                throw failed( e );
+            }
+            sent.add( operation );
+            if ( pending.size() >= window )
+            {
+                failed = await( sent, pending, results ) || failed;
+            }
+        }
+
+        await( sent, pending, results );
+        return results;
+    }
+
+
+    /**
+     * Wait for the responses to the outstanding operations, in the order sent.
+     *
+     * @return true if any of them failed.
+     */
+    private boolean await( List<WriteBatch.Operation> sent, List<ResponseFuture<? extends ResultResponse>> pending,
+        List<WriteBatch.Result> results ) throws LdapException
+    {
+        boolean failed = false;
+        long timeout = getTimeout();
+
+        for ( int i = 0; i < pending.size(); i++ )
+        {
+            WriteBatch.Operation operation = sent.get( i );
+            ResultResponse response;
+            try
+            {
+                response = pending.get( i ).get( timeout, TimeUnit.MILLISECONDS );
+            }
+            catch ( InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+                throw new LdapException( "write [" + operation.getDn() + "] interrupted", ie );
+            }
+            catch ( Exception e )
+            {
+                throw failed( new LdapException( "write [" + operation.getDn() + "] caught Exception=" + e, e ) );
+            }
+
+            if ( response == null )
+            {
+                throw failed( new LdapException( "write [" + operation.getDn() + "] no response in [" + timeout
+                    + "] ms" ) );
+            }
+
+            received();
+            results.add( new WriteBatch.Result( operation.getType(), operation.getDn(), response ) );
+            failed = failed || response.getLdapResult().getResultCode() != ResultCodeEnum.SUCCESS;
+        }
+
+        sent.clear();
+        pending.clear();
+        return failed;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import java.io.Serializable;
+import java.util.Date;
+
+
+/**
+ * This entity class contains the number of successful and failed authorization or authentication events counted from
+ * OpenLDAP slapd access log records over a period of time, for a user, a permission, or all of them.  It is returned by
+ * {@link org.apache.directory.fortress.core.AuditMgr#getAuthZStats(UserAudit)} and
+ * {@link org.apache.directory.fortress.core.AuditMgr#getBindStats(UserAudit)}.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@XmlRootElement(name = "fortAuditStats")
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlType(name = "auditStats", propOrder =
+    {
+        "name",
+        "successCount",
+        "failureCount",
+        "beginDate",
+        "endDate",
+        "results"
+})
+public class AuditStats extends FortEntity implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private String name;
+    private long successCount;
+    private long failureCount;
+    private Date beginDate;
+    private Date endDate;
+    private Props results;
+
+
+    /**
+     * Return the distinguished name of the user or permission the events were counted for, null if they were counted for
+     * all.
+     *
+     * @return name of what the events were counted for.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * Set the distinguished name of the user or permission the events were counted for.
+     *
+     * @param name of what the events were counted for.
+     */
+    public void setName( String name )
+    {
+        this.name = name;
+    }
+
+
+    /**
+     * Return the number of successful events, i.e. authorization checks that were granted or binds that succeeded.
+     *
+     * @return number of successful events.
+     */
+    public long getSuccessCount()
+    {
+        return successCount;
+    }
+
+
+    /**
+     * Set the number of successful events.
+     *
+     * @param successCount number of successful events.
+     */
+    public void setSuccessCount( long successCount )
+    {
+        this.successCount = successCount;
+    }
+
+
+    /**
+     * Return the number of failed events, i.e. authorization checks that were denied or errored, or binds that failed.
+     *
+     * @return number of failed events.
+     */
+    public long getFailureCount()
+    {
+        return failureCount;
+    }
+
+
+    /**
+     * Set the number of failed events.
+     *
+     * @param failureCount number of failed events.
+     */
+    public void setFailureCount( long failureCount )
+    {
+        this.failureCount = failureCount;
+    }
+
+
+    /**
+     * Return the start of the period the events were counted over.
+     *
+     * @return date of the first event that could be counted.
+     */
+    public Date getBeginDate()
+    {
+        return beginDate;
+    }
+
+
+    /**
+     * Set the start of the period the events were counted over.
+     *
+     * @param beginDate date of the first event that could be counted.
+     */
+    public void setBeginDate( Date beginDate )
+    {
+        this.beginDate = beginDate;
+    }
+
+
+    /**
+     * Return the end of the period the events were counted over, i.e. the reqStart of the latest log record read.
+     *
+     * @return date of the last event that could be counted.
+     */
+    public Date getEndDate()
+    {
+        return endDate;
+    }
+
+
+    /**
+     * Set the end of the period the events were counted over.
+     *
+     * @param endDate date of the last event that could be counted.
+     */
+    public void setEndDate( Date endDate )
+    {
+        this.endDate = endDate;
+    }
+
+
+    /**
+     * Return the number of events by LDAP result code, e.g. 6 (compareTrue) for a granted authorization check or 49
+     * (invalidCredentials) for a failed bind.  Only set when the events were counted for all users and permissions.
+     *
+     * @return the result codes as keys and the number of events as values, null if not set.
+     */
+    public Props getResults()
+    {
+        return results;
+    }
+
+
+    /**
+     * Set the number of events by LDAP result code.
+     *
+     * @param results the result codes as keys and the number of events as values.
+     */
+    public void setResults( Props results )
+    {
+        this.results = results;
+    }
+}
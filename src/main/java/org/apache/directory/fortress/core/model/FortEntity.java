@@ -86,6 +86,7 @@ import javax.xml.bind.annotation.XmlType;
         AuthZ.class,
         Bind.class,
         Mod.class,
+        AuditStats.class,
         Props.class,
         PermissionAttribute.class,
         PermissionAttributeSet.class,
@@ -22,7 +22,10 @@ package org.apache.directory.fortress.core.model;
 
 import org.apache.directory.fortress.core.util.PropUtil;
 
+import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.*;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Enumeration;
@@ -105,6 +108,9 @@ public class Group extends FortEntity implements Serializable
     @XmlElement( nillable = true )
     private List<UserRole> roles = new ArrayList<>();
 
+    // Members excluded from the read that produced this entity, loaded on first access:
+    private transient MemberLoader memberLoader;
+
     /**
      * enum for User or Role data sets.  Both nodes may be stored in the same LDAP container.
      */
@@ -285,6 +291,7 @@ public class Group extends FortEntity implements Serializable
      */
     public void setMember( String userId )
     {
+        resolveMembers();
         if ( members == null )
         {
             members = new ArrayList<>();
@@ -297,13 +304,44 @@ public class Group extends FortEntity implements Serializable
      * Return the members
      *
      * @return List of type String containing userIds.
+     * @throws org.apache.directory.fortress.core.MemberLoadException if the members were excluded from the read and
+     *         could not be loaded.
      */
     public List<String> getMembers()
     {
+        resolveMembers();
         return members;
     }
 
 
+    /**
+     * Return a range of the members.  If the members were excluded from the read that produced this entity only the
+     * range is retrieved from the directory and it is not kept.
+     *
+     * @param offset index of the first member to return.
+     * @param size   maximum number of members to return, all remaining if less than one.
+     * @return List of type String containing the members in the range, empty if the offset is past the last.
+     * @throws org.apache.directory.fortress.core.MemberLoadException if the members were excluded from the read and
+     *         could not be loaded.
+     */
+    public List<String> getMembers( int offset, int size )
+    {
+        MemberLoader loader = memberLoader;
+        if ( loader != null )
+        {
+            return loader.loadCB( this, offset, size );
+        }
+
+        List<String> range = new ArrayList<>();
+        if ( members != null && offset < members.size() )
+        {
+            int end = size > 0 ? Math.min( members.size(), offset + size ) : members.size();
+            range.addAll( members.subList( offset, end ) );
+        }
+        return range;
+    }
+
+
     /**
      * Set a member on this entity using a comma delimited String.
      *
@@ -333,10 +371,67 @@ public class Group extends FortEntity implements Serializable
      */
     public void setMembers( List<String> members )
     {
+        this.memberLoader = null;
         this.members = members;
     }
 
 
+    /**
+     * Record the callback used to load the members, which were not retrieved from the directory, on first access.
+     * This method is called by the DAO and is not intended to be called by external programs.
+     *
+     * @param memberLoader provides the method to load them, null if they were retrieved.
+     */
+    public void deferMembers( MemberLoader memberLoader )
+    {
+        this.members = null;
+        this.memberLoader = memberLoader;
+    }
+
+
+    /**
+     * Return true if the members have been loaded from the directory or set by caller.
+     *
+     * @return boolean value, false if the members are still waiting to be loaded.
+     */
+    public boolean isMembersLoaded()
+    {
+        return memberLoader == null;
+    }
+
+
+    /**
+     * Load the members if they were excluded from the original read.  They stay deferred if the load fails.
+     *
+     * @throws org.apache.directory.fortress.core.MemberLoadException in the event the load fails.
+     */
+    private void resolveMembers()
+    {
+        MemberLoader loader = memberLoader;
+        if ( loader != null )
+        {
+            members = loader.loadCB( this, 0, 0 );
+            memberLoader = null;
+        }
+    }
+
+
+    /**
+     * Called by JAXB, the members are bound by field so must be loaded before this entity is marshalled.
+     */
+    private void beforeMarshal( Marshaller marshaller )
+    {
+        resolveMembers();
+    }
+
+
+    private void writeObject( ObjectOutputStream out ) throws IOException
+    {
+        resolveMembers();
+        out.defaultWriteObject();
+    }
+
+
     /**
      * Add name/value pair to list of properties associated with PermObj.  These values are not constrained by Fortress.
      * Properties are optional.
@@ -550,7 +645,6 @@ public class Group extends FortEntity implements Serializable
         int result = name.hashCode();
         result = 31 * result + ( description != null ? description.hashCode() : 0 );
         result = 31 * result + ( protocol != null ? protocol.hashCode() : 0 );
-        result = 31 * result + ( members != null ? members.hashCode() : 0 );
         result = 31 * result + ( props != null ? props.hashCode() : 0 );
         return result;
     }
@@ -0,0 +1,116 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Memoized set of roles, activated and inherited, that was computed for a {@link Session}.  It is held on the Session by
+ * the role utilities so repeated authorization checks on a long lived session skip the traversal of the role hierarchy.
+ * <p>
+ * The set stays current as long as the session's activated roles, the tenant, the hierarchy graph and that graph's
+ * version are unchanged.  Activating or dropping a role, or any update to the role hierarchy, causes it to be recomputed
+ * on next use.
+ * <p>
+ * This class is immutable and thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class InheritedRoles
+{
+    private final String[] activated;
+    private final String contextId;
+    private final Object hierarchy;
+    private final long version;
+    private final Set<String> roles;
+
+
+    /**
+     * Memoize the inherited roles.
+     *
+     * @param activated contains the roles activated into the session when the set was computed.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param hierarchy the role hierarchy the set was computed from.
+     * @param version   of the role hierarchy at the time the set was computed.
+     * @param roles     the computed set, must not be modified afterwards.
+     */
+    public InheritedRoles( List<? extends UserRole> activated, String contextId, Object hierarchy, long version,
+        Set<String> roles )
+    {
+        int size = activated == null ? 0 : activated.size();
+        this.activated = new String[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            this.activated[i] = activated.get( i ).getName();
+        }
+        this.contextId = contextId;
+        this.hierarchy = hierarchy;
+        this.version = version;
+        this.roles = roles;
+    }
+
+
+    /**
+     * Determine if the memoized set may still be used.
+     *
+     * @param activated contains the roles currently activated into the session.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param hierarchy the current role hierarchy.
+     * @param version   the current version of the role hierarchy.
+     * @return true if nothing the set depends on has changed since it was computed.
+     */
+    public boolean isCurrent( List<? extends UserRole> activated, String contextId, Object hierarchy, long version )
+    {
+        if ( this.hierarchy != hierarchy || this.version != version )
+        {
+            return false;
+        }
+        if ( this.contextId == null ? contextId != null : !this.contextId.equals( contextId ) )
+        {
+            return false;
+        }
+        int size = activated == null ? 0 : activated.size();
+        if ( this.activated.length != size )
+        {
+            return false;
+        }
+        for ( int i = 0; i < size; i++ )
+        {
+            String name = activated.get( i ).getName();
+            if ( name == null ? this.activated[i] != null : !name.equals( this.activated[i] ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * @return the activated and inherited role names, case insensitive and unmodifiable.
+     */
+    public Set<String> getRoles()
+    {
+        return roles;
+    }
+}
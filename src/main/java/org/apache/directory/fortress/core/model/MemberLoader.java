@@ -0,0 +1,42 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+import java.util.List;
+
+/**
+ * This interface provides a callback mechanism for entities {@link Group} and {@link Role} to load their members,
+ * respectively occupants, that were excluded from the original read and is implemented by GroupDAO and RoleDAO.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface MemberLoader
+{
+    /**
+     * Retrieve a range of the entity's members from the directory.
+     *
+     * @param entity contains the name and contextId of the entity to load.
+     * @param offset index of the first member to retrieve.
+     * @param size   maximum number of members to retrieve, all remaining if less than one.
+     * @return List of members, empty if the offset is past the last.
+     * @throws org.apache.directory.fortress.core.MemberLoadException in the event they could not be retrieved.
+     */
+    List<String> loadCB( FortEntity entity, int offset, int size );
+}
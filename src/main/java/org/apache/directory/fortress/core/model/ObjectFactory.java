@@ -60,6 +60,7 @@ public class ObjectFactory
     private static final QName FORTUSERAUDIT_QNAME = new QName( "", "fortUserAudit" );
     private static final QName FORTAUTHZ_QNAME = new QName( "", "fortAuthZ" );
     private static final QName FORTMOD_QNAME = new QName( "", "fortMod" );
+    private static final QName FORTAUDITSTATS_QNAME = new QName( "", "fortAuditStats" );
     private static final QName FORTROLEPERM_QNAME = new QName( "", "fortRolePerm" );
     private static final QName FORTRESPONSE_QNAME = new QName( "", "fortResponse" );
     private static final QName FORTREQUEST_QNAME = new QName( "", "fortRequest" );
@@ -292,6 +293,16 @@ public class ObjectFactory
     }
 
 
+    /**
+     * Create an instance of {@link JAXBElement }{@code <}{@link org.apache.directory.fortress.core.model.AuditStats }{@code >}}
+     */
+    @XmlElementDecl(namespace = "", name = "fortAuditStats")
+    public JAXBElement<AuditStats> createFortAuditStats( AuditStats value )
+    {
+        return new JAXBElement<>( FORTAUDITSTATS_QNAME, AuditStats.class, null, value );
+    }
+
+
     /**
      * Create an instance of {@link JAXBElement }{@code <}{@link org.apache.directory.fortress.core.model.RolePerm }{@code >}}
      */
@@ -569,6 +580,15 @@ public class ObjectFactory
     }
 
 
+    /**
+     * Create an instance of {@link AuditStats}
+     */
+    public AuditStats createAuditStats()
+    {
+        return new AuditStats();
+    }
+
+
     /**
      * Create an instance of {@link RolePerm}
      */
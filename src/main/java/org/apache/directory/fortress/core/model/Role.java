@@ -20,6 +20,8 @@
 package org.apache.directory.fortress.core.model;
 
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
@@ -28,6 +30,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
 
+import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -238,6 +241,8 @@ public class Role extends FortEntity implements Constraint, Graphable, java.io.S
     private String dayMask; // this attribute is ftCstr
     private int timeout; // this attribute is ftCstr
     private Props props = new Props();
+    // Occupants excluded from the read that produced this entity, loaded on first access:
+    private transient MemberLoader occupantLoader;
     
     
     /**
@@ -322,6 +327,7 @@ public class Role extends FortEntity implements Constraint, Graphable, java.io.S
      */
     public void setOccupant( String occupant )
     {
+        resolveOccupants();
         if ( this.occupants == null )
         {
             this.occupants = new ArrayList<>();
@@ -334,13 +340,44 @@ public class Role extends FortEntity implements Constraint, Graphable, java.io.S
      * Return list of occupants for a particular Role entity.
      * @return List of type String containing User dn that maps to 'roleOccupant' attribute on 'organizationalrole' object 
      * class.
+     * @throws org.apache.directory.fortress.core.MemberLoadException if the occupants were excluded from the read and
+     *         could not be loaded.
      */
     public List<String> getOccupants()
     {
+        resolveOccupants();
         return occupants;
     }
     
     
+    /**
+     * Return a range of the occupants.  If the occupants were excluded from the read that produced this entity only
+     * the range is retrieved from the directory and it is not kept.
+     *
+     * @param offset index of the first occupant to return.
+     * @param size   maximum number of occupants to return, all remaining if less than one.
+     * @return List of type String containing the User dns in the range, empty if the offset is past the last.
+     * @throws org.apache.directory.fortress.core.MemberLoadException if the occupants were excluded from the read and
+     *         could not be loaded.
+     */
+    public List<String> getOccupants( int offset, int size )
+    {
+        MemberLoader loader = occupantLoader;
+        if ( loader != null )
+        {
+            return loader.loadCB( this, offset, size );
+        }
+
+        List<String> range = new ArrayList<>();
+        if ( occupants != null && offset < occupants.size() )
+        {
+            int end = size > 0 ? Math.min( occupants.size(), offset + size ) : occupants.size();
+            range.addAll( occupants.subList( offset, end ) );
+        }
+        return range;
+    }
+    
+    
     /**
      * Set a list of occupants for a particular Role entity.
      * @param occupants contains a List of type String which maps to 'roleOccupant' attribute on 'organizationalrole' 
@@ -348,10 +385,67 @@ public class Role extends FortEntity implements Constraint, Graphable, java.io.S
      */
     public void setOccupants( List<String> occupants )
     {
+        this.occupantLoader = null;
         this.occupants = occupants;
     }
     
     
+    /**
+     * Record the callback used to load the occupants, which were not retrieved from the directory, on first access.
+     * This method is called by the DAO and is not intended to be called by external programs.
+     *
+     * @param occupantLoader provides the method to load them, null if they were retrieved.
+     */
+    public void deferOccupants( MemberLoader occupantLoader )
+    {
+        this.occupants = null;
+        this.occupantLoader = occupantLoader;
+    }
+    
+    
+    /**
+     * Return true if the occupants have been loaded from the directory or set by caller.
+     *
+     * @return boolean value, false if the occupants are still waiting to be loaded.
+     */
+    public boolean isOccupantsLoaded()
+    {
+        return occupantLoader == null;
+    }
+    
+    
+    /**
+     * Load the occupants if they were excluded from the original read.  They stay deferred if the load fails.
+     *
+     * @throws org.apache.directory.fortress.core.MemberLoadException in the event the load fails.
+     */
+    private void resolveOccupants()
+    {
+        MemberLoader loader = occupantLoader;
+        if ( loader != null )
+        {
+            occupants = loader.loadCB( this, 0, 0 );
+            occupantLoader = null;
+        }
+    }
+    
+    
+    /**
+     * Called by JAXB, the occupants are bound by field so must be loaded before this entity is marshalled.
+     */
+    private void beforeMarshal( Marshaller marshaller )
+    {
+        resolveOccupants();
+    }
+    
+    
+    private void writeObject( ObjectOutputStream out ) throws IOException
+    {
+        resolveOccupants();
+        out.defaultWriteObject();
+    }
+    
+    
     /**
      * Returns optional description that is associated with Role.  This attribute is validated but not constrained by 
      * Fortress.
@@ -789,7 +883,6 @@ public class Role extends FortEntity implements Constraint, Graphable, java.io.S
         result = 31 * result + ( name != null ? name.hashCode() : 0 );
         result = 31 * result + ( description != null ? description.hashCode() : 0 );
         result = 31 * result + ( dn != null ? dn.hashCode() : 0 );
-        result = 31 * result + ( occupants != null ? occupants.hashCode() : 0 );
         result = 31 * result + ( parents != null ? parents.hashCode() : 0 );
         result = 31 * result + ( children != null ? children.hashCode() : 0 );
         result = 31 * result + ( beginTime != null ? beginTime.hashCode() : 0 );
@@ -189,6 +189,9 @@ public class Session  extends FortEntity implements PwMessage, Serializable
     private boolean isGroupSession;
     private String message;
     private List<Warning> warnings;
+    // Memoized by the role utilities, not shipped over http.
+    private transient volatile InheritedRoles inheritedRoles;
+    private transient volatile InheritedRoles inheritedAdminRoles;
 
     /**
      * A 'true' value here indicates user successfully authenticated with Fortress.
@@ -839,6 +842,54 @@ public class Session  extends FortEntity implements PwMessage, Serializable
     }
 
 
+    /**
+     * Return the RBAC roles, activated and inherited, that were last computed for this Session.
+     * Not intended for use outside of Fortress packages.
+     *
+     * @return memoized set or null if not yet computed.
+     */
+    public InheritedRoles getInheritedRolesCB()
+    {
+        return inheritedRoles;
+    }
+
+
+    /**
+     * Memoize the RBAC roles, activated and inherited, computed for this Session.
+     * Not intended for use outside of Fortress packages.
+     *
+     * @param inheritedRoles contains the computed set along with what it was computed from.
+     */
+    public void setInheritedRolesCB( InheritedRoles inheritedRoles )
+    {
+        this.inheritedRoles = inheritedRoles;
+    }
+
+
+    /**
+     * Return the ARBAC roles, activated and inherited, that were last computed for this Session.
+     * Not intended for use outside of Fortress packages.
+     *
+     * @return memoized set or null if not yet computed.
+     */
+    public InheritedRoles getInheritedAdminRolesCB()
+    {
+        return inheritedAdminRoles;
+    }
+
+
+    /**
+     * Memoize the ARBAC roles, activated and inherited, computed for this Session.
+     * Not intended for use outside of Fortress packages.
+     *
+     * @param inheritedAdminRoles contains the computed set along with what it was computed from.
+     */
+    public void setInheritedAdminRolesCB( InheritedRoles inheritedAdminRoles )
+    {
+        this.inheritedAdminRoles = inheritedAdminRoles;
+    }
+
+
     /**
      * @see Object#toString()
      */
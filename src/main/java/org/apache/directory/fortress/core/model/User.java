@@ -20,13 +20,18 @@
 package org.apache.directory.fortress.core.model;
 
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
 
+import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -317,6 +322,10 @@ public class User extends FortEntity implements Constraint, Serializable
     private String loginShell;
     private String gecos;
 
+    // Attribute groups excluded from the read that produced this entity, loaded on first access:
+    private transient Set<UserProjection> deferred;
+    private transient UserLoader loader;
+
 
     public String getUidNumber()
     {
@@ -596,6 +605,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public String getPwPolicy()
     {
+        resolve( UserProjection.PASSWORD_POLICY );
+
         return pwPolicy;
     }
 
@@ -608,6 +619,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setPwPolicy( String pwPolicy )
     {
+        undefer( UserProjection.PASSWORD_POLICY );
+
         this.pwPolicy = pwPolicy;
     }
 
@@ -619,6 +632,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public List<UserRole> getRoles()
     {
+        resolve( UserProjection.ROLES );
+
         // do not return a null List to caller:
         if ( roles == null )
         {
@@ -637,6 +652,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setRoles( List<UserRole> roles )
     {
+        undefer( UserProjection.ROLES );
+
         this.roles = roles;
     }
 
@@ -648,6 +665,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setRole( UserRole role )
     {
+        resolve( UserProjection.ROLES );
+
         if ( roles == null )
         {
             roles = new ArrayList<>();
@@ -664,6 +683,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setRoleName( String roleName )
     {
+        resolve( UserProjection.ROLES );
+
         if ( roles == null )
         {
             roles = new ArrayList<>();
@@ -680,6 +701,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void delRole( UserRole role )
     {
+        resolve( UserProjection.ROLES );
+
         if ( roles != null )
         {
             roles.remove( role );
@@ -694,6 +717,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public List<UserAdminRole> getAdminRoles()
     {
+        resolve( UserProjection.ADMIN_ROLES );
+
         // do not return a null List to caller:
         if ( adminRoles == null )
         {
@@ -711,6 +736,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setAdminRoles( List<UserAdminRole> roles )
     {
+        undefer( UserProjection.ADMIN_ROLES );
+
         this.adminRoles = roles;
     }
 
@@ -722,6 +749,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setAdminRole( UserAdminRole role )
     {
+        resolve( UserProjection.ADMIN_ROLES );
+
         if ( adminRoles == null )
         {
             adminRoles = new ArrayList<>();
@@ -738,6 +767,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setAdminRoleName( String roleName )
     {
+        resolve( UserProjection.ADMIN_ROLES );
+
         if ( adminRoles == null )
         {
             adminRoles = new ArrayList<>();
@@ -754,6 +785,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void delAdminRole( UserAdminRole adminRole )
     {
+        resolve( UserProjection.ADMIN_ROLES );
+
         if ( adminRoles != null )
         {
             adminRoles.remove( adminRole );
@@ -1237,6 +1270,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public boolean isReset()
     {
+        resolve( UserProjection.PASSWORD_POLICY );
+
         return reset;
     }
 
@@ -1249,6 +1284,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setReset( boolean reset )
     {
+        undefer( UserProjection.PASSWORD_POLICY );
+
         this.reset = reset;
     }
 
@@ -1261,6 +1298,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public boolean isLocked()
     {
+        resolve( UserProjection.PASSWORD_POLICY );
+
         return locked;
     }
 
@@ -1273,6 +1312,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setLocked( boolean locked )
     {
+        undefer( UserProjection.PASSWORD_POLICY );
+
         this.locked = locked;
     }
 
@@ -1285,6 +1326,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public Props getProps()
     {
+        resolve( UserProjection.PROPERTIES );
+
         return props;
     }
 
@@ -1297,6 +1340,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setProps( Props value )
     {
+        undefer( UserProjection.PROPERTIES );
+
         this.props = value;
     }
 
@@ -1310,6 +1355,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void addProperty( String key, String value )
     {
+        resolve( UserProjection.PROPERTIES );
+
         Props.Entry entry = new Props.Entry();
         entry.setKey( key );
         entry.setValue( value );
@@ -1326,6 +1373,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public String getProperty( String key )
     {
+        resolve( UserProjection.PROPERTIES );
+
         List<Props.Entry> props = this.props.getEntry();
         Props.Entry keyObj = new Props.Entry();
         keyObj.setKey( key );
@@ -1351,6 +1400,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void addProperties( Properties props )
     {
+        resolve( UserProjection.PROPERTIES );
+
         if ( props != null )
         {
             for ( Enumeration<?> e = props.propertyNames(); e.hasMoreElements(); )
@@ -1372,6 +1423,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public Properties getProperties()
     {
+        resolve( UserProjection.PROPERTIES );
+
         Properties properties = null;
         List<Props.Entry> props = this.props.getEntry();
 
@@ -1407,6 +1460,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public Address getAddress()
     {
+        resolve( UserProjection.ADDRESS );
+
         if ( address == null )
         {
             address = new Address();
@@ -1432,6 +1487,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setAddress( Address address )
     {
+        undefer( UserProjection.ADDRESS );
+
         this.address = address;
     }
 
@@ -1443,6 +1500,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public List<String> getPhones()
     {
+        resolve( UserProjection.CONTACTS );
+
         if ( phones == null )
         {
             phones = new ArrayList<>();
@@ -1459,6 +1518,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setPhones( List<String> phones )
     {
+        undefer( UserProjection.CONTACTS );
+
         this.phones = phones;
     }
 
@@ -1470,6 +1531,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setPhone( String phone )
     {
+        resolve( UserProjection.CONTACTS );
+
         if ( phones == null )
         {
             phones = new ArrayList<>();
@@ -1486,6 +1549,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public List<String> getMobiles()
     {
+        resolve( UserProjection.CONTACTS );
+
         if ( mobiles == null )
         {
             mobiles = new ArrayList<>();
@@ -1502,6 +1567,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setMobiles( List<String> mobiles )
     {
+        undefer( UserProjection.CONTACTS );
+
         this.mobiles = mobiles;
     }
 
@@ -1513,6 +1580,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setMobile( String mobile )
     {
+        resolve( UserProjection.CONTACTS );
+
         if ( mobiles == null )
         {
             mobiles = new ArrayList<>();
@@ -1529,6 +1598,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public List<String> getEmails()
     {
+        resolve( UserProjection.CONTACTS );
+
         if ( emails == null )
         {
             emails = new ArrayList<>();
@@ -1545,6 +1616,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setEmails( List<String> emails )
     {
+        undefer( UserProjection.CONTACTS );
+
         this.emails = emails;
     }
 
@@ -1556,6 +1629,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setEmail( String email )
     {
+        resolve( UserProjection.CONTACTS );
+
         if ( emails == null )
         {
             emails = new ArrayList<>();
@@ -1594,6 +1669,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public byte[] getJpegPhoto()
     {
+        resolve( UserProjection.PHOTO );
+
         return jpegPhoto;
     }
 
@@ -1609,6 +1686,8 @@ public class User extends FortEntity implements Constraint, Serializable
      */
     public void setJpegPhoto( byte[] jpegPhoto )
     {
+        undefer( UserProjection.PHOTO );
+
         if ( jpegPhoto != null )
         {
             this.jpegPhoto = jpegPhoto.clone();
@@ -1616,6 +1695,135 @@ public class User extends FortEntity implements Constraint, Serializable
     }
 
 
+    /**
+     * Record the attribute groups that were not retrieved from the directory along with the callback used to load them
+     * on first access.  This method is called by the DAO and is not intended to be called by external programs.
+     *
+     * @param deferred contains the attribute groups not yet loaded.
+     * @param loader   provides the method to load them.
+     */
+    public void defer( Set<UserProjection> deferred, UserLoader loader )
+    {
+        if ( deferred == null || deferred.isEmpty() )
+        {
+            this.deferred = null;
+            this.loader = null;
+        }
+        else
+        {
+            this.deferred = EnumSet.copyOf( deferred );
+            this.loader = loader;
+        }
+    }
+
+
+    /**
+     * Return true if the given attribute group has been loaded from the directory or set by caller.
+     *
+     * @param projection contains the attribute group to check.
+     * @return boolean value, false if the group is still waiting to be loaded.
+     */
+    public boolean isLoaded( UserProjection projection )
+    {
+        return deferred == null || !deferred.contains( projection );
+    }
+
+
+    /**
+     * Load the attribute group if it was excluded from the original read.
+     *
+     * @param projection contains the attribute group about to be accessed.
+     */
+    private void resolve( UserProjection projection )
+    {
+        if ( deferred != null && deferred.contains( projection ) )
+        {
+            load( EnumSet.of( projection ) );
+        }
+    }
+
+
+    /**
+     * Load all the attribute groups excluded from the original read, with a single read.
+     */
+    private void resolveAll()
+    {
+        if ( deferred != null )
+        {
+            load( EnumSet.copyOf( deferred ) );
+        }
+    }
+
+
+    /**
+     * Load deferred attribute groups.  If the load fails they stay deferred, so that a later access retries it.
+     *
+     * @param projection contains the attribute groups to load.
+     * @throws org.apache.directory.fortress.core.ProjectionLoadException if they could not be loaded.
+     */
+    private void load( Set<UserProjection> projection )
+    {
+        UserLoader userLoader = loader;
+        deferred.removeAll( projection );
+
+        if ( deferred.isEmpty() )
+        {
+            deferred = null;
+            loader = null;
+        }
+
+        try
+        {
+            userLoader.loadCB( this, projection );
+        }
+        catch ( RuntimeException e )
+        {
+            if ( deferred == null )
+            {
+                deferred = EnumSet.noneOf( UserProjection.class );
+            }
+
+            deferred.addAll( projection );
+            loader = userLoader;
+            throw e;
+        }
+    }
+
+
+    /**
+     * Called by JAXB, the attributes are bound by field so the deferred groups must be loaded before this entity is
+     * marshalled.
+     */
+    private void beforeMarshal( Marshaller marshaller )
+    {
+        resolveAll();
+    }
+
+
+    private void writeObject( ObjectOutputStream out ) throws IOException
+    {
+        resolveAll();
+        out.defaultWriteObject();
+    }
+
+
+    /**
+     * The attribute group has been replaced by caller and must not be loaded from the directory.  Setting any of the
+     * attributes of a group replaces the whole group, e.g. {@link #setPhones} means the emails and mobiles aren't
+     * loaded either.
+     *
+     * @param projection contains the attribute group being set.
+     */
+    private void undefer( UserProjection projection )
+    {
+        if ( deferred != null && deferred.remove( projection ) && deferred.isEmpty() )
+        {
+            deferred = null;
+            loader = null;
+        }
+    }
+
+
     /**
      * Override hashcode so User compare operations work in case insensitive manner in collection classes.
      *
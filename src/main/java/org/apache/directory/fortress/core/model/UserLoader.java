@@ -0,0 +1,40 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+import java.util.Set;
+
+/**
+ * This interface provides a callback mechanism for entity {@link User} to load the groups of attributes, {@link UserProjection},
+ * that were excluded from the original read and is implemented by UserDAO.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface UserLoader
+{
+    /**
+     * Retrieve the given attribute groups from the directory and set them onto the user.
+     *
+     * @param user       contains the userId and contextId of the entity to load.
+     * @param projection contains the attribute groups to load.
+     * @throws org.apache.directory.fortress.core.ProjectionLoadException if they could not be loaded.
+     */
+    void loadCB( User user, Set<UserProjection> projection );
+}
@@ -0,0 +1,70 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+
+/**
+ * Enumerates the optional groups of {@link User} attributes that may be requested from the directory on a read or
+ * search.  Callers of {@link org.apache.directory.fortress.core.ReviewMgr#readUser(User, java.util.Set)} and
+ * {@link org.apache.directory.fortress.core.ReviewMgr#findUsers(User, java.util.Set)} pass the groups they need and
+ * only those ldap attributes are returned by the server.  The userId, internalId, cn, sn, ou, description, title,
+ * employeeType, system flag and temporal constraints are always returned.
+ * <p>
+ * Groups that were not requested are loaded from the directory on first access of one of their getters.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public enum UserProjection
+{
+    /**
+     * RBAC role assignments, 'ftRA' and 'ftRC'.
+     */
+    ROLES,
+
+    /**
+     * ARBAC role assignments, 'ftARA' and 'ftARC'.
+     */
+    ADMIN_ROLES,
+
+    /**
+     * Postal address attributes from 'organizationalPerson' and 'inetOrgPerson'.
+     */
+    ADDRESS,
+
+    /**
+     * The 'telephoneNumber', 'mobile' and 'mail' attributes.
+     */
+    CONTACTS,
+
+    /**
+     * Name/value pairs stored in 'ftProps'.
+     */
+    PROPERTIES,
+
+    /**
+     * OpenLDAP password policy name along with the reset and locked state.
+     */
+    PASSWORD_POLICY,
+
+    /**
+     * The 'jpegPhoto' attribute.
+     */
+    PHOTO
+}
@@ -20,11 +20,14 @@
 package org.apache.directory.fortress.core.model;
 
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -108,6 +111,9 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     private String dayMask;
     private Set<String> parents;
     private List<RoleConstraint> roleConstraints;
+    // Undecoded temporal constraint fields from the 'ftRC' raw data, parsed on first access of a constraint attribute:
+    private transient volatile String rawConstraint;
+    private transient int rawOffset;
 
     /**
      * Default constructor is used by internal Fortress classes.
@@ -240,6 +246,127 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     }
 
 
+    /**
+     * Defer decoding of the temporal constraint values contained within the 'ftRC' raw data until one of the constraint
+     * attributes is first accessed.  The role name and parents are expected to have been set by the caller.
+     * This method is used by the DAO when unloading large result sets and is not intended to be called by external programs.
+     *
+     * @param szRawData contains a raw formatted String that maps to 'ftRC' attribute on 'ftUserAttrs' object class
+     * @param offset    position within szRawData of the first character following the role name delimiter.
+     */
+    public void setRawConstraint( String szRawData, int offset )
+    {
+        rawOffset = offset;
+        rawConstraint = szRawData;
+    }
+
+
+    /**
+     * Decode the temporal constraint values that were deferred by {@link #setRawConstraint(String, int)}, if they
+     * haven't been already.  The entity may be shared by threads, e.g. when cached on a session, so the decode is made
+     * under its lock and the raw data cleared once the decoded fields are set.
+     */
+    private void resolveConstraint()
+    {
+        if ( rawConstraint != null )
+        {
+            decodeConstraint();
+        }
+    }
+
+
+    /**
+     * The raw data is scanned once, left to right, and only the non-empty fields are copied out.
+     */
+    private synchronized void decodeConstraint()
+    {
+        String szRawData = rawConstraint;
+
+        if ( szRawData == null )
+        {
+            return;
+        }
+
+        String delimiter = Config.getInstance().getDelimiter();
+        int length = szRawData.length();
+        int start = rawOffset;
+
+        // field 0, the role name, has already been consumed by the decoder:
+        for ( int i = 1; i <= 8 && start <= length; i++ )
+        {
+            int end = szRawData.indexOf( delimiter, start );
+
+            if ( end < 0 )
+            {
+                end = length;
+            }
+
+            if ( end > start )
+            {
+                String token = szRawData.substring( start, end );
+
+                switch ( i )
+                {
+                    case 1:
+                        timeout = Integer.parseInt( token );
+                        break;
+
+                    case 2:
+                        beginTime = token;
+                        break;
+
+                    case 3:
+                        endTime = token;
+                        break;
+
+                    case 4:
+                        beginDate = token;
+                        break;
+
+                    case 5:
+                        endDate = token;
+                        break;
+
+                    case 6:
+                        beginLockDate = token;
+                        break;
+
+                    case 7:
+                        endLockDate = token;
+                        break;
+
+                    case 8:
+                        dayMask = token;
+                        break;
+                }
+            }
+
+            start = end + delimiter.length();
+        }
+
+        // publish the decoded fields before clearing the raw data:
+        rawConstraint = null;
+    }
+
+
+    /**
+     * JAXB callback ensures deferred constraint values are decoded before the fields are marshalled.
+     *
+     * @param marshaller unused.
+     */
+    void beforeMarshal( Marshaller marshaller )
+    {
+        resolveConstraint();
+    }
+
+
+    private void writeObject( ObjectOutputStream out ) throws IOException
+    {
+        resolveConstraint();
+        out.defaultWriteObject();
+    }
+
+
     /**
      * Required on DAO classes convert Temporal attributes stored on entity to raw data object format needed for ldap
      * .  For internal use only.
@@ -249,6 +376,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public String getRawData()
     {
+        resolveConstraint();
     	String delimeter = Config.getInstance().getDelimiter();
         StringBuilder sb = new StringBuilder();
 
@@ -364,6 +492,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public boolean isTemporalSet()
     {
+        resolveConstraint();
         return ( beginTime != null || endTime != null || beginDate != null || endDate != null || beginLockDate !=
             null || endLockDate != null || dayMask != null );
     }
@@ -378,6 +507,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public void setTimeout( Integer timeout )
     {
+        resolveConstraint();
         this.timeout = timeout;
     }
 
@@ -392,6 +522,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public void setBeginTime( String beginTime )
     {
+        resolveConstraint();
         this.beginTime = beginTime;
     }
 
@@ -406,6 +537,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public void setEndTime( String endTime )
     {
+        resolveConstraint();
         this.endTime = endTime;
     }
 
@@ -420,6 +552,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public void setBeginDate( String beginDate )
     {
+        resolveConstraint();
         this.beginDate = beginDate;
     }
 
@@ -434,6 +567,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public void setEndDate( String endDate )
     {
+        resolveConstraint();
         this.endDate = endDate;
     }
 
@@ -448,6 +582,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public void setDayMask( String dayMask )
     {
+        resolveConstraint();
         this.dayMask = dayMask;
     }
 
@@ -462,6 +597,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public void setBeginLockDate( String beginLockDate )
     {
+        resolveConstraint();
         this.beginLockDate = beginLockDate;
     }
 
@@ -476,6 +612,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public void setEndLockDate( String endLockDate )
     {
+        resolveConstraint();
         this.endLockDate = endLockDate;
     }
 
@@ -489,6 +626,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public Integer getTimeout()
     {
+        resolveConstraint();
         return timeout;
     }
 
@@ -503,6 +641,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public String getBeginTime()
     {
+        resolveConstraint();
         return beginTime;
     }
 
@@ -517,6 +656,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public String getEndTime()
     {
+        resolveConstraint();
         return endTime;
     }
 
@@ -531,6 +671,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public String getBeginDate()
     {
+        resolveConstraint();
         return beginDate;
     }
 
@@ -545,6 +686,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public String getEndDate()
     {
+        resolveConstraint();
         return endDate;
     }
 
@@ -559,6 +701,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public String getBeginLockDate()
     {
+        resolveConstraint();
         return beginLockDate;
     }
 
@@ -573,6 +716,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public String getEndLockDate()
     {
+        resolveConstraint();
         return endLockDate;
     }
 
@@ -586,6 +730,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public String getDayMask()
     {
+        resolveConstraint();
         return dayMask;
     }
 
@@ -663,6 +808,7 @@ public class UserRole extends FortEntity implements Serializable, Constraint
     @Override
     public int hashCode()
     {
+        resolveConstraint();
         int result = userId != null ? userId.hashCode() : 0;
         result = 31 * result + ( name != null ? name.hashCode() : 0 );
         result = 31 * result + ( timeout != null ? timeout.hashCode() : 0 );
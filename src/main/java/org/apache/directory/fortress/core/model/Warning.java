@@ -104,7 +104,7 @@ public class Warning implements Serializable
     
 
     /**
-     * Type determines if warning is of type Role or Password Policy.
+     * Type determines if warning is of type Role, Password Policy or User.
      */
     @XmlType(name = "warnType")
     @XmlEnum
@@ -118,7 +118,11 @@ public class Warning implements Serializable
         /**
          * Problem during password policy validation.
          */
-        PASSWORD
+        PASSWORD,
+        /**
+         * Problem with a user, i.e. during batch role assignment.
+         */
+        USER
     }
     
 
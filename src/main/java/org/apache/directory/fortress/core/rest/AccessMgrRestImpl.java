@@ -29,6 +29,7 @@ import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.impl.Manageable;
 import org.apache.directory.fortress.core.model.*;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.cache.SessionStore;
 
 /**
  * Implementation class that performs runtime access control operations on data objects of type Fortress entities
@@ -375,4 +376,60 @@ public class AccessMgrRestImpl extends Manageable implements AccessMgr
         }
         return retUser;
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The session is held in the {@link SessionStore} of the calling process.  The Fortress Rest server still receives
+     * the full session on each call made with the token.
+     */
+    @Override
+    public String createSessionToken(User user, boolean isTrusted)
+        throws SecurityException
+    {
+        Session session = createSession(user, isTrusted);
+        return SessionStore.getInstance().put(this.contextId, session);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Session getSession(String token)
+        throws SecurityException
+    {
+        VUtil.assertNotNullOrEmpty(token, GlobalErrIds.USER_SESS_TOKEN_INVALID, CLS_NM + ".getSession");
+        Session session = SessionStore.getInstance().get(this.contextId, token);
+        if (session == null)
+        {
+            throw new SecurityException(GlobalErrIds.USER_SESS_TOKEN_INVALID, CLS_NM
+                + ".getSession session token not found or expired");
+        }
+        return session;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean checkAccess(String token, Permission perm)
+        throws SecurityException
+    {
+        return checkAccess(getSession(token), perm);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteSession(String token)
+        throws SecurityException
+    {
+        VUtil.assertNotNullOrEmpty(token, GlobalErrIds.USER_SESS_TOKEN_INVALID, CLS_NM + ".deleteSession");
+        if (!SessionStore.getInstance().remove(this.contextId, token))
+        {
+            throw new SecurityException(GlobalErrIds.USER_SESS_TOKEN_INVALID, CLS_NM
+                + ".deleteSession session token not found");
+        }
+    }
 }
@@ -20,6 +20,10 @@
 package org.apache.directory.fortress.core.rest;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.directory.fortress.core.AdminMgr;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.SecurityException;
@@ -37,6 +41,7 @@ import org.apache.directory.fortress.core.model.RoleRelationship;
 import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.model.Warning;
 import org.apache.directory.fortress.core.util.VUtil;
 
 
@@ -409,6 +414,62 @@ public final class AdminMgrRestImpl extends Manageable implements AdminMgr
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Fortress Rest server has no batch assignment, each is sent as a separate {@link #assignUser(UserRole)}.
+     */
+    @Override
+    public List<Warning> assignUsers( Role role, Collection<String> userIds )
+        throws SecurityException
+    {
+        VUtil.assertNotNull( role, GlobalErrIds.ROLE_NULL, CLS_NM + ".assignUsers" );
+        VUtil.assertNotNull( userIds, GlobalErrIds.USER_NULL, CLS_NM + ".assignUsers" );
+        List<Warning> warnings = new ArrayList<>();
+        for ( String userId : userIds )
+        {
+            try
+            {
+                assignUser( new UserRole( userId, role.getName() ) );
+            }
+            catch ( SecurityException e )
+            {
+                warnings.add( new Warning( e.getErrorId(), e.getMessage(), Warning.Type.USER, userId ) );
+            }
+        }
+        return warnings;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Fortress Rest server has no batch assignment, each is sent as a separate {@link #assignUser(UserRole)}.
+     */
+    @Override
+    public List<Warning> assignRoles( User user, Collection<UserRole> uRoles )
+        throws SecurityException
+    {
+        VUtil.assertNotNull( user, GlobalErrIds.USER_NULL, CLS_NM + ".assignRoles" );
+        VUtil.assertNotNull( uRoles, GlobalErrIds.URLE_NULL, CLS_NM + ".assignRoles" );
+        List<Warning> warnings = new ArrayList<>();
+        for ( UserRole uRole : uRoles )
+        {
+            VUtil.assertNotNull( uRole, GlobalErrIds.URLE_NULL, CLS_NM + ".assignRoles" );
+            uRole.setUserId( user.getUserId() );
+            try
+            {
+                assignUser( uRole );
+            }
+            catch ( SecurityException e )
+            {
+                warnings.add( new Warning( e.getErrorId(), e.getMessage(), Warning.Type.ROLE, uRole.getName() ) );
+            }
+        }
+        return warnings;
+    }
+
+
     /**
      * {@inheritDoc}
      */
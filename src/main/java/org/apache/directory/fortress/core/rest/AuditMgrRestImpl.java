@@ -21,16 +21,21 @@ package org.apache.directory.fortress.core.rest;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+import org.apache.directory.fortress.core.AuditConsumer;
 import org.apache.directory.fortress.core.AuditMgr;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.impl.Manageable;
+import org.apache.directory.fortress.core.model.AuditStats;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Bind;
 import org.apache.directory.fortress.core.model.FortRequest;
 import org.apache.directory.fortress.core.model.FortResponse;
 import org.apache.directory.fortress.core.model.Mod;
+import org.apache.directory.fortress.core.model.Props;
 import org.apache.directory.fortress.core.model.UserAudit;
 import org.apache.directory.fortress.core.util.VUtil;
 
@@ -323,4 +328,147 @@ public class AuditMgrRestImpl extends Manageable implements AuditMgr
         }
         return outRecords;
     }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Rest server has no export service, so the events are those returned by
+     * {@link #getUserAuthZs(UserAudit)}, which is subject to the server's size limit.
+     */
+    @Override
+    public long exportAuthZs(UserAudit uAudit, AuditConsumer<? super AuthZ> consumer)
+        throws SecurityException
+    {
+        assertExport(uAudit, consumer, CLS_NM + ".exportAuthZs");
+        return export(getUserAuthZs(uAudit), consumer);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Rest server has no export service, so the events are those returned by
+     * {@link #searchBinds(UserAudit)}, which is subject to the server's size limit.
+     */
+    @Override
+    public long exportBinds(UserAudit uAudit, AuditConsumer<? super Bind> consumer)
+        throws SecurityException
+    {
+        assertExport(uAudit, consumer, CLS_NM + ".exportBinds");
+        return export(searchBinds(uAudit), consumer);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Rest server has no export service, so the events are those returned by
+     * {@link #searchAdminMods(UserAudit)}, which is subject to the server's size limit.
+     */
+    @Override
+    public long exportAdminMods(UserAudit uAudit, AuditConsumer<? super Mod> consumer)
+        throws SecurityException
+    {
+        assertExport(uAudit, consumer, CLS_NM + ".exportAdminMods");
+        return export(searchAdminMods(uAudit), consumer);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Rest server has no aggregation service, so the events are counted from those returned by
+     * {@link #searchAuthZs(UserAudit)} if objName is set, otherwise by {@link #getUserAuthZs(UserAudit)}, which are
+     * subject to the server's size limit.
+     */
+    @Override
+    public AuditStats getAuthZStats(UserAudit uAudit)
+        throws SecurityException
+    {
+        VUtil.assertNotNull(uAudit, GlobalErrIds.AUDT_INPUT_NULL, CLS_NM + ".getAuthZStats");
+        List<AuthZ> authZs = uAudit.getObjName() != null ? searchAuthZs(uAudit) : getUserAuthZs(uAudit);
+        List<String> results = new ArrayList<>();
+        for (AuthZ authZ : authZs)
+        {
+            results.add(authZ.getReqResult());
+        }
+        // compareTrue:
+        return getStats(uAudit, results, "6");
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Rest server has no aggregation service, so the events are counted from those returned by
+     * {@link #searchBinds(UserAudit)}, which is subject to the server's size limit.
+     */
+    @Override
+    public AuditStats getBindStats(UserAudit uAudit)
+        throws SecurityException
+    {
+        VUtil.assertNotNull(uAudit, GlobalErrIds.AUDT_INPUT_NULL, CLS_NM + ".getBindStats");
+        List<String> results = new ArrayList<>();
+        for (Bind bind : searchBinds(uAudit))
+        {
+            results.add(bind.getReqResult());
+        }
+        // success:
+        return getStats(uAudit, results, "0");
+    }
+
+
+    private static AuditStats getStats(UserAudit uAudit, List<String> results, String success)
+    {
+        AuditStats stats = new AuditStats();
+        Map<String, Long> counts = new TreeMap<>();
+        for (String result : results)
+        {
+            if (result != null)
+            {
+                Long count = counts.get(result);
+                counts.put(result, count == null ? 1 : count + 1);
+            }
+            if (success.equals(result))
+            {
+                stats.setSuccessCount(stats.getSuccessCount() + 1);
+            }
+            else
+            {
+                stats.setFailureCount(stats.getFailureCount() + 1);
+            }
+        }
+        Props props = new Props();
+        for (Map.Entry<String, Long> count : counts.entrySet())
+        {
+            Props.Entry entry = new Props.Entry();
+            entry.setKey(count.getKey());
+            entry.setValue(String.valueOf(count.getValue()));
+            props.getEntry().add(entry);
+        }
+        stats.setResults(props);
+        stats.setBeginDate(uAudit.getBeginDate());
+        return stats;
+    }
+
+
+    private static void assertExport(UserAudit uAudit, AuditConsumer<?> consumer, String method)
+        throws SecurityException
+    {
+        VUtil.assertNotNull(uAudit, GlobalErrIds.AUDT_INPUT_NULL, method);
+        VUtil.assertNotNull(uAudit.getBeginDate(), GlobalErrIds.AUDT_EXPORT_BEGIN_NULL, method);
+        VUtil.assertNotNull(consumer, GlobalErrIds.AUDT_INPUT_NULL, method);
+    }
+
+
+    private static <T> long export(List<T> records, AuditConsumer<? super T> consumer)
+        throws SecurityException
+    {
+        for (T record : records)
+        {
+            consumer.accept(record);
+        }
+        return records.size();
+    }
 }
@@ -308,4 +308,40 @@ public class GroupMgrRestImpl  extends Manageable implements GroupMgr
         }
         return retGroup;
     }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The REST service has no compare operation, the group is read with its members and searched for the member's dn.
+     */
+    @Override
+    public boolean isMember( Group group, String member ) throws SecurityException
+    {
+        VUtil.assertNotNull( group, GlobalErrIds.GROUP_NULL, CLS_NM + ".isMember" );
+        VUtil.assertNotNull( member, GlobalErrIds.GROUP_MEMBER_NULL, CLS_NM + ".isMember" );
+        ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( this.contextId, this.adminSess );
+        String dn;
+        if ( group.getType() == Group.Type.ROLE )
+        {
+            dn = reviewMgr.readRole( new Role( member ) ).getDn();
+        }
+        else
+        {
+            dn = reviewMgr.readUser( new User( member ) ).getDn();
+        }
+
+        List<String> members = read( group ).getMembers();
+        if ( members != null )
+        {
+            for ( String memberDn : members )
+            {
+                if ( memberDn.equalsIgnoreCase( dn ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 }
@@ -38,6 +38,7 @@ import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.model.RoleConstraint;
 import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserProjection;
 import org.apache.directory.fortress.core.model.UserRole;
 import org.apache.directory.fortress.core.util.VUtil;
 
@@ -425,6 +426,19 @@ public class ReviewMgrRestImpl extends Manageable implements ReviewMgr
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The projection is not carried over the wire, the REST server returns the fully populated entity.
+     */
+    @Override
+    public final User readUser(User user, Set<UserProjection> projection)
+        throws SecurityException
+    {
+        return readUser(user);
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -456,6 +470,19 @@ public class ReviewMgrRestImpl extends Manageable implements ReviewMgr
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The projection is not carried over the wire, the REST server returns fully populated entities.
+     */
+    @Override
+    public final List<User> findUsers(User user, Set<UserProjection> projection)
+        throws SecurityException
+    {
+        return findUsers(user);
+    }
+
+
     /**
      * {@inheritDoc}
      */
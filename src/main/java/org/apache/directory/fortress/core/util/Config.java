@@ -21,10 +21,15 @@ package org.apache.directory.fortress.core.util;
 
 
 import java.net.URL;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Properties;
 
 import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.directory.fortress.core.CfgException;
 import org.apache.directory.fortress.core.CfgRuntimeException;
@@ -45,6 +50,9 @@ import org.slf4j.LoggerFactory;
  * The class will bootstrap itself during startup and must initialize correctly for the Fortress APIs to work correctly.
  * <p>
  * This object is thread safe but stores a static reference to Apache Commons Configuration {@link #config} object.
+ * Reads are served from an immutable {@link Snapshot} of its values, parsed ahead of time into strings, ints, booleans and
+ * chars, that is replaced as a whole whenever a property is set or the remote config is loaded.  This keeps the getters,
+ * which are called on every ldap operation, clear of the locks taken by Commons Configuration.
  * <p>
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -77,6 +85,9 @@ public final class Config
     // used internally to determine if the remote config has been loaded.
     private boolean remoteConfigLoaded = false;
 
+    // immutable copy of the config values, replaced on every change.
+    private volatile Snapshot snapshot;
+
     /**
      * Return a static reference to this instance.  If the instance has not been instantiated, call the boostrap:
      * <ul>
@@ -116,6 +127,7 @@ public final class Config
         loadLocalConfig();
         // load the system property overrides:
         getExternalConfig();
+        publish();
     }
 
     /**
@@ -126,16 +138,8 @@ public final class Config
      */
     public String getProperty( String name )
     {
-        String value = null;
-        if ( config != null )
-        {
-            value = ( String ) config.getProperty( name );
-            LOG.debug( "getProperty name [{}] value [{}]", name, value );
-        }
-        else
-        {
-            LOG.error( "getProperty invalid config, can't read prop [{}]", name );
-        }
+        String value = snapshot.strings.get( name );
+        LOG.debug( "getProperty name [{}] value [{}]", name, value );
         return value;
     }
 
@@ -148,16 +152,7 @@ public final class Config
      */
     public String getProperty( String name, String defaultValue )
     {
-        String value = null;
-        if ( config != null )
-        {
-            value = ( String ) config.getProperty( name );
-        }
-        else
-        {
-            String warn = "getProperty invalid config, can't read prop [" + name + "]";
-            LOG.warn( warn );
-        }
+        String value = snapshot.strings.get( name );
         if ( value == null || value.length() == 0 )
         {
             value = defaultValue;
@@ -173,17 +168,7 @@ public final class Config
      */
     public char getChar( String name )
     {
-        char value = 0;
-        if ( config != null )
-        {
-            value = ( char ) config.getProperty( name );
-            LOG.debug( "getChar name [{}] value [{}]", name, value );
-        }
-        else
-        {
-            LOG.error( "getChar invalid config, can't read prop [{}]", name );
-        }
-        return value;
+        return getChar( name, ( char ) 0 );
     }
 
     /**
@@ -195,21 +180,12 @@ public final class Config
      */
     public char getChar( String name, char defaultValue )
     {
-        char value = 0;
-        if ( config != null )
-        {
-            value = ( char ) config.getProperty( name );
-        }
-        else
-        {
-            String warn = "getChar invalid config, can't read prop [" + name + "]";
-            LOG.warn( warn );
-        }
-        if ( value == 0 )
+        String value = snapshot.strings.get( name );
+        if ( value == null || value.length() == 0 )
         {
-            value = defaultValue;
+            return defaultValue;
         }
-        return value;
+        return value.charAt( 0 );
     }
 
     /**
@@ -220,17 +196,13 @@ public final class Config
      */
     public int getInt( String key )
     {
-        int value = 0;
-        if ( config != null )
-        {
-            value = config.getInt( key );
-        }
-        else
+        Integer value = snapshot.ints.get( key );
+        if ( value != null )
         {
-            String warn = "getInt invalid config, can't read prop [" + key + "]";
-            LOG.warn( warn );
+            return value;
         }
-        return value;
+        // missing or malformed, let commons config raise the same error it always has:
+        return config.getInt( key );
     }
 
     /**
@@ -242,17 +214,17 @@ public final class Config
      */
     public int getInt( String key, int defaultValue )
     {
-        int value = 0;
-        if ( config != null )
+        Snapshot current = snapshot;
+        Integer value = current.ints.get( key );
+        if ( value != null )
         {
-            value = config.getInt( key, defaultValue );
+            return value;
         }
-        else
+        if ( !current.strings.containsKey( key ) )
         {
-            String warn = "getInt invalid config, can't read prop [" + key + "]";
-            LOG.warn( warn );
+            return defaultValue;
         }
-        return value;
+        return config.getInt( key, defaultValue );
     }
 
     /**
@@ -263,17 +235,13 @@ public final class Config
      */
     public boolean getBoolean( String key )
     {
-        boolean value = false;
-        if ( config != null )
-        {
-            value = config.getBoolean( key );
-        }
-        else
+        Boolean value = snapshot.booleans.get( key );
+        if ( value != null )
         {
-            String warn = "getBoolean - invalid config, can't read prop [" + key + "]";
-            LOG.warn( warn );
+            return value;
         }
-        return value;
+        // missing or malformed, let commons config raise the same error it always has:
+        return config.getBoolean( key );
     }
 
     /**
@@ -285,17 +253,17 @@ public final class Config
      */
     public boolean getBoolean( String key, boolean defaultValue )
     {
-        boolean value = defaultValue;
-        if ( config != null )
+        Snapshot current = snapshot;
+        Boolean value = current.booleans.get( key );
+        if ( value != null )
         {
-            value = config.getBoolean( key, defaultValue );
+            return value;
         }
-        else
+        if ( !current.strings.containsKey( key ) )
         {
-            String warn = "getBoolean - invalid config, can't read prop [" + key + "]";
-            LOG.warn( warn );
+            return defaultValue;
         }
-        return value;
+        return config.getBoolean( key, defaultValue );
     }
 
     /**
@@ -304,17 +272,10 @@ public final class Config
      * @param name         contains the name of the property.
      * @param value        contains the String value of the property.
      */
-    public void setProperty( String name, String value )
+    public synchronized void setProperty( String name, String value )
     {
-        if ( config != null )
-        {
-            config.setProperty( name, value );
-        }
-        else
-        {
-            String warn = "setProperty invalid config, can't set prop name [" + name + "], value [" + value + "]";
-            LOG.warn( warn );
-        }
+        config.setProperty( name, value );
+        publish();
     }
 
     /**
@@ -351,7 +312,7 @@ public final class Config
 
     public boolean isRestEnabled()
     {
-        return ( ( getProperty( GlobalIds.ENABLE_REST ) != null ) && ( getProperty( GlobalIds.ENABLE_REST ).equalsIgnoreCase( "true" ) ) );
+        return snapshot.restEnabled;
     }
     /**
      * Fortress stores complex attribute types within a single attribute in ldap.  Usually a delimiter of '$' is used for string tokenization.
@@ -359,19 +320,29 @@ public final class Config
      */
     public String getDelimiter()
     {
-        return getProperty( "attr.delimiter", "$" );
+        return snapshot.delimiter;
     }
     public boolean isAuditDisabled()
     {
-        return ( ( getProperty( GlobalIds.DISABLE_AUDIT ) != null ) && ( getProperty( GlobalIds.DISABLE_AUDIT ).equalsIgnoreCase( "true" ) ) );
+        return snapshot.auditDisabled;
     }
     public boolean isOpenldap()
     {
-        return ( ( getProperty( GlobalIds.SERVER_TYPE ) != null ) && ( getProperty( GlobalIds.SERVER_TYPE ).equalsIgnoreCase( "openldap" ) ) );
+        return snapshot.openldap;
     }
     public boolean isRealm()
     {
-        return GlobalIds.REALM_TYPE.equalsIgnoreCase( getProperty( GlobalIds.AUTHENTICATION_TYPE ) );
+        return snapshot.realm;
+    }
+    /**
+     * Return a number that changes each time a property is set or the remote config is loaded.  Components that derive
+     * values from the config compare it to decide when to recompute them.
+     *
+     * @return version of the config values currently in effect.
+     */
+    public long getVersion()
+    {
+        return snapshot.version;
     }
     private boolean isRemoteConfigLoaded()
     {
@@ -598,6 +569,7 @@ public final class Config
                         String val = props.getProperty( key );
                         config.setProperty( key, val );
                     }
+                    publish();
                 }
 
                 //init ldap util vals since config is stored on server
@@ -633,4 +605,71 @@ public final class Config
             throw new CfgRuntimeException( GlobalErrIds.FT_CONFIG_INITIALIZE_FAILED, error, se );
         }
     }
+
+    /**
+     * Replace the snapshot with one that reflects the current state of {@link #config}.
+     */
+    private synchronized void publish()
+    {
+        snapshot = new Snapshot( config, snapshot == null ? 1 : snapshot.version + 1 );
+    }
+
+    /**
+     * Immutable copy of the config values.  Each value is held as a String and, if it parses as one, also as an int and
+     * a boolean, so the typed getters do no conversion.  Values read on every ldap operation are kept in fields.
+     */
+    private static final class Snapshot
+    {
+        private final long version;
+        private final Map<String, String> strings;
+        private final Map<String, Integer> ints;
+        private final Map<String, Boolean> booleans;
+        private final String delimiter;
+        private final boolean auditDisabled;
+        private final boolean openldap;
+        private final boolean realm;
+        private final boolean restEnabled;
+
+        private Snapshot( PropertiesConfiguration config, long version )
+        {
+            this.version = version;
+            Map<String, String> strs = new HashMap<>();
+            Map<String, Integer> nums = new HashMap<>();
+            Map<String, Boolean> flags = new HashMap<>();
+            for ( Iterator<?> keys = config.getKeys(); keys.hasNext(); )
+            {
+                String key = ( String ) keys.next();
+                Object raw = config.getProperty( key );
+                strs.put( key, raw instanceof String ? ( String ) raw : config.getString( key ) );
+                // typed getters interpolate the value first:
+                String resolved = config.getString( key );
+                if ( resolved == null )
+                {
+                    continue;
+                }
+                try
+                {
+                    nums.put( key, Integer.valueOf( resolved ) );
+                }
+                catch ( NumberFormatException nfe )
+                {
+                    // not an int, getInt will defer to commons config.
+                }
+                Boolean flag = BooleanUtils.toBooleanObject( resolved );
+                if ( flag != null )
+                {
+                    flags.put( key, flag );
+                }
+            }
+            strings = Collections.unmodifiableMap( strs );
+            ints = Collections.unmodifiableMap( nums );
+            booleans = Collections.unmodifiableMap( flags );
+            String delim = strings.get( "attr.delimiter" );
+            delimiter = StringUtils.isEmpty( delim ) ? "$" : delim;
+            auditDisabled = "true".equalsIgnoreCase( strings.get( GlobalIds.DISABLE_AUDIT ) );
+            openldap = "openldap".equalsIgnoreCase( strings.get( GlobalIds.SERVER_TYPE ) );
+            realm = GlobalIds.REALM_TYPE.equalsIgnoreCase( strings.get( GlobalIds.AUTHENTICATION_TYPE ) );
+            restEnabled = "true".equalsIgnoreCase( strings.get( GlobalIds.ENABLE_REST ) );
+        }
+    }
 }
\ No newline at end of file
@@ -20,6 +20,8 @@
 package org.apache.directory.fortress.core.util;
 
 
+import org.apache.directory.fortress.core.GlobalIds;
+
 
 /**
  * This utility is a singleton and has getters / setters to access properties for filtering data bound for ldap.
@@ -35,6 +37,8 @@ public class LdapUtil
     private int ldapFilterSize = 25;
     private char[] ldapMetaChars;
     private String[] ldapReplVals;
+    // escape sequence, or null, indexed by character.  Built from the two arrays above.
+    private volatile String[] escapeTable = new String[0];
 
     private static volatile LdapUtil sINSTANCE = null;
 
@@ -116,6 +120,7 @@ public class LdapUtil
     public void setLdapMetaChars(char[] ldapMetaChars)
     {
         this.ldapMetaChars = ldapMetaChars.clone();
+        buildEscapeTable();
     }
 
     /**
@@ -136,5 +141,84 @@ public class LdapUtil
     public void setLdapReplVals(String[] ldapReplVals)
     {
         this.ldapReplVals = ldapReplVals.clone();
+        buildEscapeTable();
+    }
+
+    /**
+     * Replace the unsafe characters, as set by ldap.filter, in a value bound for an ldap search filter with their
+     * escaped replacement, as set by ldap.sub.  Each character is looked up in a table indexed by its value, rather than
+     * compared with each unsafe character in turn.
+     *
+     * @param value contains the text to escape.
+     * @return the escaped text, or the value itself if it contains no unsafe characters.
+     */
+    public String escapeFilterValue(String value)
+    {
+        String[] table = escapeTable;
+        int length = value.length();
+        int i = 0;
+        while (i < length && !isEscaped(table, value.charAt(i)))
+        {
+            i++;
+        }
+        if (i == length)
+        {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(length + 16);
+        sb.append(value, 0, i);
+        for (; i < length; i++)
+        {
+            char curChar = value.charAt(i);
+            if (isEscaped(table, curChar))
+            {
+                sb.append(table[curChar]);
+            }
+            else
+            {
+                sb.append(curChar);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isEscaped(String[] table, char curChar)
+    {
+        return curChar < table.length && table[curChar] != null;
+    }
+
+    /**
+     * Precompute the escape sequence of every character up to the largest unsafe one.  Each is resolved the same way the
+     * unsafe characters have always been matched: in order, stopping at the first one greater than the character.
+     */
+    private void buildEscapeTable()
+    {
+        if (ldapMetaChars == null || ldapReplVals == null)
+        {
+            return;
+        }
+        int size = Math.min(GlobalIds.LDAP_FILTER_SIZE, Math.min(ldapMetaChars.length, ldapReplVals.length));
+        int max = 0;
+        for (int j = 0; j < size; j++)
+        {
+            max = Math.max(max, ldapMetaChars[j]);
+        }
+        String[] table = new String[max + 1];
+        for (int c = 0; c <= max; c++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                if (ldapMetaChars[j] > c)
+                {
+                    break;
+                }
+                else if (ldapMetaChars[j] == c)
+                {
+                    table[c] = "\\" + ldapReplVals[j];
+                    break;
+                }
+            }
+        }
+        escapeTable = table;
     }
 }
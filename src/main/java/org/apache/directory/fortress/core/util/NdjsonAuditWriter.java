@@ -0,0 +1,291 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.util;
+
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.directory.fortress.core.AuditConsumer;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.Mod;
+
+
+/**
+ * Writes the records of an audit export as newline delimited JSON, one object per line in UTF-8, optionally gzip
+ * compressed.  Each object has a {@code type} of authz, bind or mod followed by the record's non-null attributes, named
+ * as in the slapd access log, e.g.
+ * <pre>
+ * {"type":"bind","reqStart":"20161019120000.000000Z","reqDN":"uid=jdoe,ou=People,dc=example,dc=com","reqResult":"0"}
+ * </pre>
+ * Pass the writer to one of the {@link org.apache.directory.fortress.core.AuditMgr} export methods, then close it.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class NdjsonAuditWriter implements AuditConsumer<FortEntity>, Closeable
+{
+    private static final String CLS_NM = NdjsonAuditWriter.class.getName();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer writer;
+    private boolean isFirst;
+
+
+    /**
+     * @param out receives the records, closed when this writer is.
+     */
+    public NdjsonAuditWriter( OutputStream out )
+    {
+        writer = new BufferedWriter( new OutputStreamWriter( out, StandardCharsets.UTF_8 ) );
+    }
+
+
+    /**
+     * @param file         to create or replace.
+     * @param isCompressed if true the file is written with gzip compression.
+     * @throws SecurityException if the file can't be created.
+     */
+    public NdjsonAuditWriter( File file, boolean isCompressed ) throws SecurityException
+    {
+        this( open( file, isCompressed ) );
+    }
+
+
+    private static OutputStream open( File file, boolean isCompressed ) throws SecurityException
+    {
+        OutputStream out = null;
+        try
+        {
+            out = new FileOutputStream( file );
+            return isCompressed ? new GZIPOutputStream( out ) : out;
+        }
+        catch ( IOException e )
+        {
+            if ( out != null )
+            {
+                try
+                {
+                    out.close();
+                }
+                catch ( IOException ie )
+                {
+                    // the open failure is the one reported.
+                }
+            }
+            throw new SecurityException( GlobalErrIds.AUDT_EXPORT_FAILED, CLS_NM + ".open file [" + file
+                + "] caught IOException=" + e, e );
+        }
+    }
+
+
+    /**
+     * Write a record as a line of JSON.
+     *
+     * @param record an {@link AuthZ}, {@link Bind} or {@link Mod}.
+     * @throws SecurityException if the record can't be written.
+     */
+    @Override
+    public void accept( FortEntity record ) throws SecurityException
+    {
+        try
+        {
+            writer.write( '{' );
+            isFirst = true;
+            if ( record instanceof AuthZ )
+            {
+                writeAuthZ( ( AuthZ ) record );
+            }
+            else if ( record instanceof Bind )
+            {
+                writeBind( ( Bind ) record );
+            }
+            else if ( record instanceof Mod )
+            {
+                writeMod( ( Mod ) record );
+            }
+            else
+            {
+                throw new IllegalArgumentException( "unsupported record " + record );
+            }
+            writer.write( "}\n" );
+        }
+        catch ( IOException e )
+        {
+            throw new SecurityException( GlobalErrIds.AUDT_EXPORT_FAILED, CLS_NM + ".accept caught IOException="
+                + e, e );
+        }
+    }
+
+
+    /**
+     * Flush the buffered records and close the stream.
+     *
+     * @throws IOException if the records can't be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        writer.close();
+    }
+
+
+    private void writeAuthZ( AuthZ authZ ) throws IOException
+    {
+        write( "type", "authz" );
+        write( "reqStart", authZ.getReqStart() );
+        write( "reqEnd", authZ.getReqEnd() );
+        write( "reqType", authZ.getReqType() );
+        write( "reqDN", authZ.getReqDN() );
+        write( "reqAuthzID", authZ.getReqAuthzID() );
+        write( "reqResult", authZ.getReqResult() );
+        write( "reqSession", authZ.getReqSession() );
+        write( "reqAttr", authZ.getReqAttr() );
+        write( "reqAttrsOnly", authZ.getReqAttrsOnly() );
+        write( "reqFilter", authZ.getReqFilter() );
+        write( "reqScope", authZ.getReqScope() );
+        write( "reqEntries", authZ.getReqEntries() );
+        write( "reqDerefAliases", authZ.getReqDerefAliases() );
+        write( "reqSizeLimit", authZ.getReqSizeLimit() );
+        write( "reqTimeLimit", authZ.getReqTimeLimit() );
+    }
+
+
+    private void writeBind( Bind bind ) throws IOException
+    {
+        write( "type", "bind" );
+        write( "reqStart", bind.getReqStart() );
+        write( "reqEnd", bind.getReqEnd() );
+        write( "reqType", bind.getReqType() );
+        write( "reqDN", bind.getReqDN() );
+        write( "reqAuthzID", bind.getReqAuthzID() );
+        write( "reqResult", bind.getReqResult() );
+        write( "reqSession", bind.getReqSession() );
+        write( "reqMethod", bind.getReqMethod() );
+        write( "reqVersion", bind.getReqVersion() );
+    }
+
+
+    private void writeMod( Mod mod ) throws IOException
+    {
+        write( "type", "mod" );
+        write( "reqStart", mod.getReqStart() );
+        write( "reqEnd", mod.getReqEnd() );
+        write( "reqType", mod.getReqType() );
+        write( "reqDN", mod.getReqDN() );
+        write( "reqAuthzID", mod.getReqAuthzID() );
+        write( "reqResult", mod.getReqResult() );
+        write( "reqSession", mod.getReqSession() );
+        List<String> reqMods = mod.getReqMod();
+        if ( reqMods != null )
+        {
+            writeName( "reqMod" );
+            writer.write( '[' );
+            for ( int i = 0; i < reqMods.size(); i++ )
+            {
+                if ( i > 0 )
+                {
+                    writer.write( ',' );
+                }
+                writeString( reqMods.get( i ) );
+            }
+            writer.write( ']' );
+        }
+    }
+
+
+    private void write( String name, String value ) throws IOException
+    {
+        if ( value != null )
+        {
+            writeName( name );
+            writeString( value );
+        }
+    }
+
+
+    private void writeName( String name ) throws IOException
+    {
+        if ( !isFirst )
+        {
+            writer.write( ',' );
+        }
+        isFirst = false;
+        writeString( name );
+        writer.write( ':' );
+    }
+
+
+    private void writeString( String value ) throws IOException
+    {
+        writer.write( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '"':
+                    writer.write( "\\\"" );
+                    break;
+                case '\\':
+                    writer.write( "\\\\" );
+                    break;
+                case '\n':
+                    writer.write( "\\n" );
+                    break;
+                case '\r':
+                    writer.write( "\\r" );
+                    break;
+                case '\t':
+                    writer.write( "\\t" );
+                    break;
+                default:
+                    if ( c < 0x20 || c == '\u2028' || c == '\u2029' )
+                    {
+                        writer.write( "\\u" );
+                        writer.write( HEX[( c >> 12 ) & 0xf] );
+                        writer.write( HEX[( c >> 8 ) & 0xf] );
+                        writer.write( HEX[( c >> 4 ) & 0xf] );
+                        writer.write( HEX[c & 0xf] );
+                    }
+                    else
+                    {
+                        writer.write( c );
+                    }
+                    break;
+            }
+        }
+        writer.write( '"' );
+    }
+}
@@ -41,6 +41,17 @@ public interface Cache
     Object get( Object key ) throws CacheException;
 
 
+    /**
+     * Given a key name, return the corresponding value without waiting for, or blocking, another caller of
+     * {@link #get(Object)} that missed on the same key and has yet to store its value.
+     *
+     * @param key is the name used to store the entry.
+     * @return entry stored in the cache.
+     * @throws CacheException will wraps the implementation's exception.
+     */
+    Object getQuiet( Object key ) throws CacheException;
+
+
     /**
      * Add a new entry to the cache.
      *
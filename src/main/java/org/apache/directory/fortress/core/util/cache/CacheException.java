@@ -30,7 +30,7 @@ import org.apache.directory.fortress.core.BaseRuntimeException;
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
-class CacheException extends BaseRuntimeException
+public class CacheException extends BaseRuntimeException
 {
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
@@ -19,6 +19,11 @@
  */
 package org.apache.directory.fortress.core.util.cache;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.constructs.blocking.BlockingCache;
@@ -42,7 +47,9 @@ public final class CacheMgr
 {
     private static final Logger LOG = LoggerFactory.getLogger( CacheMgr.class.getName() );
     private static final String EHCACHE_CONFIG_FILE = "ehcache.config.file";
+    private static final String REFRESH_AHEAD_PERCENT = "cache.refresh.ahead.percent";
     private CacheManager mEhCacheImpl;
+    private final ConcurrentMap<String, LoadingCache<?>> loadingCaches = new ConcurrentHashMap<>();
     
     private static volatile CacheMgr sINSTANCE = null;
     
@@ -113,6 +120,51 @@ public final class CacheMgr
         }
     }
 
+    /**
+     * Return the loading cache, see {@link LoadingCache}, for the ehcache of the given name.  Entries are refreshed in the
+     * background once they reach {@code cache.refresh.ahead.percent}, default 80, percent of the cache's time to live.  A
+     * value of 0 disables refresh ahead.
+     *
+     * @param cacheName contains the name of the cache to retrieve
+     * @param <V> the type of value cached.
+     * @return reference to loading cache for specified object, the same instance is returned for each call by name.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> LoadingCache<V> getLoadingCache( String cacheName )
+    {
+        LoadingCache<V> loadingCache = ( LoadingCache<V> ) loadingCaches.get( cacheName );
+        if ( loadingCache == null )
+        {
+            Cache cache = getCache( cacheName );
+            long refreshAfterMillis = 0;
+            int percent = Config.getInstance().getInt( REFRESH_AHEAD_PERCENT, 80 );
+            Ehcache ehcache = mEhCacheImpl.getEhcache( cacheName );
+            if ( percent > 0 && percent < 100 && ehcache != null )
+            {
+                refreshAfterMillis = ehcache.getCacheConfiguration().getTimeToLiveSeconds() * 10L * percent;
+            }
+            loadingCache = new LoadingCache<>( cacheName, cache, refreshAfterMillis );
+            LoadingCache<V> existing = ( LoadingCache<V> ) loadingCaches.putIfAbsent( cacheName, loadingCache );
+            if ( existing != null )
+            {
+                loadingCache = existing;
+            }
+        }
+        return loadingCache;
+    }
+
+
+    /**
+     * Return the loading caches created so far, e.g. to report their statistics.
+     *
+     * @return list of loading caches.
+     */
+    public List<LoadingCache<?>> getLoadingCaches()
+    {
+        return new ArrayList<>( loadingCaches.values() );
+    }
+
+
     /**
      * Used to clear all elements from all cache objects.
      *
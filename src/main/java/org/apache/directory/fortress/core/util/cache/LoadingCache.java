@@ -0,0 +1,557 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.util.cache;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Read through facade over a {@link Cache} whose entries are produced by a {@link CacheLoader}.
+ * <ul>
+ * <li>Single flight: when an entry is missing, only one thread per key calls the loader, concurrent callers for the
+ * same key wait for and share its result.</li>
+ * <li>Refresh ahead: once an entry is older than the refresh interval, which is set a little short of the cache's time
+ * to live, the next read schedules a reload in the background and continues to be served the current value until the
+ * reload replaces it.</li>
+ * <li>Statistics: hits, misses, loads, load failures, background refreshes and total load time are counted per cache.</li>
+ * <li>Priming: an entry may be stored from another source, such as a snapshot on disk, before it is first read.  The
+ * primed value is served at once, and its first read schedules a refresh that reconciles it with the loader.</li>
+ * </ul>
+ * Instances are obtained from {@link CacheMgr#getLoadingCache(String)}.
+ * <p>
+ * This class is thread safe.
+ *
+ * @param <V> the type of value cached.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class LoadingCache<V>
+{
+    private static final String CLS_NM = LoadingCache.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    private static final ExecutorService REFRESHER;
+    // load time of a primed entry:
+    private static final long PRIMED = 0;
+    // keys are spread over this many modification counts, a power of two:
+    private static final int STRIPES = 64;
+
+    static
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( 2, 2, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-cache-refresh-" + count.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+        executor.allowCoreThreadTimeOut( true );
+        REFRESHER = executor;
+    }
+
+    private final String name;
+    private final Cache cache;
+    private final long refreshAfterMillis;
+    private final ConcurrentMap<Object, LoadTask> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, Boolean> refreshing = new ConcurrentHashMap<>();
+    private final Object modificationLock = new Object();
+    // count of puts and clears per stripe of keys, a load is only discarded by those of its own stripe:
+    private final long[] modifications = new long[STRIPES];
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+
+
+    /**
+     * Package private constructor, use {@link CacheMgr#getLoadingCache(String)}.
+     *
+     * @param name               name of the cache.
+     * @param cache              underlying cache the entries are stored in.
+     * @param refreshAfterMillis age after which an entry is refreshed in the background, 0 disables refresh ahead.
+     */
+    LoadingCache( String name, Cache cache, long refreshAfterMillis )
+    {
+        this.name = name;
+        this.cache = cache;
+        this.refreshAfterMillis = refreshAfterMillis;
+    }
+
+
+    /**
+     * Return the value for a key, calling the loader if the entry is missing, and scheduling a background refresh if it is
+     * due for one.
+     *
+     * @param key    name of the entry.
+     * @param loader called to produce the value if missing or due for refresh.
+     * @return the cached or loaded value, may be null if the loader returned null.
+     * @throws CacheException if the loader fails or the underlying cache throws an exception.
+     */
+    public V get( Object key, CacheLoader<V> loader )
+    {
+        return get( key, loader, true );
+    }
+
+
+    /**
+     * Return the value for a key as {@link #get} does, except that a primed value that hasn't been reconciled with the
+     * loader yet is not returned.  Used to copy values that are known to be current.
+     *
+     * @param key    name of the entry.
+     * @param loader called to produce the value if missing or due for refresh.
+     * @return the cached or loaded value, null if the loader returned null or the entry is primed.
+     * @throws CacheException if the loader fails or the underlying cache throws an exception.
+     */
+    public V getLoaded( Object key, CacheLoader<V> loader )
+    {
+        return get( key, loader, false );
+    }
+
+
+    /**
+     * Return the value for a key if one is cached, without loading it, scheduling a refresh or waiting for a load in
+     * progress.  Used by callers that only keep a cached value current.
+     *
+     * @param key name of the entry.
+     * @return the cached value, null if there is none.
+     * @throws CacheException if the underlying cache throws an exception.
+     */
+    @SuppressWarnings("unchecked")
+    public V getIfPresent( Object key )
+    {
+        Holder<V> holder = ( Holder<V> ) cache.getQuiet( key );
+        return holder != null ? holder.value : null;
+    }
+
+
+    /**
+     * Store a value for a key that has none, such as one read from a snapshot at startup.  The value is served as
+     * though it had been loaded, and the first read schedules a background refresh that replaces it with the loader's.
+     *
+     * @param key   name of the entry.
+     * @param value to be stored.
+     * @return false if the key already has a value, which is kept.
+     * @throws CacheException if the underlying cache throws an exception.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean prime( Object key, V value )
+    {
+        // a caller that missed on a blocking cache holds the key's lock until it stores a value, as this one does:
+        Holder<V> holder = ( Holder<V> ) cache.get( key );
+        if ( holder != null && holder.value != null )
+        {
+            return false;
+        }
+        cache.put( key, new Holder<>( value, PRIMED ) );
+        return true;
+    }
+
+
+    /**
+     * Replace the value for a key.  Callers that modify a cached value in place call this afterwards, so that a
+     * background refresh that read the source before the modification is discarded rather than stored over it.  A
+     * primed value stays primed, it is modified but still not reconciled with the loader.
+     *
+     * @param key   name of the entry.
+     * @param value to be stored.
+     * @throws CacheException if the underlying cache throws an exception.
+     */
+    @SuppressWarnings("unchecked")
+    public void put( Object key, V value )
+    {
+        synchronized ( modificationLock )
+        {
+            modifications[stripe( key )]++;
+            Holder<V> holder = ( Holder<V> ) cache.getQuiet( key );
+            boolean isPrimed = holder != null && holder.value != null && holder.loadTime == PRIMED;
+            cache.put( key, isPrimed ? new Holder<>( value, PRIMED ) : new Holder<>( value ) );
+        }
+    }
+
+
+    /**
+     * Remove an entry, the next read will reload it.  A load in progress is returned to its callers but not stored.
+     *
+     * @param key name of the entry.
+     * @return boolean value will be false if entry not found and true if entry was found and removed.
+     * @throws CacheException if the underlying cache throws an exception.
+     */
+    public boolean clear( Object key )
+    {
+        synchronized ( modificationLock )
+        {
+            modifications[stripe( key )]++;
+            return cache.clear( key );
+        }
+    }
+
+
+    /**
+     * @return name of the underlying cache.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * @return number of reads served from the cache.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+
+    /**
+     * @return number of reads that found no entry and had to wait for a load.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+
+    /**
+     * @return number of calls made to loaders, including background refreshes.
+     */
+    public long getLoadCount()
+    {
+        return loads.get();
+    }
+
+
+    /**
+     * @return number of loader calls that threw an exception.
+     */
+    public long getLoadFailureCount()
+    {
+        return loadFailures.get();
+    }
+
+
+    /**
+     * @return number of background refreshes scheduled.
+     */
+    public long getRefreshCount()
+    {
+        return refreshes.get();
+    }
+
+
+    /**
+     * @return total time in milliseconds spent in loaders.
+     */
+    public long getTotalLoadMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( loadNanos.get() );
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "LoadingCache[" + name + "] hits=" + hits.get() + " misses=" + misses.get() + " loads=" + loads.get()
+            + " loadFailures=" + loadFailures.get() + " refreshes=" + refreshes.get() + " totalLoadMillis="
+            + getTotalLoadMillis();
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private V get( Object key, CacheLoader<V> loader, boolean isPrimedServed )
+    {
+        Holder<V> holder = ( Holder<V> ) cache.get( key );
+        if ( holder != null && holder.value != null )
+        {
+            hits.incrementAndGet();
+            boolean isPrimed = holder.loadTime == PRIMED;
+            if ( isPrimed || refreshAfterMillis > 0 && System.currentTimeMillis() - holder.loadTime
+                > refreshAfterMillis )
+            {
+                refresh( key, loader );
+            }
+            return isPrimed && !isPrimedServed ? null : holder.value;
+        }
+        misses.incrementAndGet();
+        return load( key, loader );
+    }
+
+
+    /**
+     * Load the entry in the calling thread, or join a load of the same key already in progress.
+     */
+    private V load( Object key, CacheLoader<V> loader )
+    {
+        LoadTask task = newTask( key, loader );
+        LoadTask existing = inFlight.putIfAbsent( key, task );
+        boolean isOwner = existing == null;
+        if ( isOwner )
+        {
+            task.run();
+        }
+        else
+        {
+            task = existing;
+        }
+        V value = null;
+        try
+        {
+            value = task.get();
+            return value;
+        }
+        catch ( ExecutionException ee )
+        {
+            Throwable cause = ee.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw ( RuntimeException ) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw ( Error ) cause;
+            }
+            String error = "load cache name [" + name + "] key [" + key + "] caught ExecutionException=" + cause;
+            throw new CacheException( GlobalErrIds.FT_CACHE_GET_ERR, error, ( Exception ) cause );
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+            String error = "load cache name [" + name + "] key [" + key + "] interrupted";
+            throw new CacheException( GlobalErrIds.FT_CACHE_GET_ERR, error, ie );
+        }
+        finally
+        {
+            if ( !isOwner )
+            {
+                // a caller that missed on a blocking cache holds the key's lock until it stores a value:
+                store( key, value, task.mark );
+            }
+        }
+    }
+
+
+    /**
+     * Schedule a background reload of the entry unless one is already in progress.  A failed reload leaves the current
+     * value in place, as does one that overlaps a {@link #put} or {@link #clear} of its key.
+     * Refreshes are kept apart from {@link #load} because a caller that misses on a
+     * {@link net.sf.ehcache.constructs.blocking.BlockingCache} holds the key's lock until it stores a value itself.
+     */
+    private void refresh( final Object key, final CacheLoader<V> loader )
+    {
+        if ( refreshing.putIfAbsent( key, Boolean.TRUE ) != null )
+        {
+            return;
+        }
+        refreshes.incrementAndGet();
+        LOG.debug( "refresh cache name [{}] key [{}]", name, key );
+        final long mark = getModifications( key );
+        REFRESHER.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    V value = callLoader( key, loader );
+                    synchronized ( modificationLock )
+                    {
+                        if ( value != null && mark == modifications[stripe( key )] )
+                        {
+                            cache.put( key, new Holder<>( value ) );
+                        }
+                    }
+                }
+                catch ( RuntimeException re )
+                {
+                    // already counted and logged, keep serving the current value until it expires.
+                }
+                finally
+                {
+                    refreshing.remove( key );
+                }
+            }
+        } );
+    }
+
+
+    /**
+     * Create the task that loads an entry for callers that missed.  The result is always stored, even a failed load, so
+     * that callers blocked on the underlying cache are released, and the task then retires from the in flight map.
+     */
+    private LoadTask newTask( final Object key, final CacheLoader<V> loader )
+    {
+        final List<LoadTask> self = new ArrayList<>( 1 );
+        final long mark = getModifications( key );
+        LoadTask task = new LoadTask( new Callable<V>()
+        {
+            @Override
+            public V call()
+            {
+                V value = null;
+                try
+                {
+                    value = callLoader( key, loader );
+                    return value;
+                }
+                finally
+                {
+                    store( key, value, mark );
+                    inFlight.remove( key, self.get( 0 ) );
+                }
+            }
+        }, mark );
+        self.add( task );
+        return task;
+    }
+
+
+    /**
+     * Store the result of a load, or nothing if a {@link #put} or {@link #clear} of a key in the same stripe overlapped
+     * it, as the loader may have read the source before the modification.  The modification lock isn't held while
+     * storing, as a {@link #put} holds it while waiting on the key's lock, so one that lands in between is followed by
+     * removing the value again.
+     *
+     * @param mark count of modifications of the key's stripe when the load started.
+     */
+    private void store( Object key, V value, long mark )
+    {
+        boolean isCurrent = mark == getModifications( key );
+        cache.put( key, new Holder<>( isCurrent ? value : null ) );
+        if ( isCurrent && mark != getModifications( key ) )
+        {
+            cache.clear( key );
+        }
+    }
+
+
+    /**
+     * @return count of modifications of the stripe the key belongs to.
+     */
+    private long getModifications( Object key )
+    {
+        synchronized ( modificationLock )
+        {
+            return modifications[stripe( key )];
+        }
+    }
+
+
+    /**
+     * Return the stripe of a key, spreading the high bits of its hash code over the low ones used.
+     */
+    private static int stripe( Object key )
+    {
+        int hash = key.hashCode();
+        return ( hash ^ ( hash >>> 16 ) ) & ( STRIPES - 1 );
+    }
+
+
+    /**
+     * Call the loader and record its statistics.
+     */
+    private V callLoader( Object key, CacheLoader<V> loader )
+    {
+        long start = System.nanoTime();
+        loads.incrementAndGet();
+        try
+        {
+            return loader.load();
+        }
+        catch ( RuntimeException re )
+        {
+            loadFailures.incrementAndGet();
+            LOG.warn( "load cache name [" + name + "] key [" + key + "] caught RuntimeException=" + re );
+            throw re;
+        }
+        finally
+        {
+            long elapsed = System.nanoTime() - start;
+            loadNanos.addAndGet( elapsed );
+            LOG.debug( "load cache name [{}] key [{}] millis [{}]", name, key, TimeUnit.NANOSECONDS.toMillis( elapsed ) );
+        }
+    }
+
+
+    /**
+     * Load of an entry along with the count of modifications of its stripe when it started.
+     */
+    private final class LoadTask extends FutureTask<V>
+    {
+        private final long mark;
+
+
+        private LoadTask( Callable<V> callable, long mark )
+        {
+            super( callable );
+            this.mark = mark;
+        }
+    }
+
+
+    /**
+     * Cached value along with the time it was loaded.
+     */
+    private static final class Holder<V> implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+        private final V value;
+        private final long loadTime;
+
+
+        private Holder( V value )
+        {
+            this( value, System.currentTimeMillis() );
+        }
+
+
+        private Holder( V value, long loadTime )
+        {
+            this.value = value;
+            this.loadTime = loadTime;
+        }
+    }
+}
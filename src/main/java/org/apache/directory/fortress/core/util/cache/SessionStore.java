@@ -0,0 +1,400 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.util.cache;
+
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Process wide store that holds RBAC {@link Session}s on behalf of callers, keyed by a short opaque token.  Callers that
+ * use the token methods on {@link org.apache.directory.fortress.core.AccessMgr} and
+ * {@link org.apache.directory.fortress.core.DelAccessMgr} pass the token around rather than the full Session.
+ * <p>
+ * The store is bounded, see {@code session.store.max.size}, and entries least recently used are evicted once the bound
+ * is reached.  Each entry expires after it has been idle for the timeout of the session's user, in minutes, or
+ * {@code session.store.idle.timeout} when the user carries no timeout.  Entries are split across a fixed number of
+ * segments, each guarded by its own lock, so that concurrent lookups on different tokens rarely contend.
+ * <p>
+ * Counters for hits, misses, expirations and evictions are maintained for monitoring.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class SessionStore
+{
+    private static final String CLS_NM = SessionStore.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    private static final String MAX_SIZE = "session.store.max.size";
+    private static final String IDLE_TIMEOUT = "session.store.idle.timeout";
+    private static final int SEGMENTS = 16;
+    private static final int PURGE_INTERVAL = 1024;
+    private static final int TOKEN_BITS = 128;
+    private static final int TOKEN_RADIX = 36;
+
+    private final Segment[] segments;
+    private final long defaultIdleMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static volatile SessionStore sINSTANCE = null;
+
+
+    /**
+     * Create or return the session store in effect for process.
+     *
+     * @return handle to the session store.
+     */
+    public static SessionStore getInstance()
+    {
+        if ( sINSTANCE == null )
+        {
+            synchronized ( SessionStore.class )
+            {
+                if ( sINSTANCE == null )
+                {
+                    sINSTANCE = new SessionStore();
+                }
+            }
+        }
+        return sINSTANCE;
+    }
+
+
+    /**
+     * Private constructor.
+     *
+     */
+    private SessionStore()
+    {
+        int maxSize = Config.getInstance().getInt( MAX_SIZE, 10000 );
+        int segmentSize = Math.max( 1, maxSize / SEGMENTS );
+        segments = new Segment[SEGMENTS];
+        for ( int i = 0; i < SEGMENTS; i++ )
+        {
+            segments[i] = new Segment( segmentSize );
+        }
+        defaultIdleMillis = Config.getInstance().getInt( IDLE_TIMEOUT, 30 ) * 60000L;
+        LOG.info( "SessionStore maxSize [{}] defaultIdleMillis [{}]", maxSize, defaultIdleMillis );
+    }
+
+
+    /**
+     * Add a session to the store.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param session   contains the RBAC session to store.
+     * @return opaque token that may be used to retrieve the session until it is removed or expires.
+     */
+    public String put( String contextId, Session session )
+    {
+        String token = new BigInteger( TOKEN_BITS, random ).toString( TOKEN_RADIX );
+        StoredSession entry = new StoredSession( getKey( contextId ), session, getIdleMillis( session ) );
+        Segment segment = segmentFor( token );
+        synchronized ( segment )
+        {
+            segment.put( token, entry );
+        }
+        if ( puts.incrementAndGet() % PURGE_INTERVAL == 0 )
+        {
+            purgeExpired();
+        }
+        return token;
+    }
+
+
+    /**
+     * Return the session stored for a token and reset its idle timer.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param token     returned by {@link #put(String, Session)}.
+     * @return the session or null if the token is unknown, expired or belongs to a different tenant.
+     */
+    public Session get( String contextId, String token )
+    {
+        if ( StringUtils.isEmpty( token ) )
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Segment segment = segmentFor( token );
+        StoredSession entry;
+        synchronized ( segment )
+        {
+            entry = segment.get( token );
+            if ( entry != null && entry.isExpired( now ) )
+            {
+                segment.remove( token );
+                expirations.incrementAndGet();
+                entry = null;
+            }
+            else if ( entry != null )
+            {
+                entry.lastAccess = now;
+            }
+        }
+        if ( entry == null || !entry.contextId.equals( getKey( contextId ) ) )
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.session;
+    }
+
+
+    /**
+     * Remove the session stored for a token.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param token     returned by {@link #put(String, Session)}.
+     * @return boolean value will be false if entry not found and true if entry was found and removed.
+     */
+    public boolean remove( String contextId, String token )
+    {
+        if ( StringUtils.isEmpty( token ) )
+        {
+            return false;
+        }
+        Segment segment = segmentFor( token );
+        synchronized ( segment )
+        {
+            StoredSession entry = segment.get( token );
+            if ( entry == null || !entry.contextId.equals( getKey( contextId ) ) )
+            {
+                return false;
+            }
+            segment.remove( token );
+            return true;
+        }
+    }
+
+
+    /**
+     * Remove all entries that have been idle longer than their timeout.
+     *
+     * @return number of entries removed.
+     */
+    public int purgeExpired()
+    {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for ( Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                for ( Iterator<StoredSession> it = segment.values().iterator(); it.hasNext(); )
+                {
+                    if ( it.next().isExpired( now ) )
+                    {
+                        it.remove();
+                        count++;
+                    }
+                }
+            }
+        }
+        if ( count > 0 )
+        {
+            expirations.addAndGet( count );
+            LOG.debug( "purgeExpired removed [{}] sessions", count );
+        }
+        return count;
+    }
+
+
+    /**
+     * Remove all entries from the store.
+     *
+     */
+    public void flush()
+    {
+        for ( Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                segment.clear();
+            }
+        }
+    }
+
+
+    /**
+     * @return number of sessions currently held, including those expired but not yet purged.
+     */
+    public int getSize()
+    {
+        int size = 0;
+        for ( Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+
+    /**
+     * @return number of lookups that found a live session.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+
+    /**
+     * @return number of lookups that found no live session.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+
+    /**
+     * @return number of sessions removed because they were idle past their timeout.
+     */
+    public long getExpirationCount()
+    {
+        return expirations.get();
+    }
+
+
+    /**
+     * @return number of sessions removed because the store reached its maximum size.
+     */
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+
+    private long getIdleMillis( Session session )
+    {
+        User user = session.getUser();
+        if ( user != null && user.getTimeout() != null && user.getTimeout() > 0 )
+        {
+            return user.getTimeout() * 60000L;
+        }
+        return defaultIdleMillis;
+    }
+
+
+    private Segment segmentFor( String token )
+    {
+        int hash = token.hashCode();
+        hash ^= ( hash >>> 16 );
+        return segments[hash & ( SEGMENTS - 1 )];
+    }
+
+
+    private static String getKey( String contextId )
+    {
+        if ( StringUtils.isEmpty( contextId ) || contextId.equalsIgnoreCase( GlobalIds.NULL ) )
+        {
+            return GlobalIds.NULL;
+        }
+        return contextId;
+    }
+
+
+    /**
+     * A stored session along with the tenant it belongs to and its idle timer.
+     */
+    private static final class StoredSession
+    {
+        private final String contextId;
+        private final Session session;
+        private final long idleMillis;
+        private long lastAccess;
+
+
+        private StoredSession( String contextId, Session session, long idleMillis )
+        {
+            this.contextId = contextId;
+            this.session = session;
+            this.idleMillis = idleMillis;
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+
+        private boolean isExpired( long now )
+        {
+            return now - lastAccess > idleMillis;
+        }
+    }
+
+
+    /**
+     * Access ordered map that evicts its least recently used entry once full.
+     */
+    private final class Segment extends LinkedHashMap<String, StoredSession>
+    {
+        private static final long serialVersionUID = 1L;
+        private final int maxSize;
+
+
+        private Segment( int maxSize )
+        {
+            super( 16, 0.75f, true );
+            this.maxSize = maxSize;
+        }
+
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, StoredSession> eldest )
+        {
+            if ( size() > maxSize )
+            {
+                if ( eldest.getValue().isExpired( System.currentTimeMillis() ) )
+                {
+                    expirations.incrementAndGet();
+                }
+                else
+                {
+                    evictions.incrementAndGet();
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -71,6 +71,7 @@ public class AccessMgrImplTest extends TestCase
         suite.addTest( new AdminMgrImplTest( "testUnlockUserAccount" ) );
 */
         suite.addTest( new AccessMgrImplTest( "testCheckAccess" ) );
+        suite.addTest( new AccessMgrImplTest( "testCheckAccessToken" ) );
         return suite;
     }
 
@@ -806,6 +807,66 @@ public class AccessMgrImplTest extends TestCase
     }
 
 
+    /**
+     *
+     */
+    public void testCheckAccessToken()
+    {
+        // public boolean checkAccess(String token, Permission perm)
+        checkAccessToken( "CHCK-ACS-TKN TU1_UPD TO1 TOP1 ", UserTestData.USERS_TU1_UPD, PermTestData.OBJS_TOB1,
+            PermTestData.OPS_TOP1 );
+    }
+
+
+    public static void checkAccessToken( String msg, String[][] uArray, String[][] oArray, String[][] opArray )
+    {
+        LogUtil.logIt( msg );
+        try
+        {
+            AccessMgr accessMgr = AccessMgrFactory.createInstance( TestUtils.getContext() );
+            for ( String[] usr : uArray )
+            {
+                User user = UserTestData.getUser( usr );
+                String token = accessMgr.createSessionToken( user, false );
+                assertNotNull( token );
+                assertEquals( user.getUserId(), accessMgr.getSession( token ).getUserId() );
+                for ( String[] obj : oArray )
+                {
+                    for ( String[] op : opArray )
+                    {
+                        Permission goodPerm = new Permission( PermTestData.getName( obj ), PermTestData.getName( op ) );
+                        if ( StringUtils.isNotEmpty( PermTestData.getObjId( op ) ) )
+                        {
+                            goodPerm.setObjId( PermTestData.getObjId( op ) );
+                        }
+                        assertTrue( CLS_NM + ".checkAccessToken failed userId [" + user.getUserId() + "] Perm objName [" +
+                                PermTestData.getName( obj ) + "] operationName [" + PermTestData.getName( op ) + "]",
+                            accessMgr.checkAccess( token, goodPerm ) );
+                    }
+                }
+                accessMgr.deleteSession( token );
+                try
+                {
+                    accessMgr.getSession( token );
+                    fail( CLS_NM + ".checkAccessToken failed userId [" + user.getUserId() + "] token not removed" );
+                }
+                catch ( SecurityException ex )
+                {
+                    assertTrue( CLS_NM + ".checkAccessToken excep id check",
+                        ex.getErrorId() == GlobalErrIds.USER_SESS_TOKEN_INVALID );
+                }
+            }
+            LOG.debug( "checkAccessToken successful" );
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error( "checkAccessToken: failed with SecurityException rc=" + ex.getErrorId() + ", " +
+                "msg=" + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
     /**
      *
      */
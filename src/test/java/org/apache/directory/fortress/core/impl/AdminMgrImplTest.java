@@ -20,6 +20,7 @@
 package org.apache.directory.fortress.core.impl;
 
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -39,6 +40,7 @@ import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.model.Warning;
 import org.apache.directory.fortress.core.util.LogUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -1421,6 +1423,165 @@ public class AdminMgrImplTest extends TestCase
     }
 
 
+    public void testAssignUsersBatch()
+    {
+        //     public List<Warning> assignUsers(Role role, Collection<String> userIds)
+        assignUsersBatchExisting( "ASGN-USRS-BATCH TU1 TR1", UserTestData.USERS_TU1, RoleTestData.ROLES_TR1 );
+        assignUsersBatch( "ASGN-USRS-BATCH TU1 TR2", UserTestData.USERS_TU1, RoleTestData.ROLES_TR2 );
+        assignRolesBatchSSD( "ASGN-RLS-BATCH_SSDT1 TU1 SSD_T1", UserTestData.USERS_TU1, RoleTestData.SSD_T1 );
+    }
+
+
+    /**
+     * Assign, as a batch, users that aren't assigned to each role yet.  Every item must succeed.  The assignments are
+     * removed again afterwards, so that the counts checked by the later tests are unchanged.
+     *
+     * @param msg
+     * @param uArray
+     * @param rArray
+     */
+    public static void assignUsersBatch( String msg, String[][] uArray, String[][] rArray )
+    {
+        LogUtil.logIt( msg );
+        try
+        {
+            AdminMgr adminMgr = getManagedAdminMgr();
+            ReviewMgr reviewMgr = ReviewMgrImplTest.getManagedReviewMgr();
+            List<String> userIds = new ArrayList<>();
+            for ( String[] usr : uArray )
+            {
+                userIds.add( UserTestData.getUserId( usr ) );
+            }
+            for ( String[] rle : rArray )
+            {
+                Role role = RoleTestData.getRole( rle );
+                List<Warning> warnings = adminMgr.assignUsers( role, userIds );
+                assertTrue( CLS_NM + ".assignUsersBatch warnings " + warnings, warnings.isEmpty() );
+                for ( String userId : userIds )
+                {
+                    assertTrue( CLS_NM + ".assignUsersBatch user [" + userId + "] role [" + role.getName() + "]",
+                        reviewMgr.assignedRoles( userId ).contains( role.getName() ) );
+                }
+            }
+            for ( String[] rle : rArray )
+            {
+                for ( String userId : userIds )
+                {
+                    adminMgr.deassignUser( new UserRole( userId, RoleTestData.getName( rle ) ) );
+                }
+            }
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error(
+                "assignUsersBatch caught SecurityException rc=" + ex.getErrorId() + ", msg="
+                    + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
+    /**
+     * Assign, as a batch, every role of an SSD set to a user that has none of them.  The items up to the set's
+     * cardinality are checked against the ones accepted before them in the same batch, so the item that reaches it must
+     * fail on SSD and the others succeed.  The assignments are removed again afterwards.
+     *
+     * @param msg
+     * @param uArray
+     * @param sArray
+     */
+    public static void assignRolesBatchSSD( String msg, String[][] uArray, String[][] sArray )
+    {
+        LogUtil.logIt( msg );
+        try
+        {
+            AdminMgr adminMgr = getManagedAdminMgr();
+            ReviewMgr reviewMgr = ReviewMgrImplTest.getManagedReviewMgr();
+            User user = UserTestData.getUser( uArray[0] );
+            SDSet ssd = RoleTestData.getSDSet( sArray[0] );
+            List<String> roleNms = new ArrayList<>( ssd.getMembers() );
+            List<UserRole> uRoles = new ArrayList<>();
+            for ( String roleNm : roleNms )
+            {
+                uRoles.add( new UserRole( roleNm ) );
+            }
+            List<Warning> warnings = adminMgr.assignRoles( user, uRoles );
+            int accepted = ssd.getCardinality() - 1;
+            assertEquals( CLS_NM + ".assignRolesBatchSSD warnings size check", roleNms.size() - accepted,
+                warnings.size() );
+            for ( Warning warning : warnings )
+            {
+                assertEquals( CLS_NM + ".assignRolesBatchSSD warning type", Warning.Type.ROLE, warning.getType() );
+                assertEquals( CLS_NM + ".assignRolesBatchSSD warning id", GlobalErrIds.SSD_VALIDATION_FAILED,
+                    warning.getId() );
+                assertTrue( CLS_NM + ".assignRolesBatchSSD warning name [" + warning.getName() + "]",
+                    roleNms.subList( accepted, roleNms.size() ).contains( warning.getName() ) );
+            }
+            List<String> assigned = reviewMgr.assignedRoles( user.getUserId() );
+            for ( int i = 0; i < roleNms.size(); i++ )
+            {
+                assertEquals( CLS_NM + ".assignRolesBatchSSD role [" + roleNms.get( i ) + "]", i < accepted,
+                    assigned.contains( roleNms.get( i ) ) );
+            }
+            for ( String roleNm : roleNms.subList( 0, accepted ) )
+            {
+                adminMgr.deassignUser( new UserRole( user.getUserId(), roleNm ) );
+            }
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error(
+                "assignRolesBatchSSD caught SecurityException rc=" + ex.getErrorId() + ", msg="
+                    + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
+    /**
+     * Assign, as a batch, users that already are assigned to each role.  Every item must fail on its own.
+     *
+     * @param msg
+     * @param uArray
+     * @param rArray
+     */
+    public static void assignUsersBatchExisting( String msg, String[][] uArray, String[][] rArray )
+    {
+        LogUtil.logIt( msg );
+        try
+        {
+            AdminMgr adminMgr = getManagedAdminMgr();
+            List<String> userIds = new ArrayList<>();
+            for ( String[] usr : uArray )
+            {
+                userIds.add( UserTestData.getUserId( usr ) );
+            }
+            for ( String[] rle : rArray )
+            {
+                List<Warning> warnings = adminMgr.assignUsers( RoleTestData.getRole( rle ), userIds );
+                assertEquals( CLS_NM + ".assignUsersBatchExisting warnings size check", userIds.size(),
+                    warnings.size() );
+                for ( Warning warning : warnings )
+                {
+                    assertEquals( CLS_NM + ".assignUsersBatchExisting warning type", Warning.Type.USER,
+                        warning.getType() );
+                    assertEquals( CLS_NM + ".assignUsersBatchExisting warning id", GlobalErrIds.URLE_ASSIGN_EXIST,
+                        warning.getId() );
+                    assertTrue( CLS_NM + ".assignUsersBatchExisting warning name", userIds.contains( warning
+                        .getName() ) );
+                }
+            }
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error(
+                "assignUsersBatchExisting caught SecurityException rc=" + ex.getErrorId() + ", msg="
+                    + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
     /**
      * @param msg
      * @param uArray
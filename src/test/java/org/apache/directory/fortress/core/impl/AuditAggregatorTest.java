@@ -0,0 +1,207 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AuditStats;
+import org.apache.directory.fortress.core.model.Props;
+import org.apache.directory.fortress.core.util.time.TUtil;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AuditAggregatorTest {
+
+    private static final long MINUTE = 60000;
+    private static final String JDOE = "uid=jdoe,ou=People,dc=example,dc=com";
+    private static final String JSMITH = "uid=jsmith,ou=People,dc=example,dc=com";
+    private static final String READ = "ftOpNm=read,ftObjNm=Doc,ou=Permissions,ou=RBAC,dc=example,dc=com";
+
+    /**
+     * Serves the records added so far whose reqStart is no earlier than the time asked for.
+     */
+    private static class FakeSource implements AuditAggregator.Source {
+        private final List<Object[]> records = new ArrayList<>();
+        private final List<Long> sinces = new ArrayList<>();
+
+        void authZ(long time, String user, String perm, int result) {
+            records.add(new Object[]{time, user, perm, result});
+        }
+
+        void bind(long time, String user, int result) {
+            records.add(new Object[]{time, user, null, result});
+        }
+
+        @Override
+        public void read(String since, AuditAggregator.Visitor visitor) throws SecurityException {
+            long from;
+            try {
+                from = TUtil.decodeGeneralizedTime(since).getTime();
+            } catch (ParseException pe) {
+                throw new AssertionError(pe);
+            }
+            sinces.add(from);
+            for (Object[] record : records) {
+                long time = (Long) record[0];
+                if (time >= from) {
+                    String reqStart = TUtil.encodeGeneralizedTime(new Date(time));
+                    if (record[2] != null) {
+                        visitor.visitAuthZ(reqStart, (String) record[1], (String) record[2], (Integer) record[3]);
+                    } else {
+                        visitor.visitBind(reqStart, (String) record[1], (Integer) record[3]);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String getResult(AuditStats stats, String code) {
+        for (Props.Entry entry : stats.getResults().getEntry()) {
+            if (entry.getKey().equals(code)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void test_counts_per_user_permission_and_result() {
+        long now = System.currentTimeMillis();
+        FakeSource source = new FakeSource();
+        source.authZ(now - 3 * MINUTE, JDOE, READ, 6);
+        source.authZ(now - 2 * MINUTE, JDOE, READ, 5);
+        source.authZ(now - 2 * MINUTE + 1, JSMITH, READ, 6);
+        source.bind(now - MINUTE, JDOE, 0);
+        source.bind(now - MINUTE + 1, JDOE, 49);
+        AuditAggregator aggregator = new AuditAggregator(source, 0, 5000, MINUTE, 60);
+
+        AuditStats user = aggregator.getAuthZStats(JDOE.toUpperCase(), null, null);
+        assertEquals(1, user.getSuccessCount());
+        assertEquals(1, user.getFailureCount());
+
+        AuditStats perm = aggregator.getAuthZStats(JDOE, READ, null);
+        assertEquals(2, perm.getSuccessCount());
+        assertEquals(1, perm.getFailureCount());
+
+        AuditStats all = aggregator.getAuthZStats(null, null, null);
+        assertEquals(2, all.getSuccessCount());
+        assertEquals("2", getResult(all, "6"));
+        assertEquals("1", getResult(all, "5"));
+
+        AuditStats binds = aggregator.getBindStats(JDOE, null);
+        assertEquals(1, binds.getSuccessCount());
+        assertEquals(1, binds.getFailureCount());
+        assertEquals("1", getResult(aggregator.getBindStats(null, null), "49"));
+
+        assertEquals(0, aggregator.getBindStats(JSMITH, null).getFailureCount());
+        assertEquals(new Date(now - MINUTE + 1), binds.getEndDate());
+    }
+
+    @Test
+    public void test_poll_counts_only_new_records() throws SecurityException {
+        long now = System.currentTimeMillis();
+        FakeSource source = new FakeSource();
+        source.authZ(now - 2000, JDOE, READ, 6);
+        AuditAggregator aggregator = new AuditAggregator(source, 0, 5000, MINUTE, 60);
+        assertEquals(1, aggregator.getAuthZStats(JDOE, null, null).getSuccessCount());
+
+        // logged after the first read, but began before the last record seen:
+        source.authZ(now - 3000, JDOE, READ, 6);
+        source.authZ(now - 1000, JDOE, READ, 5);
+        aggregator.poll();
+
+        assertEquals(now - 2000 - 5000, (long) source.sinces.get(1));
+        AuditStats stats = aggregator.getAuthZStats(JDOE, null, null);
+        assertEquals(2, stats.getSuccessCount());
+        assertEquals(1, stats.getFailureCount());
+
+        aggregator.poll();
+        assertEquals(2, aggregator.getAuthZStats(JDOE, null, null).getSuccessCount());
+    }
+
+    @Test
+    public void test_first_read_covers_window() {
+        FakeSource source = new FakeSource();
+        long before = System.currentTimeMillis();
+        AuditAggregator aggregator = new AuditAggregator(source, 0, 5000, MINUTE, 10);
+        aggregator.getBindStats(null, null);
+        long since = source.sinces.get(0);
+        assertTrue(since >= before - 10 * MINUTE - 1000 && since <= System.currentTimeMillis() - 10 * MINUTE);
+    }
+
+    @Test
+    public void test_begin_date_and_window_limit_counts() {
+        long now = System.currentTimeMillis();
+        FakeSource source = new FakeSource();
+        source.bind(now - 5 * MINUTE, JDOE, 0);
+        source.bind(now, JDOE, 0);
+        AuditAggregator aggregator = new AuditAggregator(source, 0, 5000, MINUTE, 60);
+        assertEquals(2, aggregator.getBindStats(JDOE, null).getSuccessCount());
+        assertEquals(1, aggregator.getBindStats(JDOE, new Date(now - MINUTE)).getSuccessCount());
+
+        // a window of 3 buckets leaves out the older record:
+        source.sinces.clear();
+        AuditAggregator small = new AuditAggregator(source, 0, 5000, MINUTE, 3);
+        assertEquals(1, small.getBindStats(JDOE, null).getSuccessCount());
+    }
+
+    @Test
+    public void test_bucket_reused_for_later_time() throws SecurityException {
+        long base = (System.currentTimeMillis() / 1000 + 10) * 1000;
+        FakeSource source = new FakeSource();
+        AuditAggregator aggregator = new AuditAggregator(source, 0, 0, 1000, 3);
+        source.bind(base, JDOE, 0);
+        assertEquals(1, aggregator.getBindStats(JDOE, null).getSuccessCount());
+
+        // three buckets later the same position holds the new bucket only:
+        source.bind(base + 3000, JDOE, 49);
+        aggregator.poll();
+        AuditStats stats = aggregator.getBindStats(JDOE, null);
+        assertEquals(0, stats.getSuccessCount());
+        assertEquals(1, stats.getFailureCount());
+    }
+
+    @Test
+    public void test_keys_outside_window_are_reclaimed() {
+        long base = (System.currentTimeMillis() / 1000 + 10) * 1000;
+        FakeSource source = new FakeSource();
+        for (int i = 0; i < 100; i++) {
+            source.bind(base, "uid=user" + i + ",ou=People,dc=example,dc=com", 0);
+        }
+        source.bind(base + 2000, JSMITH, 0);
+        // the window of 3 buckets moves past the first one:
+        source.bind(base + 3000, JDOE, 49);
+        AuditAggregator aggregator = new AuditAggregator(source, 0, 0, 1000, 3);
+        assertEquals(1, aggregator.getBindStats(JSMITH, null).getSuccessCount());
+        assertEquals("JSMITH, JDOE and their two results", 4, aggregator.getKeyCount());
+        assertEquals(1, aggregator.getBindStats(JDOE, null).getFailureCount());
+        assertEquals(0, aggregator.getBindStats("uid=user0,ou=People,dc=example,dc=com", null).getSuccessCount());
+        assertEquals("1", getResult(aggregator.getBindStats(null, null), "0"));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.AuditConsumer;
+import org.apache.directory.fortress.core.FinderException;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AuditExportTest {
+
+    /**
+     * Reads RECORDS timestamps spread across each slice, the earliest slices slowest.
+     */
+    private static class FakeSource implements AuditExport.Source {
+        private static final int RECORDS = 5;
+        private final AtomicInteger reads = new AtomicInteger();
+        private long failFrom = -1;
+
+        @Override
+        public void read(AuditExport.Kind kind, UserAudit audit, Date from, Date to, AuditConsumer<Object> consumer)
+                throws SecurityException {
+            if (from.getTime() == failFrom) {
+                throw new FinderException(kind.getErrorId(), "read failed");
+            }
+            long step = (to.getTime() - from.getTime()) / RECORDS;
+            for (int i = 0; i < RECORDS; i++) {
+                try {
+                    Thread.sleep(Math.max(0, 5 - from.getTime() / 1000));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                reads.incrementAndGet();
+                consumer.accept(from.getTime() + i * step);
+            }
+        }
+    }
+
+    private static UserAudit window(long begin, long end) {
+        UserAudit audit = new UserAudit();
+        audit.setBeginDate(new Date(begin));
+        audit.setEndDate(new Date(end));
+        return audit;
+    }
+
+    @Test
+    public void test_records_are_passed_in_order_across_slices() throws SecurityException {
+        FakeSource source = new FakeSource();
+        AuditExport export = new AuditExport(source, 1000, 4, 2);
+        final List<Long> records = new ArrayList<>();
+        long count = export.run(AuditExport.Kind.BIND, window(0, 10000), new AuditConsumer<Long>() {
+            @Override
+            public void accept(Long record) {
+                records.add(record);
+            }
+        });
+        assertEquals(50, count);
+        assertEquals(50, records.size());
+        for (int i = 1; i < records.size(); i++) {
+            assertTrue("Records must be in order", records.get(i - 1) < records.get(i));
+        }
+    }
+
+    @Test
+    public void test_last_slice_ends_with_window() throws SecurityException {
+        FakeSource source = new FakeSource();
+        AuditExport export = new AuditExport(source, 1000, 2, 10);
+        final List<Long> records = new ArrayList<>();
+        export.run(AuditExport.Kind.AUTHZ, window(0, 1500), new AuditConsumer<Long>() {
+            @Override
+            public void accept(Long record) {
+                records.add(record);
+            }
+        });
+        assertEquals(10, records.size());
+        assertEquals(Long.valueOf(1000), records.get(5));
+        assertEquals(Long.valueOf(1400), records.get(9));
+    }
+
+    @Test
+    public void test_empty_window_exports_nothing() throws SecurityException {
+        FakeSource source = new FakeSource();
+        AuditExport export = new AuditExport(source, 1000, 2, 10);
+        assertEquals(0, export.run(AuditExport.Kind.BIND, window(5000, 5000), new AuditConsumer<Object>() {
+            @Override
+            public void accept(Object record) {
+                fail("No records expected");
+            }
+        }));
+        assertEquals(0, source.reads.get());
+    }
+
+    @Test
+    public void test_failed_slice_is_rethrown_after_earlier_slices() {
+        FakeSource source = new FakeSource();
+        source.failFrom = 3000;
+        AuditExport export = new AuditExport(source, 1000, 4, 2);
+        final List<Long> records = new ArrayList<>();
+        try {
+            export.run(AuditExport.Kind.ADMIN_MOD, window(0, 10000), new AuditConsumer<Long>() {
+                @Override
+                public void accept(Long record) {
+                    records.add(record);
+                }
+            });
+            fail("Failed slice should be rethrown");
+        } catch (SecurityException se) {
+            assertEquals(GlobalErrIds.AUDT_MOD_ADMIN_SEARCH_FAILED, se.getErrorId());
+        }
+        assertEquals(15, records.size());
+    }
+
+    @Test
+    public void test_consumer_error_stops_export() throws InterruptedException {
+        FakeSource source = new FakeSource();
+        AuditExport export = new AuditExport(source, 1000, 4, 1);
+        try {
+            export.run(AuditExport.Kind.BIND, window(0, 100000), new AuditConsumer<Long>() {
+                @Override
+                public void accept(Long record) throws SecurityException {
+                    throw new FinderException(GlobalErrIds.AUDT_EXPORT_FAILED, "write failed");
+                }
+            });
+            fail("Consumer error should be rethrown");
+        } catch (SecurityException se) {
+            assertEquals(GlobalErrIds.AUDT_EXPORT_FAILED, se.getErrorId());
+        }
+        Thread.sleep(500);
+        int reads = source.reads.get();
+        Thread.sleep(200);
+        assertEquals("Slices must stop reading once cancelled", reads, source.reads.get());
+        assertTrue(reads < 500);
+    }
+}
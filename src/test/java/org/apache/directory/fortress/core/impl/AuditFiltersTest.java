@@ -0,0 +1,110 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.util.time.TUtil;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AuditFiltersTest {
+
+    private static final String USER_ROOT = "ou=People,dc=example,dc=com";
+    private static final String MANAGER_DN = "cn=Manager,dc=example,dc=com";
+    private static final Date BEGIN = new Date(1760000000000L);
+    private static final Date END = new Date(1760086400000L);
+
+    private static UserAudit audit(String userId, boolean failedOnly) {
+        UserAudit audit = new UserAudit();
+        audit.setUserId(userId);
+        audit.setFailedOnly(failedOnly);
+        return audit;
+    }
+
+    private static String dates() {
+        return "(reqEnd>=" + TUtil.encodeGeneralizedTime(BEGIN) + ")(reqEnd<=" + TUtil.encodeGeneralizedTime(END) + ")";
+    }
+
+    @Test
+    public void test_invalid_authns_leave_out_people_container() {
+        assertEquals("(&(objectClass=auditCompare)(reqAttr=uid)(!(reqDN=" + USER_ROOT + "))(reqAuthzID=" + MANAGER_DN
+                + ")(reqEntries=0))", AuditFilters.getInvalidAuthNsFilter(audit(null, true), USER_ROOT, MANAGER_DN));
+        assertEquals("(&(objectClass=auditCompare)(reqDN=uid=jdoe," + USER_ROOT + ")(reqAuthzID=" + MANAGER_DN + "))",
+                AuditFilters.getInvalidAuthNsFilter(audit("jdoe", false), USER_ROOT, MANAGER_DN));
+    }
+
+    @Test
+    public void test_failed_only_applies_with_user() {
+        assertEquals("(&(objectClass=auditCompare)(reqAuthzID=uid=jdoe," + USER_ROOT + ")(reqResult=5))",
+                AuditFilters.getAllAuthZsFilter(audit("jdoe", true), USER_ROOT, MANAGER_DN));
+        assertEquals("(&(objectClass=auditCompare)(reqAuthzID=*)(!(reqAuthzID=" + MANAGER_DN + "))(reqResult=5))",
+                AuditFilters.getAllAuthZsFilter(audit("", true), USER_ROOT, MANAGER_DN));
+        assertEquals("(&(objectClass=auditBind)(reqDN=uid=jdoe," + USER_ROOT + ")(reqResult>=1))",
+                AuditFilters.getBindsFilter(audit("jdoe", true), USER_ROOT));
+    }
+
+    @Test
+    public void test_end_date_in_every_filter() {
+        UserAudit audit = audit("jdoe", false);
+        audit.setBeginDate(BEGIN);
+        audit.setEndDate(END);
+        String perm = "ftOpNm=read,ftObjNm=Doc,ou=Permissions,ou=RBAC,dc=example,dc=com";
+        String[] filters = {
+            AuditFilters.getInvalidAuthNsFilter(audit, USER_ROOT, MANAGER_DN),
+            AuditFilters.getAuthZsFilter(audit, perm, USER_ROOT),
+            AuditFilters.getAllAuthZsFilter(audit, USER_ROOT, MANAGER_DN),
+            AuditFilters.getBindsFilter(audit, USER_ROOT),
+            AuditFilters.getUserModsFilter(audit, USER_ROOT),
+            AuditFilters.getAdminModsFilter(audit)
+        };
+        for (String filter : filters) {
+            assertTrue(filter, filter.endsWith(dates() + ")"));
+        }
+        assertEquals("(&(objectClass=auditCompare)(reqDN=" + perm + ")(reqAuthzID=uid=jdoe," + USER_ROOT + ")"
+                + dates() + ")", filters[1]);
+    }
+
+    @Test
+    public void test_admin_mods_by_permission_and_user() {
+        UserAudit audit = new UserAudit();
+        audit.setObjName("AdminMgrImpl");
+        audit.setOpName("addUser");
+        audit.setInternalUserId("1234");
+        assertEquals("(&(|(objectclass=auditModify)(objectclass=auditAdd))"
+                + "(|(reqMod=ftModCode:= AdminMgrImpl.addUser*)(reqMod=ftModCode:+ AdminMgrImpl.addUser*))"
+                + "(|(reqMod=ftModifier:= 1234)(reqMod=ftModifier:+ 1234)))", AuditFilters.getAdminModsFilter(audit));
+        audit.setOpName(null);
+        assertTrue(AuditFilters.getAdminModsFilter(audit).contains("(reqMod=ftModCode:= AdminMgrImpl.*)"));
+    }
+
+    @Test
+    public void test_slice_filter() {
+        assertEquals("(&(objectClass=auditBind)(reqStart>=" + TUtil.encodeGeneralizedTime(BEGIN) + ")(!(reqStart>="
+                + TUtil.encodeGeneralizedTime(END) + ")))",
+                AuditFilters.getSliceFilter("(objectClass=auditBind)", BEGIN, END));
+    }
+}
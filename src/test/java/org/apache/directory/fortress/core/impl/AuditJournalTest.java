@@ -0,0 +1,371 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.AuditConsumer;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.util.time.TUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the audit journal.  Run {@link #main(String[])} for a microbenchmark of the events added per second.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AuditJournalTest {
+
+    private static final String JDOE = "uid=jdoe,ou=People,dc=example,dc=com";
+    private static final String JSMITH = "uid=jsmith,ou=People,dc=example,dc=com";
+    private static final String GHOST = "uid=ghost,ou=People,dc=example,dc=com";
+    private static final String READ = "ftOpNm=read,ftObjNm=Doc,ou=Permissions,ou=RBAC,dc=example,dc=com";
+    private static final String WRITE = "ftOpNm=write,ftObjNm=Doc,ou=Permissions,ou=RBAC,dc=example,dc=com";
+
+    private static File newDir() throws IOException {
+        File dir = File.createTempFile("journal", "");
+        assertTrue(dir.delete());
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private static int count(File dir) {
+        return dir.listFiles().length;
+    }
+
+    private static List<File> indexes(File dir) {
+        List<File> indexes = new ArrayList<>();
+        for (File file : dir.listFiles()) {
+            if (file.getName().endsWith(".index")) {
+                indexes.add(file);
+            }
+        }
+        return indexes;
+    }
+
+    @Test
+    public void test_records_read_back_by_user_and_result() throws SecurityException, IOException {
+        AuditJournal journal = new AuditJournal(newDir(), 1 << 20, 0, 0);
+        journal.addAuthZ(JDOE, READ, 6);
+        journal.addAuthZ(JSMITH, READ, 5);
+        journal.addAuthZ(JDOE, WRITE, 5);
+        journal.addBind(JDOE, 0);
+        journal.addBind(GHOST, 32);
+
+        List<AuthZ> authZs = journal.searchAuthZs(JDOE.toUpperCase(), null, false, null, null, 100);
+        assertEquals(2, authZs.size());
+        assertEquals(JDOE, authZs.get(0).getReqAuthzID());
+        assertEquals(READ, authZs.get(0).getReqDN());
+        assertEquals("6", authZs.get(0).getReqResult());
+        assertTrue(authZs.get(0).getReqStart().compareTo(authZs.get(1).getReqStart()) < 0);
+
+        assertEquals(1, journal.searchAuthZs(JDOE, WRITE, false, null, null, 100).size());
+        List<AuthZ> failed = journal.searchAuthZs(null, null, true, null, null, 100);
+        assertEquals(2, failed.size());
+        assertEquals(JSMITH, failed.get(0).getReqAuthzID());
+        assertEquals(1, journal.searchAuthZs(null, null, false, null, null, 1).size());
+
+        List<Bind> binds = journal.searchBinds(null, false, null, null, 100);
+        assertEquals(2, binds.size());
+        assertEquals(1, journal.searchBinds(null, true, null, null, 100).size());
+        List<AuthZ> invalid = journal.searchInvalidAuthNs(null, null, null, 100);
+        assertEquals(1, invalid.size());
+        assertEquals(GHOST, invalid.get(0).getReqDN());
+        journal.close();
+    }
+
+    @Test
+    public void test_time_range_uses_index() throws SecurityException, IOException, ParseException {
+        AuditJournal journal = new AuditJournal(newDir(), 1 << 20, 0, 0);
+        for (int i = 0; i < 3000; i++) {
+            journal.addBind(i % 2 == 0 ? JDOE : JSMITH, 0);
+        }
+        List<Bind> binds = journal.searchBinds(null, false, null, null, 10000);
+        assertEquals(3000, binds.size());
+
+        long begin = TUtil.decodeGeneralizedTime(binds.get(2000).getReqStart()).getTime();
+        int expected = 0;
+        int expectedUser = 0;
+        for (Bind bind : binds) {
+            if (TUtil.decodeGeneralizedTime(bind.getReqStart()).getTime() >= begin) {
+                expected++;
+                expectedUser += bind.getReqDN().equals(JDOE) ? 1 : 0;
+            }
+        }
+        assertEquals(expected, journal.searchBinds(null, false, new Date(begin), null, 10000).size());
+        assertEquals(expectedUser, journal.searchBinds(JDOE, false, new Date(begin), null, 10000).size());
+        assertEquals(0, journal.searchBinds(null, false, null, new Date(0), 10000).size());
+        journal.close();
+    }
+
+    @Test
+    public void test_reopened_journal_recovers_complete_records() throws SecurityException, IOException {
+        File dir = newDir();
+        AuditJournal journal = new AuditJournal(dir, 1 << 20, 0, 0);
+        journal.addBind(JDOE, 0);
+        journal.addBind(JSMITH, 49);
+        journal.addBind(JDOE, 0);
+        journal.close();
+
+        // corrupt the last record as a crash while it was written would:
+        File segment = dir.listFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            int offset = 0;
+            for (int i = 0; i < 2; i++) {
+                raf.seek(offset);
+                offset += 8 + raf.readInt();
+            }
+            raf.seek(offset + 20);
+            raf.write(0x7f);
+        }
+
+        journal = new AuditJournal(dir, 1 << 20, 0, 0);
+        assertEquals(2, journal.searchBinds(null, false, null, null, 100).size());
+        journal.addBind(JSMITH, 0);
+        List<Bind> binds = journal.searchBinds(JSMITH, false, null, null, 100);
+        assertEquals(2, binds.size());
+        assertTrue(binds.get(0).getReqStart().compareTo(binds.get(1).getReqStart()) < 0);
+        journal.close();
+
+        journal = new AuditJournal(dir, 1 << 20, 0, 0);
+        assertEquals(3, journal.searchBinds(null, false, null, null, 100).size());
+        journal.close();
+    }
+
+    @Test
+    public void test_segments_roll_and_expire() throws SecurityException, IOException, InterruptedException {
+        File dir = newDir();
+        // room for one record in each segment:
+        AuditJournal journal = new AuditJournal(dir, 256, 0, 0);
+        for (int i = 0; i < 20; i++) {
+            journal.addAuthZ(JDOE, READ, 6);
+        }
+        assertTrue(count(dir) > 5);
+        assertEquals(20, journal.searchAuthZs(JDOE, READ, false, null, null, 100).size());
+        journal.close();
+
+        journal = new AuditJournal(dir, 256, 0, 1);
+        assertEquals(20, journal.searchAuthZs(JDOE, null, false, null, null, 100).size());
+        Thread.sleep(10);
+        journal.sync();
+        assertEquals("Only the current segment is kept", 1, count(dir));
+        assertTrue(journal.searchAuthZs(JDOE, null, false, null, null, 100).size() < 20);
+        journal.close();
+    }
+
+    @Test
+    public void test_full_segments_read_by_user_from_index_files() throws SecurityException, IOException {
+        File dir = newDir();
+        // room for a few binds in each segment:
+        AuditJournal journal = new AuditJournal(dir, 256, 0, 0);
+        for (int i = 0; i < 30; i++) {
+            journal.addBind(i % 3 == 0 ? JSMITH : JDOE, 0);
+        }
+        List<File> indexes = indexes(dir);
+        assertTrue(indexes.size() > 5);
+        assertEquals("Every segment but the current is indexed on file", count(dir) - indexes.size() - 1,
+                indexes.size());
+        assertEquals(10, journal.searchBinds(JSMITH, false, null, null, 100).size());
+        assertEquals(20, journal.searchBinds(JDOE.toUpperCase(), false, null, null, 100).size());
+        assertEquals(0, journal.searchBinds(GHOST, false, null, null, 100).size());
+        journal.close();
+
+        // an index cut short is written again when the journal is reopened:
+        try (RandomAccessFile raf = new RandomAccessFile(indexes.get(0), "rw")) {
+            raf.setLength(2);
+        }
+        journal = new AuditJournal(dir, 256, 0, 0);
+        assertTrue(indexes.get(0).length() > 2);
+        assertEquals(indexes.size(), indexes(dir).size());
+        List<Bind> binds = journal.searchBinds(JSMITH, false, null, null, 100);
+        assertEquals(10, binds.size());
+        for (int i = 1; i < binds.size(); i++) {
+            assertTrue(binds.get(i - 1).getReqStart().compareTo(binds.get(i).getReqStart()) < 0);
+        }
+        assertEquals(20, journal.searchBinds(JDOE, false, null, null, 100).size());
+        journal.close();
+    }
+
+    @Test
+    public void test_counted_by_aggregator() throws SecurityException, IOException {
+        AuditJournal journal = new AuditJournal(newDir(), 1 << 20, 0, 0);
+        journal.addAuthZ(JDOE, READ, 6);
+        journal.addAuthZ(JDOE, READ, 5);
+        journal.addBind(JDOE, 49);
+        AuditAggregator aggregator = new AuditAggregator(journal, 0, 5000, 60000, 60);
+        assertEquals(1, aggregator.getAuthZStats(JDOE, READ, null).getSuccessCount());
+        assertEquals(1, aggregator.getAuthZStats(JDOE, READ, null).getFailureCount());
+        assertEquals(1, aggregator.getBindStats(JDOE, null).getFailureCount());
+
+        journal.addBind(JDOE, 0);
+        aggregator.poll();
+        assertEquals(1, aggregator.getBindStats(JDOE, null).getSuccessCount());
+        assertEquals(1, aggregator.getBindStats(JDOE, null).getFailureCount());
+        journal.close();
+    }
+
+    @Test
+    public void test_exported_by_kind_and_result() throws SecurityException, IOException {
+        AuditJournal journal = new AuditJournal(newDir(), 1 << 20, 0, 0);
+        journal.addAuthZ(JDOE, READ, 6);
+        journal.addAuthZ(JSMITH, READ, 5);
+        journal.addAuthZ(JDOE, WRITE, 5);
+        journal.addBind(JDOE, 0);
+        journal.addBind(GHOST, 32);
+
+        long now = System.currentTimeMillis();
+        UserAudit audit = new UserAudit();
+        audit.setBeginDate(new Date(now - 1000));
+        audit.setEndDate(new Date(now + 1000));
+        AuditExport export = new AuditExport(journal, 100, 2, 2);
+        final List<AuthZ> authZs = new ArrayList<>();
+        assertEquals(3, export.run(AuditExport.Kind.AUTHZ, audit, new AuditConsumer<AuthZ>() {
+            @Override
+            public void accept(AuthZ authZ) {
+                authZs.add(authZ);
+            }
+        }));
+        assertEquals(READ, authZs.get(0).getReqDN());
+        assertEquals(JSMITH, authZs.get(1).getReqAuthzID());
+        assertEquals(WRITE, authZs.get(2).getReqDN());
+        final List<Bind> binds = new ArrayList<>();
+        assertEquals(2, export.run(AuditExport.Kind.BIND, audit, new AuditConsumer<Bind>() {
+            @Override
+            public void accept(Bind bind) {
+                binds.add(bind);
+            }
+        }));
+        assertEquals(GHOST, binds.get(1).getReqDN());
+
+        audit.setFailedOnly(true);
+        assertEquals(2, export.run(AuditExport.Kind.AUTHZ, audit, new AuditConsumer<AuthZ>() {
+            @Override
+            public void accept(AuthZ authZ) {
+                assertEquals("5", authZ.getReqResult());
+            }
+        }));
+        assertEquals(1, export.run(AuditExport.Kind.BIND, audit, new AuditConsumer<Bind>() {
+            @Override
+            public void accept(Bind bind) {
+                assertEquals(GHOST, bind.getReqDN());
+            }
+        }));
+        journal.close();
+    }
+
+    @Test
+    public void test_export_read_ends_at_consumer_exception() throws SecurityException, IOException {
+        AuditJournal journal = new AuditJournal(newDir(), 1 << 20, 0, 0);
+        journal.addBind(JDOE, 0);
+        journal.addBind(JSMITH, 0);
+        final SecurityException stop = new SecurityException(GlobalErrIds.AUDT_EXPORT_FAILED, "stop");
+        final List<Object> read = new ArrayList<>();
+        try {
+            journal.read(AuditExport.Kind.BIND, new UserAudit(), new Date(0), new Date(Long.MAX_VALUE),
+                    new AuditConsumer<Object>() {
+                        @Override
+                        public void accept(Object record) throws SecurityException {
+                            read.add(record);
+                            throw stop;
+                        }
+                    });
+            fail("read should rethrow the consumer's exception");
+        } catch (SecurityException e) {
+            assertSame(stop, e);
+        }
+        assertEquals(1, read.size());
+        journal.close();
+    }
+
+    @Test(expected = SecurityException.class)
+    public void test_admin_mods_not_exported() throws SecurityException, IOException {
+        AuditJournal journal = new AuditJournal(newDir(), 1 << 20, 0, 0);
+        try {
+            journal.read(AuditExport.Kind.ADMIN_MOD, new UserAudit(), new Date(0), new Date(Long.MAX_VALUE),
+                    new AuditConsumer<Object>() {
+                        @Override
+                        public void accept(Object record) {
+                        }
+                    });
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test(expected = SecurityException.class)
+    public void test_closed_journal_rejects_records() throws SecurityException, IOException {
+        AuditJournal journal = new AuditJournal(newDir(), 1 << 20, 0, 0);
+        journal.close();
+        journal.addBind(JDOE, 0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int threads = 4;
+        final int events = 500000;
+        final AuditJournal journal = new AuditJournal(newDir(), 64 << 20, 1000, 0);
+        final String[] users = new String[1000];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = "uid=user" + i + ",ou=People,dc=example,dc=com";
+        }
+        for (int round = 0; round < 3; round++) {
+            Thread[] workers = new Thread[threads];
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < events / threads; i++) {
+                                journal.addAuthZ(users[i % users.length], READ, i % 10 == 0 ? 5 : 6);
+                            }
+                        } catch (SecurityException se) {
+                            throw new IllegalStateException(se);
+                        }
+                    }
+                };
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.println("round " + round + ": " + events * TimeUnit.SECONDS.toNanos(1) / nanos
+                    + " events/sec with " + threads + " threads");
+        }
+        long start = System.nanoTime();
+        int found = journal.searchAuthZs(users[7], null, false, null, null, Integer.MAX_VALUE).size();
+        System.out.println("user query: " + found + " records in "
+                + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + " us");
+        journal.close();
+    }
+}
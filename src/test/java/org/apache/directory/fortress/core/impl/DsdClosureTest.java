@@ -0,0 +1,188 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.model.SDSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the DSD closure.  Run {@link #main(String[])} for a microbenchmark against a check that reads the ascendants
+ * of the activated roles once per DSD set.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class DsdClosureTest {
+
+    /**
+     * Ascendants by walking a map of each role to its one parent, in upper case as the role graph returns them.
+     */
+    private static final class Parents implements DsdClosure.Source {
+        private final Map<String, String> parents = new HashMap<>();
+        private int reads;
+
+        Parents add(String child, String parent) {
+            parents.put(child.toUpperCase(), parent.toUpperCase());
+            return this;
+        }
+
+        @Override
+        public Set<String> getAscendants(String roleName) {
+            reads++;
+            Set<String> ascendants = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            for (String parent = parents.get(roleName.toUpperCase()); parent != null; parent = parents.get(parent)) {
+                ascendants.add(parent);
+            }
+            return ascendants;
+        }
+    }
+
+    private static SDSet dsd(String name, Integer cardinality, String... members) {
+        SDSet dsd = new SDSet();
+        dsd.setName(name);
+        dsd.setType(SDSet.SDType.DYNAMIC);
+        dsd.setCardinality(cardinality);
+        for (String member : members) {
+            dsd.addMember(member);
+        }
+        return dsd;
+    }
+
+    private static SDSet violation(List<SDSet> dsdSets, Parents parents, String... active) {
+        return new DsdClosure(Arrays.asList(active), dsdSets, parents).getViolation();
+    }
+
+    @Test
+    public void test_active_members_reach_cardinality() {
+        List<SDSet> dsdSets = Arrays.asList(dsd("Cash", 2, "Teller", "Auditor"), dsd("Loans", 3, "Lender", "Auditor",
+                "Approver"));
+        Parents parents = new Parents();
+        assertNull(violation(dsdSets, parents, "Clerk"));
+        assertEquals("Cash", violation(dsdSets, parents, "teller").getName());
+        assertNull(violation(dsdSets, parents, "Lender"));
+        assertEquals("Loans", violation(dsdSets, parents, "Lender", "Approver").getName());
+    }
+
+    @Test
+    public void test_ascendants_of_active_roles_match() {
+        List<SDSet> dsdSets = Arrays.asList(dsd("Cash", 2, "Teller", "Auditor"));
+        Parents parents = new Parents().add("HeadTeller", "Teller").add("Trainee", "HeadTeller");
+        assertEquals("Cash", violation(dsdSets, parents, "Trainee").getName());
+        assertNull(violation(dsdSets, parents, "Teller2"));
+    }
+
+    @Test
+    public void test_active_role_counts_once_per_set() {
+        List<SDSet> dsdSets = Arrays.asList(dsd("Loans", 3, "Lender", "Approver", "Auditor"));
+        Parents parents = new Parents().add("Lender", "Approver");
+        assertNull("Lender and its parent are one match", violation(dsdSets, parents, "Lender"));
+        assertEquals("Loans", violation(dsdSets, parents, "Lender", "Auditor").getName());
+    }
+
+    @Test
+    public void test_ascendants_read_once_per_active_role() {
+        List<SDSet> dsdSets = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            dsdSets.add(dsd("dsd" + i, 10, "role" + i, "role" + (i + 1)));
+        }
+        Parents parents = new Parents();
+        assertNull(violation(dsdSets, parents, "a", "b", "c"));
+        assertEquals(3, parents.reads);
+    }
+
+    @Test
+    public void test_placeholder_sets_are_skipped() {
+        List<SDSet> dsdSets = Arrays.asList(dsd("empty:Teller", null, "Teller"));
+        assertNull(violation(dsdSets, new Parents(), "Teller"));
+    }
+
+    /**
+     * The check made before the closure, reading the ascendants of each activated role not in the set once per set.
+     */
+    private static SDSet legacy(List<String> active, Collection<SDSet> dsdSets, DsdClosure.Source source) {
+        for (SDSet dsd : dsdSets) {
+            int matchCount = 0;
+            for (String role : active) {
+                if (dsd.getMembers().contains(role)) {
+                    if (++matchCount >= dsd.getCardinality() - 1) {
+                        return dsd;
+                    }
+                } else {
+                    for (String parent : source.getAscendants(role)) {
+                        if (dsd.getMembers().contains(parent)) {
+                            if (++matchCount >= dsd.getCardinality() - 1) {
+                                return dsd;
+                            }
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) {
+        // 200 DSD sets that contain the role being activated, none of them violated:
+        List<SDSet> dsdSets = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            dsdSets.add(dsd("dsd" + i, 1000000, "target", "member" + i, "member" + (i + 1)));
+        }
+        Parents parents = new Parents();
+        for (int i = 0; i < 1000; i++) {
+            // each activated role inherits from a chain of four parents, the last one a DSD member:
+            parents.add("active" + i, "p1_" + i).add("p1_" + i, "p2_" + i).add("p2_" + i, "p3_" + i)
+                    .add("p3_" + i, "member" + i % 200);
+        }
+        for (int size : new int[]{10, 100, 1000}) {
+            List<String> active = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                active.add("active" + i);
+            }
+            int checks = 10000 / size + 10;
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < checks; i++) {
+                    assertNull(new DsdClosure(active, dsdSets, parents).getViolation());
+                }
+                long closure = (System.nanoTime() - start) / checks;
+                start = System.nanoTime();
+                for (int i = 0; i < checks; i++) {
+                    assertNull(legacy(active, dsdSets, parents));
+                }
+                long perSet = (System.nanoTime() - start) / checks;
+                System.out.println(size + " active roles, round " + round + ": closure "
+                        + TimeUnit.NANOSECONDS.toMicros(closure) + " us, per set "
+                        + TimeUnit.NANOSECONDS.toMicros(perSet) + " us");
+            }
+        }
+    }
+}
@@ -199,6 +199,7 @@ public class FortressJUnitTest extends TestCase
             suite.addTest( new PswdPolicyMgrImplTest( "testUpdatePasswordPolicy" ) );
         }
         suite.addTest( new AdminMgrImplTest( "testAssignUser" ) );
+        suite.addTest( new AdminMgrImplTest( "testAssignUsersBatch" ) );
         suite.addTest( new AdminMgrImplTest( "testAddPermissionObj" ) );
         suite.addTest( new AdminMgrImplTest( "testUpdatePermissionObj" ) );
         suite.addTest( new AdminMgrImplTest( "testAddPermissionOp" ) );
@@ -215,6 +216,7 @@ public class FortressJUnitTest extends TestCase
         // GroupMgr APIs
         suite.addTest( new GroupMgrImplTest( "testAddGroup" ) );
         suite.addTest( new GroupMgrImplTest( "testAssignGroupUserMember" ) );
+        suite.addTest( new GroupMgrImplTest( "testGroupMembers" ) );
         suite.addTest( new GroupMgrImplTest( "testAssignGroupRoleMember" ) );
         suite.addTest( new GroupMgrImplTest( "testGroupRoles" ) );
         suite.addTest( new GroupMgrImplTest( "testRoleGroups" ) );
@@ -241,6 +243,7 @@ public class FortressJUnitTest extends TestCase
         suite.addTest( new ReviewMgrImplTest( "testFindRoles" ) );
         suite.addTest( new ReviewMgrImplTest( "testFindRoleNms" ) );
         suite.addTest( new ReviewMgrImplTest( "testReadUser" ) );
+        suite.addTest( new ReviewMgrImplTest( "testReadUserProjection" ) );
         suite.addTest( new ReviewMgrImplTest( "testFindUsers" ) );
         suite.addTest( new ReviewMgrImplTest( "testFindUserIds" ) );
         suite.addTest( new ReviewMgrImplTest( "testAssignedRoles" ) );
@@ -300,6 +303,7 @@ public class FortressJUnitTest extends TestCase
         suite.addTest( new AccessMgrImplTest( "createSessionsDSD" ) );
         suite.addTest( new AccessMgrImplTest( "testSessionRole" ) );
         suite.addTest( new AccessMgrImplTest( "testCheckAccess" ) );
+        suite.addTest( new AccessMgrImplTest( "testCheckAccessToken" ) );
         suite.addTest( new AccessMgrImplTest( "testAddActiveRole" ) );
         suite.addTest( new AccessMgrImplTest( "testDropActiveRole" ) );
         suite.addTest( new AccessMgrImplTest( "testSessionPermission" ) );
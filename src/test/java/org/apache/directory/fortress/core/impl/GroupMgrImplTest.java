@@ -62,6 +62,7 @@ public class GroupMgrImplTest extends TestCase {
         // GroupMgr APIs
         suite.addTest( new GroupMgrImplTest( "testAddGroup" ) );
         suite.addTest( new GroupMgrImplTest( "testAssignGroupUserMember" ) );
+        suite.addTest( new GroupMgrImplTest( "testGroupMembers" ) );
         suite.addTest( new GroupMgrImplTest( "testAssignGroupRoleMember" ) );
         suite.addTest( new GroupMgrImplTest( "testGroupRoles" ) );
         suite.addTest( new GroupMgrImplTest( "testRoleGroups" ) );
@@ -188,6 +189,48 @@ public class GroupMgrImplTest extends TestCase {
         }
     }
 
+    public void testGroupMembers()
+    {
+        groupMembers( "GRP-MBRS TG3 TU2", GroupTestData.TEST_GROUP3, UserTestData.USERS_TU2, UserTestData.USERS_TU1 );
+    }
+
+    private void groupMembers( String message, Group group, String[][] members, String[][] nonMembers )
+    {
+        LogUtil.logIt( message );
+        try
+        {
+            groupMgr = GroupMgrFactory.createInstance( TestUtils.getContext() );
+
+            for ( String[] userArray : members )
+            {
+                User user = UserTestData.getUser( userArray );
+                assertTrue( CLS_NM + ".groupMembers user [" + user.getUserId() + "] should be member of group ["
+                    + group.getName() + "]", groupMgr.isMember( group, user.getUserId() ) );
+            }
+            for ( String[] userArray : nonMembers )
+            {
+                User user = UserTestData.getUser( userArray );
+                assertFalse( CLS_NM + ".groupMembers user [" + user.getUserId() + "] should not be member of group ["
+                    + group.getName() + "]", groupMgr.isMember( group, user.getUserId() ) );
+            }
+
+            // members are read a page at a time until first accessed in full:
+            Group groupFromLdap = groupMgr.read( group );
+            List<String> first = groupFromLdap.getMembers( 0, 1 );
+            List<String> rest = groupFromLdap.getMembers( 1, 0 );
+            List<String> all = groupFromLdap.getMembers();
+            assertTrue( CLS_NM + ".groupMembers members should be loaded", groupFromLdap.isMembersLoaded() );
+            assertEquals( CLS_NM + ".groupMembers first page size check", 1, first.size() );
+            assertEquals( CLS_NM + ".groupMembers pages size check", all.size(), first.size() + rest.size() );
+            assertEquals( CLS_NM + ".groupMembers first page check", all.get( 0 ), first.get( 0 ) );
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error("groupMembers: caught SecurityException rc=" + ex.getErrorId() + ", msg=" + ex.getMessage(), ex);
+            fail(ex.getMessage());
+        }
+    }
+
     public void testDeassignGroupRoleMember()
     {
         deassignRoleMember( "DEASGN-GRP TG1 TR2", GroupTestData.TEST_GROUP1, RoleTestData.ROLES_TR2 );
@@ -0,0 +1,94 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.model.Relationship;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class HierClosureTest {
+
+    /**
+     * Diamond with a tail: D -> B -> A, D -> C -> A, E -> D.  Edges point from child to parent.
+     */
+    private static SimpleDirectedGraph<String, Relationship> diamond() {
+        SimpleDirectedGraph<String, Relationship> graph = new SimpleDirectedGraph<>(Relationship.class);
+        String[][] edges = {{"B", "A"}, {"C", "A"}, {"D", "B"}, {"D", "C"}, {"E", "D"}};
+        for (String[] edge : edges) {
+            graph.addVertex(edge[0]);
+            graph.addVertex(edge[1]);
+            graph.addEdge(edge[0], edge[1], new Relationship(edge[0], edge[1]));
+        }
+        graph.addVertex("F");
+        return graph;
+    }
+
+    @Test
+    public void test_descendants_are_within_ascendant() {
+        HierClosure closure = new HierClosure(diamond());
+        assertTrue(closure.isWithin("B", "A"));
+        assertTrue(closure.isWithin("D", "A"));
+        assertTrue(closure.isWithin("E", "A"));
+        assertTrue(closure.isWithin("E", "C"));
+        assertTrue("Should be case insensitive", closure.isWithin("e", "b"));
+    }
+
+    @Test
+    public void test_vertex_is_within_itself() {
+        HierClosure closure = new HierClosure(diamond());
+        assertTrue(closure.isWithin("F", "F"));
+        assertTrue("Unknown names equal to the scope are within it", closure.isWithin("Z", "z"));
+    }
+
+    @Test
+    public void test_ascendants_and_siblings_are_not_within() {
+        HierClosure closure = new HierClosure(diamond());
+        assertFalse(closure.isWithin("A", "B"));
+        assertFalse(closure.isWithin("B", "C"));
+        assertFalse(closure.isWithin("F", "A"));
+        assertFalse(closure.isWithin("Z", "A"));
+        assertFalse(closure.isWithin(null, "A"));
+    }
+
+    @Test
+    public void test_within_any_of_scope() {
+        HierClosure closure = new HierClosure(diamond());
+        assertTrue(closure.isWithin("D", new HashSet<>(Arrays.asList("F", "C"))));
+        assertFalse(closure.isWithin("A", new HashSet<>(Arrays.asList("F", "C"))));
+        assertFalse(closure.isWithin("A", new HashSet<String>()));
+    }
+
+    @Test
+    public void test_built_from() {
+        SimpleDirectedGraph<String, Relationship> graph = diamond();
+        HierClosure closure = new HierClosure(graph);
+        assertTrue(closure.isBuiltFrom(graph));
+        assertFalse(closure.isBuiltFrom(diamond()));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.FinderException;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Relationship;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class HierLoaderTest {
+
+    /**
+     * Serves a full load of B -> A, C -> A, then whatever the test sets as changes.
+     */
+    private static class FakeSource implements HierLoader.Source {
+        private final List<String> sinces = new ArrayList<>();
+        private String[][] changes = {};
+        private boolean isFailing;
+
+        @Override
+        public void read(String contextId, String modifiedSince, HierLoader.Visitor visitor) throws SecurityException {
+            sinces.add(modifiedSince);
+            if (isFailing) {
+                throw new FinderException(GlobalErrIds.ROLE_SEARCH_FAILED, "read failed");
+            }
+            String[][] members = modifiedSince == null ? new String[][]{{"B", "A"}, {"C", "A"}} : changes;
+            for (String[] member : members) {
+                visitor.visit(member[0], new HashSet<>(Arrays.asList(member).subList(1, member.length)),
+                        "20261019120000Z");
+            }
+        }
+    }
+
+    private static boolean hasEdge(SimpleDirectedGraph<String, Relationship> graph, String child, String parent) {
+        return graph.containsVertex(child) && graph.containsVertex(parent) && graph.containsEdge(child, parent);
+    }
+
+    @Test
+    public void test_full_load_adds_edges() {
+        FakeSource source = new FakeSource();
+        HierLoader loader = new HierLoader("ROLE", source, false, 3600000, 0);
+        SimpleDirectedGraph<String, Relationship> graph = loader.load("ROLE", null);
+        assertTrue(hasEdge(graph, "B", "A"));
+        assertTrue(hasEdge(graph, "C", "A"));
+        assertEquals(2, graph.edgeSet().size());
+    }
+
+    @Test
+    public void test_delta_disabled_always_loads_in_full() {
+        FakeSource source = new FakeSource();
+        HierLoader loader = new HierLoader("ROLE", source, false, 3600000, 0);
+        loader.load("ROLE", null);
+        loader.load("ROLE", null);
+        assertEquals(Arrays.asList(null, null), source.sinces);
+    }
+
+    @Test
+    public void test_delta_replaces_edges_of_changed_members() {
+        FakeSource source = new FakeSource();
+        HierLoader loader = new HierLoader("ROLE", source, true, 3600000, 60000);
+        SimpleDirectedGraph<String, Relationship> first = loader.load("ROLE", null);
+
+        // B moves from A to C, D is added beneath B, E loses all its parents:
+        source.changes = new String[][]{{"B", "C"}, {"D", "B"}, {"E"}};
+        SimpleDirectedGraph<String, Relationship> second = loader.load("ROLE", null);
+
+        assertEquals(2, source.sinces.size());
+        assertNotNull("Second load should only read changes", source.sinces.get(1));
+        assertTrue("Changes are read from before the latest timestamp seen",
+                source.sinces.get(1).compareTo("20261019120000Z") < 0);
+        assertNotSame(first, second);
+        assertFalse(hasEdge(second, "B", "A"));
+        assertTrue(hasEdge(second, "B", "C"));
+        assertTrue(hasEdge(second, "C", "A"));
+        assertTrue(hasEdge(second, "D", "B"));
+        assertEquals(3, second.edgeSet().size());
+        assertTrue("Earlier graph must not change", hasEdge(first, "B", "A"));
+        assertEquals(2, first.edgeSet().size());
+    }
+
+    @Test
+    public void test_full_load_once_interval_has_passed() {
+        FakeSource source = new FakeSource();
+        HierLoader loader = new HierLoader("ROLE", source, true, 0, 0);
+        loader.load("ROLE", null);
+        loader.load("ROLE", null);
+        assertEquals(Arrays.asList(null, null), source.sinces);
+    }
+
+    @Test
+    public void test_failed_delta_keeps_edges() {
+        FakeSource source = new FakeSource();
+        HierLoader loader = new HierLoader("ROLE", source, true, 3600000, 0);
+        loader.load("ROLE", null);
+        source.isFailing = true;
+        SimpleDirectedGraph<String, Relationship> graph = loader.load("ROLE", null);
+        assertTrue(hasEdge(graph, "B", "A"));
+        assertTrue(hasEdge(graph, "C", "A"));
+    }
+
+    @Test
+    public void test_tenants_are_loaded_separately() {
+        FakeSource source = new FakeSource();
+        HierLoader loader = new HierLoader("ROLE", source, true, 3600000, 0);
+        loader.load("ROLE", null);
+        loader.load("ROLE:acme", "acme");
+        assertEquals(Arrays.asList(null, null), source.sinces);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.model.Hier;
+import org.apache.directory.fortress.core.model.Relationship;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PolicySnapshotFileTest {
+
+    private static File newFile() throws IOException {
+        File file = File.createTempFile("policy", ".snapshot");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static PolicySnapshotFile.Tenant tenant(String contextId) {
+        PolicySnapshotFile.Tenant tenant = new PolicySnapshotFile.Tenant(contextId);
+        Hier roles = new Hier();
+        roles.setRelationship(new Relationship("TELLER", "CLERK"));
+        roles.setRelationship(new Relationship("HEADTELLER", "TELLER"));
+        roles.setRelationship(new Relationship("AUDITOR", "CLERK"));
+        tenant.setHier(PolicySnapshotFile.Section.ROLE, roles);
+        tenant.setHier(PolicySnapshotFile.Section.USO, new Hier());
+
+        SDSet ssd = new SDSet();
+        ssd.setName("Payments");
+        ssd.setCardinality(2);
+        ssd.addMember("Teller");
+        ssd.addMember("Auditor");
+        tenant.setSsdSets(Collections.singletonList(ssd));
+
+        tenant.setNames(PolicySnapshotFile.Section.USER_OUS, new HashSet<>(Arrays.asList("dev", "qa", "\u00e9quipe")));
+        tenant.setNames(PolicySnapshotFile.Section.POLICIES, new HashSet<String>());
+        return tenant;
+    }
+
+    private static void corrupt(File file, long offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            int value = raf.read();
+            raf.seek(offset);
+            raf.write(value ^ 0x40);
+        }
+    }
+
+    @Test
+    public void test_tenants_read_back() throws IOException {
+        File file = newFile();
+        PolicySnapshotFile.write(file, 1234L, Arrays.asList(tenant("HOME"), tenant("acme")));
+        PolicySnapshotFile.Contents contents = PolicySnapshotFile.read(file);
+        assertEquals(1234L, contents.getCreated());
+        assertEquals(2, contents.getTenants().size());
+
+        PolicySnapshotFile.Tenant tenant = contents.getTenants().get(1);
+        assertEquals("acme", tenant.getContextId());
+        assertEquals(Arrays.asList(PolicySnapshotFile.Section.ROLE, PolicySnapshotFile.Section.SSD,
+                PolicySnapshotFile.Section.USER_OUS), tenant.getSections());
+
+        Hier roles = tenant.getHier(PolicySnapshotFile.Section.ROLE);
+        assertEquals("acme", roles.getContextId());
+        assertEquals(3, roles.getRelationships().size());
+        assertTrue(roles.getRelationships().contains(new Relationship("HEADTELLER", "TELLER")));
+        assertTrue(roles.getRelationships().contains(new Relationship("AUDITOR", "CLERK")));
+        assertNull("Empty sections are left out", tenant.getHier(PolicySnapshotFile.Section.USO));
+
+        List<SDSet> ssdSets = tenant.getSsdSets();
+        assertEquals(1, ssdSets.size());
+        assertEquals("Payments", ssdSets.get(0).getName());
+        assertEquals(Integer.valueOf(2), ssdSets.get(0).getCardinality());
+        assertTrue(ssdSets.get(0).getMembers().contains("TELLER"));
+
+        Set<String> ous = tenant.getNames(PolicySnapshotFile.Section.USER_OUS);
+        assertEquals(3, ous.size());
+        assertTrue("Names are case insensitive", ous.contains("DEV"));
+        assertTrue(ous.contains("\u00c9QUIPE"));
+        assertNull(tenant.getNames(PolicySnapshotFile.Section.POLICIES));
+    }
+
+    @Test
+    public void test_rewrite_replaces_file() throws IOException {
+        File file = newFile();
+        PolicySnapshotFile.write(file, 1L, Arrays.asList(tenant("HOME"), tenant("acme")));
+        PolicySnapshotFile.write(file, 2L, Collections.singletonList(tenant("HOME")));
+        PolicySnapshotFile.Contents contents = PolicySnapshotFile.read(file);
+        assertEquals(2L, contents.getCreated());
+        assertEquals(1, contents.getTenants().size());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void test_corrupt_body_rejected() throws IOException {
+        File file = newFile();
+        PolicySnapshotFile.write(file, 1L, Collections.singletonList(tenant("HOME")));
+        corrupt(file, file.length() - 3);
+        PolicySnapshotFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void test_other_version_rejected() throws IOException {
+        File file = newFile();
+        PolicySnapshotFile.write(file, 1L, Collections.singletonList(tenant("HOME")));
+        // the low byte of the version follows the magic number:
+        corrupt(file, 5);
+        PolicySnapshotFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void test_truncated_file_rejected() throws IOException {
+        File file = newFile();
+        PolicySnapshotFile.write(file, 1L, Collections.singletonList(tenant("HOME")));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        PolicySnapshotFile.read(file);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the in memory indexes of {@link ReviewIndex}, without a directory.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class ReviewIndexTest {
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static Permission grant(String objName, String opName, Set<String> roles, Set<String> users) {
+        Permission perm = new Permission(objName, opName);
+        perm.setRoles(roles);
+        perm.setUsers(users);
+        return perm;
+    }
+
+    @Test
+    public void test_assign_matches_names_case_insensitively() {
+        ReviewIndex.Index index = new ReviewIndex.Index();
+        index.addRole("Teller");
+        index.assign("jts1", "Teller");
+        index.assign("JTS2", "TELLER");
+        index.assign("jts3", "Washer");
+        assertTrue(index.hasRole("teller"));
+        assertFalse("assignments don't add roles", index.hasRole("washer"));
+        assertEquals(set("jts1", "JTS2"), index.getUsers(Collections.singleton("tELLER")));
+        assertEquals(set("jts1", "JTS2", "jts3"), index.getUsers(Arrays.asList("Teller", "Washer", "Unknown")));
+        assertTrue(index.getUsers(null).isEmpty());
+    }
+
+    @Test
+    public void test_deassign_removes_user() {
+        ReviewIndex.Index index = new ReviewIndex.Index();
+        index.assign("jts1", "Teller");
+        index.assign("jts2", "Teller");
+        index.deassign("JTS1", "teller");
+        assertEquals(set("jts2"), index.getUsers(Collections.singleton("Teller")));
+        index.deassign("jts2", "Teller");
+        assertTrue(index.getUsers(Collections.singleton("Teller")).isEmpty());
+    }
+
+    @Test
+    public void test_delete_role_removes_assignments_and_grants() {
+        ReviewIndex.Index index = new ReviewIndex.Index();
+        index.addRole("Teller");
+        index.assign("jts1", "Teller");
+        index.putPermission(grant("Account", "deposit", set("Teller", "Manager"), set("jts9")));
+        index.deleteRole("TELLER");
+        assertFalse(index.hasRole("Teller"));
+        assertTrue(index.getUsers(Collections.singleton("Teller")).isEmpty());
+        Permission entity = index.read(new Permission("account", "DEPOSIT"));
+        assertEquals(set("Manager"), new HashSet<>(entity.getRoles()));
+        assertEquals(set("jts9"), new HashSet<>(entity.getUsers()));
+    }
+
+    @Test
+    public void test_delete_user_removes_assignments_and_grants() {
+        ReviewIndex.Index index = new ReviewIndex.Index();
+        index.assign("jts1", "Teller");
+        index.assign("jts1", "Washer");
+        index.assign("jts2", "Teller");
+        index.putPermission(grant("Account", "deposit", null, set("jts1", "jts2")));
+        index.deleteUser("JTS1");
+        assertEquals(set("jts2"), index.getUsers(Arrays.asList("Teller", "Washer")));
+        assertEquals(set("jts2"), new HashSet<>(index.read(new Permission("Account", "deposit")).getUsers()));
+    }
+
+    @Test
+    public void test_put_permission_replaces_only_what_it_contains() {
+        ReviewIndex.Index index = new ReviewIndex.Index();
+        assertNull("unknown permission", index.read(new Permission("Account", "deposit")));
+        index.putPermission(grant("Account", "deposit", set("Teller"), set("jts1")));
+        index.putPermission(grant("ACCOUNT", "Deposit", set("Manager"), null));
+        Permission entity = index.read(new Permission("Account", "deposit"));
+        assertEquals("Account", entity.getObjName());
+        assertEquals(set("Manager"), new HashSet<>(entity.getRoles()));
+        assertEquals(set("jts1"), new HashSet<>(entity.getUsers()));
+        index.putPermission(grant("Account", "withdraw", null, null));
+        assertTrue(index.read(new Permission("Account", "withdraw")).getRoles().isEmpty());
+    }
+
+    @Test
+    public void test_object_id_distinguishes_permissions() {
+        ReviewIndex.Index index = new ReviewIndex.Index();
+        Permission branch = new Permission("Account", "deposit", "branch1");
+        branch.setRoles(set("Teller"));
+        index.putPermission(branch);
+        assertNull(index.read(new Permission("Account", "deposit")));
+        assertEquals(set("Teller"), new HashSet<>(index.read(new Permission("Account", "deposit", "BRANCH1"))
+                .getRoles()));
+    }
+
+    @Test
+    public void test_grant_and_revoke() {
+        ReviewIndex.Index index = new ReviewIndex.Index();
+        Permission perm = new Permission("Account", "deposit");
+        index.grant(perm, "Teller", null, true);
+        index.grant(perm, null, "jts1", true);
+        index.grant(perm, "Manager", null, true);
+        index.grant(perm, "teller", null, false);
+        Permission entity = index.read(perm);
+        assertEquals(set("Manager"), new HashSet<>(entity.getRoles()));
+        assertEquals(set("jts1"), new HashSet<>(entity.getUsers()));
+        index.grant(perm, null, "JTS1", false);
+        assertTrue(index.read(perm).getUsers().isEmpty());
+    }
+
+    @Test
+    public void test_delete_permission_and_object() {
+        ReviewIndex.Index index = new ReviewIndex.Index();
+        index.putPermission(grant("Account", "deposit", set("Teller"), null));
+        index.putPermission(grant("Account", "withdraw", set("Teller"), null));
+        index.putPermission(grant("Loan", "approve", set("Manager"), null));
+        index.deletePermission(new Permission("account", "deposit"));
+        assertNull(index.read(new Permission("Account", "deposit")));
+        assertNotNull(index.read(new Permission("Account", "withdraw")));
+        index.deletePermObj("ACCOUNT");
+        assertNull(index.read(new Permission("Account", "withdraw")));
+        assertNotNull(index.read(new Permission("Loan", "approve")));
+    }
+
+    @Test
+    public void test_read_returns_copy() {
+        ReviewIndex.Index index = new ReviewIndex.Index();
+        index.putPermission(grant("Account", "deposit", set("Teller"), null));
+        index.read(new Permission("Account", "deposit")).getRoles().add("Manager");
+        assertEquals(set("Teller"), new HashSet<>(index.read(new Permission("Account", "deposit")).getRoles()));
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.directory.fortress.core.impl;
 
 
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,6 +39,7 @@ import org.apache.directory.fortress.core.model.RoleConstraint;
 import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserProjection;
 import org.apache.directory.fortress.core.model.UserRole;
 import org.apache.directory.fortress.core.util.LogUtil;
 import org.slf4j.Logger;
@@ -78,6 +80,7 @@ public class ReviewMgrImplTest extends TestCase
         suite.addTest( new ReviewMgrImplTest( "testReadRole" ) );
         suite.addTest( new ReviewMgrImplTest( "testFindRoles" ) );
         suite.addTest( new ReviewMgrImplTest( "testReadUser" ) );
+        suite.addTest( new ReviewMgrImplTest( "testReadUserProjection" ) );
         suite.addTest( new ReviewMgrImplTest( "testFindUsers" ) );
         suite.addTest( new ReviewMgrImplTest( "testAssignedRoles" ) );
         suite.addTest( new ReviewMgrImplTest( "testAuthorizedUsers" ) );
@@ -544,6 +547,48 @@ public class ReviewMgrImplTest extends TestCase
     }
 
 
+    public void testReadUserProjection()
+    {
+        // public User readUser(User user, Set<UserProjection> projection)
+        readUsersProjection( "READ-USRS-PROJ TU1_UPD", UserTestData.USERS_TU1_UPD );
+        readUsersProjection( "READ-USRS-PROJ TU3", UserTestData.USERS_TU3 );
+    }
+
+
+    /**
+     * Read with roles only then verify the deferred attribute groups are loaded on access.
+     *
+     * @param msg
+     * @param uArray
+     */
+    public static void readUsersProjection( String msg, String[][] uArray )
+    {
+        LogUtil.logIt( msg );
+        try
+        {
+            ReviewMgr reviewMgr = getManagedReviewMgr();
+            for ( String[] usr : uArray )
+            {
+                User entity = reviewMgr.readUser( new User( UserTestData.getUserId( usr ) ),
+                    EnumSet.of( UserProjection.ROLES ) );
+                assertNotNull( entity );
+                assertTrue( entity.isLoaded( UserProjection.ROLES ) );
+                assertFalse( entity.isLoaded( UserProjection.ADDRESS ) );
+                // the deferred groups are loaded by the accessors used here:
+                UserTestData.assertEquals( entity, usr );
+                assertTrue( entity.isLoaded( UserProjection.ADDRESS ) );
+                LOG.debug( "readUsersProjection userId [" + entity.getUserId() + "] successful" );
+            }
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error(
+                "readUsersProjection caught SecurityException rc=" + ex.getErrorId() + ", msg=" + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
     /**
      *
      * @param msg
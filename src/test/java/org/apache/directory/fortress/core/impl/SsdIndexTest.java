@@ -0,0 +1,123 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.model.SDSet;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SsdIndexTest {
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static SsdIndex.Index index() {
+        SsdIndex.Index index = new SsdIndex.Index();
+        assertTrue(index.put("Payments", 2, set("Clerk", "Approver")));
+        assertTrue(index.put("Audit", 3, set("Auditor", "Approver", "Admin")));
+        return index;
+    }
+
+    @Test
+    public void test_violation_counts_authorized_members() {
+        SsdIndex.Index index = index();
+        SDSet ssd = index.getViolation("Clerk", null, set("approver", "Reader"));
+        assertNotNull(ssd);
+        assertEquals("Payments", ssd.getName());
+        assertEquals(Integer.valueOf(2), ssd.getCardinality());
+        assertNull(index.getViolation("Clerk", null, set("Reader")));
+        assertNull("Roles in no set are never checked", index.getViolation("Reader", null, set("Clerk", "Approver")));
+    }
+
+    @Test
+    public void test_cardinality_three_allows_one_other_member() {
+        SsdIndex.Index index = index();
+        assertNull(index.getViolation("Auditor", null, set("Admin")));
+        assertEquals("Audit", index.getViolation("Auditor", null, set("Admin", "Approver")).getName());
+    }
+
+    @Test
+    public void test_sets_of_ascendants_are_checked() {
+        SsdIndex.Index index = index();
+        assertNull(index.getViolation("SeniorClerk", null, set("Approver")));
+        assertEquals("Payments", index.getViolation("SeniorClerk", set("Clerk"), set("Approver")).getName());
+    }
+
+    @Test
+    public void test_cardinality_one_needs_a_match() {
+        SsdIndex.Index index = new SsdIndex.Index();
+        index.put("Solo", 1, set("A", "B"));
+        assertNull(index.getViolation("A", null, set("C")));
+        assertNotNull(index.getViolation("A", null, set("B")));
+    }
+
+    @Test
+    public void test_members_and_cardinality_updated_in_place() {
+        SsdIndex.Index index = index();
+        assertTrue(index.put("Payments", null, set("Clerk", "Reader")));
+        assertNull(index.getViolation("Clerk", null, set("Approver")));
+        assertNotNull(index.getViolation("Clerk", null, set("Reader")));
+
+        assertTrue("Cardinality alone updates a known set", index.put("payments", 3, null));
+        assertNull(index.getViolation("Clerk", null, set("Reader")));
+        assertFalse("An unknown set needs its members", index.put("Other", 2, null));
+    }
+
+    @Test
+    public void test_deleted_set_no_longer_checked_and_id_reused() {
+        SsdIndex.Index index = index();
+        index.delete("PAYMENTS");
+        assertNull(index.getViolation("Clerk", null, set("Approver")));
+        assertEquals("Audit", index.getViolation("Approver", null, set("Auditor", "Admin")).getName());
+
+        assertTrue(index.put("Trading", 2, set("Trader", "Clerk")));
+        assertEquals("Trading", index.getViolation("Clerk", null, set("Trader")).getName());
+        assertNull(index.getViolation("Clerk", null, set("Approver")));
+    }
+
+    @Test
+    public void test_sets_copied_and_rebuilt() {
+        SsdIndex.Index index = index();
+        index.delete("Payments");
+        List<SDSet> ssdSets = index.getSsdSets();
+        assertEquals(1, ssdSets.size());
+        assertEquals("Audit", ssdSets.get(0).getName());
+        assertEquals(Integer.valueOf(3), ssdSets.get(0).getCardinality());
+        assertEquals(3, ssdSets.get(0).getMembers().size());
+
+        SsdIndex.Index copy = new SsdIndex.Index();
+        for (SDSet ssd : ssdSets) {
+            assertTrue(copy.put(ssd.getName(), ssd.getCardinality(), ssd.getMembers()));
+        }
+        assertEquals("Audit", copy.getViolation("auditor", null, set("Admin", "Approver")).getName());
+        assertNull(copy.getViolation("Clerk", null, set("Approver")));
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.apache.directory.fortress.core.CfgRuntimeException;
+import org.apache.directory.fortress.core.model.ParentUtil;
+import org.apache.directory.fortress.core.model.RoleConstraint;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class UserRoleDecoderTest {
+
+    private static final ParentUtil PARENTS = new ParentUtil() {
+        @Override
+        public Set<String> getParentsCB(String name, String contextId) {
+            return "TELLER".equals(name) ? Collections.singleton("Clerk") : null;
+        }
+    };
+
+    /**
+     * The decoder reads the delimiter from the config.  Without a directory the first load fails to read the remote
+     * config, after which the local config is used, so load it before any test.
+     */
+    @BeforeClass
+    public static void loadLocalConfig() {
+        try {
+            Config.getInstance();
+        } catch (CfgRuntimeException e) {
+            // no directory, the local config is used from now on.
+        }
+        assertNotNull(Config.getInstance().getDelimiter());
+    }
+
+    private static String raw(String... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (String field : fields) {
+            if (sb.length() > 0) {
+                sb.append(Config.getInstance().getDelimiter());
+            }
+            sb.append(field);
+        }
+        return sb.toString();
+    }
+
+    private static List<UserRole> decode(String... rawValues) {
+        return UserRoleDecoder.decode(Arrays.asList(rawValues), "jtsUser", "HOME", PARENTS);
+    }
+
+    @Test
+    public void test_temporal_fields_decoded() {
+        List<UserRole> uRoles = decode(raw("Teller", "30", "0800", "1700", "20200101", "20301231", "20250101",
+                "20250105", "23456"));
+        assertEquals(1, uRoles.size());
+        UserRole uRole = uRoles.get(0);
+        assertEquals("Teller", uRole.getName());
+        assertEquals("jtsUser", uRole.getUserId());
+        assertEquals(Collections.singleton("Clerk"), uRole.getParents());
+        assertEquals(Integer.valueOf(30), uRole.getTimeout());
+        assertEquals("0800", uRole.getBeginTime());
+        assertEquals("1700", uRole.getEndTime());
+        assertEquals("20200101", uRole.getBeginDate());
+        assertEquals("20301231", uRole.getEndDate());
+        assertEquals("20250101", uRole.getBeginLockDate());
+        assertEquals("20250105", uRole.getEndLockDate());
+        assertEquals("23456", uRole.getDayMask());
+        assertTrue(uRole.isTemporalSet());
+    }
+
+    @Test
+    public void test_empty_fields_left_unset() {
+        UserRole uRole = decode(raw("Clerk", "0", "", "", "", "", "", "", "")).get(0);
+        assertEquals("Clerk", uRole.getName());
+        assertEquals(Integer.valueOf(0), uRole.getTimeout());
+        assertNull(uRole.getBeginTime());
+        assertNull(uRole.getDayMask());
+        assertFalse(uRole.isTemporalSet());
+    }
+
+    @Test
+    public void test_values_of_a_role_merged() {
+        List<UserRole> uRoles = decode(raw("Teller", "0", "", "", "", "", "", "", "1234567"),
+                raw("Clerk", "0", "", "", "", "", "", "", ""),
+                raw("teller", RoleConstraint.RC_TYPE_NAME, "FILTER", "accounts", "branch1"),
+                "malformed");
+        assertEquals(2, uRoles.size());
+        UserRole teller = uRoles.get(0);
+        assertEquals(0L, teller.getSequenceId());
+        assertEquals("1234567", teller.getDayMask());
+        assertEquals(1, teller.getRoleConstraints().size());
+        RoleConstraint rc = teller.getRoleConstraints().get(0);
+        assertEquals(RoleConstraint.RCType.FILTER, rc.getType());
+        assertEquals("accounts", rc.getPaSetName());
+        assertEquals("branch1", rc.getValue());
+        assertEquals("Clerk", uRoles.get(1).getName());
+        assertEquals(1L, uRoles.get(1).getSequenceId());
+    }
+
+    @Test
+    public void test_null_values_decode_to_none() {
+        assertTrue(UserRoleDecoder.decode(null, "jtsUser", "HOME", PARENTS).isEmpty());
+    }
+
+    @Test
+    public void test_setter_overrides_deferred_value() {
+        UserRole uRole = decode(raw("Teller", "30", "0800", "", "", "", "", "", "")).get(0);
+        uRole.setTimeout(60);
+        assertEquals(Integer.valueOf(60), uRole.getTimeout());
+        assertEquals("0800", uRole.getBeginTime());
+    }
+
+    @Test
+    public void test_shared_role_decoded_once_for_all_threads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 200; round++) {
+                final UserRole uRole = decode(raw("Teller", "45", "0900", "1800", "", "", "", "", "12345")).get(0);
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Future<String>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    futures.add(executor.submit(new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            start.await();
+                            return uRole.getTimeout() + uRole.getBeginTime() + uRole.getEndTime() + uRole.getDayMask();
+                        }
+                    }));
+                }
+                start.countDown();
+                for (Future<String> future : futures) {
+                    assertEquals("450900180012345", future.get());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
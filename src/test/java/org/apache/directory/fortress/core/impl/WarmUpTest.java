@@ -0,0 +1,90 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks a phase of the warm-up that fails or doesn't finish in time is reported without holding up the others.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class WarmUpTest {
+
+    @Test
+    public void test_run_all_reports_blocked_and_failed_tasks() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        WarmUp.Task blocking = new WarmUp.Task("blocking") {
+            @Override
+            void warm() throws Exception {
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            }
+        };
+        WarmUp.Task throwing = new WarmUp.Task("throwing") {
+            @Override
+            void warm() throws Exception {
+                throw new IllegalStateException("ldap down");
+            }
+        };
+        WarmUp.Task quick = new WarmUp.Task("quick") {
+            @Override
+            void warm() {
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<WarmUp.Phase> phases = new ArrayList<>();
+            long start = System.nanoTime();
+            // long enough for the failed task to log its error on a cold jvm:
+            WarmUp.runAll(executor, Arrays.asList(blocking, throwing, quick), phases,
+                    start + TimeUnit.MILLISECONDS.toNanos(1000));
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("runAll should return at the deadline, took " + millis, millis >= 990 && millis < 5000);
+
+            assertEquals(Arrays.asList(blocking.getPhase(), throwing.getPhase(), quick.getPhase()), phases);
+            assertFalse(blocking.getPhase().isSuccess());
+            assertEquals("timed out", blocking.getPhase().getError());
+            assertTrue("The blocked task should be cancelled", interrupted.await(5, TimeUnit.SECONDS));
+            assertEquals("The timeout is kept once the task ends", "timed out", blocking.getPhase().getError());
+            assertFalse(throwing.getPhase().isSuccess());
+            assertTrue(throwing.getPhase().getError(), throwing.getPhase().getError().contains("ldap down"));
+            assertTrue(quick.getPhase().isSuccess());
+            assertNull(quick.getPhase().getError());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
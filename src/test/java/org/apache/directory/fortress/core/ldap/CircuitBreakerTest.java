@@ -0,0 +1,163 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the state transitions of the {@link CircuitBreaker}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CircuitBreakerTest {
+
+    private static final long HOUR = 3600000;
+    private static final long OPEN_MILLIS = 50;
+
+    private static void assertRejected(CircuitBreaker breaker) {
+        try {
+            breaker.acquire("getAdminConnection");
+            fail("acquire should be rejected while " + breaker.getState());
+        } catch (CircuitOpenException e) {
+            assertEquals(GlobalErrIds.FT_LDAP_CIRCUIT_OPEN, e.getErrorId());
+        }
+    }
+
+    private static CircuitBreaker open() {
+        CircuitBreaker breaker = new CircuitBreaker(true, 50, 1, HOUR, OPEN_MILLIS);
+        breaker.acquire("getAdminConnection");
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    @Test
+    public void test_disabled_never_opens() {
+        CircuitBreaker breaker = new CircuitBreaker(false, 50, 1, HOUR, OPEN_MILLIS);
+        for (int i = 0; i < 10; i++) {
+            breaker.acquire("getAdminConnection");
+            breaker.recordFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getOpenedCount());
+    }
+
+    @Test
+    public void test_opens_at_failure_rate_after_min_calls() {
+        CircuitBreaker breaker = new CircuitBreaker(true, 50, 4, HOUR, OPEN_MILLIS);
+        breaker.recordSuccess();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        assertEquals("fewer than the minimum calls", CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getOpenedCount());
+        assertRejected(breaker);
+        assertEquals(1, breaker.getRejectedCount());
+    }
+
+    @Test
+    public void test_stays_closed_below_failure_rate() {
+        CircuitBreaker breaker = new CircuitBreaker(true, 50, 4, HOUR, OPEN_MILLIS);
+        for (int i = 0; i < 3; i++) {
+            breaker.recordSuccess();
+        }
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.acquire("getAdminConnection");
+    }
+
+    @Test
+    public void test_borrows_not_counted_as_calls() {
+        CircuitBreaker breaker = new CircuitBreaker(true, 50, 2, HOUR, OPEN_MILLIS);
+        for (int i = 0; i < 10; i++) {
+            breaker.acquire("getAdminConnection");
+        }
+        breaker.recordFailure();
+        assertEquals("a single operation was made", CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void test_window_rolls_over() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(true, 50, 3, OPEN_MILLIS, OPEN_MILLIS);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        Thread.sleep(OPEN_MILLIS + 10);
+        breaker.recordSuccess();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        assertEquals("the earlier failures fell outside the window", CircuitBreaker.State.CLOSED,
+                breaker.getState());
+    }
+
+    @Test
+    public void test_half_open_closes_on_successful_operation() throws Exception {
+        CircuitBreaker breaker = open();
+        assertRejected(breaker);
+        Thread.sleep(OPEN_MILLIS + 10);
+        breaker.acquire("getAdminConnection");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(1, breaker.getHalfOpenedCount());
+        assertRejected(breaker);
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getClosedCount());
+        breaker.acquire("getAdminConnection");
+    }
+
+    @Test
+    public void test_half_open_reopens_on_failed_operation() throws Exception {
+        CircuitBreaker breaker = open();
+        Thread.sleep(OPEN_MILLIS + 10);
+        breaker.acquire("getAdminConnection");
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpenedCount());
+        assertRejected(breaker);
+    }
+
+    @Test
+    public void test_unresolved_trial_replaced_after_open_interval() throws Exception {
+        CircuitBreaker breaker = open();
+        Thread.sleep(OPEN_MILLIS + 10);
+        breaker.acquire("getAdminConnection");
+        assertRejected(breaker);
+        // the trial connection recorded no outcome, i.e. its caller's deadline passed:
+        Thread.sleep(OPEN_MILLIS + 10);
+        breaker.acquire("getAdminConnection");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(1, breaker.getHalfOpenedCount());
+    }
+
+    @Test
+    public void test_outcomes_ignored_while_open() {
+        CircuitBreaker breaker = open();
+        // operations on connections borrowed before the breaker opened:
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getOpenedCount());
+    }
+}
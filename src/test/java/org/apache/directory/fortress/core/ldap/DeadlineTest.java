@@ -0,0 +1,160 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.LdapNetworkConnection;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how {@link Deadline}s nest and limit the time ldap operations may wait.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class DeadlineTest {
+
+    @After
+    public void tearDown() {
+        while (Deadline.current() != null) {
+            Deadline.current().close();
+        }
+    }
+
+    @Test
+    public void test_close_restores_previous() {
+        assertNull(Deadline.current());
+        try (Deadline outer = Deadline.start(10, TimeUnit.SECONDS)) {
+            assertSame(outer, Deadline.current());
+            try (Deadline inner = Deadline.start(5, TimeUnit.SECONDS)) {
+                assertSame(inner, Deadline.current());
+            }
+            assertSame(outer, Deadline.current());
+        }
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    public void test_inner_never_extends_outer() {
+        try (Deadline outer = Deadline.start(1, TimeUnit.SECONDS)) {
+            try (Deadline inner = Deadline.start(1, TimeUnit.HOURS)) {
+                assertTrue(inner.getRemainingMillis() <= outer.getRemainingMillis());
+                assertTrue(inner.getRemainingMillis() <= 1000);
+            }
+            try (Deadline inner = Deadline.start(100, TimeUnit.MILLISECONDS)) {
+                assertTrue(inner.getRemainingMillis() <= 100);
+                assertTrue(outer.getRemainingMillis() > 100);
+            }
+        }
+    }
+
+    @Test
+    public void test_close_of_outer_deadline_ignored_while_inner_current() {
+        Deadline outer = Deadline.start(10, TimeUnit.SECONDS);
+        Deadline inner = Deadline.start(5, TimeUnit.SECONDS);
+        outer.close();
+        assertSame(inner, Deadline.current());
+        inner.close();
+        assertSame(outer, Deadline.current());
+        outer.close();
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    public void test_get_timeout() throws Exception {
+        assertEquals(30000, Deadline.getTimeout(30000));
+        try (Deadline deadline = Deadline.start(2, TimeUnit.SECONDS)) {
+            long timeout = Deadline.getTimeout(30000);
+            assertTrue(timeout > 0 && timeout <= 2000);
+            assertEquals("the connection timeout applies if it is sooner", 50, Deadline.getTimeout(50));
+        }
+        try (Deadline deadline = Deadline.start(1, TimeUnit.MILLISECONDS)) {
+            Thread.sleep(5);
+            assertTrue(deadline.isExpired());
+            assertEquals(0, deadline.getRemainingMillis());
+            try {
+                Deadline.getTimeout(30000);
+                fail("getTimeout should throw once the deadline has passed");
+            } catch (DeadlineExceededException e) {
+                assertEquals(GlobalErrIds.FT_LDAP_DEADLINE_EXCEEDED, e.getErrorId());
+            }
+        }
+    }
+
+    @Test
+    public void test_apply_limits_connection_timeout() {
+        final long[] timeOut = {-1};
+        LdapConnection connection = new LdapNetworkConnection() {
+            @Override
+            public void setTimeOut(long timeout) {
+                timeOut[0] = timeout;
+            }
+        };
+        Deadline.apply(connection, "read");
+        assertEquals("the connection is left alone without a deadline", -1, timeOut[0]);
+        try (Deadline deadline = Deadline.start(2, TimeUnit.SECONDS)) {
+            Deadline.apply(connection, "read");
+            assertTrue(timeOut[0] > 0 && timeOut[0] <= 2000);
+        }
+    }
+
+    @Test
+    public void test_check() throws Exception {
+        Deadline.check("read");
+        assertFalse(Deadline.isPassed());
+        try (Deadline deadline = Deadline.start(1, TimeUnit.MINUTES)) {
+            Deadline.check("read");
+            assertFalse(Deadline.isPassed());
+        }
+        try (Deadline deadline = Deadline.start(1, TimeUnit.MILLISECONDS)) {
+            Thread.sleep(5);
+            assertTrue(Deadline.isPassed());
+            try {
+                Deadline.check("read");
+                fail("check should throw once the deadline has passed");
+            } catch (DeadlineExceededException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("read"));
+            }
+        }
+    }
+
+    @Test
+    public void test_failed_blames_expired_deadline() throws Exception {
+        Exception cause = new Exception("connection reset");
+        assertSame(cause, Deadline.failed("search", cause));
+        try (Deadline deadline = Deadline.start(1, TimeUnit.MINUTES)) {
+            assertSame(cause, Deadline.failed("search", cause));
+        }
+        try (Deadline deadline = Deadline.start(1, TimeUnit.MILLISECONDS)) {
+            Thread.sleep(5);
+            try {
+                Deadline.failed("search", cause);
+                fail("failed should throw once the deadline has passed");
+            } catch (DeadlineExceededException e) {
+                assertSame(cause, e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+import org.apache.directory.fortress.core.util.LdapUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the filter templates and escaping.  Run {@link #main(String[])} for a microbenchmark of filter construction and
+ * encoding, comparing the per request concatenation and nested loop escaping these replaced.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class FilterTemplateTest {
+
+    private static final char[] META_CHARS = {'(', ')', '*', '\\'};
+    private static final String[] REPL_VALS = {"28", "29", "2a", "5c"};
+    private static final FilterTemplate UID_FILTER =
+        FilterTemplate.compile("(&(objectclass={0})(uid={1}*))");
+
+    @BeforeClass
+    public static void setUp() {
+        LdapUtil.getInstance().setLdapMetaChars(META_CHARS);
+        LdapUtil.getInstance().setLdapReplVals(REPL_VALS);
+    }
+
+    @Test
+    public void test_render_substitutes_values() {
+        assertEquals("(&(objectclass=inetOrgPerson)(uid=jts*))", UID_FILTER.render("inetOrgPerson", "jts"));
+        FilterTemplate repeated = FilterTemplate.compile("(|(cn={0})(sn={0})(ou={1}))");
+        assertEquals("(|(cn=a)(sn=a)(ou=b))", repeated.render("a", "b"));
+        assertEquals("(objectclass=*)", FilterTemplate.compile("(objectclass=*)").render());
+    }
+
+    @Test
+    public void test_append_to_buffer() {
+        FilterTemplate clause = FilterTemplate.compile("(ftRA={0})");
+        StringBuilder sb = new StringBuilder("(|");
+        clause.appendTo(sb, "r1");
+        clause.appendTo(sb, "r2");
+        assertEquals("(|(ftRA=r1)(ftRA=r2)", sb.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_unterminated_placeholder_rejected() {
+        FilterTemplate.compile("(uid={0)");
+    }
+
+    @Test
+    public void test_escape_matches_nested_loop() {
+        String[] values = {"plain", "a*b", "(x)", "back\\slash", "", "*()\\", "trailing*"};
+        for (String value : values) {
+            assertEquals(value, legacyEscape(value), LdapUtil.getInstance().escapeFilterValue(value));
+        }
+    }
+
+    @Test
+    public void test_escape_returns_same_instance_when_safe() {
+        String value = "nothingToEscape";
+        assertSame(value, LdapUtil.getInstance().escapeFilterValue(value));
+    }
+
+    /**
+     * The escaping previously done by LdapDataProvider.escapeLDAPSearchFilter.
+     */
+    private static String legacyEscape(String filter) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < filter.length(); i++) {
+            boolean found = false;
+            char curChar = filter.charAt(i);
+            for (int j = 0; j < META_CHARS.length; j++) {
+                if (LdapUtil.getInstance().getLdapMetaChars()[j] > curChar) {
+                    break;
+                } else if (curChar == LdapUtil.getInstance().getLdapMetaChars()[j]) {
+                    sb.append("\\");
+                    sb.append(LdapUtil.getInstance().getLdapReplVals()[j]);
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                sb.append(curChar);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String legacyFilter(String objectClass, String userId) {
+        StringBuilder filterbuf = new StringBuilder();
+        filterbuf.append("(&(objectclass=");
+        filterbuf.append(objectClass);
+        filterbuf.append(")(");
+        filterbuf.append("uid");
+        filterbuf.append("=");
+        filterbuf.append(legacyEscape(userId));
+        filterbuf.append("*))");
+        return filterbuf.toString();
+    }
+
+    /**
+     * Microbenchmark of filter construction plus encoding.  Prints the average time per filter of each approach.
+     */
+    public static void main(String[] args) {
+        setUp();
+        String[] userIds = {"jtsUser1", "oamTestUser*", "demoUser(4)", "fortressAdmin", "a\\b"};
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        for (int round = 0; round < 3; round++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += legacyFilter("inetOrgPerson", userIds[i % userIds.length]).length();
+            }
+            long legacy = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                String userId = LdapUtil.getInstance().escapeFilterValue(userIds[i % userIds.length]);
+                sink += UID_FILTER.render("inetOrgPerson", userId).length();
+            }
+            long template = System.nanoTime() - start;
+            System.out.println("round " + round + ": concat+loop " + (legacy / iterations) + " ns/op, template+table "
+                + (template / iterations) + " ns/op (" + sink + ")");
+        }
+    }
+}
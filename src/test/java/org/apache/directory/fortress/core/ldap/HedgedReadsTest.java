@@ -0,0 +1,109 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the delay after which {@link HedgedReads} hedges a read follows the configured percentile of recent latencies.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class HedgedReadsTest {
+
+    private static void recordMillis(HedgedReads hedgedReads, long... millis) {
+        for (long value : millis) {
+            hedgedReads.record(TimeUnit.MILLISECONDS.toNanos(value));
+        }
+    }
+
+    @Test
+    public void test_no_hedging_until_enough_samples() {
+        HedgedReads hedgedReads = new HedgedReads(true, 95, 2);
+        for (int i = 0; i < 255; i++) {
+            recordMillis(hedgedReads, 10);
+        }
+        assertEquals(Long.MAX_VALUE, hedgedReads.getDelayMillis());
+        recordMillis(hedgedReads, 10);
+        assertEquals(10, hedgedReads.getDelayMillis());
+    }
+
+    @Test
+    public void test_delay_is_percentile_of_latencies() {
+        List<Long> latencies = new ArrayList<>();
+        for (long i = 1; i <= 256; i++) {
+            latencies.add(i);
+        }
+        Collections.shuffle(latencies, new Random(42));
+        HedgedReads p95 = new HedgedReads(true, 95, 2);
+        HedgedReads p50 = new HedgedReads(true, 50, 2);
+        for (long latency : latencies) {
+            recordMillis(p95, latency);
+            recordMillis(p50, latency);
+        }
+        assertEquals(244, p95.getDelayMillis());
+        assertEquals(129, p50.getDelayMillis());
+    }
+
+    @Test
+    public void test_delay_rounds_up_and_respects_minimum() {
+        HedgedReads hedgedReads = new HedgedReads(true, 95, 2);
+        for (int i = 0; i < 256; i++) {
+            hedgedReads.record(TimeUnit.MICROSECONDS.toNanos(300));
+        }
+        assertEquals(2, hedgedReads.getDelayMillis());
+        HedgedReads noMinimum = new HedgedReads(true, 95, 0);
+        for (int i = 0; i < 256; i++) {
+            noMinimum.record(TimeUnit.MICROSECONDS.toNanos(300));
+        }
+        assertEquals("a partial millisecond rounds up", 1, noMinimum.getDelayMillis());
+    }
+
+    @Test
+    public void test_old_samples_replaced() {
+        HedgedReads hedgedReads = new HedgedReads(true, 95, 0);
+        for (int i = 0; i < 512; i++) {
+            recordMillis(hedgedReads, 100);
+        }
+        assertEquals(100, hedgedReads.getDelayMillis());
+        for (int i = 0; i < 512; i++) {
+            recordMillis(hedgedReads, 5);
+        }
+        assertEquals(5, hedgedReads.getDelayMillis());
+    }
+
+    @Test
+    public void test_percentile_limited() {
+        HedgedReads hedgedReads = new HedgedReads(true, 100, 0);
+        for (long i = 1; i <= 256; i++) {
+            recordMillis(hedgedReads, i);
+        }
+        // 99th percentile, the index of the 100th would be past the samples:
+        assertEquals(254, hedgedReads.getDelayMillis());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapOperationException;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
+import org.apache.directory.ldap.client.api.SearchCursorImpl;
+import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks a {@link PagedSearch} follows the cookies to the last page, and that a page cut short by the server's size
+ * limit fails.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PagedSearchTest {
+
+    /**
+     * Serves entries a page of the given size at a time, the cookie of a page being the number of the next, or the
+     * first page only, with a size limit result, if it doesn't page.  Logs the cookie of each search.
+     */
+    private static class FakePages implements PagedSearch.Pages {
+        private final List<String> cookies = new ArrayList<>();
+        private final int entries;
+        private final int pageSize;
+        private final boolean isPaging;
+        private int messageId;
+
+        FakePages(int entries, int pageSize, boolean isPaging) {
+            this.entries = entries;
+            this.pageSize = pageSize;
+            this.isPaging = isPaging;
+        }
+
+        @Override
+        public SearchCursor search(byte[] cookie) throws LdapException {
+            String page = cookie == null ? "0" : new String(cookie);
+            cookies.add(page);
+            int first = Integer.parseInt(page) * pageSize;
+            int last = Math.min(entries, first + pageSize);
+            SearchFuture future = new SearchFuture(null, ++messageId);
+            try {
+                for (int i = first; i < last; i++) {
+                    SearchResultEntryImpl entry = new SearchResultEntryImpl(messageId);
+                    entry.setEntry(new DefaultEntry("cn=e" + i + ",dc=example"));
+                    future.set(entry);
+                }
+                future.set(done(page, last));
+            } catch (Exception e) {
+                throw new LdapException(e);
+            }
+            return new SearchCursorImpl(future, 1, TimeUnit.SECONDS);
+        }
+
+        private SearchResultDone done(String page, int last) {
+            SearchResultDone done = new SearchResultDoneImpl(messageId);
+            if (!isPaging) {
+                done.getLdapResult().setResultCode(last < entries ? ResultCodeEnum.SIZE_LIMIT_EXCEEDED
+                        : ResultCodeEnum.SUCCESS);
+            } else {
+                done.getLdapResult().setResultCode(ResultCodeEnum.SUCCESS);
+                PagedResults control = new PagedResultsImpl();
+                control.setCookie(last < entries ? String.valueOf(Integer.parseInt(page) + 1).getBytes()
+                        : new byte[0]);
+                done.addControl(control);
+            }
+            return done;
+        }
+    }
+
+    @Test
+    public void test_entries_read_until_last_page() throws Exception {
+        FakePages pages = new FakePages(5, 2, true);
+        PagedSearch search = new PagedSearch(pages);
+        List<String> dns = new ArrayList<>();
+        while (search.next()) {
+            dns.add(search.getEntry().getDn().getName());
+        }
+        assertFalse("the search stays at its end", search.next());
+        assertEquals("[0, 1, 2]", pages.cookies.toString());
+        assertEquals("[cn=e0,dc=example, cn=e1,dc=example, cn=e2,dc=example, cn=e3,dc=example, cn=e4,dc=example]",
+                dns.toString());
+    }
+
+    @Test
+    public void test_empty_search_reads_one_page() throws Exception {
+        FakePages pages = new FakePages(0, 2, true);
+        assertFalse(new PagedSearch(pages).next());
+        assertEquals("[0]", pages.cookies.toString());
+    }
+
+    @Test
+    public void test_entries_cut_short_by_size_limit_fail() throws Exception {
+        FakePages pages = new FakePages(5, 2, false);
+        PagedSearch search = new PagedSearch(pages);
+        int read = 0;
+        try {
+            while (search.next()) {
+                read++;
+            }
+            fail("next should throw when the server returns only some of the entries");
+        } catch (LdapOperationException e) {
+            assertEquals(ResultCodeEnum.SIZE_LIMIT_EXCEEDED, e.getResultCode());
+        }
+        assertEquals(2, read);
+        assertEquals("[0]", pages.cookies.toString());
+    }
+
+    @Test
+    public void test_server_without_paging_returns_one_page() throws Exception {
+        FakePages pages = new FakePages(2, 2, false);
+        PagedSearch search = new PagedSearch(pages);
+        int read = 0;
+        while (search.next()) {
+            read++;
+        }
+        assertEquals(2, read);
+        assertEquals("[0]", pages.cookies.toString());
+    }
+}
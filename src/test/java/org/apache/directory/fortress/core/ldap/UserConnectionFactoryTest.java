@@ -0,0 +1,209 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.BindRequest;
+import org.apache.directory.api.ldap.model.message.BindResponse;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.LdapConnectionFactory;
+import org.apache.directory.ldap.client.api.LdapConnectionPool;
+import org.apache.directory.ldap.client.api.LdapNetworkConnection;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the connections of the User pool are opened without a bind and replaced on borrow once closed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class UserConnectionFactoryTest {
+
+    /**
+     * Records the calls made on a connection, which is connected from {@code connect} until {@code close}, and never
+     * reaches a server.
+     */
+    private static class FakeConnection extends LdapNetworkConnection {
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        private final boolean canConnect;
+        private final boolean failClose;
+        private volatile boolean connected;
+
+        FakeConnection(boolean canConnect, boolean failClose) {
+            this.canConnect = canConnect;
+            this.failClose = failClose;
+        }
+
+        @Override
+        public boolean connect() {
+            calls.add("connect");
+            connected = canConnect;
+            return connected;
+        }
+
+        @Override
+        public boolean isConnected() {
+            calls.add("isConnected");
+            return connected;
+        }
+
+        @Override
+        public void close() throws IOException {
+            calls.add("close");
+            connected = false;
+            if (failClose) {
+                throw new IOException("close failed");
+            }
+        }
+
+        @Override
+        public void bind() {
+            calls.add("bind");
+        }
+
+        @Override
+        public void anonymousBind() {
+            calls.add("bind");
+        }
+
+        @Override
+        public BindResponse bind(BindRequest bindRequest) {
+            calls.add("bind");
+            return null;
+        }
+    }
+
+    /**
+     * Hands out a new fake connection per call to {@code newUnboundLdapConnection}, and fails any call that would bind.
+     */
+    private static class FakeFactory implements LdapConnectionFactory {
+        private final List<FakeConnection> made = Collections.synchronizedList(new ArrayList<FakeConnection>());
+        private final boolean canConnect;
+        private final boolean failClose;
+
+        FakeFactory(boolean canConnect, boolean failClose) {
+            this.canConnect = canConnect;
+            this.failClose = failClose;
+        }
+
+        @Override
+        public LdapConnection newUnboundLdapConnection() {
+            FakeConnection connection = new FakeConnection(canConnect, failClose);
+            made.add(connection);
+            return connection;
+        }
+
+        @Override
+        public LdapConnection newLdapConnection() throws LdapException {
+            throw new UnsupportedOperationException("newLdapConnection binds");
+        }
+
+        @Override
+        public LdapConnection bindConnection(LdapConnection connection) throws LdapException {
+            throw new UnsupportedOperationException("bindConnection binds");
+        }
+
+        @Override
+        public LdapConnection configureConnection(LdapConnection connection) {
+            throw new UnsupportedOperationException("configureConnection");
+        }
+
+        @Override
+        public LdapApiService getLdapApiService() {
+            throw new UnsupportedOperationException("getLdapApiService");
+        }
+
+        UserConnectionFactory newUserFactory() {
+            return new UserConnectionFactory(this);
+        }
+    }
+
+    @Test
+    public void test_make_connects_without_bind() throws Exception {
+        FakeFactory fake = new FakeFactory(true, false);
+        LdapConnection connection = fake.newUserFactory().makeObject();
+        assertTrue(connection.isConnected());
+        assertEquals(1, fake.made.size());
+        assertEquals("[connect, isConnected]", fake.made.get(0).calls.toString());
+    }
+
+    @Test
+    public void test_make_closes_and_throws_when_connect_fails() throws Exception {
+        FakeFactory fake = new FakeFactory(false, true);
+        try {
+            fake.newUserFactory().makeObject();
+            fail("makeObject should throw when the connection cannot be opened");
+        } catch (LdapException e) {
+            assertEquals("[connect, close]", fake.made.get(0).calls.toString());
+        }
+    }
+
+    @Test
+    public void test_validate_follows_connection_state() throws Exception {
+        FakeFactory fake = new FakeFactory(true, false);
+        UserConnectionFactory factory = fake.newUserFactory();
+        LdapConnection connection = factory.makeObject();
+        assertTrue(factory.validateObject(connection));
+        connection.close();
+        assertFalse(factory.validateObject(connection));
+    }
+
+    @Test
+    public void test_destroy_closes_and_ignores_close_failure() throws Exception {
+        FakeFactory fake = new FakeFactory(true, true);
+        UserConnectionFactory factory = fake.newUserFactory();
+        LdapConnection connection = factory.makeObject();
+        factory.destroyObject(connection);
+        assertFalse(connection.isConnected());
+        assertTrue(fake.made.get(0).calls.contains("close"));
+    }
+
+    @Test
+    public void test_pool_replaces_closed_connection_on_borrow() throws Exception {
+        FakeFactory fake = new FakeFactory(true, false);
+        LdapConnectionPool pool = new LdapConnectionPool(fake.newUserFactory());
+        pool.setTestOnBorrow(true);
+        try {
+            LdapConnection first = pool.getConnection();
+            pool.releaseConnection(first);
+            assertSame(first, pool.getConnection());
+            // the server drops the connection while it sits idle in the pool
+            first.close();
+            pool.releaseConnection(first);
+            LdapConnection second = pool.getConnection();
+            assertNotSame(first, second);
+            assertTrue(second.isConnected());
+            assertEquals(2, fake.made.size());
+            for (FakeConnection connection : fake.made) {
+                assertFalse(connection.calls.contains("bind"));
+            }
+            pool.releaseConnection(second);
+        } finally {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.DeleteResponse;
+import org.apache.directory.api.ldap.model.message.DeleteResponseImpl;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.future.DeleteFuture;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the barriers of a {@link WriteBatch} and how a {@link WritePipeline} sends a batch.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class WriteBatchTest {
+
+    /**
+     * Answers deletes and logs each one sent and each response awaited, in order.  Deletes of the dns given fail.
+     */
+    private static class FakePipeline extends WritePipeline {
+        private final List<String> log = new ArrayList<>();
+        private final Set<String> failing = new HashSet<>();
+        private int messageId;
+
+        FakePipeline(int window) {
+            super(window);
+        }
+
+        FakePipeline failing(String... dns) {
+            failing.addAll(Arrays.asList(dns));
+            return this;
+        }
+
+        @Override
+        protected DeleteFuture send(WriteBatch.Operation operation) throws LdapException {
+            final String dn = operation.getDn().getName();
+            log.add("send " + dn);
+            DeleteFuture future = new DeleteFuture(null, ++messageId) {
+                @Override
+                public DeleteResponse get(long timeout, TimeUnit unit) throws InterruptedException,
+                        ExecutionException, TimeoutException {
+                    log.add("await " + dn);
+                    return super.get(timeout, unit);
+                }
+            };
+            DeleteResponse response = new DeleteResponseImpl(messageId);
+            response.getLdapResult().setResultCode(failing.contains(dn) ? ResultCodeEnum.UNWILLING_TO_PERFORM
+                    : ResultCodeEnum.SUCCESS);
+            try {
+                future.set(response);
+            } catch (InterruptedException | ExecutionException e) {
+                throw new LdapException(e);
+            }
+            return future;
+        }
+
+        @Override
+        protected long getTimeout() {
+            return 1000;
+        }
+    }
+
+    private static Dn dn(String name) throws Exception {
+        return new Dn(name);
+    }
+
+    @Test
+    public void test_barrier_applies_to_next_operation_only() throws Exception {
+        WriteBatch batch = new WriteBatch()
+                .barrier().delete(dn("cn=a,dc=example"))
+                .barrier().delete(dn("cn=b,dc=example"))
+                .delete(dn("cn=c,dc=example"))
+                .barrier().barrier().delete(dn("cn=d,dc=example"));
+        List<WriteBatch.Operation> operations = batch.getOperations();
+        assertEquals(4, batch.size());
+        assertFalse("nothing precedes the first operation", operations.get(0).isBarrier());
+        assertTrue(operations.get(1).isBarrier());
+        assertFalse(operations.get(2).isBarrier());
+        assertTrue(operations.get(3).isBarrier());
+        assertEquals(WriteBatch.Type.DELETE, operations.get(3).getType());
+        assertEquals("cn=d,dc=example", operations.get(3).getDn().getName());
+    }
+
+    @Test
+    public void test_write_waits_for_preceding_operations_at_barrier() throws Exception {
+        FakePipeline fake = new FakePipeline(64);
+        WriteBatch batch = new WriteBatch()
+                .delete(dn("cn=a,dc=example"))
+                .delete(dn("cn=b,dc=example"))
+                .barrier().delete(dn("cn=c,dc=example"));
+        List<WriteBatch.Result> results = fake.write(batch);
+        assertEquals(Arrays.asList("send cn=a,dc=example", "send cn=b,dc=example", "await cn=a,dc=example",
+                "await cn=b,dc=example", "send cn=c,dc=example", "await cn=c,dc=example"), fake.log);
+        assertEquals(3, results.size());
+        for (WriteBatch.Result result : results) {
+            assertTrue(result.toString(), result.isSuccess());
+        }
+        assertEquals("cn=c,dc=example", results.get(2).getDn().getName());
+    }
+
+    @Test
+    public void test_failure_stops_operations_after_next_barrier() throws Exception {
+        FakePipeline fake = new FakePipeline(64).failing("cn=a,dc=example");
+        WriteBatch batch = new WriteBatch()
+                .delete(dn("cn=a,dc=example"))
+                .delete(dn("cn=b,dc=example"))
+                .barrier().delete(dn("cn=c,dc=example"))
+                .delete(dn("cn=d,dc=example"));
+        List<WriteBatch.Result> results = fake.write(batch);
+        // the operation alongside the failed one is still sent, and both responses are collected:
+        assertEquals(Arrays.asList("send cn=a,dc=example", "send cn=b,dc=example", "await cn=a,dc=example",
+                "await cn=b,dc=example"), fake.log);
+        assertEquals(4, results.size());
+        assertFalse(results.get(0).isSuccess());
+        assertEquals(ResultCodeEnum.UNWILLING_TO_PERFORM,
+                results.get(0).getResponse().getLdapResult().getResultCode());
+        assertTrue(results.get(1).isSuccess());
+        for (WriteBatch.Result result : results.subList(2, 4)) {
+            assertNull(result.getResponse());
+            assertFalse(result.isSuccess());
+            assertTrue(result.toString().endsWith("NOT SENT"));
+        }
+    }
+
+    @Test
+    public void test_window_limits_outstanding_operations() throws Exception {
+        FakePipeline fake = new FakePipeline(2);
+        WriteBatch batch = new WriteBatch()
+                .delete(dn("cn=a,dc=example"))
+                .delete(dn("cn=b,dc=example"))
+                .delete(dn("cn=c,dc=example"));
+        assertEquals(3, fake.write(batch).size());
+        assertEquals(Arrays.asList("send cn=a,dc=example", "send cn=b,dc=example", "await cn=a,dc=example",
+                "await cn=b,dc=example", "send cn=c,dc=example", "await cn=c,dc=example"), fake.log);
+    }
+
+    @Test
+    public void test_delete_subtree_removes_deepest_level_first() throws Exception {
+        FakePipeline fake = new FakePipeline(64);
+        WriteBatch batch = WriteBatch.deleteSubtree(dn("ou=base,dc=example"), Arrays.asList(dn("ou=base,dc=example"),
+                dn("cn=x,ou=base,dc=example"), dn("ou=y,ou=base,dc=example"), dn("cn=z,ou=y,ou=base,dc=example")));
+        fake.write(batch);
+        assertEquals(Arrays.asList("send cn=z,ou=y,ou=base,dc=example", "await cn=z,ou=y,ou=base,dc=example",
+                "send cn=x,ou=base,dc=example", "send ou=y,ou=base,dc=example", "await cn=x,ou=base,dc=example",
+                "await ou=y,ou=base,dc=example", "send ou=base,dc=example", "await ou=base,dc=example"), fake.log);
+    }
+
+    @Test
+    public void test_delete_subtree_stops_above_failed_level() throws Exception {
+        FakePipeline fake = new FakePipeline(64).failing("cn=x,ou=base,dc=example");
+        WriteBatch batch = WriteBatch.deleteSubtree(dn("ou=base,dc=example"), Arrays.asList(dn("ou=base,dc=example"),
+                dn("cn=x,ou=base,dc=example")));
+        List<WriteBatch.Result> results = fake.write(batch);
+        assertEquals(Arrays.asList("send cn=x,ou=base,dc=example", "await cn=x,ou=base,dc=example"), fake.log);
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("ou=base,dc=example", results.get(1).getDn().getName());
+        assertNull("the node is not deleted", results.get(1).getResponse());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.MemberLoadException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the loading of the occupants of a {@link Role} excluded from the read.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class RoleTest {
+
+    /**
+     * Returns the occupants as the DAO would, or fails while {@link #failures} is positive.
+     */
+    private static final class Loader implements MemberLoader {
+        private final List<String> occupants = Arrays.asList("uid=a,ou=People", "uid=b,ou=People");
+        private int loads;
+        private int failures;
+
+        @Override
+        public List<String> loadCB(FortEntity entity, int offset, int size) {
+            loads++;
+            if (failures > 0) {
+                failures--;
+                throw new MemberLoadException(GlobalErrIds.ROLE_OCCUPANT_SEARCH_FAILED, "loadCB failed", null);
+            }
+            int end = size > 0 ? Math.min(occupants.size(), offset + size) : occupants.size();
+            return new ArrayList<>(occupants.subList(Math.min(offset, end), end));
+        }
+    }
+
+    private static Role deferred(Loader loader) {
+        Role role = new Role("Teller");
+        role.deferOccupants(loader);
+        return role;
+    }
+
+    @Test
+    public void test_occupants_loaded_once_on_first_access() {
+        Loader loader = new Loader();
+        Role role = deferred(loader);
+        assertFalse(role.isOccupantsLoaded());
+        assertEquals(2, role.getOccupants().size());
+        assertEquals(2, role.getOccupants().size());
+        assertTrue(role.isOccupantsLoaded());
+        assertEquals(1, loader.loads);
+    }
+
+    @Test
+    public void test_failed_load_throws_and_stays_deferred() {
+        Loader loader = new Loader();
+        loader.failures = 1;
+        Role role = deferred(loader);
+        try {
+            role.getOccupants();
+            fail("getOccupants should throw when the occupants can't be loaded");
+        } catch (MemberLoadException e) {
+            assertEquals(GlobalErrIds.ROLE_OCCUPANT_SEARCH_FAILED, e.getErrorId());
+        }
+        assertFalse("a failed load is retried", role.isOccupantsLoaded());
+        assertEquals(Arrays.asList("uid=a,ou=People", "uid=b,ou=People"), role.getOccupants());
+        assertEquals(2, loader.loads);
+    }
+
+    @Test
+    public void test_failed_range_throws() {
+        Loader loader = new Loader();
+        loader.failures = 1;
+        Role role = deferred(loader);
+        try {
+            role.getOccupants(0, 1);
+            fail("getOccupants should throw when the range can't be loaded");
+        } catch (MemberLoadException e) {
+            assertEquals(GlobalErrIds.ROLE_OCCUPANT_SEARCH_FAILED, e.getErrorId());
+        }
+        assertEquals(Arrays.asList("uid=b,ou=People"), role.getOccupants(1, 5));
+        assertFalse("a range is not kept", role.isOccupantsLoaded());
+    }
+}
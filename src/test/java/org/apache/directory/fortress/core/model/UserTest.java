@@ -0,0 +1,146 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+import org.apache.directory.fortress.core.ProjectionLoadException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the loading of the attribute groups of a {@link User} read with a projection.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class UserTest {
+
+    /**
+     * Sets the groups loaded onto the user as the DAO would, or fails while {@link #failures} is positive.
+     */
+    private static final class Loader implements UserLoader {
+        private final List<Set<UserProjection>> loads = new ArrayList<>();
+        private int failures;
+
+        @Override
+        public void loadCB(User user, Set<UserProjection> projection) {
+            loads.add(EnumSet.copyOf(projection));
+            if (failures > 0) {
+                failures--;
+                throw new ProjectionLoadException("loadCB failed", null);
+            }
+            if (projection.contains(UserProjection.CONTACTS)) {
+                user.setPhones(new ArrayList<>(Arrays.asList("555-1234")));
+                user.setEmails(new ArrayList<>(Arrays.asList("jts@example.com")));
+            }
+            if (projection.contains(UserProjection.PASSWORD_POLICY)) {
+                user.setPwPolicy("Test1");
+                user.setLocked(true);
+            }
+        }
+    }
+
+    private static User user(Loader loader, UserProjection... loaded) {
+        User user = new User("jtsUser");
+        EnumSet<UserProjection> deferred = EnumSet.allOf(UserProjection.class);
+        deferred.removeAll(Arrays.asList(loaded));
+        user.defer(deferred, loader);
+        return user;
+    }
+
+    @Test
+    public void test_group_loaded_on_first_access() {
+        Loader loader = new Loader();
+        User user = user(loader, UserProjection.ROLES);
+        assertFalse(user.isLoaded(UserProjection.CONTACTS));
+        assertEquals(Arrays.asList("555-1234"), user.getPhones());
+        assertEquals(Arrays.asList("jts@example.com"), user.getEmails());
+        assertTrue(user.isLoaded(UserProjection.CONTACTS));
+        assertEquals(1, loader.loads.size());
+        assertEquals(EnumSet.of(UserProjection.CONTACTS), loader.loads.get(0));
+    }
+
+    @Test
+    public void test_setters_replace_group_without_loading() {
+        Loader loader = new Loader();
+        User user = user(loader);
+        user.setPwPolicy("Test2");
+        user.setReset(true);
+        user.setLocked(false);
+        user.setPhones(new ArrayList<>(Arrays.asList("555-9876")));
+        user.setMobiles(new ArrayList<String>());
+        user.setEmails(new ArrayList<String>());
+        assertTrue(loader.loads.isEmpty());
+        assertTrue(user.isLoaded(UserProjection.PASSWORD_POLICY));
+        assertTrue(user.isLoaded(UserProjection.CONTACTS));
+        assertEquals("Test2", user.getPwPolicy());
+        assertFalse(user.isLocked());
+        assertEquals(Arrays.asList("555-9876"), user.getPhones());
+        assertTrue(loader.loads.isEmpty());
+    }
+
+    @Test
+    public void test_failed_load_is_thrown_and_retried() {
+        Loader loader = new Loader();
+        loader.failures = 1;
+        User user = user(loader);
+        try {
+            user.getPwPolicy();
+            fail("the failed load must be thrown");
+        } catch (ProjectionLoadException e) {
+            assertFalse(user.isLoaded(UserProjection.PASSWORD_POLICY));
+        }
+        assertEquals("Test1", user.getPwPolicy());
+        assertTrue(user.isLocked());
+        assertEquals(2, loader.loads.size());
+    }
+
+    @Test
+    public void test_serialization_loads_all_groups() throws Exception {
+        Loader loader = new Loader();
+        User user = user(loader, UserProjection.ROLES, UserProjection.ADMIN_ROLES);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(user);
+        }
+        assertEquals("All deferred groups are loaded with one read", 1, loader.loads.size());
+        assertEquals(EnumSet.complementOf(EnumSet.of(UserProjection.ROLES, UserProjection.ADMIN_ROLES)),
+                loader.loads.get(0));
+        for (UserProjection projection : UserProjection.values()) {
+            assertTrue(user.isLoaded(projection));
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            User copy = (User) in.readObject();
+            assertEquals(Arrays.asList("555-1234"), copy.getPhones());
+            assertEquals("Test1", copy.getPwPolicy());
+        }
+        assertEquals(1, loader.loads.size());
+    }
+}
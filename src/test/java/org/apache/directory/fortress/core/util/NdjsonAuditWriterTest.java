@@ -0,0 +1,104 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.util;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.Mod;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class NdjsonAuditWriterTest {
+
+    private static Bind bind(String reqStart) {
+        Bind bind = new Bind();
+        bind.setReqStart(reqStart);
+        bind.setReqDN("uid=jdoe,ou=People,dc=example,dc=com");
+        bind.setReqResult("0");
+        return bind;
+    }
+
+    @Test
+    public void test_writes_one_object_per_line_without_nulls() throws SecurityException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NdjsonAuditWriter writer = new NdjsonAuditWriter(out);
+        writer.accept(bind("20261019120000.000000Z"));
+        Mod mod = new Mod();
+        mod.setReqType("modify");
+        mod.setReqMod(Arrays.asList("ftModifier:= 1", "description:+ x"));
+        writer.accept(mod);
+        writer.close();
+
+        assertEquals("{\"type\":\"bind\",\"reqStart\":\"20261019120000.000000Z\","
+                + "\"reqDN\":\"uid=jdoe,ou=People,dc=example,dc=com\",\"reqResult\":\"0\"}\n"
+                + "{\"type\":\"mod\",\"reqType\":\"modify\",\"reqMod\":[\"ftModifier:= 1\",\"description:+ x\"]}\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_escapes_strings() throws SecurityException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NdjsonAuditWriter writer = new NdjsonAuditWriter(out);
+        Bind bind = new Bind();
+        bind.setReqDN("cn=\"a\\b\"\n\u0001\u00e9");
+        writer.accept(bind);
+        writer.close();
+
+        assertEquals("{\"type\":\"bind\",\"reqDN\":\"cn=\\\"a\\\\b\\\"\\n\\u0001\u00e9\"}\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_compressed_file() throws SecurityException, IOException {
+        File file = File.createTempFile("audit", ".ndjson.gz");
+        file.deleteOnExit();
+        NdjsonAuditWriter writer = new NdjsonAuditWriter(file, true);
+        for (int i = 0; i < 1000; i++) {
+            writer.accept(bind("2026101912" + String.format("%04d", i) + ".000000Z"));
+        }
+        writer.close();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            int count = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                assertTrue(line.startsWith("{\"type\":\"bind\",\"reqStart\":\"2026101912"));
+                count++;
+            }
+            assertEquals(1000, count);
+        }
+        assertTrue("Output should be compressed", file.length() < 1000 * 50);
+    }
+}
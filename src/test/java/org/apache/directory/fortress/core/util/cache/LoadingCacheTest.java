@@ -0,0 +1,296 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.util.cache;
+
+import net.sf.ehcache.search.Attribute;
+import net.sf.ehcache.search.Query;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LoadingCacheTest {
+
+    /**
+     * Non blocking, never expiring, cache backed by a map.
+     */
+    private static class MapCache implements Cache {
+        private final Map<Object, Object> map = new ConcurrentHashMap<>();
+
+        @Override
+        public Object get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public Object getQuiet(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            if (value == null) {
+                map.remove(key);
+            } else {
+                map.put(key, value);
+            }
+        }
+
+        @Override
+        public boolean clear(Object key) {
+            return map.remove(key) != null;
+        }
+
+        @Override
+        public void flush() {
+            map.clear();
+        }
+
+        @Override
+        public <T> Attribute<T> getSearchAttribute(String attributeName) {
+            return null;
+        }
+
+        @Override
+        public Query createQuery() {
+            return null;
+        }
+    }
+
+    private static class CountingLoader implements CacheLoader<String> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final String prefix;
+        private final CountDownLatch release;
+
+        CountingLoader(String prefix, CountDownLatch release) {
+            this.prefix = prefix;
+            this.release = release;
+        }
+
+        @Override
+        public String load() {
+            int call = calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return prefix + call;
+        }
+    }
+
+    @Test
+    public void test_concurrent_misses_load_once() throws Exception {
+        final LoadingCache<String> cache = new LoadingCache<>("test", new MapCache(), 0);
+        CountDownLatch release = new CountDownLatch(1);
+        final CountingLoader loader = new CountingLoader("value", release);
+        final String[] results = new String[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int idx = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    results[idx] = cache.get("key", loader);
+                }
+            });
+            threads[i].start();
+        }
+        Thread.sleep(200);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        assertEquals("Loader should be called once", 1, loader.calls.get());
+        for (String result : results) {
+            assertEquals("value1", result);
+        }
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(cache.getHitCount() + cache.getMissCount(), results.length);
+    }
+
+    @Test
+    public void test_refresh_ahead_serves_current_value() throws Exception {
+        LoadingCache<String> cache = new LoadingCache<>("test", new MapCache(), 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountingLoader loader = new CountingLoader("value", new CountDownLatch(0));
+        assertEquals("value1", cache.get("key", loader));
+        Thread.sleep(5);
+        CountingLoader slow = new CountingLoader("refreshed", release);
+        // due for refresh, the current value is returned while the reload runs in the background:
+        assertEquals("value1", cache.get("key", slow));
+        assertEquals("value1", cache.get("key", slow));
+        Thread.sleep(50);
+        assertEquals("Only one refresh should run at a time", 1, slow.calls.get());
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"refreshed1".equals(cache.get("key", slow))) {
+            assertTrue("Refresh should complete", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertTrue(cache.getRefreshCount() >= 1);
+    }
+
+    @Test
+    public void test_put_discards_overlapping_refresh() throws Exception {
+        LoadingCache<String> cache = new LoadingCache<>("test", new MapCache(), 1);
+        assertEquals("value1", cache.get("key", new CountingLoader("value", new CountDownLatch(0))));
+        Thread.sleep(5);
+        CountDownLatch release = new CountDownLatch(1);
+        CountingLoader slow = new CountingLoader("value", release);
+        cache.get("key", slow);
+        cache.put("key", "modified");
+        release.countDown();
+        Thread.sleep(200);
+        assertEquals(1, slow.calls.get());
+        assertEquals("modified", cache.get("key", new CountingLoader("value", new CountDownLatch(0))));
+    }
+
+    @Test
+    public void test_get_if_present_does_not_load() {
+        LoadingCache<String> cache = new LoadingCache<>("test", new MapCache(), 0);
+        assertNull(cache.getIfPresent("key"));
+        assertEquals(0, cache.getLoadCount());
+        assertEquals("value1", cache.get("key", new CountingLoader("value", new CountDownLatch(0))));
+        assertEquals("value1", cache.getIfPresent("key"));
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void test_clear_discards_overlapping_load() throws Exception {
+        final LoadingCache<String> cache = new LoadingCache<>("test", new MapCache(), 0);
+        CountDownLatch release = new CountDownLatch(1);
+        final CountingLoader slow = new CountingLoader("value", release);
+        final String[] result = new String[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result[0] = cache.get("key", slow);
+            }
+        });
+        thread.start();
+        Thread.sleep(200);
+        // a write made while the load reads the source:
+        assertFalse(cache.clear("key"));
+        release.countDown();
+        thread.join(5000);
+        assertEquals("The load is returned to its caller", "value1", result[0]);
+        assertNull("but not stored", cache.getIfPresent("key"));
+        assertEquals("value2", cache.get("key", slow));
+        assertEquals("value2", cache.getIfPresent("key"));
+    }
+
+    @Test
+    public void test_write_to_other_key_keeps_overlapping_load() throws Exception {
+        final LoadingCache<String> cache = new LoadingCache<>("test", new MapCache(), 0);
+        CountDownLatch release = new CountDownLatch(1);
+        final CountingLoader slow = new CountingLoader("value", release);
+        final String[] result = new String[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result[0] = cache.get("key", slow);
+            }
+        });
+        thread.start();
+        Thread.sleep(200);
+        // writes made while the load reads the source, to keys outside its stripe:
+        cache.put("other", "modified");
+        cache.clear("other");
+        release.countDown();
+        thread.join(5000);
+        assertEquals("value1", result[0]);
+        assertEquals("The load is stored", "value1", cache.getIfPresent("key"));
+        assertEquals(1, slow.calls.get());
+    }
+
+    @Test
+    public void test_primed_value_served_then_reconciled() throws Exception {
+        // refresh ahead disabled, a primed value is reconciled on first read regardless:
+        LoadingCache<String> cache = new LoadingCache<>("test", new MapCache(), 0);
+        assertTrue(cache.prime("key", "snapshot"));
+        assertFalse("A value that is present is kept", cache.prime("key", "other"));
+        CountDownLatch release = new CountDownLatch(1);
+        CountingLoader slow = new CountingLoader("value", release);
+        assertNull("A primed value is not a loaded one", cache.getLoaded("key", slow));
+        assertEquals("snapshot", cache.get("key", slow));
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"value1".equals(cache.get("key", slow))) {
+            assertTrue("Refresh should complete", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertEquals(1, slow.calls.get());
+        assertEquals("value1", cache.getLoaded("key", slow));
+        assertEquals(0, cache.getMissCount());
+        assertFalse(cache.prime("key", "snapshot"));
+    }
+
+    @Test
+    public void test_put_keeps_primed_value_primed() throws Exception {
+        LoadingCache<String> cache = new LoadingCache<>("test", new MapCache(), 0);
+        assertTrue(cache.prime("key", "snapshot"));
+        CountDownLatch release = new CountDownLatch(1);
+        CountingLoader slow = new CountingLoader("value", release);
+        assertEquals("snapshot", cache.get("key", slow));
+        // a write made while the refresh reads the source, which is discarded:
+        cache.put("key", "modified");
+        release.countDown();
+        Thread.sleep(200);
+        assertEquals(1, slow.calls.get());
+        assertNull("A primed value modified in place is not a loaded one", cache.getLoaded("key", slow));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"value2".equals(cache.get("key", slow))) {
+            assertTrue("The next read should reconcile it", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        cache.put("key", "modified");
+        assertEquals("A loaded value stays loaded", "modified", cache.getLoaded("key", slow));
+        assertEquals(2, slow.calls.get());
+    }
+
+    @Test
+    public void test_failed_load_is_not_retained() {
+        LoadingCache<String> cache = new LoadingCache<>("test", new MapCache(), 0);
+        try {
+            cache.get("key", new CacheLoader<String>() {
+                @Override
+                public String load() {
+                    throw new IllegalStateException("ldap down");
+                }
+            });
+            fail("Should propagate loader failure");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        assertEquals(1, cache.getLoadFailureCount());
+        assertEquals("value1", cache.get("key", new CountingLoader("value", new CountDownLatch(0))));
+    }
+}